@@ -0,0 +1,118 @@
+/* 
+Copyright (c) 2010, NHIN Direct Project
+All rights reserved.
+
+Authors:
+   Greg Meyer      gm2552@cerner.com
+ 
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer 
+in the documentation and/or other materials provided with the distribution.  Neither the name of the The NHIN Direct Project (nhindirect.org). 
+nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS 
+BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE 
+GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package org.nhindirect.config.events;
+
+import java.util.Calendar;
+
+/**
+ * A single change to the configuration.  The change identifies the changed entity by its type and key; clients fetch the
+ * current state of the entity from its resource.
+ * @author Greg Meyer
+ * @since 8.0
+ */
+public class ConfigChange 
+{
+	private long version;
+	
+	private ConfigEntityType entityType;
+	
+	private ConfigChangeType changeType;
+	
+	private String key;
+	
+	private Calendar changeTime;
+	
+	/**
+	 * Empty constructor
+	 */
+	public ConfigChange()
+	{
+		
+	}
+	
+	/**
+	 * Constructor
+	 * @param version The configuration version of the change.
+	 * @param entityType The type of the changed entity.
+	 * @param changeType The kind of change.
+	 * @param key The key of the changed entity.
+	 * @param changeTime The time of the change.
+	 */
+	public ConfigChange(long version, ConfigEntityType entityType, ConfigChangeType changeType, String key, Calendar changeTime)
+	{
+		this.version = version;
+		this.entityType = entityType;
+		this.changeType = changeType;
+		this.key = key;
+		this.changeTime = changeTime;
+	}
+
+	public long getVersion() 
+	{
+		return version;
+	}
+
+	public void setVersion(long version) 
+	{
+		this.version = version;
+	}
+
+	public ConfigEntityType getEntityType() 
+	{
+		return entityType;
+	}
+
+	public void setEntityType(ConfigEntityType entityType) 
+	{
+		this.entityType = entityType;
+	}
+
+	public ConfigChangeType getChangeType() 
+	{
+		return changeType;
+	}
+
+	public void setChangeType(ConfigChangeType changeType) 
+	{
+		this.changeType = changeType;
+	}
+
+	public String getKey() 
+	{
+		return key;
+	}
+
+	public void setKey(String key) 
+	{
+		this.key = key;
+	}
+
+	public Calendar getChangeTime() 
+	{
+		return changeTime;
+	}
+
+	public void setChangeTime(Calendar changeTime) 
+	{
+		this.changeTime = changeTime;
+	}
+}
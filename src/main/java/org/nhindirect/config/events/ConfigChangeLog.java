@@ -0,0 +1,203 @@
+/* 
+Copyright (c) 2010, NHIN Direct Project
+All rights reserved.
+
+Authors:
+   Greg Meyer      gm2552@cerner.com
+ 
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer 
+in the documentation and/or other materials provided with the distribution.  Neither the name of the The NHIN Direct Project (nhindirect.org). 
+nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS 
+BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE 
+GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package org.nhindirect.config.events;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+/**
+ * Bounded, in memory log of configuration changes.  Every change is assigned the next value of a global, monotonically increasing
+ * configuration version, so clients can request only the changes made after the last version that they have seen instead of
+ * reloading the entire configuration.
+ * <p>
+ * Only the most recent changes are retained.  If a client requests changes since a version that is no longer retained, the
+ * client must reload the full configuration.  Versions start at a value derived from the time the log is created, so a version
+ * issued by a previous instance of the service is always older than the retained changes of the current instance.  The log is
+ * not shared between instances of the service.
+ * <p>
+ * Recorded changes are also published to subscribers of the change stream as they happen.
+ * @author Greg Meyer
+ * @since 8.0
+ */
+public class ConfigChangeLog 
+{
+	protected static final int DEFAULT_MAX_SIZE = 10000;
+	
+	protected static final int DEFAULT_SUBSCRIBER_BUFFER_SIZE = 1000;
+	
+	protected final int maxSize;
+	
+	protected final Deque<ConfigChange> changes;
+	
+	protected final Sinks.Many<ConfigChange> changeSink;
+	
+	/**
+	 * The current configuration version
+	 */
+	protected long version;
+	
+	/**
+	 * The oldest version from which all later changes are retained
+	 */
+	protected long oldestVersion;
+	
+	/**
+	 * Creates a change log that retains the default number of changes.
+	 */
+	public ConfigChangeLog()
+	{
+		this(DEFAULT_MAX_SIZE);
+	}
+	
+	/**
+	 * Constructor
+	 * @param maxSize The maximum number of changes that are retained.
+	 */
+	public ConfigChangeLog(int maxSize)
+	{
+		this.maxSize = Math.max(maxSize, 1);
+		this.changes = new ArrayDeque<>();
+		this.changeSink = Sinks.many().multicast().directBestEffort();
+		
+		// leave room for 1024 changes per millisecond before versions of the next instance could overlap
+		this.version = System.currentTimeMillis() << 10;
+		this.oldestVersion = version;
+	}
+	
+	/**
+	 * Records a change and increments the configuration version.
+	 * @param entityType The type of the changed entity.
+	 * @param changeType The kind of change.
+	 * @param key The key of the changed entity.
+	 * @return The recorded change.
+	 */
+	public synchronized ConfigChange record(ConfigEntityType entityType, ConfigChangeType changeType, String key)
+	{
+		final ConfigChange change = new ConfigChange(++version, entityType, changeType, key, Calendar.getInstance());
+		
+		changes.addLast(change);
+		while (changes.size() > maxSize)
+			oldestVersion = changes.removeFirst().getVersion();
+		
+		// emission is serialized by the lock so subscribers see changes in version order
+		changeSink.tryEmitNext(change);
+		
+		return change;
+	}
+	
+	/**
+	 * Gets the current configuration version.
+	 * @return The current configuration version.
+	 */
+	public synchronized long getVersion()
+	{
+		return version;
+	}
+	
+	/**
+	 * Gets the changes made after a given version.
+	 * @param since The last version seen by the client.  A negative value returns the current version without any changes.
+	 * @return The changes made after the version, or null if the version is no longer retained or was not issued by this log.
+	 */
+	public synchronized ConfigChanges getChangesSince(long since)
+	{
+		if (since < 0)
+			return new ConfigChanges(version, Collections.emptyList());
+		
+		if (since < oldestVersion || since > version)
+			return null;
+		
+		final List<ConfigChange> retVal = new ArrayList<>((int)(version - since));
+		
+		// walk back from the newest change until the requested version is reached
+		final Iterator<ConfigChange> iter = changes.descendingIterator();
+		while (iter.hasNext())
+		{
+			final ConfigChange change = iter.next();
+			if (change.getVersion() <= since)
+				break;
+			
+			retVal.add(change);
+		}
+		Collections.reverse(retVal);
+		
+		return new ConfigChanges(version, retVal);
+	}
+	
+	/**
+	 * Gets a stream of changes.  The stream starts with the retained changes made after the given version followed by each change as
+	 * it is recorded; no change is missed or repeated between the two.  Each subscriber buffers up to the default number of changes
+	 * that it has not yet consumed.
+	 * @param since The last version seen by the subscriber.  A negative value streams only new changes.
+	 * @return A stream of changes.  The stream fails with an {@link IllegalStateException} if the changes since the version are no
+	 * longer retained or if the subscriber falls too far behind, in which case the subscriber must reload the full configuration.
+	 */
+	public Flux<ConfigChange> getChangeStream(long since)
+	{
+		return getChangeStream(since, DEFAULT_SUBSCRIBER_BUFFER_SIZE);
+	}
+	
+	/**
+	 * Gets a stream of changes.
+	 * @param since The last version seen by the subscriber.  A negative value streams only new changes.
+	 * @param bufferSize The maximum number of changes buffered for the subscriber.
+	 * @return A stream of changes.
+	 * @see #getChangeStream(long)
+	 */
+	public Flux<ConfigChange> getChangeStream(long since, int bufferSize)
+	{
+		return Flux.defer(() -> 
+		{
+			final Sinks.Many<ConfigChange> subscriberSink = Sinks.many().unicast().onBackpressureBuffer(Queues.<ConfigChange>get(bufferSize).get());
+			final ConfigChanges missed;
+			final Disposable liveChanges;
+			
+			// take the snapshot and subscribe to new changes atomically with respect to record()
+			synchronized (this)
+			{
+				missed = getChangesSince(since);
+				if (missed == null)
+					return Flux.error(new IllegalStateException("Changes since version " + since + " are no longer retained"));
+				
+				liveChanges = changeSink.asFlux().subscribe(change -> 
+				{
+					if (subscriberSink.tryEmitNext(change).isFailure())
+						subscriberSink.tryEmitError(new IllegalStateException("Change stream subscriber fell behind at version " + change.getVersion()));
+				});
+			}
+			
+			return Flux.fromIterable(missed.getChanges())
+				.concatWith(subscriberSink.asFlux())
+				.doFinally(signal -> liveChanges.dispose());
+		});
+	}
+}
@@ -0,0 +1,77 @@
+/* 
+Copyright (c) 2010, NHIN Direct Project
+All rights reserved.
+
+Authors:
+   Greg Meyer      gm2552@cerner.com
+ 
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer 
+in the documentation and/or other materials provided with the distribution.  Neither the name of the The NHIN Direct Project (nhindirect.org). 
+nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS 
+BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE 
+GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package org.nhindirect.config.events;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * The changes made to the configuration since a given version along with the current configuration version.  Clients pass the
+ * current version as the starting point of their next request.
+ * @author Greg Meyer
+ * @since 8.0
+ */
+public class ConfigChanges 
+{
+	private long version;
+	
+	private Collection<ConfigChange> changes;
+	
+	/**
+	 * Empty constructor
+	 */
+	public ConfigChanges()
+	{
+		changes = new ArrayList<>();
+	}
+	
+	/**
+	 * Constructor
+	 * @param version The current configuration version.
+	 * @param changes The changes made after the requested version in the order they were made.
+	 */
+	public ConfigChanges(long version, Collection<ConfigChange> changes)
+	{
+		this.version = version;
+		this.changes = changes;
+	}
+
+	public long getVersion() 
+	{
+		return version;
+	}
+
+	public void setVersion(long version) 
+	{
+		this.version = version;
+	}
+
+	public Collection<ConfigChange> getChanges() 
+	{
+		return changes;
+	}
+
+	public void setChanges(Collection<ConfigChange> changes) 
+	{
+		this.changes = changes;
+	}
+}
@@ -0,0 +1,87 @@
+/* 
+Copyright (c) 2010, NHIN Direct Project
+All rights reserved.
+
+Authors:
+   Greg Meyer      gm2552@cerner.com
+ 
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer 
+in the documentation and/or other materials provided with the distribution.  Neither the name of the The NHIN Direct Project (nhindirect.org). 
+nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS 
+BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE 
+GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package org.nhindirect.config.events;
+
+/**
+ * The types of configuration entities whose changes are recorded in the {@link ConfigChangeLog}.
+ * @author Greg Meyer
+ * @since 8.0
+ */
+public enum ConfigEntityType 
+{
+	/**
+	 * An address.  The key is the email address.
+	 */
+	ADDRESS,
+	
+	/**
+	 * A domain including its addresses.  The key is the domain name.
+	 */
+	DOMAIN,
+	
+	/**
+	 * An anchor.  The key is the owner of the anchor or the ids of removed anchors.
+	 */
+	ANCHOR,
+	
+	/**
+	 * A certificate.  The key is the owner of the certificate or the ids of removed certificates.
+	 */
+	CERTIFICATE,
+	
+	/**
+	 * A DNS record.  The key is the record name or the ids of removed records.
+	 */
+	DNS_RECORD,
+	
+	/**
+	 * A setting.  The key is the setting name.
+	 */
+	SETTING,
+	
+	/**
+	 * A certificate policy.  The key is the policy name.
+	 */
+	CERT_POLICY,
+	
+	/**
+	 * A certificate policy group including the policies that it uses.  The key is the group name.
+	 */
+	CERT_POLICY_GROUP,
+	
+	/**
+	 * An association between a policy group and a domain.  The key is the group name and domain name separated by a slash.
+	 * A * is used for the group or domain when all associations of a domain or group are removed.
+	 */
+	CERT_POLICY_GROUP_DOMAIN_RELTN,
+	
+	/**
+	 * A trust bundle including its anchors.  The key is the bundle name.
+	 */
+	TRUST_BUNDLE,
+	
+	/**
+	 * An association between a trust bundle and a domain.  The key is the bundle name and domain name separated by a slash.
+	 * A * is used for the bundle or domain when all associations of a domain or bundle are removed.
+	 */
+	TRUST_BUNDLE_DOMAIN_RELTN;
+}
@@ -0,0 +1,54 @@
+/* 
+Copyright (c) 2010, NHIN Direct Project
+All rights reserved.
+
+Authors:
+   Greg Meyer      gm2552@cerner.com
+ 
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer 
+in the documentation and/or other materials provided with the distribution.  Neither the name of the The NHIN Direct Project (nhindirect.org). 
+nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS 
+BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE 
+GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package org.nhindirect.config.processor;
+
+import org.nhindirect.config.store.TrustBundle;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Interface for scheduling the refresh of each trust bundle at the time its refresh interval is exceeded.  The schedule is
+ * kept in memory and must be updated when bundles are added, deleted, or their refresh interval changes.
+ * @author Greg Meyer
+ * @since 8.0
+ */
+public interface BundleRefreshScheduler 
+{
+	/**
+	 * Schedules the next refresh of a bundle based on its last successful refresh and refresh interval, replacing any existing 
+	 * schedule of the bundle.  Bundles with a refresh interval of 0 or less are removed from the schedule.
+	 * @param bundle The bundle to schedule.
+	 */
+	public void scheduleBundle(TrustBundle bundle);
+	
+	/**
+	 * Removes a bundle from the schedule.
+	 * @param bundleId The id of the bundle.
+	 */
+	public void unscheduleBundle(Long bundleId);
+	
+	/**
+	 * Synchronizes the schedule with all trust bundles in the system.  Bundles that are not yet scheduled are added, and
+	 * bundles that no longer exist are removed.
+	 */
+	public Mono<Void> scheduleAll();
+}
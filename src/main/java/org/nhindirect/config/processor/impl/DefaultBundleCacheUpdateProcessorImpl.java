@@ -21,13 +21,22 @@ THE POSSIBILITY OF SUCH DAMAGE.
 
 package org.nhindirect.config.processor.impl;
 
+import java.net.URI;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
+import org.apache.commons.lang3.StringUtils;
 import org.nhindirect.config.processor.BundleCacheUpdateProcessor;
 import org.nhindirect.config.processor.BundleRefreshProcessor;
 import org.nhindirect.config.repository.TrustBundleRepository;
+import org.nhindirect.config.store.TrustBundle;
 
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 /**
@@ -38,6 +47,10 @@ import reactor.core.publisher.Mono;
  * each bundle's last refresh time.
  * If a bundles refresh interval has not been exceeded since its last update, then it will not checked
  * for updates.
+ * <p>
+ * Bundles that are due for a refresh are processed in order of how overdue they are.  The number of bundles refreshed
+ * at the same time is limited by {@link #setMaxConcurrentRefreshes(int)}, and the number of bundles refreshed at the same time
+ * from a single host is limited by {@link #setMaxConcurrentRefreshesPerHost(int)}.
  * @author Greg Meyer
  * @since 1.3
  */
@@ -55,6 +68,20 @@ public class DefaultBundleCacheUpdateProcessorImpl implements BundleCacheUpdateP
 	 */
 	protected BundleRefreshProcessor refreshProcessor;
 	
+	/**
+	 * The default maximum number of bundles that are refreshed at the same time.
+	 */
+	public static final int DEFAULT_MAX_CONCURRENT_REFRESHES = 4;
+	
+	/**
+	 * The default maximum number of bundles that are refreshed at the same time from the same host.
+	 */
+	public static final int DEFAULT_MAX_CONCURRENT_REFRESHES_PER_HOST = 1;
+	
+	protected int maxConcurrentRefreshes = DEFAULT_MAX_CONCURRENT_REFRESHES;
+	
+	protected int maxConcurrentRefreshesPerHost = DEFAULT_MAX_CONCURRENT_REFRESHES_PER_HOST;
+	
 	/**
 	 * Default constructor
 	 */
@@ -82,6 +109,24 @@ public class DefaultBundleCacheUpdateProcessorImpl implements BundleCacheUpdateP
 		this.refreshProcessor = refreshProcessor;
 	}
 	
+	/**
+	 * Sets the maximum number of bundles that are refreshed at the same time.
+	 * @param maxConcurrentRefreshes The maximum number of concurrent refreshes.  Values less than 1 are treated as 1.
+	 */
+	public void setMaxConcurrentRefreshes(int maxConcurrentRefreshes)
+	{
+		this.maxConcurrentRefreshes = Math.max(1, maxConcurrentRefreshes);
+	}
+	
+	/**
+	 * Sets the maximum number of bundles that are refreshed at the same time from the same host.
+	 * @param maxConcurrentRefreshesPerHost The maximum number of concurrent refreshes per host.  Values less than 1 are treated as 1.
+	 */
+	public void setMaxConcurrentRefreshesPerHost(int maxConcurrentRefreshesPerHost)
+	{
+		this.maxConcurrentRefreshesPerHost = Math.max(1, maxConcurrentRefreshesPerHost);
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -89,42 +134,18 @@ public class DefaultBundleCacheUpdateProcessorImpl implements BundleCacheUpdateP
 	{
 		try
 		{
+			final LocalDateTime now = LocalDateTime.now();
+			
 			return bundleRepo.findAll()
-				.flatMap(bundle -> 
-				{
-					
-					// if the refresh interval is 0 or less, then we won't ever auto refresh the bundle
-					if (bundle.getRefreshInterval() <= 0)
-						return Mono.empty(); 
-					
-					boolean refresh = false;
-					
-					
-					// see if this bundle needs to be checked for updating
-					final LocalDateTime lastAttempt = bundle.getLastSuccessfulRefresh();
-					
-					if (lastAttempt == null)
-						// never been attempted successfully... better go get it
-						refresh = true;
-					else
-					{
-						// check the the last attempt date against now and see if we need to refresh
-						LocalDateTime now = LocalDateTime.now();
-						LocalDateTime lastAttemptCheck = LocalDateTime.from(lastAttempt);
-						lastAttemptCheck = lastAttemptCheck.plusSeconds(bundle.getRefreshInterval());
-						
-						if (lastAttemptCheck.isBefore(now))
-							refresh = true;
-					}
-					
-					final Mono<?> retVal = (refresh) ? refreshProcessor.refreshBundle(bundle) : Mono.empty();
-	
-					return retVal
+				.filter(bundle -> isRefreshDue(bundle, now))
+				.collectSortedList(Comparator.comparing(DefaultBundleCacheUpdateProcessorImpl::getRefreshDueTime))
+				.flatMapMany(dueBundles -> Flux.fromIterable(createRefreshLanes(dueBundles)))
+				.flatMap(lane -> Flux.fromIterable(lane)
+					.concatMap(bundle -> Mono.defer(() -> refreshProcessor.refreshBundle(bundle))
 				   	     	.onErrorResume(e -> { 
 				   	    		log.error("Error refreshing trust bundles", e);
 				   	    		return Mono.empty();
-				   	    	});	
-				})
+				   	    	})), maxConcurrentRefreshes)
 				.onErrorResume(e -> { 
 	   	    		log.error("Error refreshing trust bundles", e);
 	   	    		return Mono.empty();
@@ -138,4 +159,100 @@ public class DefaultBundleCacheUpdateProcessorImpl implements BundleCacheUpdateP
 		}
 
 	}
+	
+	/**
+	 * Determines if a bundle's refresh interval has been exceeded since its last successful refresh.
+	 * @param bundle The bundle to check.
+	 * @param now The time of the check.
+	 * @return True if the bundle should be refreshed.
+	 */
+	protected static boolean isRefreshDue(TrustBundle bundle, LocalDateTime now)
+	{
+		// if the refresh interval is 0 or less, then we won't ever auto refresh the bundle
+		if (bundle.getRefreshInterval() <= 0)
+			return false; 
+		
+		// never been attempted successfully... better go get it
+		if (bundle.getLastSuccessfulRefresh() == null)
+			return true;
+		
+		// check the the last attempt date against now and see if we need to refresh
+		return getRefreshDueTime(bundle).isBefore(now);
+	}
+	
+	/**
+	 * Gets the time that a bundle is due to be refreshed.  Bundles that have never been successfully refreshed
+	 * are due immediately.
+	 * @param bundle The bundle.
+	 * @return The time that the bundle is due to be refreshed.
+	 */
+	protected static LocalDateTime getRefreshDueTime(TrustBundle bundle)
+	{
+		final LocalDateTime lastRefresh = bundle.getLastSuccessfulRefresh();
+		
+		return (lastRefresh == null) ? LocalDateTime.MIN : lastRefresh.plusSeconds(bundle.getRefreshInterval());
+	}
+	
+	/**
+	 * Splits the bundles that are due for a refresh into lanes that are each processed sequentially.  Each host gets at most
+	 * the configured per host limit of lanes, so running the lanes concurrently never exceeds the per host limit.
+	 * Lanes are ordered by their most overdue bundle.
+	 * @param dueBundles The bundles that are due for refresh ordered by how overdue they are.
+	 * @return The refresh lanes.
+	 */
+	protected List<List<TrustBundle>> createRefreshLanes(List<TrustBundle> dueBundles)
+	{
+		return createRefreshLanes(dueBundles, maxConcurrentRefreshesPerHost);
+	}
+	
+	/**
+	 * Splits the bundles that are due for a refresh into lanes that are each processed sequentially.  Each host gets at most
+	 * the given number of lanes.  Lanes are ordered by their most overdue bundle.
+	 * @param dueBundles The bundles that are due for refresh ordered by how overdue they are.
+	 * @param maxConcurrentRefreshesPerHost The maximum number of lanes per host.
+	 * @return The refresh lanes.
+	 */
+	protected static List<List<TrustBundle>> createRefreshLanes(List<TrustBundle> dueBundles, int maxConcurrentRefreshesPerHost)
+	{
+		final Map<String, List<List<TrustBundle>>> hostLanes = new LinkedHashMap<>();
+		final Map<String, Integer> hostCounts = new LinkedHashMap<>();
+		final List<List<TrustBundle>> lanes = new ArrayList<>();
+		
+		for (TrustBundle bundle : dueBundles)
+		{
+			final String host = getBundleHost(bundle);
+			final List<List<TrustBundle>> laneList = hostLanes.computeIfAbsent(host, key -> new ArrayList<>());
+			final int count = hostCounts.merge(host, 1, Integer::sum);
+			
+			if (laneList.size() < maxConcurrentRefreshesPerHost)
+			{
+				final List<TrustBundle> lane = new ArrayList<>();
+				laneList.add(lane);
+				lanes.add(lane);
+			}
+			
+			// distribute the host's bundles across its lanes in order of how overdue they are
+			laneList.get((count - 1) % maxConcurrentRefreshesPerHost).add(bundle);
+		}
+		
+		return lanes;
+	}
+	
+	/**
+	 * Gets the host that a bundle is downloaded from.
+	 * @param bundle The bundle.
+	 * @return The lower case host name of the bundle URL or an empty string if the host cannot be determined.
+	 */
+	protected static String getBundleHost(TrustBundle bundle)
+	{
+		try
+		{
+			final String host = new URI(bundle.getBundleURL()).getHost();
+			return StringUtils.isBlank(host) ? "" : host.toLowerCase();
+		}
+		catch (Exception e)
+		{
+			return "";
+		}
+	}
 }
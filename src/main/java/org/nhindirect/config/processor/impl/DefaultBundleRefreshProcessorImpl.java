@@ -21,12 +21,17 @@ THE POSSIBILITY OF SUCH DAMAGE.
 
 package org.nhindirect.config.processor.impl;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.SocketAddress;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateFactory;
@@ -38,27 +43,53 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.bouncycastle.cms.CMSProcessableByteArray;
-import org.bouncycastle.cms.CMSSignedData;
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1Encoding;
+import org.bouncycastle.asn1.ASN1InputStream;
+import org.bouncycastle.asn1.ASN1Primitive;
+import org.bouncycastle.asn1.ASN1Set;
+import org.bouncycastle.asn1.cms.CMSObjectIdentifiers;
+import org.bouncycastle.asn1.cms.ContentInfo;
+import org.bouncycastle.asn1.cms.SignedData;
+import org.bouncycastle.cms.CMSSignedDataParser;
+import org.bouncycastle.cms.CMSTypedStream;
 import org.bouncycastle.cms.SignerInformation;
 import org.bouncycastle.cms.jcajce.JcaSimpleSignerInfoVerifierBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+import org.bouncycastle.util.io.pem.PemObject;
+import org.bouncycastle.util.io.pem.PemReader;
 import org.nhindirect.common.crypto.CryptoExtensions;
 import org.nhindirect.common.options.OptionsManager;
 import org.nhindirect.common.options.OptionsParameter;
+import org.nhindirect.config.events.ConfigChangeLog;
+import org.nhindirect.config.events.ConfigChangeType;
+import org.nhindirect.config.events.ConfigEntityType;
 import org.nhindirect.config.processor.BundleRefreshProcessor;
 import org.nhindirect.config.repository.TrustBundleAnchorRepository;
 import org.nhindirect.config.repository.TrustBundleRepository;
+import org.nhindirect.config.resources.util.CertificateCache;
 import org.nhindirect.config.store.BundleRefreshError;
 import org.nhindirect.config.store.BundleThumbprint;
 import org.nhindirect.config.store.TrustBundle;
 import org.nhindirect.config.store.TrustBundleAnchor;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import org.springframework.web.reactive.function.client.WebClient;
 
 import io.netty.channel.ChannelOption;
@@ -69,8 +100,12 @@ import io.netty.handler.timeout.ReadTimeoutHandler;
 import io.netty.handler.timeout.WriteTimeoutHandler;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.Http2SslContextSpec;
+import reactor.netty.http.HttpProtocol;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionPoolMetrics;
 import reactor.netty.resources.ConnectionProvider;
 
 /**
@@ -80,6 +115,14 @@ import reactor.netty.resources.ConnectionProvider;
  * chain back to a trust CA.  This is useful in development environments and is not recommended in
  * a production environment.  By default, this feature is disable, but can be enabled using the 
  * {@link DefaultBundleRefreshProcessorImpl#BUNDLE_REFRESH_PROCESSOR_ALLOW_DOWNLOAD_FROM_UNTRUSTED} options parameter.
+ * <p>
+ * Bundles are downloaded using a single HTTP client and connection pool that is shared across all refreshes performed by
+ * the processor.  The pool is created on the first download and released when {@link #shutdown()} is called.
+ * <p>
+ * The ETag and Last-Modified validators returned by a bundle host are remembered for each bundle and sent as a conditional
+ * request on the next refresh.  A 304 response is treated as a successful refresh in which the bundle did not change.  The
+ * validators are held in memory by the processor and are only used while the bundle's checksum still matches the download
+ * they were received with.
  * @author Greg Meyer
  * @since 1.3
  */
@@ -93,9 +136,53 @@ public class DefaultBundleRefreshProcessorImpl implements BundleRefreshProcessor
 	 */
     public final static String BUNDLE_REFRESH_PROCESSOR_ALLOW_DOWNLOAD_FROM_UNTRUSTED = "BUNDLE_REFRESH_PROCESSOR_ALLOW_DOWNLOAD_FROM_UNTRUSTED";   
 	
+	/**
+	 * Integer value that specifies the maximum number of pooled connections used for downloading bundles.  The default value is 50.
+	 * <p><b>JVM Parameter/Options Name:</b> org.nhindirect.config.processor.impl.bundlerefresh.MaxConnections
+	 */
+    public final static String BUNDLE_REFRESH_PROCESSOR_MAX_CONNECTIONS = "BUNDLE_REFRESH_PROCESSOR_MAX_CONNECTIONS";
+    
+	/**
+	 * Integer value that specifies the number of seconds a pooled connection may sit idle before it is closed.  The default value is 20.
+	 * <p><b>JVM Parameter/Options Name:</b> org.nhindirect.config.processor.impl.bundlerefresh.PoolMaxIdleTime
+	 */
+    public final static String BUNDLE_REFRESH_PROCESSOR_POOL_MAX_IDLE_TIME = "BUNDLE_REFRESH_PROCESSOR_POOL_MAX_IDLE_TIME";
+    
+	/**
+	 * Integer value that specifies the number of TLS sessions cached for resumption with bundle hosts.  The default value is 1024.
+	 * <p><b>JVM Parameter/Options Name:</b> org.nhindirect.config.processor.impl.bundlerefresh.SSLSessionCacheSize
+	 */
+    public final static String BUNDLE_REFRESH_PROCESSOR_SSL_SESSION_CACHE_SIZE = "BUNDLE_REFRESH_PROCESSOR_SSL_SESSION_CACHE_SIZE";
+    
+	/**
+	 * Boolean value that specifies if HTTP/2 should be negotiated with bundle hosts that support it.  Hosts that do not support HTTP/2
+	 * fall back to HTTP/1.1.  The default value is false.
+	 * <p><b>JVM Parameter/Options Name:</b> org.nhindirect.config.processor.impl.bundlerefresh.EnableHTTP2
+	 */
+    public final static String BUNDLE_REFRESH_PROCESSOR_ENABLE_HTTP2 = "BUNDLE_REFRESH_PROCESSOR_ENABLE_HTTP2";
+    
+	/**
+	 * Integer value that specifies the maximum size in bytes of a downloaded bundle.  Larger bundles are rejected.  The default value is 
+	 * 20971520 (20 MB).
+	 * <p><b>JVM Parameter/Options Name:</b> org.nhindirect.config.processor.impl.bundlerefresh.MaxBundleSize
+	 */
+    public final static String BUNDLE_REFRESH_PROCESSOR_MAX_BUNDLE_SIZE = "BUNDLE_REFRESH_PROCESSOR_MAX_BUNDLE_SIZE";
+    
+	/**
+	 * String value that specifies the message digest algorithm used to calculate bundle checksums.  Changing the algorithm causes each
+	 * bundle to be reprocessed once on its next refresh.  The default value is SHA-1.
+	 * <p><b>JVM Parameter/Options Name:</b> org.nhindirect.config.processor.impl.bundlerefresh.CheckSumAlgorithm
+	 */
+    public final static String BUNDLE_REFRESH_PROCESSOR_CHECKSUM_ALGORITHM = "BUNDLE_REFRESH_PROCESSOR_CHECKSUM_ALGORITHM";
+    
 	protected static final int DEFAULT_URL_CONNECTION_TIMEOUT = 10000; // 10 seconds	
 	protected static final int DEFAULT_URL_READ_TIMEOUT = 10000; // 10 seconds
 	protected static final int POOL_MAX_IDLE_TIME = 20; // 20 seconds
+	protected static final int DEFAULT_POOL_MAX_CONNECTIONS = 50;
+	protected static final int DEFAULT_SSL_SESSION_CACHE_SIZE = 1024;
+	protected static final int DEFAULT_MAX_BUNDLE_SIZE = 20971520; // 20 MB
+	protected static final int BUNDLE_READ_BUFFER_SIZE = 8192;
+	protected static final String DEFAULT_CHECKSUM_ALGORITHM = "SHA-1";
 	
     /**
      * Trust bundle repo
@@ -106,6 +193,44 @@ public class DefaultBundleRefreshProcessorImpl implements BundleRefreshProcessor
 	
 	protected SslContext sslContext;
 	
+	protected boolean allowNonVerifiedSSL;
+	
+	protected int maxConnections;
+	
+	protected int maxBundleSize;
+	
+	protected String checkSumAlgorithm;
+	
+	protected int poolMaxIdleTime;
+	
+	protected int sslSessionCacheSize;
+	
+	protected boolean enableHttp2;
+	
+	/**
+	 * Connection pool shared by all bundle downloads.  Created on first use.
+	 */
+	protected ConnectionProvider connectionProvider;
+	
+	/**
+	 * Web client shared by all bundle downloads.  Created on first use.
+	 */
+	protected WebClient webClient;
+	
+	/**
+	 * Connection pool metrics keyed by the remote address of the pool.
+	 */
+	protected final Map<SocketAddress, ConnectionPoolMetrics> poolMetrics = new ConcurrentHashMap<>();
+	
+	/**
+	 * HTTP cache validators of the last successful download keyed by trust bundle id.
+	 */
+	protected final Map<Long, BundleValidators> bundleValidators = new ConcurrentHashMap<>();
+	
+	protected TransactionalOperator transactionalOperator;
+	
+	protected ConfigChangeLog changeLog;
+	
     static
     {
     	initJVMParams();
@@ -121,6 +246,12 @@ public class DefaultBundleRefreshProcessorImpl implements BundleRefreshProcessor
 		
 		final Map<String, String> JVM_PARAMS = new HashMap<String, String>();
 		JVM_PARAMS.put(BUNDLE_REFRESH_PROCESSOR_ALLOW_DOWNLOAD_FROM_UNTRUSTED, "org.nhindirect.config.processor.impl.bundlerefresh.AllowNonVerifiedSSL");	
+		JVM_PARAMS.put(BUNDLE_REFRESH_PROCESSOR_MAX_CONNECTIONS, "org.nhindirect.config.processor.impl.bundlerefresh.MaxConnections");
+		JVM_PARAMS.put(BUNDLE_REFRESH_PROCESSOR_POOL_MAX_IDLE_TIME, "org.nhindirect.config.processor.impl.bundlerefresh.PoolMaxIdleTime");
+		JVM_PARAMS.put(BUNDLE_REFRESH_PROCESSOR_SSL_SESSION_CACHE_SIZE, "org.nhindirect.config.processor.impl.bundlerefresh.SSLSessionCacheSize");
+		JVM_PARAMS.put(BUNDLE_REFRESH_PROCESSOR_ENABLE_HTTP2, "org.nhindirect.config.processor.impl.bundlerefresh.EnableHTTP2");
+		JVM_PARAMS.put(BUNDLE_REFRESH_PROCESSOR_MAX_BUNDLE_SIZE, "org.nhindirect.config.processor.impl.bundlerefresh.MaxBundleSize");
+		JVM_PARAMS.put(BUNDLE_REFRESH_PROCESSOR_CHECKSUM_ALGORITHM, "org.nhindirect.config.processor.impl.bundlerefresh.CheckSumAlgorithm");
 		
 		OptionsManager.addInitParameters(JVM_PARAMS);
 	}    
@@ -131,12 +262,34 @@ public class DefaultBundleRefreshProcessorImpl implements BundleRefreshProcessor
 	@SneakyThrows
 	public DefaultBundleRefreshProcessorImpl()
 	{
-		OptionsParameter allowNonVerSSLParam = OptionsManager.getInstance().getParameter(BUNDLE_REFRESH_PROCESSOR_ALLOW_DOWNLOAD_FROM_UNTRUSTED);
+		final OptionsManager options = OptionsManager.getInstance();
+		
+		allowNonVerifiedSSL = OptionsParameter.getParamValueAsBoolean(options.getParameter(BUNDLE_REFRESH_PROCESSOR_ALLOW_DOWNLOAD_FROM_UNTRUSTED), false);
+		maxConnections = OptionsParameter.getParamValueAsInteger(options.getParameter(BUNDLE_REFRESH_PROCESSOR_MAX_CONNECTIONS), DEFAULT_POOL_MAX_CONNECTIONS);
+		poolMaxIdleTime = OptionsParameter.getParamValueAsInteger(options.getParameter(BUNDLE_REFRESH_PROCESSOR_POOL_MAX_IDLE_TIME), POOL_MAX_IDLE_TIME);
+		sslSessionCacheSize = OptionsParameter.getParamValueAsInteger(options.getParameter(BUNDLE_REFRESH_PROCESSOR_SSL_SESSION_CACHE_SIZE), DEFAULT_SSL_SESSION_CACHE_SIZE);
+		enableHttp2 = OptionsParameter.getParamValueAsBoolean(options.getParameter(BUNDLE_REFRESH_PROCESSOR_ENABLE_HTTP2), false);
+		maxBundleSize = OptionsParameter.getParamValueAsInteger(options.getParameter(BUNDLE_REFRESH_PROCESSOR_MAX_BUNDLE_SIZE), DEFAULT_MAX_BUNDLE_SIZE);
+		
+		final OptionsParameter algorithmParam = options.getParameter(BUNDLE_REFRESH_PROCESSOR_CHECKSUM_ALGORITHM);
+		checkSumAlgorithm = (algorithmParam == null || StringUtils.isBlank(algorithmParam.getParamValue())) ? DEFAULT_CHECKSUM_ALGORITHM : 
+			algorithmParam.getParamValue();
+		try
+		{
+			MessageDigest.getInstance(checkSumAlgorithm);
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			log.warn("Bundle checksum algorithm {} is not supported.  Using {}.", checkSumAlgorithm, DEFAULT_CHECKSUM_ALGORITHM);
+			checkSumAlgorithm = DEFAULT_CHECKSUM_ALGORITHM;
+		}
+		
 		///CLOVER:OFF
 		final SslContextBuilder sslBuilder  = SslContextBuilder
-        .forClient();
+        .forClient()
+        .sessionCacheSize(sslSessionCacheSize);
 
-		if (OptionsParameter.getParamValueAsBoolean(allowNonVerSSLParam, false))
+		if (allowNonVerifiedSSL)
 			sslBuilder.trustManager(InsecureTrustManagerFactory.INSTANCE);
 			
 		sslContext = sslBuilder.build();
@@ -144,6 +297,76 @@ public class DefaultBundleRefreshProcessorImpl implements BundleRefreshProcessor
 		///CLOVER:ON
 	}
 	
+	/**
+	 * Releases the shared connection pool used for downloading bundles.  This is called by the container when the processor
+	 * is destroyed.
+	 */
+	public synchronized void shutdown()
+	{
+		if (connectionProvider != null)
+		{
+			connectionProvider.dispose();
+			connectionProvider = null;
+			webClient = null;
+			poolMetrics.clear();
+		}
+	}
+	
+	/**
+	 * Gets the metrics of the shared bundle download connection pools keyed by the remote address of each pool.
+	 * @return The connection pool metrics.  The map is empty if no bundles have been downloaded over HTTP.
+	 */
+	public Map<SocketAddress, ConnectionPoolMetrics> getConnectionPoolMetrics()
+	{
+		return Collections.unmodifiableMap(poolMetrics);
+	}
+	
+	/**
+	 * Gets the web client used for downloading bundles, creating the shared connection pool if it does not already exist.
+	 * @return The shared web client.
+	 */
+	protected synchronized WebClient getWebClient()
+	{
+		if (webClient == null)
+		{
+			// the configured pool max idle time prevents "Connection reset by peer" errors
+			connectionProvider = ConnectionProvider.builder("bundle-refresh")
+					.maxConnections(maxConnections)
+					.maxIdleTime(Duration.ofSeconds(poolMaxIdleTime))
+					.metrics(true, () -> (poolName, id, remoteAddress, metrics) -> poolMetrics.put(remoteAddress, metrics))
+					.build();
+			
+			HttpClient httpClient = HttpClient.create(connectionProvider)
+					  .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, DEFAULT_URL_CONNECTION_TIMEOUT)
+					  .responseTimeout(Duration.ofMillis(DEFAULT_URL_CONNECTION_TIMEOUT))
+					  .doOnConnected(conn -> 
+					    conn.addHandlerLast(new ReadTimeoutHandler(DEFAULT_URL_READ_TIMEOUT, TimeUnit.MILLISECONDS))
+					      .addHandlerLast(new WriteTimeoutHandler(DEFAULT_URL_READ_TIMEOUT, TimeUnit.MILLISECONDS)));
+			
+			if (enableHttp2)
+			{
+				final Http2SslContextSpec http2SslSpec = Http2SslContextSpec.forClient()
+						.configure(builder -> 
+						{
+							builder.sessionCacheSize(sslSessionCacheSize);
+							if (allowNonVerifiedSSL)
+								builder.trustManager(InsecureTrustManagerFactory.INSTANCE);
+						});
+				
+				httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11)
+						.secure(t -> t.sslContext(http2SslSpec));
+			}
+			else
+				httpClient = httpClient.secure(t -> t.sslContext(sslContext));
+			
+			webClient = WebClient.builder()
+					.clientConnector(new ReactorClientHttpConnector(httpClient))
+					.build();
+		}
+		
+		return webClient;
+	}
+	
 	/**
 	 * Sets the trust bundle repository for updating the bundle storage medium.
 	 * @param bundleRepo The trust bundle repository
@@ -165,6 +388,26 @@ public class DefaultBundleRefreshProcessorImpl implements BundleRefreshProcessor
 		this.bundleAnchorRepo = bundleAnchorRepo;
 	}
 	
+	/**
+	 * Sets the operator used to apply anchor changes and the bundle update in a single transaction.  If not set, the changes
+	 * are applied without a transaction.
+	 * @param transactionalOperator The transactional operator.
+	 */
+	public void setTransactionalOperator(TransactionalOperator transactionalOperator)
+	{
+		this.transactionalOperator = transactionalOperator;
+	}
+	
+	/**
+	 * Sets the log where changes to bundle anchors are recorded and published.  Refreshes that do not add or remove anchors are not
+	 * recorded.  If not set, anchor changes are not recorded.
+	 * @param changeLog The configuration change log.
+	 */
+	public void setChangeLog(ConfigChangeLog changeLog)
+	{
+		this.changeLog = changeLog;
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -173,45 +416,34 @@ public class DefaultBundleRefreshProcessorImpl implements BundleRefreshProcessor
 		// track when the process started
 		final LocalDateTime processAttempStart = LocalDateTime.now();
 
-		// get the bundle from the URL
-		return downloadBundleToByteArray(bundle, processAttempStart)
-			.flatMap(rawBundle -> 
+		// get the bundle from the URL; the downloaded buffer is released once the bundle has been processed
+		return Mono.usingWhen(downloadBundle(bundle, processAttempStart), download -> 
 			{
-				if (rawBundle == null || rawBundle.length == 0)
+				if (download.isNotModified())
+				{
+					// the host reported that the bundle has not changed since the last download
+					log.debug("Bundle [{}] not modified since last refresh", bundle.getBundleName());
+					
+					bundle.setLastRefreshAttempt(processAttempStart);
+					bundle.setLastSuccessfulRefresh(LocalDateTime.now());
+					bundle.setLastRefreshError(BundleRefreshError.SUCCESS.ordinal());
+					return bundleRepo.save(bundle);
+				}
+				
+				final DataBuffer rawBundle = download.getData();
+				
+				if (rawBundle == null || rawBundle.readableByteCount() == 0)
 					return Mono.empty();
 				
 				// check to see if there is a difference in the anchor sets
-				// use a checksum 
-				boolean update = false;
-				String checkSum = "";
-				if (StringUtils.isBlank(bundle.getCheckSum()))
-					// never got a check sum... 
-					update = true;
-				else
-				{
-					try
-					{
-						checkSum = BundleThumbprint.toThumbprint(rawBundle).toString();
-						update = !bundle.getCheckSum().equals(BundleThumbprint.toThumbprint(rawBundle).toString());
-						if (update) {
-							log.info("Detected a change in bundle [{}] (old checksum: {}; new checkSum: {})!", bundle.getBundleName(), bundle.getCheckSum(), checkSum);
-						}
-					}
-					///CLOVER:OFF
-					catch (NoSuchAlgorithmException ex)
-					{
-						bundle.setLastRefreshAttempt(processAttempStart);
-						bundle.setLastRefreshError(BundleRefreshError.INVALID_BUNDLE_FORMAT.ordinal());
-						
-						log.error("Failed to generate downloaded bundle thumbprint", ex);
-						
-						return bundleRepo.save(bundle);
-						
-					}	
-					///CLOVER:ON
-				}
+				// use a checksum that was calculated while the bundle was downloaded
+				final String checkSum = download.getCheckSum();
 				
-				final String finalCheckSum = checkSum;
+				// never got a check sum... 
+				final boolean update = StringUtils.isBlank(bundle.getCheckSum()) || !bundle.getCheckSum().equals(checkSum);
+				if (update && !StringUtils.isBlank(bundle.getCheckSum())) {
+					log.info("Detected a change in bundle [{}] (old checksum: {}; new checkSum: {})!", bundle.getBundleName(), bundle.getCheckSum(), checkSum);
+				}
 				
 				if (!update)
 				{
@@ -219,7 +451,8 @@ public class DefaultBundleRefreshProcessorImpl implements BundleRefreshProcessor
 					bundle.setLastRefreshAttempt(processAttempStart);
 					bundle.setLastSuccessfulRefresh(LocalDateTime.now());
 					bundle.setLastRefreshError(BundleRefreshError.SUCCESS.ordinal());
-					return bundleRepo.save(bundle);
+					return bundleRepo.save(bundle)
+						.doOnSuccess(savedBundle -> rememberValidators(bundle, download, bundle.getCheckSum()));
 				}
 				
 				return convertRawBundleToAnchorCollection(rawBundle, bundle, processAttempStart)
@@ -236,8 +469,7 @@ public class DefaultBundleRefreshProcessorImpl implements BundleRefreshProcessor
 					{
 						try
 						{
-							final TrustBundleAnchor anchorToAdd = new TrustBundleAnchor();
-							anchorToAdd.setData(downloadedAnchor.getEncoded());
+							final TrustBundleAnchor anchorToAdd = CertificateCache.toEntityTrustBundleAnchor(downloadedAnchor.getEncoded());
 							anchorToAdd.setTrustBundleId(bundle.getId());
 							
 							newAnchors.add(anchorToAdd);
@@ -251,35 +483,99 @@ public class DefaultBundleRefreshProcessorImpl implements BundleRefreshProcessor
 						///CLOVER:ON
 					}
 	
-		    		return bundleAnchorRepo.deleteByTrustBundleId(bundle.getId())
-		    		.then(bundleAnchorRepo.saveAll(newAnchors).collectList())
-		    		.flatMap(res -> 
+		    		final String previousCheckSum = bundle.getCheckSum();
+		    		final LocalDateTime previousSuccessfulRefresh = bundle.getLastSuccessfulRefresh();
+		    		
+		    		// swap the anchors and update the bundle metadata as a single unit of work so readers see either the old or new anchor set
+		    		final Mono<Boolean> updateBundle = updateBundleAnchors(bundle, newAnchors)
+		    		.flatMap(anchorsChanged -> 
 		    		{
 						bundle.setLastRefreshAttempt(processAttempStart);
 						bundle.setLastRefreshError(BundleRefreshError.SUCCESS.ordinal());
-						bundle.setCheckSum(finalCheckSum);
+						bundle.setCheckSum(checkSum);
 						bundle.setLastSuccessfulRefresh(LocalDateTime.now());
 						
-						return bundleRepo.save(bundle)
-							.doOnSuccess(savedBundle -> {
-								log.info("successfully refreshed bundle {}", bundle.getBundleName());
-							})
-							.onErrorResume(ex -> 
-							{
-								log.error("Failed to write updated bundle anchors to data store", ex);
-								
-							
-								bundle.setLastRefreshAttempt(processAttempStart);
-								bundle.setLastRefreshError(BundleRefreshError.INVALID_BUNDLE_FORMAT.ordinal());
-								return bundleRepo.save(bundle);
-								
-							});	
+						return bundleRepo.save(bundle).thenReturn(anchorsChanged);
 		    		});
+		    		
+		    		return inTransaction(updateBundle)
+						.doOnSuccess(anchorsChanged -> {
+							log.info("successfully refreshed bundle {}", bundle.getBundleName());
+							rememberValidators(bundle, download, checkSum);
+							
+							// only a change to the anchor set is a configuration change; the refresh status is not recorded
+							if (Boolean.TRUE.equals(anchorsChanged) && changeLog != null)
+								changeLog.record(ConfigEntityType.TRUST_BUNDLE, ConfigChangeType.UPDATED, bundle.getBundleName());
+						})
+						.thenReturn(bundle)
+						.onErrorResume(ex -> 
+						{
+							log.error("Failed to write updated bundle anchors to data store", ex);
+							
+							// the anchor changes were rolled back, so keep the previous checksum to force the bundle to be reprocessed
+							bundle.setCheckSum(previousCheckSum);
+							bundle.setLastSuccessfulRefresh(previousSuccessfulRefresh);
+							bundle.setLastRefreshAttempt(processAttempStart);
+							bundle.setLastRefreshError(BundleRefreshError.INVALID_BUNDLE_FORMAT.ordinal());
+							return bundleRepo.save(bundle);
+							
+						});	
 				});
 
-			});
+			}, BundleDownload::release);
     }
 	
+	/**
+	 * Runs a unit of work in a transaction if a {@link TransactionalOperator} has been configured.  Only store updates should
+	 * be run in a transaction; downloading and parsing the bundle happens before the transaction is started.
+	 * @param work The store updates to run.
+	 * @return The transactional unit of work.
+	 */
+	protected <T> Mono<T> inTransaction(Mono<T> work)
+	{
+		return (transactionalOperator == null) ? work : transactionalOperator.transactional(work);
+	}
+	
+	/**
+	 * Updates the stored anchors of a bundle to match a set of downloaded anchors.  Anchors are matched by thumbprint; only downloaded
+	 * anchors that are not already stored are inserted, and only stored anchors that are no longer in the bundle are deleted.
+	 * New anchors are inserted before removed anchors are deleted so the bundle never has an empty anchor set.
+	 * @param bundle The bundle that is being refreshed.
+	 * @param downloadedAnchors The anchors that were downloaded from the bundle's URL.
+	 * @return A Mono that emits true if any anchors were added or removed, or false if the stored anchors already matched the bundle.
+	 */
+	protected Mono<Boolean> updateBundleAnchors(TrustBundle bundle, Collection<TrustBundleAnchor> downloadedAnchors)
+	{
+		return bundleAnchorRepo.findByTrustBundleId(bundle.getId())
+			.collectList()
+			.flatMap(storedAnchors -> 
+			{
+				final Map<String, TrustBundleAnchor> downloadedByThumbprint = new LinkedHashMap<>();
+				for (TrustBundleAnchor anchor : downloadedAnchors)
+					downloadedByThumbprint.putIfAbsent(anchor.getThumbprint(), anchor);
+				
+				final Set<String> storedThumbprints = new HashSet<>();
+				final List<Long> removedAnchorIds = new ArrayList<>();
+				for (TrustBundleAnchor anchor : storedAnchors)
+				{
+					// remove anchors that are no longer in the bundle as well as duplicate copies of the same anchor
+					if (!downloadedByThumbprint.containsKey(anchor.getThumbprint()) || !storedThumbprints.add(anchor.getThumbprint()))
+						removedAnchorIds.add(anchor.getId());
+				}
+				
+				final List<TrustBundleAnchor> addedAnchors = downloadedByThumbprint.values().stream()
+					.filter(anchor -> !storedThumbprints.contains(anchor.getThumbprint()))
+					.collect(Collectors.toList());
+				
+				log.debug("Bundle [{}] anchor changes: {} added, {} removed", bundle.getBundleName(), addedAnchors.size(), removedAnchorIds.size());
+				
+				final Mono<Void> insert = addedAnchors.isEmpty() ? Mono.empty() : bundleAnchorRepo.saveAll(addedAnchors).then();
+				final Mono<Void> delete = removedAnchorIds.isEmpty() ? Mono.empty() : bundleAnchorRepo.deleteAllById(removedAnchorIds);
+				
+				return insert.then(delete).thenReturn(!addedAnchors.isEmpty() || !removedAnchorIds.isEmpty());
+			});
+	}
+	
 	/**
 	 * Converts a trust raw trust bundle byte array into a collection of {@link X509Certificate} objects.
 	 * @param rawBundle The raw representation of the bundle.  This generally the raw byte string downloaded from the bundle's URL.
@@ -288,17 +584,46 @@ public class DefaultBundleRefreshProcessorImpl implements BundleRefreshProcessor
 	 * @param processAttempStart The time that the update process started.
 	 * @return
 	 */
-	@SuppressWarnings({ "unchecked", "deprecation" })
 	protected Mono<Collection<X509Certificate>> convertRawBundleToAnchorCollection(byte[] rawBundle, final TrustBundle existingBundle,
 			final LocalDateTime processAttempStart)
 	{
+		return convertRawBundleToAnchorCollection(DefaultDataBufferFactory.sharedInstance.wrap(rawBundle), existingBundle, processAttempStart);
+	}
+	
+	/**
+	 * Converts a raw trust bundle buffer into a collection of {@link X509Certificate} objects.  The buffer is read as a stream, so
+	 * the bundle and the content of signed bundles are not copied into additional arrays.  The caller is responsible for releasing
+	 * the buffer.
+	 * @param rawBundle The raw representation of the bundle.  This generally the raw data downloaded from the bundle's URL.
+	 * @param existingBundle The configured bundle object in the DAO.  This object may contain the signing certificate
+	 * used for bundle authenticity checking.
+	 * @param processAttempStart The time that the update process started.
+	 * @return
+	 */
+	@SuppressWarnings({ "unchecked", "deprecation" })
+	protected Mono<Collection<X509Certificate>> convertRawBundleToAnchorCollection(DataBuffer rawBundle, final TrustBundle existingBundle,
+			final LocalDateTime processAttempStart)
+	{
+		final int startPosition = rawBundle.readPosition();
+		
 		Collection<? extends Certificate> bundleCerts = null;
 		InputStream inStream = null;
 		// check to see if its an unsigned PKCS7 container
 		try
 		{
-			inStream = new ByteArrayInputStream(rawBundle);
-			bundleCerts = CertificateFactory.getInstance("X.509").generateCertificates(inStream);
+			inStream = rawBundle.asInputStream();
+			try
+			{
+				bundleCerts = parseCertificates(inStream);
+			}
+			catch (Exception e)
+			{
+				// not a DER encoded structure; let the certificate factory try other encodings such as PEM
+				IOUtils.closeQuietly(inStream);
+				rawBundle.readPosition(startPosition);
+				inStream = rawBundle.asInputStream();
+				bundleCerts = CertificateFactory.getInstance("X.509").generateCertificates(inStream);
+			}
 			
 			// in Java 7, an invalid bundle may be returned as a null instead of throw an exception
 			// if its null and has no anchors, then try again as a signed bundle
@@ -318,9 +643,20 @@ public class DefaultBundleRefreshProcessorImpl implements BundleRefreshProcessor
 		// didnt work... try again as a CMS signed message
 		if (bundleCerts == null)
 		{
+			CMSSignedDataParser signed = null;
 			try
 			{
-				final CMSSignedData signed = new CMSSignedData(rawBundle);
+				rawBundle.readPosition(startPosition);
+				inStream = rawBundle.asInputStream();
+				
+				signed = new CMSSignedDataParser(new JcaDigestCalculatorProviderBuilder().build(), inStream);
+				
+				// the certificates are read directly from the signed content stream
+				final CMSTypedStream signedContent = signed.getSignedContent();
+				bundleCerts = parseCertificates(signedContent.getContentStream());
+				
+				// the rest of the content must be consumed before the signatures can be checked
+				signedContent.drain();
 				
 				// if there is a signing certificate assigned to the bundle,
 				// then verify the signature
@@ -354,12 +690,6 @@ public class DefaultBundleRefreshProcessorImpl implements BundleRefreshProcessor
 						
 		    		}
 				}
-				
-				final CMSProcessableByteArray signedContent = (CMSProcessableByteArray)signed.getSignedContent();
-				
-				inStream = new ByteArrayInputStream((byte[])signedContent.getContent());
-				
-				bundleCerts = CertificateFactory.getInstance("X.509").generateCertificates(inStream);
 			}
 			catch (Exception e)
 			{
@@ -373,6 +703,14 @@ public class DefaultBundleRefreshProcessorImpl implements BundleRefreshProcessor
 			}
 			finally
 			{
+				if (signed != null)
+				{
+					try
+					{
+						signed.close();
+					}
+					catch (Exception e) {/* no-op */}
+				}
 				IOUtils.closeQuietly(inStream);
 			}
 		}
@@ -380,6 +718,92 @@ public class DefaultBundleRefreshProcessorImpl implements BundleRefreshProcessor
 		return Mono.just((Collection<X509Certificate>)bundleCerts);
 	}
 	
+	/**
+	 * Parses the certificates of a DER or PEM encoded bundle.  If the bundle is a PKCS7 structure, the encoded certificates are
+	 * extracted from the structure and looked up in the {@link CertificateCache} so certificates that have already been seen 
+	 * are not parsed again.  Other DER structures are parsed by the certificate factory.  An empty collection is returned for
+	 * PKCS7 structures with signed content.
+	 * @param inStream The bundle content.
+	 * @return The certificates in the bundle.
+	 * @throws Exception If the content is not a DER or PEM encoded structure or the certificates cannot be parsed.
+	 */
+	protected Collection<X509Certificate> parseCertificates(InputStream inStream) throws Exception
+	{
+		final BufferedInputStream bufferedStream = new BufferedInputStream(inStream);
+		
+		// peek at the first byte to determine the encoding
+		bufferedStream.mark(1);
+		final int firstByte = bufferedStream.read();
+		bufferedStream.reset();
+		
+		if (firstByte != '-')
+		{
+			// the streams are not closed here; the caller owns the underlying stream 
+			final ASN1Primitive bundleObject = new ASN1InputStream(bufferedStream, maxBundleSize).readObject();
+			if (bundleObject == null)
+				throw new IOException("Bundle does not contain a DER encoded structure.");
+			
+			return parseCertificates(bundleObject);
+		}
+		
+		final Collection<X509Certificate> certs = new ArrayList<>();
+		boolean foundPemObject = false;
+		final PemReader pemReader = new PemReader(new InputStreamReader(bufferedStream, StandardCharsets.US_ASCII));
+		PemObject pemObject;
+		while ((pemObject = pemReader.readPemObject()) != null)
+		{
+			foundPemObject = true;
+			if (pemObject.getType().endsWith("CERTIFICATE"))
+				certs.add(CertificateCache.getCertificate(pemObject.getContent()));
+			else if (pemObject.getType().equals("PKCS7"))
+				certs.addAll(parseCertificates(ASN1Primitive.fromByteArray(pemObject.getContent())));
+		}
+		
+		if (!foundPemObject)
+			throw new IOException("Bundle does not contain a PEM encoded structure.");
+		
+		return certs;
+	}
+	
+	/**
+	 * Parses the certificates of a decoded bundle structure.
+	 * @param bundleObject The decoded bundle.
+	 * @return The certificates in the bundle.
+	 * @throws Exception If the certificates cannot be parsed.
+	 */
+	@SuppressWarnings("unchecked")
+	protected Collection<X509Certificate> parseCertificates(ASN1Primitive bundleObject) throws Exception
+	{
+		ContentInfo contentInfo = null;
+		try
+		{
+			contentInfo = ContentInfo.getInstance(bundleObject);
+		}
+		catch (Exception e) {/* no-op... not a PKCS7 structure */}
+		
+		if (contentInfo == null || !CMSObjectIdentifiers.signedData.equals(contentInfo.getContentType()))
+		{
+			return (Collection<X509Certificate>)CertificateFactory.getInstance("X.509")
+				.generateCertificates(new ByteArrayInputStream(bundleObject.getEncoded(ASN1Encoding.DER)));
+		}
+		
+		final SignedData signedData = SignedData.getInstance(contentInfo.getContent());
+		
+		// a signed bundle carries the anchors in its content; its certificates are the signer's certificates 
+		if (signedData.getEncapContentInfo().getContent() != null)
+			return Collections.emptyList();
+		
+		final ASN1Set encodedCerts = signedData.getCertificates();
+		final Collection<X509Certificate> certs = new ArrayList<>();
+		if (encodedCerts != null)
+		{
+			for (ASN1Encodable encodedCert : encodedCerts)
+				certs.add(CertificateCache.getCertificate(encodedCert.toASN1Primitive().getEncoded(ASN1Encoding.DER)));
+		}
+		
+		return certs;
+	}
+	
 	/**
 	 * Downloads a bundle from the bundle's URL and returns the result as a byte array.
 	 * @param bundle The bundle that will be downloaded.
@@ -387,6 +811,36 @@ public class DefaultBundleRefreshProcessorImpl implements BundleRefreshProcessor
 	 * @return A byte array representing the raw data of the bundle.
 	 */
 	protected Mono<byte[]> downloadBundleToByteArray(TrustBundle bundle, LocalDateTime processAttempStart)
+	{
+		return downloadBundle(bundle, processAttempStart)
+			.filter(download -> !download.isNotModified())
+			.map(download -> 
+			{
+				try
+				{
+					final byte[] data = new byte[download.getData().readableByteCount()];
+					download.getData().read(data);
+					return data;
+				}
+				finally
+				{
+					DataBufferUtils.release(download.getData());
+				}
+			});
+	}
+	
+	/**
+	 * Downloads a bundle from the bundle's URL.  If validators from a previous download of the bundle are known, the bundle
+	 * is requested conditionally.
+	 * <p>
+	 * The bundle is read as a stream of buffers that are digested as they arrive and joined without copying into a single
+	 * buffer.  Bundles larger than the configured maximum bundle size are rejected.  The caller is responsible for releasing
+	 * the download with {@link BundleDownload#release()}.
+	 * @param bundle The bundle that will be downloaded.
+	 * @param processAttempStart The time that the update process started. 
+	 * @return The downloaded bundle or a download flagged as not modified if the host reported that the bundle has not changed.
+	 */
+	protected Mono<BundleDownload> downloadBundle(TrustBundle bundle, LocalDateTime processAttempStart)
 	{
 		try
 		{
@@ -395,55 +849,55 @@ public class DefaultBundleRefreshProcessorImpl implements BundleRefreshProcessor
 			if (uri.getScheme().compareToIgnoreCase("file") == 0)
 			{
 				// file scheme URIs are used by unit tests
-				final ByteArrayOutputStream ouStream = new ByteArrayOutputStream();
-
-				
 				final URL certURL = new URL(bundle.getBundleURL());
 				
-				final URLConnection connection = certURL.openConnection();
-				
 				// open the URL as in input stream
-				InputStream inputStream = connection.getInputStream();
-				
-				int BUF_SIZE = 2048;		
-				int count = 0;
-
-				final byte buf[] = new byte[BUF_SIZE];
-				
-				while ((count = inputStream.read(buf)) > -1)
-				{
-					ouStream.write(buf, 0, count);
-				}
+				final InputStream inputStream = certURL.openConnection().getInputStream();
 				
-				return Mono.just(ouStream.toByteArray());
+				return readBundle(DataBufferUtils.readInputStream(() -> inputStream, DefaultDataBufferFactory.sharedInstance, BUNDLE_READ_BUFFER_SIZE), null, null)
+					.onErrorResume(ex -> 
+			        {
+			        	log.warn("Failed to read bundle from URL {}", bundle.getBundleURL(), ex);
+			        	
+						bundle.setLastRefreshAttempt(processAttempStart);
+						bundle.setLastRefreshError(BundleRefreshError.NOT_FOUND.ordinal());
+						return bundleRepo.save(bundle)
+								.then(Mono.empty());
+			        });
 
 			}
 			else
 			{
-				// this custom connection provider with a configured pool max idle time prevents
-				// "Connection reset by peer" errors
-				ConnectionProvider provider = ConnectionProvider.builder("custom")
-						.maxIdleTime(Duration.ofSeconds(POOL_MAX_IDLE_TIME)).build();
-				final HttpClient httpClient = HttpClient.create(provider)
-						  .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, DEFAULT_URL_CONNECTION_TIMEOUT)
-						  .secure(t -> t.sslContext(sslContext))
-						  .responseTimeout(Duration.ofMillis(DEFAULT_URL_CONNECTION_TIMEOUT))
-						  .doOnConnected(conn -> 
-						    conn.addHandlerLast(new ReadTimeoutHandler(DEFAULT_URL_READ_TIMEOUT, TimeUnit.MILLISECONDS))
-						      .addHandlerLast(new WriteTimeoutHandler(DEFAULT_URL_READ_TIMEOUT, TimeUnit.MILLISECONDS)));
+				final BundleValidators validators = getValidators(bundle);
 				
-				return WebClient.builder().baseUrl(bundle.getBundleURL())
-				.clientConnector(new ReactorClientHttpConnector(httpClient))
-				.build()
+				return getWebClient()
 				.get()
-		        .exchangeToMono(response -> response.bodyToMono(ByteArrayResource.class))
-		        .map(ByteArrayResource::getByteArray)
+				.uri(uri)
+				.headers(headers -> 
+				{
+					if (validators != null)
+					{
+						if (validators.getETag() != null)
+							headers.set(HttpHeaders.IF_NONE_MATCH, validators.getETag());
+						if (validators.getLastModified() != null)
+							headers.set(HttpHeaders.IF_MODIFIED_SINCE, validators.getLastModified());
+					}
+				})
+		        .exchangeToMono(response -> 
+		        {
+		        	if (response.statusCode() == HttpStatus.NOT_MODIFIED)
+		        		return response.releaseBody().thenReturn(BundleDownload.NOT_MODIFIED);
+		        	
+		        	final HttpHeaders headers = response.headers().asHttpHeaders();
+		        	return readBundle(response.bodyToFlux(DataBuffer.class), headers.getETag(), headers.getFirst(HttpHeaders.LAST_MODIFIED));
+		        })
 		        .onErrorResume(ex -> 
 		        {
 		        	log.warn("Failed to download bundle from URL {}", bundle.getBundleURL(), ex);
 		        	
 					bundle.setLastRefreshAttempt(processAttempStart);
-					bundle.setLastRefreshError(BundleRefreshError.DOWNLOAD_TIMEOUT.ordinal());
+					bundle.setLastRefreshError((ex instanceof DataBufferLimitException) ? BundleRefreshError.INVALID_BUNDLE_FORMAT.ordinal() : 
+						BundleRefreshError.DOWNLOAD_TIMEOUT.ordinal());
 					return bundleRepo.save(bundle)
 							.then(Mono.empty());
 		
@@ -463,4 +917,194 @@ public class DefaultBundleRefreshProcessorImpl implements BundleRefreshProcessor
 
 
 	}
+	
+	/**
+	 * Reads the content of a bundle into a single buffer while calculating the bundle checksum.
+	 * @param content The bundle content.
+	 * @param eTag The ETag returned with the bundle.  May be null.
+	 * @param lastModified The Last-Modified date returned with the bundle.  May be null.
+	 * @return The downloaded bundle.  Errors with a {@link DataBufferLimitException} if the bundle exceeds the maximum bundle size.
+	 */
+	protected Mono<BundleDownload> readBundle(Flux<DataBuffer> content, String eTag, String lastModified)
+	{
+		return Mono.defer(() -> 
+		{
+			final MessageDigest digest = createCheckSumDigest();
+			
+			return DataBufferUtils.join(content.doOnNext(buffer -> digest.update(buffer.asByteBuffer())), maxBundleSize)
+				.map(data -> new BundleDownload(data, createCheckSumString(digest.digest()), eTag, lastModified));
+		});
+	}
+	
+	/**
+	 * Creates the message digest used to calculate bundle checksums.  With the default SHA-1 algorithm, checksums match {@link BundleThumbprint}.
+	 * @return A new message digest.
+	 */
+	@SneakyThrows
+	protected MessageDigest createCheckSumDigest()
+	{
+		return MessageDigest.getInstance(checkSumAlgorithm);
+	}
+	
+	/**
+	 * Creates the string representation of a bundle checksum using the same format as {@link BundleThumbprint}.
+	 * @param digest The digest of the bundle.
+	 * @return The lower case hex representation of the digest.
+	 */
+	protected static String createCheckSumString(byte[] digest)
+	{
+		final char[] hexChars = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+		final StringBuilder builder = new StringBuilder(digest.length * 2);
+		
+		for (byte b : digest)
+		{
+			builder.append(hexChars[(b & 0xf0) >> 4]);
+			builder.append(hexChars[b & 0x0f]);
+		}
+		
+		return builder.toString();
+	}
+	
+	/**
+	 * Gets the validators that can be used to conditionally download a bundle.  Validators are only returned if they were 
+	 * received for the bundle's current URL and checksum.
+	 * @param bundle The bundle that will be downloaded.
+	 * @return The validators of the last download or null if the bundle must be unconditionally downloaded.
+	 */
+	protected BundleValidators getValidators(TrustBundle bundle)
+	{
+		if (bundle.getId() == null || StringUtils.isBlank(bundle.getCheckSum()))
+			return null;
+		
+		final BundleValidators validators = bundleValidators.get(bundle.getId());
+		if (validators == null || !validators.getBundleURL().equals(bundle.getBundleURL()) || 
+				!validators.getCheckSum().equals(bundle.getCheckSum()))
+			return null;
+		
+		return validators;
+	}
+	
+	/**
+	 * Remembers the validators of a successfully processed download.
+	 * @param bundle The bundle that was refreshed.
+	 * @param download The download of the bundle.
+	 * @param checkSum The checksum of the downloaded bundle.
+	 */
+	protected void rememberValidators(TrustBundle bundle, BundleDownload download, String checkSum)
+	{
+		if (bundle.getId() == null)
+			return;
+		
+		if (StringUtils.isBlank(checkSum) || (download.getETag() == null && download.getLastModified() == null))
+			bundleValidators.remove(bundle.getId());
+		else
+			bundleValidators.put(bundle.getId(), new BundleValidators(bundle.getBundleURL(), checkSum, download.getETag(), download.getLastModified()));
+	}
+	
+	/**
+	 * The result of downloading a bundle.
+	 */
+	protected static class BundleDownload
+	{
+		/**
+		 * Download result indicating that the bundle host reported no change since the last download.
+		 */
+		protected static final BundleDownload NOT_MODIFIED = new BundleDownload(null, null, null, null);
+		
+		private final DataBuffer data;
+		
+		private final String checkSum;
+		
+		private final String eTag;
+		
+		private final String lastModified;
+		
+		public BundleDownload(DataBuffer data, String checkSum, String eTag, String lastModified)
+		{
+			this.data = data;
+			this.checkSum = checkSum;
+			this.eTag = eTag;
+			this.lastModified = lastModified;
+		}
+		
+		public DataBuffer getData()
+		{
+			return data;
+		}
+		
+		public String getCheckSum()
+		{
+			return checkSum;
+		}
+		
+		public String getETag()
+		{
+			return eTag;
+		}
+		
+		public String getLastModified()
+		{
+			return lastModified;
+		}
+		
+		public boolean isNotModified()
+		{
+			return this == NOT_MODIFIED;
+		}
+		
+		/**
+		 * Releases the downloaded data.
+		 * @return A Mono that completes once the data has been released.
+		 */
+		public Mono<Void> release()
+		{
+			return Mono.fromRunnable(() -> 
+			{
+				if (data != null)
+					DataBufferUtils.release(data);
+			});
+		}
+	}
+	
+	/**
+	 * HTTP cache validators received with a bundle download.
+	 */
+	protected static class BundleValidators
+	{
+		private final String bundleURL;
+		
+		private final String checkSum;
+		
+		private final String eTag;
+		
+		private final String lastModified;
+		
+		public BundleValidators(String bundleURL, String checkSum, String eTag, String lastModified)
+		{
+			this.bundleURL = bundleURL;
+			this.checkSum = checkSum;
+			this.eTag = eTag;
+			this.lastModified = lastModified;
+		}
+		
+		public String getBundleURL()
+		{
+			return bundleURL;
+		}
+		
+		public String getCheckSum()
+		{
+			return checkSum;
+		}
+		
+		public String getETag()
+		{
+			return eTag;
+		}
+		
+		public String getLastModified()
+		{
+			return lastModified;
+		}
+	}
 }
@@ -0,0 +1,447 @@
+/* 
+Copyright (c) 2010, NHIN Direct Project
+All rights reserved.
+
+Authors:
+   Greg Meyer      gm2552@cerner.com
+ 
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer 
+in the documentation and/or other materials provided with the distribution.  Neither the name of the The NHIN Direct Project (nhindirect.org). 
+nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS 
+BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE 
+GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package org.nhindirect.config.processor.impl;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.nhindirect.config.processor.BundleRefreshProcessor;
+import org.nhindirect.config.processor.BundleRefreshScheduler;
+import org.nhindirect.config.repository.TrustBundleRepository;
+import org.nhindirect.config.store.BundleRefreshError;
+import org.nhindirect.config.store.TrustBundle;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Default implementation of the {@linkplain BundleRefreshScheduler} interface.
+ * <p>
+ * Each scheduled bundle has its own timer that fires when the bundle's refresh interval has been exceeded since its last
+ * successful refresh.  Bundles whose timers have fired are queued and refreshed by the {@link BundleRefreshProcessor} in batches.
+ * The bundles of a batch are refreshed in order of how overdue they are with at most {@link #setMaxConcurrentRefreshes(int)} refreshes 
+ * running at the same time and at most {@link #setMaxConcurrentRefreshesPerHost(int)} refreshes running at the same time from a single
+ * host.  After a refresh attempt, the bundle is rescheduled one refresh interval later unless it was unscheduled while it was being 
+ * refreshed.  A bundle that is queued or being refreshed is not scheduled again by
+ * {@link #scheduleAll()}, so the same bundle is never refreshed by more than one timer at a time.
+ * @author Greg Meyer
+ * @since 8.0
+ */
+@Slf4j
+public class DefaultBundleRefreshSchedulerImpl implements BundleRefreshScheduler
+{
+    /**
+     * Trust bundle repo
+     */
+	protected TrustBundleRepository bundleRepo;
+
+	/**
+	 * The bundle refresh processor.
+	 */
+	protected BundleRefreshProcessor refreshProcessor;
+	
+	protected int maxConcurrentRefreshes = DefaultBundleCacheUpdateProcessorImpl.DEFAULT_MAX_CONCURRENT_REFRESHES;
+	
+	protected int maxConcurrentRefreshesPerHost = DefaultBundleCacheUpdateProcessorImpl.DEFAULT_MAX_CONCURRENT_REFRESHES_PER_HOST;
+	
+	/**
+	 * Pending refresh timers keyed by trust bundle id.
+	 */
+	protected final Map<Long, ScheduledRefresh> scheduledRefreshes = new ConcurrentHashMap<>();
+	
+	/**
+	 * Ids of bundles whose timers have fired and that are queued or being refreshed.
+	 */
+	protected final Set<Long> refreshingBundles = ConcurrentHashMap.newKeySet();
+	
+	/**
+	 * Ids of bundles that were unscheduled while they were being refreshed.  These bundles are not rescheduled when their refresh completes.
+	 */
+	protected final Set<Long> unscheduledBundles = ConcurrentHashMap.newKeySet();
+	
+	/**
+	 * Ids of bundles whose timers have fired and that are waiting for the next batch.
+	 */
+	protected final Set<Long> dueBundles = new LinkedHashSet<>();
+	
+	protected boolean draining;
+	
+	protected Disposable refreshSubscription;
+	
+	/**
+	 * Default constructor
+	 */
+	public DefaultBundleRefreshSchedulerImpl()
+	{
+		
+	}
+	
+	/**
+	 * Sets the trust bundle repository used to load bundles when they are due for refresh.
+	 * @param bundleRepo The trust bundle repository.
+	 */
+	public void setRepository(TrustBundleRepository bundleRepo)
+	{
+		this.bundleRepo = bundleRepo;
+	}
+	
+	/**
+	 * Sets the {@link BundleRefreshProcessor} used to refresh a bundle when it is due.
+	 * @param refreshProcessor The {@link BundleRefreshProcessor}.
+	 */
+	public void setRefreshProcessor(BundleRefreshProcessor refreshProcessor)
+	{
+		this.refreshProcessor = refreshProcessor;
+	}
+	
+	/**
+	 * Sets the maximum number of bundles that are refreshed at the same time.
+	 * @param maxConcurrentRefreshes The maximum number of concurrent refreshes.  Values less than 1 are treated as 1.
+	 */
+	public void setMaxConcurrentRefreshes(int maxConcurrentRefreshes)
+	{
+		this.maxConcurrentRefreshes = Math.max(1, maxConcurrentRefreshes);
+	}
+	
+	/**
+	 * Sets the maximum number of bundles that are refreshed at the same time from the same host.
+	 * @param maxConcurrentRefreshesPerHost The maximum number of concurrent refreshes per host.  Values less than 1 are treated as 1.
+	 */
+	public void setMaxConcurrentRefreshesPerHost(int maxConcurrentRefreshesPerHost)
+	{
+		this.maxConcurrentRefreshesPerHost = Math.max(1, maxConcurrentRefreshesPerHost);
+	}
+	
+	/**
+	 * Cancels all pending refresh timers and stops processing due bundles.
+	 */
+	public synchronized void shutdown()
+	{
+		scheduledRefreshes.values().forEach(ScheduledRefresh::cancel);
+		scheduledRefreshes.clear();
+		refreshingBundles.clear();
+		unscheduledBundles.clear();
+		dueBundles.clear();
+		draining = false;
+		
+		if (refreshSubscription != null)
+		{
+			refreshSubscription.dispose();
+			refreshSubscription = null;
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void scheduleBundle(TrustBundle bundle)
+	{
+		scheduleBundle(bundle, getRefreshDueTime(bundle));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void unscheduleBundle(Long bundleId)
+	{
+		if (bundleId == null)
+			return;
+		
+		cancelTimer(bundleId);
+		
+		// keep a refresh that is in progress from rescheduling the bundle
+		if (refreshingBundles.contains(bundleId))
+			unscheduledBundles.add(bundleId);
+	}
+	
+	/**
+	 * Cancels the pending refresh timer of a bundle.
+	 * @param bundleId The id of the bundle.
+	 */
+	protected void cancelTimer(Long bundleId)
+	{
+		final ScheduledRefresh scheduled = scheduledRefreshes.remove(bundleId);
+		if (scheduled != null)
+			scheduled.cancel();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Mono<Void> scheduleAll()
+	{
+		return bundleRepo.findAll()
+			.collectList()
+			.doOnNext(bundles -> 
+			{
+				final Set<Long> bundleIds = new HashSet<>();
+				
+				for (TrustBundle bundle : bundles)
+				{
+					bundleIds.add(bundle.getId());
+					
+					// the bundle will be rescheduled when its refresh completes
+					if (refreshingBundles.contains(bundle.getId()))
+						continue;
+					
+					// keep existing timers so bundles that are already scheduled are not refreshed early 
+					final ScheduledRefresh scheduled = scheduledRefreshes.get(bundle.getId());
+					if (scheduled == null || scheduled.getRefreshInterval() != bundle.getRefreshInterval())
+						scheduleBundle(bundle);
+				}
+				
+				scheduledRefreshes.keySet().stream()
+					.filter(bundleId -> !bundleIds.contains(bundleId))
+					.forEach(this::unscheduleBundle);
+				
+				refreshingBundles.stream()
+					.filter(bundleId -> !bundleIds.contains(bundleId))
+					.forEach(this::unscheduleBundle);
+			})
+			.then();
+	}
+	
+	/**
+	 * Schedules the refresh of a bundle at a specific time replacing any existing schedule of the bundle.
+	 * @param bundle The bundle to schedule.
+	 * @param dueTime The time the bundle should be refreshed.  Times in the past cause the bundle to be refreshed immediately.
+	 */
+	protected void scheduleBundle(TrustBundle bundle, LocalDateTime dueTime)
+	{
+		final Long bundleId = bundle.getId();
+		if (bundleId == null)
+			return;
+		
+		unscheduledBundles.remove(bundleId);
+		cancelTimer(bundleId);
+		
+		// if the refresh interval is 0 or less, then we won't ever auto refresh the bundle
+		if (bundle.getRefreshInterval() <= 0)
+			return;
+		
+		final Duration delay = Duration.between(LocalDateTime.now(), dueTime);
+		
+		log.debug("Scheduling refresh of bundle {} in {}", bundle.getBundleName(), delay);
+		
+		final ScheduledRefresh scheduled = new ScheduledRefresh(bundle.getRefreshInterval());
+		scheduledRefreshes.put(bundleId, scheduled);
+		
+		scheduled.setTimer(Mono.delay(delay.isNegative() ? Duration.ZERO : delay)
+			.subscribe(tick -> 
+			{
+				if (scheduledRefreshes.remove(bundleId, scheduled))
+				{
+					refreshingBundles.add(bundleId);
+					emitDueBundle(bundleId);
+				}
+			}));
+	}
+	
+	/**
+	 * Queues a bundle that is due for refresh and starts processing due bundles if they are not already being processed.
+	 * @param bundleId The id of the bundle.
+	 */
+	protected synchronized void emitDueBundle(Long bundleId)
+	{
+		dueBundles.add(bundleId);
+		
+		if (!draining)
+		{
+			draining = true;
+			refreshSubscription = Mono.defer(() -> refreshDueBundles(takeDueBundles()))
+				.repeat(this::continueDraining)
+				.subscribe();
+		}
+	}
+	
+	/**
+	 * Removes and returns the bundles that are waiting for the next batch.
+	 * @return The ids of the due bundles.
+	 */
+	protected synchronized List<Long> takeDueBundles()
+	{
+		final List<Long> bundleIds = new ArrayList<>(dueBundles);
+		dueBundles.clear();
+		
+		return bundleIds;
+	}
+	
+	/**
+	 * Determines if another batch needs to be refreshed.  Processing stops when no bundles are waiting.
+	 * @return True if bundles are waiting for the next batch.
+	 */
+	protected synchronized boolean continueDraining()
+	{
+		if (dueBundles.isEmpty())
+			draining = false;
+		
+		return draining;
+	}
+	
+	/**
+	 * Refreshes a batch of due bundles.  The bundles are ordered by how overdue they are and split into per host lanes so 
+	 * neither the total number of concurrent refreshes nor the number of concurrent refreshes per host is exceeded.
+	 * @param bundleIds The ids of the due bundles.
+	 * @return A Mono that completes when all bundles of the batch have been refreshed.
+	 */
+	protected Mono<Void> refreshDueBundles(List<Long> bundleIds)
+	{
+		return Flux.fromIterable(bundleIds)
+			.flatMap(bundleId -> Mono.defer(() -> bundleRepo.findById(bundleId))
+				.onErrorResume(e -> 
+				{
+		    		log.error("Error retriving trust bundle " + bundleId, e);
+		    		return Mono.empty();
+				}))
+			.collectSortedList(Comparator.comparing(DefaultBundleCacheUpdateProcessorImpl::getRefreshDueTime))
+			.flatMapMany(bundles -> Flux.fromIterable(DefaultBundleCacheUpdateProcessorImpl.createRefreshLanes(bundles, maxConcurrentRefreshesPerHost)))
+			.flatMap(lane -> Flux.fromIterable(lane).concatMap(this::refreshDueBundle), maxConcurrentRefreshes)
+			.onErrorResume(e -> 
+			{
+	    		log.error("Error refreshing trust bundles", e);
+	    		return Mono.empty();
+			})
+			.doFinally(signal -> bundleIds.forEach(this::refreshFinished))
+			.then();
+	}
+	
+	/**
+	 * Refreshes a bundle that is due and schedules its next refresh unless the bundle was unscheduled while it was being refreshed.
+	 * The duration and outcome of the refresh are logged.
+	 * The bundle is removed from the set of refreshing bundles after its next refresh has been scheduled.
+	 * @param bundle The bundle.
+	 */
+	protected Mono<?> refreshDueBundle(TrustBundle bundle)
+	{
+		final Long bundleId = bundle.getId();
+		
+		return Mono.defer(() -> 
+			{
+				final long start = System.currentTimeMillis();
+				
+				return refreshProcessor.refreshBundle(bundle)
+					.doOnSuccess(result -> log.info("Refresh of trust bundle {} completed in {} ms with status {}", bundle.getBundleName(), 
+							System.currentTimeMillis() - start, getRefreshStatus(bundle)))
+					.onErrorResume(e -> 
+					{
+			    		log.error("Refresh of trust bundle " + bundle.getBundleName() + " failed after " + 
+			    				(System.currentTimeMillis() - start) + " ms", e);
+			    		return Mono.empty();
+					});
+			})
+			.then(Mono.fromRunnable(() -> 
+			{
+				// the bundle may have been rescheduled or unscheduled while it was being refreshed
+				if (!unscheduledBundles.contains(bundleId) && !scheduledRefreshes.containsKey(bundleId))
+					scheduleBundle(bundle, LocalDateTime.now().plusSeconds(bundle.getRefreshInterval()));
+			}))
+			.doFinally(signal -> refreshFinished(bundleId));
+	}
+	
+	/**
+	 * Removes a bundle from the set of refreshing bundles.
+	 * @param bundleId The id of the bundle.
+	 */
+	protected void refreshFinished(Long bundleId)
+	{
+		refreshingBundles.remove(bundleId);
+		unscheduledBundles.remove(bundleId);
+	}
+	
+	/**
+	 * Gets the status of the last refresh attempt of a bundle.  The processor records the outcome of a refresh on the bundle.
+	 * @param bundle The bundle.
+	 * @return The refresh status or null if the bundle does not have a valid status.
+	 */
+	protected static BundleRefreshError getRefreshStatus(TrustBundle bundle)
+	{
+		final int status = bundle.getLastRefreshError();
+		
+		return (status >= 0 && status < BundleRefreshError.values().length) ? BundleRefreshError.values()[status] : null;
+	}
+	
+	/**
+	 * Gets the time that a bundle is due to be refreshed.  Bundles that have never been successfully refreshed
+	 * are due immediately.
+	 * @param bundle The bundle.
+	 * @return The time that the bundle is due to be refreshed.
+	 */
+	protected static LocalDateTime getRefreshDueTime(TrustBundle bundle)
+	{
+		final LocalDateTime lastRefresh = bundle.getLastSuccessfulRefresh();
+		
+		return (lastRefresh == null) ? LocalDateTime.now() : lastRefresh.plusSeconds(bundle.getRefreshInterval());
+	}
+	
+	/**
+	 * A pending refresh timer of a bundle.
+	 */
+	protected static class ScheduledRefresh
+	{
+		private final int refreshInterval;
+		
+		private volatile Disposable timer;
+		
+		private volatile boolean cancelled;
+		
+		public ScheduledRefresh(int refreshInterval)
+		{
+			this.refreshInterval = refreshInterval;
+		}
+		
+		public int getRefreshInterval()
+		{
+			return refreshInterval;
+		}
+		
+		public void setTimer(Disposable timer)
+		{
+			this.timer = timer;
+			
+			// the schedule may have been cancelled before the timer was started
+			if (cancelled)
+				timer.dispose();
+		}
+		
+		public void cancel()
+		{
+			cancelled = true;
+			
+			final Disposable current = timer;
+			if (current != null)
+				current.dispose();
+		}
+	}
+}
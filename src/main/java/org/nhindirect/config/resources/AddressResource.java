@@ -21,13 +21,33 @@ THE POSSIBILITY OF SUCH DAMAGE.
 
 package org.nhindirect.config.resources;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.StringUtils;
+import org.nhindirect.config.events.ConfigChangeType;
+import org.nhindirect.config.events.ConfigEntityType;
 import org.nhindirect.config.model.Address;
 import org.nhindirect.config.repository.AddressRepository;
 import org.nhindirect.config.repository.DomainRepository;
+import org.nhindirect.config.resources.util.BatchInserter;
+import org.nhindirect.config.resources.util.BulkImportResult;
 import org.nhindirect.config.resources.util.EntityModelConversion;
+import org.nhindirect.config.resources.util.KeysetPaging;
+import org.nhindirect.config.resources.util.ResourceLookupCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -35,6 +55,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
@@ -55,6 +76,11 @@ import reactor.core.publisher.Mono;
 @Slf4j
 public class AddressResource extends ProtectedResource
 {    
+	/**
+	 * The default number of addresses that are checked and inserted together by a bulk import.
+	 */
+	protected static final int DEFAULT_IMPORT_CHUNK_SIZE = 500;
+	
     /**
      * Address repository is injected by Spring
      */
@@ -65,6 +91,21 @@ public class AddressResource extends ProtectedResource
      */
     protected DomainRepository domainRepo;
     
+    /**
+     * Entity template used for paged queries injected by Spring
+     */
+    protected R2dbcEntityTemplate template;
+    
+    /**
+     * Address and domain lookup cache injected by Spring
+     */
+    protected ResourceLookupCache lookupCache = new ResourceLookupCache(0, 0);
+    
+    /**
+     * The number of addresses that are checked and inserted together by a bulk import
+     */
+    protected int importChunkSize = DEFAULT_IMPORT_CHUNK_SIZE;
+    
     /**
      * Constructor
      */
@@ -93,6 +134,35 @@ public class AddressResource extends ProtectedResource
         this.domainRepo = domainRepo;
     }
     
+    /**
+     * Sets the entity template used for paged queries.  Auto populated by Spring
+     * @param template The entity template.
+     */
+    @Autowired
+    public void setEntityTemplate(R2dbcEntityTemplate template) 
+    {
+        this.template = template;
+    }
+    
+    /**
+     * Sets the address and domain lookup cache.  Auto populated by Spring
+     * @param lookupCache The lookup cache.
+     */
+    @Autowired
+    public void setLookupCache(ResourceLookupCache lookupCache) 
+    {
+        this.lookupCache = lookupCache;
+    }
+    
+    /**
+     * Sets the number of addresses that are checked and inserted together by a bulk import.
+     * @param importChunkSize The number of addresses per chunk.
+     */
+    public void setImportChunkSize(int importChunkSize) 
+    {
+        this.importChunkSize = importChunkSize;
+    }
+    
     /**
      * Gets an address by name.
      * @return A JSON representation of an Address.  Returns 404 if the address doesn't exists.
@@ -101,30 +171,29 @@ public class AddressResource extends ProtectedResource
     @GetMapping(value="/{address}", produces = MediaType.APPLICATION_JSON_VALUE)
     public Mono<Address> getAddress(@PathVariable String address)
     {   
-		return addRepo.findByEmailAddressIgnoreCase(address)
-			    .switchIfEmpty(Mono.just(new org.nhindirect.config.store.Address()))
-				.flatMap(addr ->
-				{
-					if (addr.getDomainId() == null)
-						return Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND));
-				
-					return domainRepo.findById(addr.getDomainId())
-							.map(domain -> EntityModelConversion.toModelAddress(addr, domain.getDomainName()))
-				   	     	.onErrorResume(e -> { 
-				   	    		log.error("Error looking up address", e);
-				   	    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
-				   	    	});	
-				});
+		return lookupCache.getAddress(address, () -> addRepo.findByEmailAddressIgnoreCase(address)
+				.filter(addr -> addr.getDomainId() != null)
+				.flatMap(addr -> domainRepo.findById(addr.getDomainId())
+						.map(domain -> EntityModelConversion.toModelAddress(addr, domain.getDomainName()))))
+			    .onErrorResume(e -> { 
+		    		log.error("Error looking up address", e);
+		    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
+		    	})
+			    .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)));
     }
     
     /**
      * Gets all addresses configured for a given domain.
      * @param domainName The domain name to retrieve addresses for.
+     * @param limit The maximum number of addresses to return in a page.  Defaults to 0 which means all addresses are returned.
+     * @param after The cursor of the previous page returned in the X-Next-Cursor header.  Defaults to 0 which means the first page.
+     * @param response The response where the cursor of the next page is set.
      * @return  A JSON representation of a list of addresses.  Returns a 404 status if the domain does not exists
      * or a 204 status if no addresses are configured for the domain.
      */
     @GetMapping(value="domain/{domainName}", produces = MediaType.APPLICATION_JSON_VALUE)     
-    public Flux<Address> getAddressesByDomain(@PathVariable String domainName)
+    public Flux<Address> getAddressesByDomain(@PathVariable String domainName, @RequestParam(name="limit", defaultValue="0") int limit,
+    		@RequestParam(name="after", defaultValue="0") long after, ServerHttpResponse response)
     {   	
 		return domainRepo.findByDomainNameIgnoreCase(domainName)
 			    .switchIfEmpty(Mono.just(new org.nhindirect.config.store.Domain()))
@@ -133,10 +202,16 @@ public class AddressResource extends ProtectedResource
 					if (domain.getDomainName() == null)
 						return Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND));
 					
-					return addRepo.findByDomainId(domain.getId())
+					final Flux<Address> addresses = (KeysetPaging.isPaged(limit)) ?
+							KeysetPaging.getPage(template, org.nhindirect.config.store.Address.class, Criteria.where("domainId").is(domain.getId()), 
+									after, limit, org.nhindirect.config.store.Address::getId, 
+									address -> EntityModelConversion.toModelAddress(address, domainName), response) :
+							addRepo.findByDomainId(domain.getId())
 		    				.map(address -> {
 		    					return EntityModelConversion.toModelAddress(address, domainName);
-		    				})
+		    				});
+					
+					return addresses
 		    	   	     	.onErrorResume(e -> { 
 		    	   	    		log.error("Error looking up addresses", e);
 		    	   	    		return Flux.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
@@ -144,6 +219,16 @@ public class AddressResource extends ProtectedResource
 				});
     }
     
+    /**
+     * Gets all addresses configured for a given domain.
+     * @param domainName The domain name to retrieve addresses for.
+     * @return A collection of addresses for the domain.
+     */
+    public Flux<Address> getAddressesByDomain(String domainName)
+    {
+    	return getAddressesByDomain(domainName, 0, 0, null);
+    }
+    
     /**
      * Adds an address to the system and associates it with a domain.
      * @param uriInfo Injected URI context used for building the location URI.
@@ -158,7 +243,7 @@ public class AddressResource extends ProtectedResource
     	if (address.getDomainName() == null || address.getDomainName().isEmpty())
     		return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST));
     	
-		return domainRepo.findByDomainNameIgnoreCase(address.getDomainName())
+		return recordChange(domainRepo.findByDomainNameIgnoreCase(address.getDomainName())
 			    .switchIfEmpty(Mono.just(new org.nhindirect.config.store.Domain()))
 				.flatMap(domain ->
 				{
@@ -178,12 +263,160 @@ public class AddressResource extends ProtectedResource
 						 
 					    return  addRepo.save(toAdd)
 					    	.then()
+					    	.doOnTerminate(() -> invalidate(address))
 		    	   	     	.onErrorResume(e -> { 
 		    	   	    		log.error("Error adding address.", e);
 		    	   	    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
 		    	   	    	});	
 					 });			
-				});
+				}), ConfigEntityType.ADDRESS, ConfigChangeType.ADDED, address.getEmailAddress());
+    }
+    
+    /**
+     * Adds a stream of addresses to the system.  The addresses may be sent as a JSON array or as newline delimited JSON and are
+     * imported in chunks.  The domains of a chunk are looked up once per distinct domain name, existing addresses are
+     * checked with a single query per chunk, and the new addresses of a chunk are inserted with a single statement.
+     * @param addresses The addresses to add.
+     * @return A stream with the result of each address in the order of the request.  The status of a result is 201 if the address
+     * was added, 400 if the address or domain name is empty, 404 if the domain does not exist, or 409 if the address already
+     * exists or is repeated in the request.
+     */
+    @PutMapping(value="bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE}, 
+    		produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})   
+    public Flux<BulkImportResult> addAddresses(@RequestBody Flux<Address> addresses) 
+    {
+    	return Flux.defer(() ->
+    	{
+    		// domains and imported addresses are remembered across chunks of the same request
+    		final Map<String, org.nhindirect.config.store.Domain> domains = new HashMap<>();
+    		final Set<String> importedAddresses = new HashSet<>();
+    		
+    		return addresses.buffer(importChunkSize)
+    			.concatMap(chunk -> addAddressChunk(chunk, domains, importedAddresses));
+    	});
+    }
+    
+    /**
+     * Adds a chunk of addresses from a bulk import.
+     * @param chunk The addresses to add.
+     * @param domains The domains that have already been looked up keyed by upper case domain name.  A domain that does not exist
+     * is mapped to a domain without a name.
+     * @param importedAddresses The upper case addresses that have already been imported by the request.
+     * @return The result of each address in the chunk.
+     */
+    protected Flux<BulkImportResult> addAddressChunk(List<Address> chunk, Map<String, org.nhindirect.config.store.Domain> domains, 
+    		Set<String> importedAddresses)
+    {
+    	return Mono.defer(() -> lookupDomains(chunk, domains))
+    		.then(Mono.defer(() -> lookupExistingAddresses(chunk)))
+    		.flatMapMany(existing ->
+    		{
+    			final BulkImportResult[] results = new BulkImportResult[chunk.size()];
+    			final List<Address> toAdd = new ArrayList<>();
+    			final List<org.nhindirect.config.store.Address> toAddEntities = new ArrayList<>();
+    			
+    			for (int i = 0; i < chunk.size(); ++i)
+    			{
+    				final Address address = chunk.get(i);
+    				
+    				if (StringUtils.isEmpty(address.getEmailAddress()) || StringUtils.isEmpty(address.getDomainName()))
+    				{
+    					results[i] = new BulkImportResult(address.getEmailAddress(), HttpStatus.BAD_REQUEST);
+    					continue;
+    				}
+    				
+    				final org.nhindirect.config.store.Domain domain = domains.get(address.getDomainName().toUpperCase());
+    				if (domain.getDomainName() == null)
+    					results[i] = new BulkImportResult(address.getEmailAddress(), HttpStatus.NOT_FOUND);
+    				else if (existing.contains(address.getEmailAddress().toUpperCase()) || !importedAddresses.add(address.getEmailAddress().toUpperCase()))
+    					results[i] = new BulkImportResult(address.getEmailAddress(), HttpStatus.CONFLICT);
+    				else
+    				{
+    					final org.nhindirect.config.store.Address entity = EntityModelConversion.toEntityAddress(address, domain);
+    					entity.setId(null);
+    					
+    					toAdd.add(address);
+    					toAddEntities.add(entity);
+    				}
+    			}
+    			
+    			return BatchInserter.insertAll(template, org.nhindirect.config.store.Address.class, toAddEntities)
+    				.doOnTerminate(() -> toAdd.forEach(this::invalidate))
+    				.map(count -> HttpStatus.CREATED)
+	   	     		.onErrorResume(e -> { 
+	   	    			log.error("Error adding addresses.", e);
+	   	    			return Mono.just(HttpStatus.INTERNAL_SERVER_ERROR);
+	   	    		})
+    				.flatMapIterable(status -> 
+    				{
+    					for (int i = 0, added = 0; i < results.length; ++i)
+    					{
+    						if (results[i] == null)
+    						{
+    							final String emailAddress = toAdd.get(added++).getEmailAddress();
+    							results[i] = new BulkImportResult(emailAddress, status);
+    							if (status == HttpStatus.CREATED)
+    								changeLog.record(ConfigEntityType.ADDRESS, ConfigChangeType.ADDED, emailAddress);
+    						}
+    					}
+    					
+    					return Arrays.asList(results);
+    				});
+    		})
+   	     	.onErrorResume(e -> { 
+   	    		log.error("Error looking up addresses for import.", e);
+   	    		return Flux.fromIterable(chunk).map(address -> new BulkImportResult(address.getEmailAddress(), HttpStatus.INTERNAL_SERVER_ERROR));
+   	    	});	
+    }
+    
+    /**
+     * Looks up the domains of a chunk of addresses that have not already been looked up with a single query.
+     * @param chunk The addresses whose domains are looked up.
+     * @param domains The domains that have already been looked up keyed by upper case domain name.  Domains that are found are
+     * added to the map and domains that do not exist are mapped to a domain without a name.
+     * @return A mono that completes when the domains have been looked up.
+     */
+    protected Mono<Void> lookupDomains(List<Address> chunk, Map<String, org.nhindirect.config.store.Domain> domains)
+    {
+    	final Set<String> domainNames = chunk.stream()
+    		.map(Address::getDomainName)
+    		.filter(StringUtils::isNotEmpty)
+    		.map(String::toUpperCase)
+    		.filter(domainName -> !domains.containsKey(domainName))
+    		.collect(Collectors.toSet());
+    	
+    	if (domainNames.isEmpty())
+    		return Mono.empty();
+    	
+    	return template.select(org.nhindirect.config.store.Domain.class)
+    		.matching(Query.query(Criteria.where("domainName").in(domainNames).ignoreCase(true)))
+    		.all()
+    		.doOnNext(domain -> domains.put(domain.getDomainName().toUpperCase(), domain))
+    		.then(Mono.fromRunnable(() -> domainNames.forEach(domainName -> 
+    			domains.putIfAbsent(domainName, new org.nhindirect.config.store.Domain()))));
+    }
+    
+    /**
+     * Looks up which addresses of a chunk already exist with a single query.
+     * @param chunk The addresses to look up.
+     * @return The upper case addresses of the chunk that already exist.
+     */
+    protected Mono<Set<String>> lookupExistingAddresses(List<Address> chunk)
+    {
+    	final Set<String> emailAddresses = chunk.stream()
+        	.map(Address::getEmailAddress)
+        	.filter(StringUtils::isNotEmpty)
+        	.map(String::toUpperCase)
+        	.collect(Collectors.toSet());
+    	
+    	if (emailAddresses.isEmpty())
+    		return Mono.just(new HashSet<>());
+    	
+    	return template.select(org.nhindirect.config.store.Address.class)
+        	.matching(Query.query(Criteria.where("emailAddress").in(emailAddresses).ignoreCase(true)))
+        	.all()
+        	.map(address -> address.getEmailAddress().toUpperCase())
+        	.collect(Collectors.toSet());
     }
     
     /**
@@ -200,7 +433,7 @@ public class AddressResource extends ProtectedResource
     		return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST));
     	
     	
-		return domainRepo.findByDomainNameIgnoreCase(address.getDomainName())
+		return recordChange(domainRepo.findByDomainNameIgnoreCase(address.getDomainName())
 			    .switchIfEmpty(Mono.just(new org.nhindirect.config.store.Domain()))
 				.flatMap(domain ->
 				{
@@ -216,15 +449,26 @@ public class AddressResource extends ProtectedResource
 						 
 				    	final org.nhindirect.config.store.Address toAdd = EntityModelConversion.toEntityAddress(address, domain);
 				    	toAdd.setId(addr.getId());
+				    	
+				    	// an address that moves to another domain also changes the cached address list of its previous domain
+				    	final Mono<String> previousDomainName = addr.getDomainId().equals(domain.getId()) ? Mono.just(domain.getDomainName()) :
+				    		domainRepo.findById(addr.getDomainId())
+				    			.map(org.nhindirect.config.store.Domain::getDomainName)
+				    			.defaultIfEmpty(domain.getDomainName());
 						 
-					    return addRepo.save(toAdd)
+					    return previousDomainName.flatMap(previousDomain -> addRepo.save(toAdd)
 					    	.then()
+					    	.doOnTerminate(() -> 
+					    	{
+					    		invalidate(address);
+					    		lookupCache.invalidateDomain(previousDomain);
+					    	}))
 		    	   	     	.onErrorResume(e -> { 
 		    	   	    		log.error("Error updating address.", e);
 		    	   	    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
 		    	   	    	});	
 					 });			
-				});
+				}), ConfigEntityType.ADDRESS, ConfigChangeType.UPDATED, address.getEmailAddress());
     }    
     
     /**
@@ -242,12 +486,27 @@ public class AddressResource extends ProtectedResource
 					 if (addr.getDomainId() == null)
 						 return Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)); 
     	
-					 return addRepo.deleteById(addr.getId())
+					 return recordChange(addRepo.deleteById(addr.getId())
 						.then()
+						.doOnTerminate(() -> 
+						{
+							lookupCache.invalidateAddress(address);
+							lookupCache.invalidateDomains();
+						})
 	    	   	     	.onErrorResume(e -> { 
 	    	   	    		log.error("Error deleting address.", e);
 	    	   	    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
-	    	   	    	});			 
+	    	   	    	}), ConfigEntityType.ADDRESS, ConfigChangeType.REMOVED, addr.getEmailAddress());			 
 				 }); 	
     }
+    
+    /**
+     * Removes an address and the domain that it belongs to from the lookup cache.
+     * @param address The address that was modified.
+     */
+    protected void invalidate(Address address)
+    {
+    	lookupCache.invalidateAddress(address.getEmailAddress());
+    	lookupCache.invalidateDomain(address.getDomainName());
+    }
 }
@@ -23,16 +23,22 @@ package org.nhindirect.config.resources;
 
 import java.security.cert.CertificateException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 import org.nhindirect.common.cert.Thumbprint;
+import org.nhindirect.config.events.ConfigChangeType;
+import org.nhindirect.config.events.ConfigEntityType;
 import org.nhindirect.config.model.Anchor;
 import org.nhindirect.config.repository.AnchorRepository;
 import org.nhindirect.config.resources.util.EntityModelConversion;
+import org.nhindirect.config.resources.util.KeysetPaging;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -63,6 +69,11 @@ public class AnchorResource extends ProtectedResource
     
     protected AnchorRepository anchorRepo;
     
+    /**
+     * Entity template used for paged and filtered queries injected by Spring
+     */
+    protected R2dbcEntityTemplate template;
+    
     /**
      * Constructor
      */
@@ -82,6 +93,16 @@ public class AnchorResource extends ProtectedResource
     }
     
     
+    /**
+     * Sets the entity template used for paged and filtered queries.  Auto populated by Spring
+     * @param template The entity template.
+     */
+    @Autowired
+    public void setEntityTemplate(R2dbcEntityTemplate template) 
+    {
+        this.template = template;
+    }
+    
     /**
      * Gets a set of list of anchor for a given owner of the anchor.  Additional query parameters can further filter the return list.
      * @param incoming Returned anchors must be marked for use of incoming messages.  Defaults to false meaning that no filter is applied.
@@ -98,29 +119,68 @@ public class AnchorResource extends ProtectedResource
     		@RequestParam(name="thumbprint", defaultValue="") String thumbprint, 
     		@PathVariable("owner") String owner)
     {
-		return anchorRepo.findByOwnerIgnoreCase(owner)
-				.filter(anchor -> !((incoming && !anchor.isIncoming()) || (outgoing && !anchor.isOutgoing()) ||
-	    				(!thumbprint.isEmpty() && !thumbprint.equalsIgnoreCase(anchor.getThumbprint()))))
+    	// the filters are applied by the query so anchors that do not match are not loaded
+    	Criteria criteria = Criteria.where("owner").is(owner).ignoreCase(true);
+    	if (incoming)
+    		criteria = criteria.and("incoming").is(true);
+    	if (outgoing)
+    		criteria = criteria.and("outgoing").is(true);
+    	if (!thumbprint.isEmpty())
+    		criteria = criteria.and("thumbprint").is(thumbprint).ignoreCase(true);
+    	
+		return withETag(template.select(org.nhindirect.config.store.Anchor.class)
+				.matching(Query.query(criteria))
+				.all()
 				.map(anchor -> EntityModelConversion.toModelAnchor(anchor))		
 	   	     	.onErrorResume(e -> { 
 	   	    		log.error("Error looking up anchors.", e);
 	   	    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
-	   	    	});
+	   	    	}), AnchorResource::toAnchorETag);
     }
     
     /**
      * Gets all anchors in the system.
+     * <p>
+     * The collection is streamed one element at a time as newline delimited JSON or server sent events if the application/x-ndjson
+     * or text/event-stream media type is requested.
+     * @param limit The maximum number of anchors to return in a page.  Defaults to 0 which means all anchors are returned.
+     * @param after The cursor of the previous page returned in the X-Next-Cursor header.  Defaults to 0 which means the first page.
+     * @param response The response where the cursor of the next page is set.
      * @return A JSON representation of a collection of all anchors in the system.
      */
-    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-    public Flux<Anchor> getAnchors()
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<Anchor> getAnchors(@RequestParam(name="limit", defaultValue="0") int limit,
+    		@RequestParam(name="after", defaultValue="0") long after, ServerHttpResponse response)
     {
-		return anchorRepo.findAll()
-				.map(anchor -> EntityModelConversion.toModelAnchor(anchor))
+    	final Flux<Anchor> anchors = (KeysetPaging.isPaged(limit)) ?
+    		KeysetPaging.getPage(template, org.nhindirect.config.store.Anchor.class, Criteria.empty(), after, limit, 
+    				org.nhindirect.config.store.Anchor::getId, EntityModelConversion::toModelAnchor, response) :
+    		anchorRepo.findAll().map(anchor -> EntityModelConversion.toModelAnchor(anchor));
+    	
+		return withETag(anchors
 	   	     	.onErrorResume(e -> { 
 	   	    		log.error("Error looking up anchors.", e);
 	   	    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
-	   	    	});	
+	   	    	}), AnchorResource::toAnchorETag);	
+    }
+    
+    /**
+     * Gets all anchors in the system.
+     * @return A collection of all anchors in the system.
+     */
+    public Flux<Anchor> getAnchors()
+    {
+    	return getAnchors(0, 0, null);
+    }
+    
+    /**
+     * Creates the entity tag of an anchor.  The thumbprint identifies the anchor's certificate data.
+     * @param anchor The anchor.
+     * @return The entity tag of the anchor.
+     */
+    protected static String toAnchorETag(Anchor anchor)
+    {
+    	return toETag(anchor.getId(), anchor.getOwner(), anchor.getThumbprint(), anchor.getStatus(), anchor.isIncoming(), anchor.isOutgoing());
     }
     
     /**
@@ -140,14 +200,14 @@ public class AnchorResource extends ProtectedResource
 			final String thumbprint = (anchor.getThumbprint() == null || anchor.getThumbprint().isEmpty()) ?
 					Thumbprint.toThumbprint(anchor.getAnchorAsX509Certificate()).toString() : anchor.getThumbprint();
 					
-			//final Collection<org.nhindirect.config.store.Anchor> existingAnchors = 
-			return anchorRepo.findByOwnerIgnoreCase(anchor.getOwner())
-					.filter(existingAnchor -> existingAnchor.getThumbprint().equalsIgnoreCase(thumbprint))
-					.collectList()
-					.switchIfEmpty(Mono.just(Collections.emptyList()))
-					.flatMap(anchors -> 
+			// check for the owner and thumbprint with an exists query instead of loading all of the owner's anchors
+			final Criteria existsCriteria = Criteria.where("owner").is(anchor.getOwner()).ignoreCase(true)
+					.and(Criteria.where("thumbprint").is(thumbprint).ignoreCase(true));
+			
+			return recordChange(template.exists(Query.query(existsCriteria), org.nhindirect.config.store.Anchor.class)
+					.flatMap(exists -> 
 					{
-						if (!anchors.isEmpty())
+						if (exists)
 							return Mono.error(new ResponseStatusException(HttpStatus.CONFLICT));
 						
 			    		try
@@ -167,7 +227,7 @@ public class AnchorResource extends ProtectedResource
 				    		log.error("Error converting anchor.", e);
 				    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
 			    		}
-					});
+					}), ConfigEntityType.ANCHOR, ConfigChangeType.ADDED, anchor.getOwner());
     	} 
     	catch (CertificateException ex) 
     	{
@@ -190,11 +250,18 @@ public class AnchorResource extends ProtectedResource
 		for (String id : idArray)
 			idList.add(Long.parseLong(id));
 		
-		return anchorRepo.deleteByIdIn(idList)
-     	.onErrorResume(e -> { 
-    		log.error("Error removing anchors by ids.", e);
-    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
-    	});	
+		// the owners are selected before the delete so a change can be recorded for each removed anchor
+		return template.select(org.nhindirect.config.store.Anchor.class)
+			.matching(Query.query(Criteria.where("id").in(idList)).columns("id", "owner"))
+			.all()
+			.map(org.nhindirect.config.store.Anchor::getOwner)
+			.collectList()
+			.flatMap(owners -> anchorRepo.deleteByIdIn(idList)
+				.doOnSuccess(empty -> recordChanges(ConfigEntityType.ANCHOR, ConfigChangeType.REMOVED, owners)))
+	     	.onErrorResume(e -> { 
+	    		log.error("Error removing anchors by ids.", e);
+	    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
+	    	});
 
     }
     
@@ -206,11 +273,11 @@ public class AnchorResource extends ProtectedResource
     @DeleteMapping(value="{owner}")  
     public Mono<Void> removeAnchorsByOwner(@PathVariable("owner") String owner)
     {
-		return anchorRepo.deleteByOwnerIgnoreCase(owner)
+		return recordChange(anchorRepo.deleteByOwnerIgnoreCase(owner)
      	.onErrorResume(e -> { 
     		log.error("Error removing anchors by owner.", e);
     		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
-    	});	
+    	}), ConfigEntityType.ANCHOR, ConfigChangeType.REMOVED, owner);	
 
     }
 }
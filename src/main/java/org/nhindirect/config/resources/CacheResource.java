@@ -0,0 +1,84 @@
+/* 
+Copyright (c) 2010, NHIN Direct Project
+All rights reserved.
+
+Authors:
+   Greg Meyer      gm2552@cerner.com
+ 
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer 
+in the documentation and/or other materials provided with the distribution.  Neither the name of the The NHIN Direct Project (nhindirect.org). 
+nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS 
+BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE 
+GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package org.nhindirect.config.resources;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.nhindirect.config.resources.util.CertificateCache;
+import org.nhindirect.config.resources.util.ResourceLookupCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Resource for reporting the statistics of the in memory caches of the configuration service.
+ * @author Greg Meyer
+ * @since 8.0
+ */
+@RestController
+@RequestMapping("cache")
+public class CacheResource extends ProtectedResource
+{
+	/**
+	 * Address and domain lookup cache injected by Spring
+	 */
+	protected ResourceLookupCache lookupCache;
+	
+    /**
+     * Constructor
+     */
+	public CacheResource()
+	{
+		
+	}
+	
+    /**
+     * Sets the address and domain lookup cache.
+     * @param lookupCache The lookup cache.
+     */
+	@Autowired
+	public void setLookupCache(ResourceLookupCache lookupCache)
+	{
+		this.lookupCache = lookupCache;
+	}
+	
+	/**
+	 * Gets the size, hit, miss, and eviction counts of the caches.
+	 * @return A map of cache metrics keyed by cache name.
+	 */
+    @GetMapping(value="stats", produces = MediaType.APPLICATION_JSON_VALUE)      
+    public Mono<Map<String, Map<String, Number>>> getStats()
+    {
+    	return Mono.fromCallable(() -> 
+    	{
+    		final Map<String, Map<String, Number>> stats = new LinkedHashMap<>(lookupCache.getMetrics());
+    		stats.put("certificate", ResourceLookupCache.toMetrics(CertificateCache.getStats(), CertificateCache.size()));
+    		
+    		return stats;
+    	});
+    }
+}
@@ -21,11 +21,16 @@ THE POSSIBILITY OF SUCH DAMAGE.
 
 package org.nhindirect.config.resources;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
+import org.nhindirect.config.events.ConfigChangeType;
+import org.nhindirect.config.events.ConfigEntityType;
 import org.nhindirect.config.model.CertPolicy;
 import org.nhindirect.config.model.CertPolicyGroup;
 import org.nhindirect.config.model.CertPolicyGroupDomainReltn;
@@ -35,11 +40,16 @@ import org.nhindirect.config.repository.CertPolicyGroupReltnRepository;
 import org.nhindirect.config.repository.CertPolicyGroupRepository;
 import org.nhindirect.config.repository.CertPolicyRepository;
 import org.nhindirect.config.repository.DomainRepository;
+import org.nhindirect.config.resources.util.CertPolicyGroupLoader;
 import org.nhindirect.config.resources.util.EntityModelConversion;
+import org.nhindirect.config.resources.util.KeysetPaging;
 import org.nhindirect.config.store.CertPolicyGroupReltn;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -47,12 +57,11 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
-import com.google.common.collect.Maps;
-
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -69,6 +78,11 @@ import reactor.core.publisher.Mono;
 @Slf4j
 public class CertPolicyResource extends ProtectedResource
 {	
+	/**
+	 * The default number of ids that are looked up in a single batched query.
+	 */
+	protected static final int DEFAULT_ID_CHUNK_SIZE = 500;
+	
     protected CertPolicyRepository policyRepo;
   
     protected CertPolicyGroupRepository groupRepo;
@@ -81,6 +95,8 @@ public class CertPolicyResource extends ProtectedResource
     
     protected CertPolicyResource transactionalThisProxy;
     
+    protected R2dbcEntityTemplate template;
+    
     /**
      * Constructor
      */
@@ -146,22 +162,56 @@ public class CertPolicyResource extends ProtectedResource
     	transactionalThisProxy = internalProxy;
     }
     
+    /**
+     * Sets the entity template used for batched and paged queries.  Auto populated by Spring
+     * @param template The entity template.
+     */
+    @Autowired
+    public void setEntityTemplate(R2dbcEntityTemplate template) 
+    {
+        this.template = template;
+    }
+    
+    /**
+     * Creates a policy group loader for a single request.
+     * @return A new policy group loader.
+     */
+    protected CertPolicyGroupLoader createPolicyGroupLoader()
+    {
+    	return new CertPolicyGroupLoader(template, groupRepo, policyRepo);
+    }
+    
     /**
      * Gets all certificate policies in the system.
+     * @param limit The maximum number of policies to return in a page.  Defaults to 0 which means all policies are returned.
+     * @param after The cursor of the previous page returned in the X-Next-Cursor header.  Defaults to 0 which means the first page.
+     * @param response The response where the cursor of the next page is set.
      * @return A JSON representation of a collection of all certificate policies in the system.  Returns a status of 204 if
      * no certificate policies exists.
      */
     @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-    public Flux<CertPolicy> getPolicies()
+    public Flux<CertPolicy> getPolicies(@RequestParam(name="limit", defaultValue="0") int limit,
+    		@RequestParam(name="after", defaultValue="0") long after, ServerHttpResponse response)
     {
-		return policyRepo.findAll()
-				.map(pol -> {
-					return EntityModelConversion.toModelCertPolicy(pol);				
-				})
+    	final Flux<CertPolicy> policies = (KeysetPaging.isPaged(limit)) ?
+    		KeysetPaging.getPage(template, org.nhindirect.config.store.CertPolicy.class, Criteria.empty(), after, limit, 
+    				org.nhindirect.config.store.CertPolicy::getId, EntityModelConversion::toModelCertPolicy, response) :
+    		policyRepo.findAll().map(pol -> EntityModelConversion.toModelCertPolicy(pol));
+    	
+		return withETag(policies
 		     	.onErrorResume(e -> { 
 		    		log.error("Error looking up cert policies.", e);
 		    		return Flux.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
-		    	});	
+		    	}), CertPolicyResource::toPolicyETag);	
+    }
+    
+    /**
+     * Gets all certificate policies in the system.
+     * @return A collection of all certificate policies in the system.
+     */
+    public Flux<CertPolicy> getPolicies()
+    {
+    	return getPolicies(0, 0, null);
     }
     
     /**
@@ -172,14 +222,24 @@ public class CertPolicyResource extends ProtectedResource
     @GetMapping(value="/{policyName}", produces = MediaType.APPLICATION_JSON_VALUE)
     public Mono<CertPolicy> getPolicyByName(@PathVariable("policyName") String policyName)
     {
-		return policyRepo.findByPolicyNameIgnoreCase(policyName)
+		return withETag(policyRepo.findByPolicyNameIgnoreCase(policyName)
 			.map(retPolicy -> {
 				return EntityModelConversion.toModelCertPolicy(retPolicy);
 			})
 	     	.onErrorResume(e -> { 
 	    		log.error("Error looking up cert policy.", e);
 	    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
-	    	});	
+	    	}), CertPolicyResource::toPolicyETag);	
+    }  
+    
+    /**
+     * Creates the entity tag of a certificate policy.
+     * @param policy The certificate policy.
+     * @return The entity tag of the certificate policy.
+     */
+    protected static String toPolicyETag(CertPolicy policy)
+    {
+    	return toETag(policy.getPolicyName(), policy.getLexicon(), policy.getCreateTime(), policy.getPolicyData());
     }  
     
     /**
@@ -192,7 +252,7 @@ public class CertPolicyResource extends ProtectedResource
     @ResponseStatus(HttpStatus.CREATED)
     public Mono<Void> addPolicy(@RequestBody CertPolicy policy)
     {
-    	return policyRepo.findByPolicyNameIgnoreCase(policy.getPolicyName())
+    	return recordChange(policyRepo.findByPolicyNameIgnoreCase(policy.getPolicyName())
     	    .switchIfEmpty(Mono.just(new org.nhindirect.config.store.CertPolicy()))
     	    .flatMap(pol -> 
     	    {
@@ -207,7 +267,7 @@ public class CertPolicyResource extends ProtectedResource
        	    		log.error("Error looking up cert policy.", e);
        	    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
        	    	});
-    		});
+    		}), ConfigEntityType.CERT_POLICY, ConfigChangeType.ADDED, policy.getPolicyName());
     }  
     
     /**
@@ -218,7 +278,7 @@ public class CertPolicyResource extends ProtectedResource
     @DeleteMapping(value="{policyName}") 
     public Mono<Void> removePolicyByName(@PathVariable("policyName") String policyName)
     {
-    	return policyRepo.findByPolicyNameIgnoreCase(policyName)
+    	return recordChange(policyRepo.findByPolicyNameIgnoreCase(policyName)
         	    .switchIfEmpty(Mono.just(new org.nhindirect.config.store.CertPolicy()))
         	    .flatMap(pol -> 
         	    {
@@ -231,7 +291,7 @@ public class CertPolicyResource extends ProtectedResource
                	    		log.error("Error deleting cert policy.", e);
                	    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
                	    	});	
-        	    });
+        	    }), ConfigEntityType.CERT_POLICY, ConfigChangeType.REMOVED, policyName);
     }    
     
     /**
@@ -244,7 +304,7 @@ public class CertPolicyResource extends ProtectedResource
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public Mono<Void> updatePolicyAttributes(@PathVariable("policyName") String policyName, @RequestBody CertPolicy policyData)
     { 
-    	return policyRepo.findByPolicyNameIgnoreCase(policyName)
+    	return recordChange(policyRepo.findByPolicyNameIgnoreCase(policyName)
         	    .switchIfEmpty(Mono.just(new org.nhindirect.config.store.CertPolicy()))
         	    .flatMap(pol -> 
         	    {
@@ -267,7 +327,7 @@ public class CertPolicyResource extends ProtectedResource
            	    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
            	    	});	
         			
-        	    });
+        	    }), ConfigEntityType.CERT_POLICY, ConfigChangeType.UPDATED, policyName);
     }
     
     /**
@@ -278,25 +338,14 @@ public class CertPolicyResource extends ProtectedResource
     @GetMapping(value="groups", produces = MediaType.APPLICATION_JSON_VALUE)
     public Flux<CertPolicyGroup> getPolicyGroups()
     {    	
-		return groupRepo.findAll()
-		.flatMap(group -> 
-		{ 
-			return polGroupReltnRepo.findByPolicyGroupId(group.getId())
-				    .flatMap(reltn ->  
-				    {
-				       return policyRepo.findById(reltn.getPolicyId())
-				       .map(pol -> Maps.immutableEntry(reltn, pol));
-				    
-				    })
-				    .collect(Collectors.toMap(
-							Map.Entry::getKey,
-							Map.Entry::getValue))
-				    .map(polUseMap -> EntityModelConversion.toModelCertPolicyGroup(group, polUseMap));
-		})
+		return withETag(groupRepo.findAll()
+		.collectList()
+		.flatMap(groups -> createPolicyGroupLoader().loadGroups(groups))
+		.flatMapIterable(Map::values)
      	.onErrorResume(e -> { 
     		log.error("Error looking up cert policy groups.", e);
     		return Flux.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
-    	});	
+    	}), CertPolicyResource::toPolicyGroupETag);	
    	
     }  
     
@@ -310,7 +359,7 @@ public class CertPolicyResource extends ProtectedResource
     public Mono<CertPolicyGroup> getPolicyGroupByName(@PathVariable("groupName") String groupName)
     {
 
-		return groupRepo.findByPolicyGroupNameIgnoreCase(groupName)
+		return withETag(groupRepo.findByPolicyGroupNameIgnoreCase(groupName)
 		   .switchIfEmpty(Mono.just(new org.nhindirect.config.store.CertPolicyGroup()))
 		   .flatMap(group -> 
 		   {
@@ -318,25 +367,41 @@ public class CertPolicyResource extends ProtectedResource
 			   if (group.getPolicyGroupName() == null)
 				   return Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)); 
 			   
-			   return polGroupReltnRepo.findByPolicyGroupId(group.getId())
-				    .flatMap(reltn ->  
-				    {
-				       return policyRepo.findById(reltn.getPolicyId())
-				       .map(pol -> Maps.immutableEntry(reltn, pol));
-				    
-				    })
-				    .collect(Collectors.toMap(
-							Map.Entry::getKey,
-							Map.Entry::getValue))
-				    .map(polUseMap -> EntityModelConversion.toModelCertPolicyGroup(group, polUseMap))
+			   return createPolicyGroupLoader().loadGroups(Collections.singletonList(group))
+				    .map(groups -> groups.get(group.getId()))
 			     	.onErrorResume(e -> { 
 			    		log.error("Error looking up cert policy group.", e);
 			    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
 			    	});	
-		   });
+		   }), CertPolicyResource::toPolicyGroupETag);
     		    	
     }
     
+    /**
+     * Creates the entity tag of a policy group from the group and the policies that it uses.
+     * @param group The policy group.
+     * @return The entity tag of the policy group.
+     */
+    protected static String toPolicyGroupETag(CertPolicyGroup group)
+    {
+    	final List<Object> parts = new ArrayList<>();
+    	parts.add(group.getPolicyGroupName());
+    	parts.add(group.getCreateTime());
+    	
+    	if (group.getPolicies() != null)
+    	{
+	    	for (CertPolicyGroupUse use : group.getPolicies())
+	    	{
+	    		parts.add(toPolicyETag(use.getPolicy()));
+	    		parts.add(use.getPolicyUse());
+	    		parts.add(use.isIncoming());
+	    		parts.add(use.isOutgoing());
+	    	}
+    	}
+    	
+    	return toETag(parts.toArray());
+    }
+    
     /**
      * Adds a policy group to the system.
      * @param uriInfo Injected URI context used for building the location URI.
@@ -348,7 +413,7 @@ public class CertPolicyResource extends ProtectedResource
     @ResponseStatus(HttpStatus.CREATED)
     public Mono<Void> addPolicyGroup(@RequestBody CertPolicyGroup group)
     {
-		return groupRepo.findByPolicyGroupNameIgnoreCase(group.getPolicyGroupName())
+		return recordChange(groupRepo.findByPolicyGroupNameIgnoreCase(group.getPolicyGroupName())
 			   .switchIfEmpty(Mono.just(new org.nhindirect.config.store.CertPolicyGroup()))
 			   .flatMap(foundGroup -> 
 			   {
@@ -363,7 +428,7 @@ public class CertPolicyResource extends ProtectedResource
 				    		log.error("Error adding trust cert policy group.", e);
 				    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
 				    	});	
-			   });
+			   }), ConfigEntityType.CERT_POLICY_GROUP, ConfigChangeType.ADDED, group.getPolicyGroupName());
     }  
     
     /**
@@ -375,7 +440,7 @@ public class CertPolicyResource extends ProtectedResource
     @DeleteMapping(value="groups/{groupName}")  
     public Mono<Void> removePolicyGroupByName(@PathVariable("groupName") String groupName)
     {
-		return groupRepo.findByPolicyGroupNameIgnoreCase(groupName)
+		return recordChange(groupRepo.findByPolicyGroupNameIgnoreCase(groupName)
 		   .switchIfEmpty(Mono.just(new org.nhindirect.config.store.CertPolicyGroup()))
 		   .flatMap(foundGroup -> 
 		   {
@@ -389,7 +454,7 @@ public class CertPolicyResource extends ProtectedResource
 			    		log.error("Error looking up existing cert policy group.", e);
 			    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
 			    	});						   
-		   });
+		   }), ConfigEntityType.CERT_POLICY_GROUP, ConfigChangeType.REMOVED, groupName);
 
     }       
     
@@ -404,7 +469,7 @@ public class CertPolicyResource extends ProtectedResource
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public Mono<Void> updateGroupAttributes(@PathVariable("groupName") String groupName, @RequestBody String newGroupName)
     { 
-		return groupRepo.findByPolicyGroupNameIgnoreCase(groupName)
+		return recordChange(groupRepo.findByPolicyGroupNameIgnoreCase(groupName)
 		   .switchIfEmpty(Mono.just(new org.nhindirect.config.store.CertPolicyGroup()))
 		   .flatMap(foundGroup -> 
 		   {
@@ -420,7 +485,7 @@ public class CertPolicyResource extends ProtectedResource
 			    		log.error("Error updating cert policy group attributes.", e);
 			    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
 			      });	
-		   });
+		   }), ConfigEntityType.CERT_POLICY_GROUP, ConfigChangeType.UPDATED, groupName);
     }  
     
     /**
@@ -434,7 +499,7 @@ public class CertPolicyResource extends ProtectedResource
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public Mono<Void> addPolicyUseToGroup(@PathVariable("group") String groupName, @RequestBody CertPolicyGroupUse use)
     {
-		return groupRepo.findByPolicyGroupNameIgnoreCase(groupName)
+		return recordChange(groupRepo.findByPolicyGroupNameIgnoreCase(groupName)
 		   .switchIfEmpty(Mono.just(new org.nhindirect.config.store.CertPolicyGroup()))
 		   .flatMap(foundGroup -> 
 		   {
@@ -462,7 +527,7 @@ public class CertPolicyResource extends ProtectedResource
 					    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
 					      }); 
 			      });
-		   });
+		   }), ConfigEntityType.CERT_POLICY_GROUP, ConfigChangeType.UPDATED, groupName);
     }
     
     /**
@@ -475,7 +540,7 @@ public class CertPolicyResource extends ProtectedResource
     @PostMapping(value="groups/uses/{group}/removePolicy", consumes = MediaType.APPLICATION_JSON_VALUE)    
     public Mono<Void> removedPolicyUseFromGroup(@PathVariable("group") String groupName, @RequestBody CertPolicyGroupUse use)
     {
-		return groupRepo.findByPolicyGroupNameIgnoreCase(groupName)
+		return recordChange(groupRepo.findByPolicyGroupNameIgnoreCase(groupName)
 		   .switchIfEmpty(Mono.just(new org.nhindirect.config.store.CertPolicyGroup()))
 		   .flatMap(foundGroup -> 
 		   {
@@ -506,7 +571,7 @@ public class CertPolicyResource extends ProtectedResource
 		    				});
 
 		    		});	
-		   });
+		   }), ConfigEntityType.CERT_POLICY_GROUP, ConfigChangeType.UPDATED, groupName);
 		
     }
     
@@ -519,43 +584,45 @@ public class CertPolicyResource extends ProtectedResource
     public Flux<CertPolicyGroupDomainReltn> getPolicyGroupDomainReltns()
     {    	
     		return domainReltnRepo.findAll()
- 	    	.flatMap(reltn -> 
+    		.collectList()
+ 	    	.flatMapMany(reltns -> 
  	    	{
+ 	    		if (reltns.isEmpty())
+ 	    			return Flux.empty();
  	    		
-  	    	   final Mono<CertPolicyGroup> polGroup = groupRepo.findById(reltn.getPolicyGroupId())
-   	        		.flatMap(group -> 
-   	        		{
-   	        			
-   	        			return polGroupReltnRepo.findByPolicyGroupId(group.getId())
-   	        				    .flatMap(groupReltn ->  
-   	        				    {
-   	        				       return policyRepo.findById(groupReltn.getPolicyId())
-   	        				       .map(pol -> Maps.immutableEntry(groupReltn, pol));
-   	        				    
-   	        				    })
-   	        				    .collect(Collectors.toMap(
-   	        							Map.Entry::getKey,
-   	        							Map.Entry::getValue))
-   	        				    .map(polUseMap -> 
-   	        				    {
-   	        				    	return EntityModelConversion.toModelCertPolicyGroup(group, polUseMap);
-   	        				    });
-   	        		});
- 	    	   
-  	    	   final Mono<org.nhindirect.config.store.Domain> domain = this.domainRepo.findById(reltn.getDomainId());
-  	    	   
-  	    	   return domain.zipWith(polGroup, (d, p) ->
-  	    	   {
- 	    	    	final CertPolicyGroupDomainReltn cpgdReltn = new CertPolicyGroupDomainReltn();
+ 	    		final Set<Long> groupIds = reltns.stream().map(org.nhindirect.config.store.CertPolicyGroupDomainReltn::getPolicyGroupId)
+ 	    				.collect(Collectors.toSet());
+ 	    		final Set<Long> domainIds = reltns.stream().map(org.nhindirect.config.store.CertPolicyGroupDomainReltn::getDomainId)
+ 	    				.collect(Collectors.toSet());
+ 	    		
+ 	    		final Mono<Map<Long, org.nhindirect.config.model.Domain>> domainsMono = Flux.fromIterable(domainIds)
+ 	    			.buffer(DEFAULT_ID_CHUNK_SIZE)
+ 	    			.concatMap(domainRepo::findAllById)
+ 	    			.collectMap(org.nhindirect.config.store.Domain::getId, domain -> EntityModelConversion.toModelDomain(domain, Collections.emptyList()));
+ 	    		
+ 	    		return Mono.zip(createPolicyGroupLoader().loadGroupsById(groupIds), domainsMono)
+ 	    		.flatMapIterable(models -> 
+ 	    		{
+ 	    			final List<CertPolicyGroupDomainReltn> cpgdReltns = new ArrayList<>();
+ 	    			for (org.nhindirect.config.store.CertPolicyGroupDomainReltn reltn : reltns)
+ 	    			{
+ 	    				// relationships to groups or domains that no longer exist are skipped
+ 	    				final CertPolicyGroup group = models.getT1().get(reltn.getPolicyGroupId());
+ 	    				final org.nhindirect.config.model.Domain domain = models.getT2().get(reltn.getDomainId());
+ 	    				if (group == null || domain == null)
+ 	    					continue;
+ 	    				
+ 	    	    		final CertPolicyGroupDomainReltn cpgdReltn = new CertPolicyGroupDomainReltn();
   	    	    	
- 	    	    	cpgdReltn.setId(reltn.getId());
- 	    	    	cpgdReltn.setPolicyGroup(p);
- 	    	    	cpgdReltn.setDomain(EntityModelConversion.toModelDomain(d, Collections.emptyList()));
- 	    	    	
- 	    	    	return cpgdReltn;
-  	    	   });
-  	    	   
-  	    	   			   
+ 	    	    		cpgdReltn.setId(reltn.getId());
+ 	    	    		cpgdReltn.setPolicyGroup(group);
+ 	    	    		cpgdReltn.setDomain(domain);
+ 	    	    		
+ 	    	    		cpgdReltns.add(cpgdReltn);
+ 	    			}
+ 	    			
+ 	    			return cpgdReltns;
+ 	    		});
  	    	})
 		    .onErrorResume(e -> { 
 		    		log.error("Error looking up policy group/domain relations.", e);
@@ -581,28 +648,10 @@ public class CertPolicyResource extends ProtectedResource
 				   return Flux.error(new ResponseStatusException(HttpStatus.NOT_FOUND));
 
 			   return domainReltnRepo.findByDomainId(domain.getId())
-		    	 	.flatMap(reltn -> 
-		    	 	{
-		    	 		return groupRepo.findById(reltn.getPolicyGroupId())
-		        		.flatMap(group -> 
-		        		{
-		        			
-		        			return polGroupReltnRepo.findByPolicyGroupId(group.getId())
-		        				    .flatMap(groupReltn ->  
-		        				    {
-		        				       return policyRepo.findById(groupReltn.getPolicyId())
-		        				       .map(pol -> Maps.immutableEntry(groupReltn, pol));
-		        				    
-		        				    })
-		        				    .collect(Collectors.toMap(
-		        							Map.Entry::getKey,
-		        							Map.Entry::getValue))
-		        				    .map(polUseMap -> 
-		        				    {
-		        				    	return EntityModelConversion.toModelCertPolicyGroup(group, polUseMap);
-		        				    });
-		        		});
-		    	 	})
+					.map(org.nhindirect.config.store.CertPolicyGroupDomainReltn::getPolicyGroupId)
+					.collectList()
+					.flatMap(groupIds -> createPolicyGroupLoader().loadGroupsById(groupIds))
+					.flatMapIterable(Map::values)
 				    .onErrorResume(e -> { 
 			    		log.error("Error looking up cert policy groups.", e);
 			    		return Flux.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
@@ -621,7 +670,7 @@ public class CertPolicyResource extends ProtectedResource
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public Mono<Void> associatePolicyGroupToDomain(@PathVariable("group") String groupName, @PathVariable("domain") String domainName)
     {
-		return groupRepo.findByPolicyGroupNameIgnoreCase(groupName)
+		return recordChange(groupRepo.findByPolicyGroupNameIgnoreCase(groupName)
 		   .switchIfEmpty(Mono.just(new org.nhindirect.config.store.CertPolicyGroup()))
 		   .flatMap(group -> 
 		   {
@@ -647,7 +696,7 @@ public class CertPolicyResource extends ProtectedResource
 				    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
 				       }); 
 				   });
-		   });
+		   }), ConfigEntityType.CERT_POLICY_GROUP_DOMAIN_RELTN, ConfigChangeType.ADDED, groupName + "/" + domainName);
     }
     
     /**
@@ -660,7 +709,7 @@ public class CertPolicyResource extends ProtectedResource
     @DeleteMapping("groups/domain/{group}/{domain}")
     public Mono<Void> disassociatePolicyGroupFromDomain(@PathVariable("group") String groupName, @PathVariable("domain") String domainName)
     {
-		return groupRepo.findByPolicyGroupNameIgnoreCase(groupName)
+		return recordChange(groupRepo.findByPolicyGroupNameIgnoreCase(groupName)
 		   .switchIfEmpty(Mono.just(new org.nhindirect.config.store.CertPolicyGroup()))
 		   .flatMap(group -> 
 		   {
@@ -680,7 +729,7 @@ public class CertPolicyResource extends ProtectedResource
 						    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
 						       }); 
 					   });
-			   });
+			   }), ConfigEntityType.CERT_POLICY_GROUP_DOMAIN_RELTN, ConfigChangeType.REMOVED, groupName + "/" + domainName);
 }
     
     /**
@@ -692,7 +741,7 @@ public class CertPolicyResource extends ProtectedResource
     @DeleteMapping(value="groups/domain/{domain}/deleteFromDomain")
     public Mono<Void> disassociatePolicyGroupsFromDomain(@PathVariable("domain") String domainName)
     {
-	   return domainRepo.findByDomainNameIgnoreCase(domainName)
+	   return recordChange(domainRepo.findByDomainNameIgnoreCase(domainName)
 		   .switchIfEmpty(Mono.just(new org.nhindirect.config.store.Domain()))
 		   .flatMap(domain -> 
 		   {
@@ -704,7 +753,7 @@ public class CertPolicyResource extends ProtectedResource
 		    		log.error("Error disassociating policy groups from domain.", e);
 			    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
 			       }); 
-		   });
+		   }), ConfigEntityType.CERT_POLICY_GROUP_DOMAIN_RELTN, ConfigChangeType.REMOVED, "*/" + domainName);
     }
     
     /**
@@ -716,7 +765,7 @@ public class CertPolicyResource extends ProtectedResource
     @DeleteMapping("groups/domain/{group}/deleteFromGroup")
     public Mono<Void> disassociatePolicyGroupFromDomains(@PathVariable("group") String groupName)
     {
-		return groupRepo.findByPolicyGroupNameIgnoreCase(groupName)
+		return recordChange(groupRepo.findByPolicyGroupNameIgnoreCase(groupName)
 		   .switchIfEmpty(Mono.just(new org.nhindirect.config.store.CertPolicyGroup()))
 		   .flatMap(group -> 
 		   {
@@ -728,6 +777,6 @@ public class CertPolicyResource extends ProtectedResource
 	    		log.error("Error disassociating policy groups from domain.", e);
 		    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
 		       }); 
-		   });
+		   }), ConfigEntityType.CERT_POLICY_GROUP_DOMAIN_RELTN, ConfigChangeType.REMOVED, groupName + "/*");
     }    
 }
@@ -23,34 +23,54 @@ package org.nhindirect.config.resources;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
 import org.nhindirect.common.cert.Thumbprint;
 import org.nhindirect.common.crypto.KeyStoreProtectionManager;
+import org.nhindirect.config.events.ConfigChangeType;
+import org.nhindirect.config.events.ConfigEntityType;
 import org.nhindirect.config.model.Certificate;
 import org.nhindirect.config.model.utils.CertUtils;
 import org.nhindirect.config.model.utils.CertUtils.CertContainer;
 import org.nhindirect.config.repository.CertificateRepository;
+import org.nhindirect.config.resources.util.BatchInserter;
+import org.nhindirect.config.resources.util.BulkImportResult;
 import org.nhindirect.config.resources.util.EntityModelConversion;
+import org.nhindirect.config.resources.util.KeysetPaging;
 import org.nhindirect.config.store.util.CertificateUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.google.common.collect.Maps;
+
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
 /**
  * Resource for managing certificate resources in the configuration service.
@@ -64,10 +84,35 @@ import reactor.core.publisher.Mono;
 @Slf4j
 public class CertificateResource extends ProtectedResource
 {   
+	/**
+	 * The default number of certificates that are checked and inserted together by a bulk import.
+	 */
+	protected static final int DEFAULT_IMPORT_CHUNK_SIZE = 500;
+	
     protected CertificateRepository certRepo;
     
     private KeyStoreProtectionManager kspMgr;
     
+    /**
+     * Entity template used for paged queries injected by Spring
+     */
+    protected R2dbcEntityTemplate template;
+    
+    /**
+     * The number of certificates that are checked and inserted together by a bulk import
+     */
+    protected int importChunkSize = DEFAULT_IMPORT_CHUNK_SIZE;
+    
+    /**
+     * The maximum number of certificates of a bulk import that are parsed and protected at the same time
+     */
+    protected int importParallelism = Runtime.getRuntime().availableProcessors();
+    
+    /**
+     * Scheduler of the bounded worker pool that parses and protects the certificates of a bulk import
+     */
+    protected Scheduler importScheduler = Schedulers.boundedElastic();
+    
     /**
      * Constructor
      */
@@ -86,48 +131,132 @@ public class CertificateResource extends ProtectedResource
         this.certRepo = certRepo;
     }
     
+    /**
+     * Sets the entity template used for paged queries.  Auto populated by Spring
+     * @param template The entity template.
+     */
+    @Autowired
+    public void setEntityTemplate(R2dbcEntityTemplate template) 
+    {
+        this.template = template;
+    }
+    
     @Autowired(required = false)
     public void setKeyStoreProtectionMgr(KeyStoreProtectionManager kspMgr) 
     {
         this.kspMgr = kspMgr;
     }
     
+    /**
+     * Sets the number of certificates that are checked and inserted together by a bulk import.
+     * @param importChunkSize The number of certificates per chunk.
+     */
+    public void setImportChunkSize(int importChunkSize) 
+    {
+        this.importChunkSize = importChunkSize;
+    }
+    
+    /**
+     * Sets the maximum number of certificates of a bulk import that are parsed and protected at the same time.
+     * @param importParallelism The maximum number of certificates processed at the same time.
+     */
+    public void setImportParallelism(int importParallelism) 
+    {
+        this.importParallelism = importParallelism;
+    }
+    
+    /**
+     * Sets the scheduler of the worker pool that parses and protects the certificates of a bulk import.
+     * @param importScheduler The worker pool scheduler.
+     */
+    public void setImportScheduler(Scheduler importScheduler) 
+    {
+        this.importScheduler = importScheduler;
+    }
+    
     /**
      * Gets all certificates in the system.
+     * <p>
+     * The collection is streamed one element at a time as newline delimited JSON or server sent events if the application/x-ndjson
+     * or text/event-stream media type is requested.
+     * @param limit The maximum number of certificates to return in a page.  Defaults to 0 which means all certificates are returned.
+     * @param after The cursor of the previous page returned in the X-Next-Cursor header.  Defaults to 0 which means the first page.
+     * @param response The response where the cursor of the next page is set.
      * @return A JSON representation of a collection of all certificates in the system.  Returns a status of 204 if no certificates
      * exist.
      */
-    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-    public Flux<Certificate> getAllCertificates()
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<Certificate> getAllCertificates(@RequestParam(name="limit", defaultValue="0") int limit,
+    		@RequestParam(name="after", defaultValue="0") long after, ServerHttpResponse response)
     {
 		
-		return getCertificatesByOwner(null);
+		return getCertificatesByOwner(null, limit, after, response);
+    }
+    
+    /**
+     * Gets all certificates in the system.
+     * @return A collection of all certificates in the system.
+     */
+    public Flux<Certificate> getAllCertificates()
+    {
+    	return getAllCertificates(0, 0, null);
     }
     
     /**
      * Gets all certificates for a specific owner.
+     * <p>
+     * The collection is streamed one element at a time as newline delimited JSON or server sent events if the application/x-ndjson
+     * or text/event-stream media type is requested.
      * @param owner The owner to retrieive certificates for.
+     * @param limit The maximum number of certificates to return in a page.  Defaults to 0 which means all certificates are returned.
+     * @param after The cursor of the previous page returned in the X-Next-Cursor header.  Defaults to 0 which means the first page.
+     * @param response The response where the cursor of the next page is set.
      * @return A JSON representation of a collection of all certificates in the system.  Returns a status of 204 if no certificates
      * exist for the owner.
      */
-    @GetMapping(value="/{owner}", produces = MediaType.APPLICATION_JSON_VALUE)
-    public Flux<Certificate> getCertificatesByOwner(@PathVariable("owner") String owner)
+    @GetMapping(value="/{owner}", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<Certificate> getCertificatesByOwner(@PathVariable("owner") String owner, @RequestParam(name="limit", defaultValue="0") int limit,
+    		@RequestParam(name="after", defaultValue="0") long after, ServerHttpResponse response)
     {  	    	
-		final Flux<org.nhindirect.config.store.Certificate> lookupFlux = 
-				(StringUtils.isEmpty(owner)) ? certRepo.findAll() : certRepo.findByOwnerIgnoreCase(owner);	
+    	final Function<org.nhindirect.config.store.Certificate, Certificate> toModel = cert -> 
+		{
+			CertificateUtils.stripP12Protection(cert, this.kspMgr);
+			return EntityModelConversion.toModelCertificate(cert);	
+		};
 		
-		return lookupFlux
-			.map(cert -> 
-			{
-				CertificateUtils.stripP12Protection(cert, this.kspMgr);
-				return EntityModelConversion.toModelCertificate(cert);	
-			})
+		Flux<Certificate> certs;
+		if (KeysetPaging.isPaged(limit))
+		{
+			final Criteria criteria = (StringUtils.isEmpty(owner)) ? Criteria.empty() : Criteria.where("owner").is(owner).ignoreCase(true);
+			
+			certs = KeysetPaging.getPage(template, org.nhindirect.config.store.Certificate.class, criteria, after, limit, 
+					org.nhindirect.config.store.Certificate::getId, toModel, response);
+		}
+		else
+		{
+			final Flux<org.nhindirect.config.store.Certificate> lookupFlux = 
+					(StringUtils.isEmpty(owner)) ? certRepo.findAll() : certRepo.findByOwnerIgnoreCase(owner);	
+			
+			certs = lookupFlux.map(toModel);
+		}
+		
+		return withETag(certs
    	     	.onErrorResume(e -> { 
    	    		log.error("Error looking up certificates.", e);
    	    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
-   	    	});
+   	    	}), CertificateResource::toCertificateETag);
     }  
     
+    /**
+     * Gets all certificates for a specific owner.
+     * @param owner The owner to retrieive certificates for.
+     * @return A collection of all certificates for the owner.
+     */
+    public Flux<Certificate> getCertificatesByOwner(String owner)
+    {
+    	return getCertificatesByOwner(owner, 0, 0, null);
+    }
+    
     /**
      * Gets a certificate for a specific owner and thumbprint.
      * @param owner The owner or the certificate.
@@ -155,7 +284,7 @@ public class CertificateResource extends ProtectedResource
            	.collectList();
         }
         	
-		return retCertificates
+		final Mono<Certificate> retCertificate = retCertificates
 		.switchIfEmpty(Mono.just(Collections.emptyList()))
        	.flatMap(certs ->
        	{
@@ -172,6 +301,18 @@ public class CertificateResource extends ProtectedResource
     		log.error("Error looking up certificates.", e);
     		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
     	});
+		
+		return withETag(retCertificate, CertificateResource::toCertificateETag);
+    }
+    
+    /**
+     * Creates the entity tag of a certificate.
+     * @param cert The certificate.
+     * @return The entity tag of the certificate.
+     */
+    protected static String toCertificateETag(Certificate cert)
+    {
+    	return toETag(cert.getId(), cert.getOwner(), cert.getThumbprint(), cert.getStatus(), cert.isPrivateKey(), cert.getData());
     }
     
     /**
@@ -204,7 +345,7 @@ public class CertificateResource extends ProtectedResource
 		try
 		{
 		
-		return certRepo.findByOwnerIgnoreCaseAndThumbprint(cert.getOwner(), Thumbprint.toThumbprint(cont.getCert()).toString())
+		return recordChange(certRepo.findByOwnerIgnoreCaseAndThumbprint(cert.getOwner(), Thumbprint.toThumbprint(cont.getCert()).toString())
 				.switchIfEmpty(Mono.just(new org.nhindirect.config.store.Certificate()))
 				.flatMap(lookupCert -> 
 				{
@@ -233,7 +374,7 @@ public class CertificateResource extends ProtectedResource
 			    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
 					}					
 					
-				});
+				}), ConfigEntityType.CERTIFICATE, ConfigChangeType.ADDED, cert.getOwner());
 		}
 		catch (Exception e)
 		{
@@ -243,6 +384,149 @@ public class CertificateResource extends ProtectedResource
 
     }
     
+    /**
+     * Adds a stream of certificates to the system.  The certificates may be sent as a JSON array or as newline delimited JSON.
+     * Certificates are parsed and their private keys are protected in parallel on a bounded worker pool, existing certificates
+     * are checked with a single query per chunk, and the new certificates of a chunk are inserted with a single statement.
+     * @param certs The certificates to add.
+     * @return A stream with the result of each certificate in the order of the request keyed by certificate thumbprint.  Certificates 
+     * that cannot be parsed are keyed by their owner and zero based position in the request as owner#index.  The status of a result
+     * is 201 if the certificate was added, 400 if the certificate cannot be parsed or does not have an owner, or 409 if the certificate
+     * already exists for the owner or is repeated in the request.
+     */
+    @PutMapping(value="bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE}, 
+    		produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})   
+    public Flux<BulkImportResult> addCertificates(@RequestBody Flux<Certificate> certs)
+    {
+    	return Flux.defer(() ->
+    	{
+    		// certificates that are imported are remembered across chunks of the same request
+    		final Set<String> importedCerts = new HashSet<>();
+    		
+    		return certs.flatMapSequential(cert -> Mono.fromCallable(() -> toImportEntity(cert))
+    				.subscribeOn(importScheduler)
+    				.onErrorResume(e -> 
+    				{
+    					log.warn("Certificate for owner {} cannot be imported: {}", cert.getOwner(), e.getMessage());
+    					return Mono.just(Maps.immutableEntry(cert, new org.nhindirect.config.store.Certificate()));
+    				}), importParallelism)
+    			.buffer(importChunkSize)
+    			.index()
+    			.concatMap(chunk -> addCertificateChunk(chunk.getT2(), chunk.getT1() * importChunkSize, importedCerts));
+    	});
+    }
+    
+    /**
+     * Converts a certificate of a bulk import to an entity with the certificate repository attributes applied.  The certificate
+     * is only parsed once by the conversion.
+     * @param cert The certificate to convert.
+     * @return The certificate paired with its entity.
+     * @throws Exception If the certificate cannot be parsed or protected.
+     */
+    protected Map.Entry<Certificate, org.nhindirect.config.store.Certificate> toImportEntity(Certificate cert) throws Exception
+    {
+    	final CertContainer cont = CertUtils.toCertContainer(cert.getData());
+    	
+		if (StringUtils.isEmpty(cert.getOwner()))
+			cert.setOwner(CertUtils.getOwner(cont.getCert()));
+		
+		if (StringUtils.isEmpty(cert.getOwner()))
+			throw new IllegalArgumentException("Certificate does not have an owner");
+		
+		org.nhindirect.config.store.Certificate entCert = EntityModelConversion.toEntityCertificate(cert, cont);
+		entCert = CertificateUtils.applyCertRepositoryAttributes(entCert, kspMgr);
+		entCert.setId(null);
+		entCert.setCreateTime(LocalDateTime.now());
+		
+		return Maps.immutableEntry(cert, entCert);
+    }
+    
+    /**
+     * Adds a chunk of converted certificates from a bulk import.
+     * @param chunk The certificates paired with their entities.  A certificate that cannot be converted is paired with an
+     * entity without data.
+     * @param firstIndex The position of the first certificate of the chunk in the request.
+     * @param importedCerts The upper case owner and thumbprint keys of certificates that have already been imported by the request.
+     * @return The result of each certificate in the chunk.
+     */
+    protected Flux<BulkImportResult> addCertificateChunk(List<Map.Entry<Certificate, org.nhindirect.config.store.Certificate>> chunk, 
+    		long firstIndex, Set<String> importedCerts)
+    {
+    	return Mono.defer(() -> lookupExistingCertificates(chunk))
+    		.flatMapMany(existing ->
+    		{
+    			final BulkImportResult[] results = new BulkImportResult[chunk.size()];
+    			final List<org.nhindirect.config.store.Certificate> toAdd = new ArrayList<>();
+    			
+    			for (int i = 0; i < chunk.size(); ++i)
+    			{
+    				final org.nhindirect.config.store.Certificate entCert = chunk.get(i).getValue();
+    				
+    				if (entCert.getData() == null)
+    					results[i] = new BulkImportResult(StringUtils.defaultString(chunk.get(i).getKey().getOwner()) + "#" + (firstIndex + i), 
+    							HttpStatus.BAD_REQUEST);
+    				else if (existing.contains(toImportKey(entCert)) || !importedCerts.add(toImportKey(entCert)))
+    					results[i] = new BulkImportResult(entCert.getThumbprint(), HttpStatus.CONFLICT);
+    				else
+    					toAdd.add(entCert);
+    			}
+    			
+    			return BatchInserter.insertAll(template, org.nhindirect.config.store.Certificate.class, toAdd)
+    				.map(count -> HttpStatus.CREATED)
+	   	     		.onErrorResume(e -> { 
+	   	    			log.error("Error adding certificates.", e);
+	   	    			return Mono.just(HttpStatus.INTERNAL_SERVER_ERROR);
+	   	    		})
+    				.flatMapIterable(status -> 
+    				{
+    					for (int i = 0, added = 0; i < results.length; ++i)
+    					{
+    						if (results[i] == null)
+    						{
+    							final org.nhindirect.config.store.Certificate entCert = toAdd.get(added++);
+    							results[i] = new BulkImportResult(entCert.getThumbprint(), status);
+    							if (status == HttpStatus.CREATED)
+    								changeLog.record(ConfigEntityType.CERTIFICATE, ConfigChangeType.ADDED, entCert.getOwner());
+    						}
+    					}
+    					
+    					return Arrays.asList(results);
+    				});
+    		})
+   	     	.onErrorResume(e -> { 
+   	    		log.error("Error looking up certificates for import.", e);
+   	    		return Flux.fromIterable(chunk).map(entry -> new BulkImportResult(entry.getValue().getThumbprint(), HttpStatus.INTERNAL_SERVER_ERROR));
+   	    	});	
+    }
+    
+    /**
+     * Looks up which certificates of a chunk already exist with a single query.  Only the owner and thumbprint columns are
+     * selected so the existing certificates are not parsed.
+     * @param chunk The certificates to look up.
+     * @return The upper case owner and thumbprint keys of the certificates of the chunk that already exist.
+     */
+    protected Mono<Set<String>> lookupExistingCertificates(List<Map.Entry<Certificate, org.nhindirect.config.store.Certificate>> chunk)
+    {
+    	final Set<String> thumbprints = chunk.stream()
+    		.map(entry -> entry.getValue().getThumbprint())
+    		.filter(StringUtils::isNotEmpty)
+    		.collect(Collectors.toSet());
+    	
+    	if (thumbprints.isEmpty())
+    		return Mono.just(new HashSet<>());
+    	
+    	return template.select(org.nhindirect.config.store.Certificate.class)
+    		.matching(Query.query(Criteria.where("thumbprint").in(thumbprints)).columns("id", "owner", "thumbprint"))
+    		.all()
+    		.map(this::toImportKey)
+    		.collect(Collectors.toSet());
+    }
+    
+    protected String toImportKey(org.nhindirect.config.store.Certificate cert)
+    {
+    	return cert.getOwner().toUpperCase() + "/" + cert.getThumbprint();
+    }
+    
     /**
      * Deletes certificates by system id.
      * @param ids Comma delimited list of system ids to delete.
@@ -257,11 +541,18 @@ public class CertificateResource extends ProtectedResource
 		for (String id : idArray)
 			idList.add(Long.parseLong(id));
     	
-		return certRepo.deleteByIdIn(idList)
-		     	.onErrorResume(e -> { 
-		    		log.error("Error removing anchors by ids.", e);
-		    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
-		    	});	
+		// the owners are selected before the delete so a change can be recorded for each removed certificate
+		return template.select(org.nhindirect.config.store.Certificate.class)
+			.matching(Query.query(Criteria.where("id").in(idList)).columns("id", "owner"))
+			.all()
+			.map(org.nhindirect.config.store.Certificate::getOwner)
+			.collectList()
+			.flatMap(owners -> certRepo.deleteByIdIn(idList)
+				.doOnSuccess(empty -> recordChanges(ConfigEntityType.CERTIFICATE, ConfigChangeType.REMOVED, owners)))
+	     	.onErrorResume(e -> { 
+	    		log.error("Error removing anchors by ids.", e);
+	    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
+	    	});
     	
     }
     
@@ -273,11 +564,11 @@ public class CertificateResource extends ProtectedResource
     @DeleteMapping(value="{owner}")  
     public Mono<Void> removeCertificatesByOwner(@PathVariable("owner") String owner)
     {
-		return certRepo.deleteByOwnerIgnoreCase(owner)
+		return recordChange(certRepo.deleteByOwnerIgnoreCase(owner)
 		     	.onErrorResume(e -> { 
 		    		log.error("Error removing certificates by owner.", e);
 		    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
-		    	});	
+		    	}), ConfigEntityType.CERTIFICATE, ConfigChangeType.REMOVED, owner);	
     }   
 
 }
@@ -0,0 +1,68 @@
+/* 
+Copyright (c) 2010, NHIN Direct Project
+All rights reserved.
+
+Authors:
+   Greg Meyer      gm2552@cerner.com
+ 
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer 
+in the documentation and/or other materials provided with the distribution.  Neither the name of the The NHIN Direct Project (nhindirect.org). 
+nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS 
+BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE 
+GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package org.nhindirect.config.resources;
+
+import org.nhindirect.config.events.ConfigChanges;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Resource for retrieving the changes made to the configuration since a given configuration version.  Clients that keep a copy of
+ * the configuration use this resource to synchronize only the entities that were added, updated, or removed instead of reloading
+ * the entire configuration.
+ * @author Greg Meyer
+ * @since 8.0
+ */
+@RestController
+@RequestMapping("changes")
+public class ChangeResource extends ProtectedResource
+{
+    /**
+     * Constructor
+     */
+	public ChangeResource()
+	{
+		
+	}
+	
+	/**
+	 * Gets the changes made to the configuration after a given version.  Clients should first request the current version, load the
+	 * full configuration, and then pass the version returned by each request as the starting point of the next request.
+	 * @param since The last configuration version seen by the client.  Defaults to -1 which means only the current version is returned.
+	 * @return A JSON representation of the current configuration version and the changes made after the given version in the order
+	 * they were made.  Returns a status of 410 if the changes since the version are no longer retained, in which case the client
+	 * must reload the full configuration.
+	 */
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)      
+    public Mono<ConfigChanges> getChanges(@RequestParam(name="since", defaultValue="-1") long since)
+    {
+    	return Mono.fromCallable(() -> changeLog.getChangesSince(since))
+    		.switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.GONE)));
+    }
+}
@@ -21,16 +21,39 @@ THE POSSIBILITY OF SUCH DAMAGE.
 
 package org.nhindirect.config.resources;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
+import org.bouncycastle.util.encoders.Hex;
+
+import org.nhindirect.config.events.ConfigChangeType;
+import org.nhindirect.config.events.ConfigEntityType;
 import org.nhindirect.config.model.DNSRecord;
 import org.nhindirect.config.repository.DNSRepository;
+import org.nhindirect.config.resources.util.BatchInserter;
+import org.nhindirect.config.resources.util.BulkImportResult;
 import org.nhindirect.config.resources.util.EntityModelConversion;
+import org.nhindirect.config.resources.util.KeysetPaging;
+import org.nhindirect.config.resources.util.ZoneFileReader;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -42,8 +65,13 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.TextParseException;
 import org.xbill.DNS.Type;
 
+import com.google.common.collect.Maps;
+
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -60,11 +88,31 @@ import reactor.core.publisher.Mono;
 @Slf4j
 public class DNSResource extends ProtectedResource
 {	
+	/**
+	 * The default number of records that are checked and inserted together by a zone import.
+	 */
+	protected static final int DEFAULT_IMPORT_CHUNK_SIZE = 500;
+	
+	/**
+	 * The number of ids that are deleted with a single statement.
+	 */
+	protected static final int DEFAULT_ID_CHUNK_SIZE = 500;
+	
     /**
      * DNS repository is injected by Spring
      */
     protected DNSRepository dnsRepo;
     
+    /**
+     * Entity template used for paged queries injected by Spring
+     */
+    protected R2dbcEntityTemplate template;
+    
+    /**
+     * The number of records that are checked and inserted together by a zone import
+     */
+    protected int importChunkSize = DEFAULT_IMPORT_CHUNK_SIZE;
+    
     /**
      * Constructor
      */
@@ -83,49 +131,123 @@ public class DNSResource extends ProtectedResource
         this.dnsRepo = dnsRepo;
     }
      
+    /**
+     * Sets the entity template used for paged queries.  Auto populated by Spring
+     * @param template The entity template.
+     */
+    @Autowired
+    public void setEntityTemplate(R2dbcEntityTemplate template) 
+    {
+        this.template = template;
+    }
+    
+    /**
+     * Sets the number of records that are checked and inserted together by a zone import.
+     * @param importChunkSize The number of records per chunk.
+     */
+    public void setImportChunkSize(int importChunkSize) 
+    {
+        this.importChunkSize = importChunkSize;
+    }
+    
     /**
      * Gets DNS records that match a given name, type, or combination of both.
+     * <p>
+     * The collection is streamed one element at a time as newline delimited JSON or server sent events if the application/x-ndjson
+     * or text/event-stream media type is requested.
      * @param type DNS record type filter.  Defaults to -1 which means no filter will be applied.
      * @param name DNS record name filter.  Defaults to an empty string which means no filter will be applied.
+     * @param limit The maximum number of records to return in a page.  Defaults to 0 which means all records are returned.
+     * @param after The cursor of the previous page returned in the X-Next-Cursor header.  Defaults to 0 which means the first page.
+     * @param response The response where the cursor of the next page is set.
      * @return A JSON representation of a collection of all DNS records that match the given search criteria.  Returns
      * a status of 204 if no records match the search criteria.
      */
-    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
     public Flux<DNSRecord> getDNSRecords(@RequestParam(name="type", defaultValue = "-1")int type, 
-    		@RequestParam(name="name", defaultValue="") String name)
+    		@RequestParam(name="name", defaultValue="") String name, @RequestParam(name="limit", defaultValue="0") int limit,
+    		@RequestParam(name="after", defaultValue="0") long after, ServerHttpResponse response)
     {
-    	Flux<org.nhindirect.config.store.DNSRecord> retRecords;
+    	// the repository query is only used for unpaged requests, paged requests are served by the keyset query
+    	Supplier<Flux<org.nhindirect.config.store.DNSRecord>> retRecords;
+    	Criteria criteria;
+    	
+    	final String queryName = name.endsWith(".") ? name : (name + ".");
 
     	if (type > -1 && !name.isEmpty())
     	{
     		if (type == Type.ANY)
-    			retRecords = dnsRepo.findByNameIgnoreCase(name.endsWith(".") ? name : (name + "."));
+    		{
+    			retRecords = () -> dnsRepo.findByNameIgnoreCase(queryName);
+    			criteria = Criteria.where("name").is(queryName).ignoreCase(true);
+    		}
     		else
-    			retRecords = dnsRepo.findByNameIgnoreCaseAndType(name.endsWith(".") ? name : (name + "."), type);
+    		{
+    			retRecords = () -> dnsRepo.findByNameIgnoreCaseAndType(queryName, type);
+    			criteria = Criteria.where("name").is(queryName).ignoreCase(true).and("type").is(type);
+    		}
     	}
     	else if (type > -1)
     	{
     		if (type == Type.ANY)
-    			retRecords = dnsRepo.findAll();
+    		{
+    			retRecords = () -> dnsRepo.findAll();
+    			criteria = Criteria.empty();
+    		}
     		else
-    			retRecords = dnsRepo.findByType(type);
+    		{
+    			retRecords = () -> dnsRepo.findByType(type);
+    			criteria = Criteria.where("type").is(type);
+    		}
     	}
     	else if (!name.isEmpty())
-    		retRecords = dnsRepo.findByNameIgnoreCase(name.endsWith(".") ? name : (name + "."));
+    	{
+    		retRecords = () -> dnsRepo.findByNameIgnoreCase(queryName);
+    		criteria = Criteria.where("name").is(queryName).ignoreCase(true);
+    	}
     	else
     	{
     		log.error("Either a DNS query name or type (or both) must be specified.");
     		return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST));
     	}
+    	
+    	if (KeysetPaging.isPaged(limit))
+    		return withETag(KeysetPaging.getPage(template, org.nhindirect.config.store.DNSRecord.class, criteria, after, limit, 
+    				org.nhindirect.config.store.DNSRecord::getId, EntityModelConversion::toModelDNSRecord, response)
+    		    .onErrorResume(e -> { 
+    		    	log.error("Error looking up DNS records.", e);
+    		    	return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
+    		    }), DNSResource::toDNSRecordETag);
     		
-		return retRecords
+		return withETag(retRecords.get()
 			.map(record -> {
 				return EntityModelConversion.toModelDNSRecord(record);
 			})
 	     	.onErrorResume(e -> { 
 	    		log.error("Error looking up DNS records.", e);
 	    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
-	    	});  	
+	    	}), DNSResource::toDNSRecordETag);  	
+    }
+    
+    /**
+     * Gets DNS records that match a given name, type, or combination of both.
+     * @param type DNS record type filter.  A value of -1 means no filter will be applied.
+     * @param name DNS record name filter.  An empty string means no filter will be applied.
+     * @return A collection of all DNS records that match the given search criteria.
+     */
+    public Flux<DNSRecord> getDNSRecords(int type, String name)
+    {
+    	return getDNSRecords(type, name, 0, 0, null);
+    }
+    
+    /**
+     * Creates the entity tag of a DNS record.
+     * @param record The DNS record.
+     * @return The entity tag of the DNS record.
+     */
+    protected static String toDNSRecordETag(DNSRecord record)
+    {
+    	return toETag(record.getId(), record.getName(), record.getType(), record.getDclass(), record.getTtl(), record.getData());
     }
     
     /**
@@ -148,7 +270,7 @@ public class DNSResource extends ProtectedResource
     		record.setName(record.getName() + ".");
     	
 
-		return dnsRepo.findByNameIgnoreCaseAndType(record.getName(), record.getType())
+		return recordChange(dnsRepo.findByNameIgnoreCaseAndType(record.getName(), record.getType())
 		 .filter(compareRecord -> Arrays.equals(record.getData(), compareRecord.getData()))
 		 .collectList()
 		 .switchIfEmpty(Mono.just(Collections.emptyList()))
@@ -168,7 +290,222 @@ public class DNSResource extends ProtectedResource
 	    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
 	    	}); 
     		
-		 });
+		 }), ConfigEntityType.DNS_RECORD, ConfigChangeType.ADDED, record.getName());
+    }
+    
+    /**
+     * Imports the records of a zone file in master file format.  The zone file is read as it is streamed, records that already
+     * exist are found by a hash of the record name, type, and data with a single query per chunk, and the new records of a 
+     * chunk are inserted with a single statement.
+     * @param lines The lines of the zone file.
+     * @param origin The initial origin of relative names in the zone file.  Defaults to an empty string which means the zone file
+     * must use absolute names or set the origin with the $ORIGIN directive.
+     * @param ttl The TTL of records that do not specify a TTL and are not covered by a $TTL directive.  Defaults to 3600.
+     * @return A stream with the result of each record in the order of the zone file keyed by the record name and type.  The status of
+     * a result is 201 if the record was added, 400 if the entry cannot be parsed, or 409 if the record already exists or is repeated
+     * in the zone file.  Returns a status of 400 if the origin is not a valid name.
+     */
+    @PutMapping(value="zone", consumes = MediaType.TEXT_PLAIN_VALUE, produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<BulkImportResult> importZone(@RequestBody Flux<String> lines, @RequestParam(name="origin", defaultValue="") String origin,
+    		@RequestParam(name="ttl", defaultValue="3600") long ttl)
+    {
+    	final Name originName;
+    	try
+    	{
+    		originName = (origin.isEmpty()) ? null : Name.fromString(origin, Name.root);
+    	}
+    	catch (TextParseException e)
+    	{
+    		log.error("Invalid zone origin {}", origin);
+    		return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST));
+    	}
+    	
+    	return Flux.defer(() ->
+    	{
+    		// the reader and imported records are scoped to a single zone file
+    		final ZoneFileReader reader = new ZoneFileReader(originName, ttl);
+    		final Set<String> importedRecords = new HashSet<>();
+    		
+    		return lines.concatMapIterable(reader::readLine)
+    			.concatWith(Flux.defer(() -> Flux.fromIterable(reader.finish())))
+    			.concatMapIterable(this::toImportEntities)
+    			.buffer(importChunkSize)
+    			.concatMap(chunk -> addDNSRecordChunk(chunk, importedRecords));
+    	});
+    }
+    
+    /**
+     * Exports DNS records in master file format.  Records are ordered by type and then by name, so the records of each type
+     * are streamed together.
+     * @param name The zone to export.  Records with the zone name and all names in the zone are exported.  Defaults to an empty
+     * string which means all records are exported.
+     * @param type DNS record type filter.  Defaults to -1 which means no filter will be applied.
+     * @return The exported records, one record per line.
+     */
+    @GetMapping(value="zone", produces = MediaType.TEXT_PLAIN_VALUE)
+    public Flux<String> exportZone(@RequestParam(name="name", defaultValue="") String name, @RequestParam(name="type", defaultValue = "-1") int type)
+    {
+    	Criteria criteria = Criteria.empty();
+    	
+    	if (!name.isEmpty())
+    	{
+    		final String zone = (name.endsWith(".") ? name : (name + ".")).toUpperCase(Locale.ENGLISH);
+    		criteria = Criteria.where("name").is(zone).ignoreCase(true).or(Criteria.where("name").like("%." + zone).ignoreCase(true));
+    	}
+    	
+    	if (type > -1 && type != Type.ANY)
+    		criteria = Criteria.where("type").is(type).and(criteria);
+    	
+    	return template.select(org.nhindirect.config.store.DNSRecord.class)
+    		.matching(Query.query(criteria).sort(Sort.by("type", "name", "id")))
+    		.all()
+    		.<String>handle((record, sink) ->
+    		{
+    			try
+    			{
+    				sink.next(Record.newRecord(Name.fromString(record.getName()), record.getType(), record.getDclass(), 
+    						record.getTtl(), record.getData()).toString() + "\n");
+    			}
+    			catch (Exception e)
+    			{
+    				log.warn("DNS record {} cannot be exported: {}", record.getId(), e.getMessage());
+    			}
+    		})
+	     	.onErrorResume(e -> { 
+	    		log.error("Error exporting DNS records.", e);
+	    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
+	    	});
+    }
+    
+    /**
+     * Converts a zone file entry to the DNS record entities to import.
+     * @param entry The zone file entry.
+     * @return The record entities keyed by record name and type.  An entry that cannot be parsed is returned as the text
+     * of the entry without an entity.
+     */
+    protected List<Map.Entry<String, org.nhindirect.config.store.DNSRecord>> toImportEntities(ZoneFileReader.Entry entry)
+    {
+    	if (entry.getError() != null)
+    	{
+    		log.warn("Zone file entry {} cannot be imported: {}", entry.getText(), entry.getError().getMessage());
+    		return Collections.singletonList(Maps.immutableEntry(entry.getText(), null));
+    	}
+    	
+    	final LocalDateTime now = LocalDateTime.now();
+    	
+    	return entry.getRecords().stream().map(record ->
+    	{
+    		final org.nhindirect.config.store.DNSRecord entity = new org.nhindirect.config.store.DNSRecord();
+    		entity.setName(record.getName().toString());
+    		entity.setType(record.getType());
+    		entity.setDclass(record.getDClass());
+    		entity.setTtl(record.getTTL());
+    		entity.setData(record.rdataToWireCanonical());
+    		entity.setCreateTime(now);
+    		
+    		return Maps.immutableEntry(entity.getName() + " " + Type.string(entity.getType()), entity);
+    	})
+    	.collect(Collectors.toList());
+    }
+    
+    /**
+     * Adds a chunk of records from a zone import.
+     * @param chunk The record entities keyed by record name and type.  An entry that cannot be parsed does not have an entity.
+     * @param importedRecords The hashes of records that have already been imported from the zone file.
+     * @return The result of each record in the chunk.
+     */
+    protected Flux<BulkImportResult> addDNSRecordChunk(List<Map.Entry<String, org.nhindirect.config.store.DNSRecord>> chunk, Set<String> importedRecords)
+    {
+    	return Mono.defer(() -> lookupExistingRecords(chunk))
+    		.flatMapMany(existing ->
+    		{
+    			final BulkImportResult[] results = new BulkImportResult[chunk.size()];
+    			final List<org.nhindirect.config.store.DNSRecord> toAdd = new ArrayList<>();
+    			
+    			for (int i = 0; i < chunk.size(); ++i)
+    			{
+    				final org.nhindirect.config.store.DNSRecord record = chunk.get(i).getValue();
+    				
+    				if (record == null)
+    					results[i] = new BulkImportResult(chunk.get(i).getKey(), HttpStatus.BAD_REQUEST);
+    				else if (existing.contains(toRecordHash(record)) || !importedRecords.add(toRecordHash(record)))
+    					results[i] = new BulkImportResult(chunk.get(i).getKey(), HttpStatus.CONFLICT);
+    				else
+    					toAdd.add(record);
+    			}
+    			
+    			return BatchInserter.insertAll(template, org.nhindirect.config.store.DNSRecord.class, toAdd)
+    				.map(count -> HttpStatus.CREATED)
+	   	     		.onErrorResume(e -> { 
+	   	    			log.error("Error adding DNS records.", e);
+	   	    			return Mono.just(HttpStatus.INTERNAL_SERVER_ERROR);
+	   	    		})
+    				.flatMapIterable(status -> 
+    				{
+    					for (int i = 0; i < results.length; ++i)
+    					{
+    						if (results[i] == null)
+    						{
+    							results[i] = new BulkImportResult(chunk.get(i).getKey(), status);
+    							if (status == HttpStatus.CREATED)
+    								changeLog.record(ConfigEntityType.DNS_RECORD, ConfigChangeType.ADDED, chunk.get(i).getValue().getName());
+    						}
+    					}
+    					
+    					return Arrays.asList(results);
+    				});
+    		})
+   	     	.onErrorResume(e -> { 
+   	    		log.error("Error looking up DNS records for import.", e);
+   	    		return Flux.fromIterable(chunk).map(entry -> new BulkImportResult(entry.getKey(), HttpStatus.INTERNAL_SERVER_ERROR));
+   	    	});	
+    }
+    
+    /**
+     * Looks up which records of a chunk already exist with a single query.
+     * @param chunk The record entities to look up.
+     * @return The hashes of the records with the names of the chunk that already exist.
+     */
+    protected Mono<Set<String>> lookupExistingRecords(List<Map.Entry<String, org.nhindirect.config.store.DNSRecord>> chunk)
+    {
+    	final Set<String> names = chunk.stream()
+    		.filter(entry -> entry.getValue() != null)
+    		.map(entry -> entry.getValue().getName().toUpperCase(Locale.ENGLISH))
+    		.collect(Collectors.toSet());
+    	
+    	if (names.isEmpty())
+    		return Mono.just(new HashSet<>());
+    	
+    	return template.select(org.nhindirect.config.store.DNSRecord.class)
+    		.matching(Query.query(Criteria.where("name").in(names).ignoreCase(true)).columns("id", "name", "type", "data"))
+    		.all()
+    		.map(DNSResource::toRecordHash)
+    		.collect(Collectors.toSet());
+    }
+    
+    /**
+     * Creates the hash that identifies a DNS record when checking for duplicates.  Names are compared without case.
+     * @param record The DNS record.
+     * @return The hash of the record name, type, and data.
+     */
+    protected static String toRecordHash(org.nhindirect.config.store.DNSRecord record)
+    {
+    	try
+    	{
+    		final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+    		digest.update(record.getName().toLowerCase(Locale.ENGLISH).getBytes(StandardCharsets.UTF_8));
+    		digest.update((byte)0);
+    		digest.update(Integer.toString(record.getType()).getBytes(StandardCharsets.UTF_8));
+    		digest.update((byte)0);
+    		if (record.getData() != null)
+    			digest.update(record.getData());
+    		
+    		return Hex.toHexString(digest.digest());
+    	}
+    	catch (Exception e)
+    	{
+    		throw new IllegalStateException("Failed to calculate DNS record hash", e);
+    	}
     }
     
     /**
@@ -180,7 +517,7 @@ public class DNSResource extends ProtectedResource
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public Mono<Void> updateDNSRecord(@RequestBody DNSRecord updateRecord)
     {       	
-    	return dnsRepo.findById(updateRecord.getId())
+    	return recordChange(dnsRepo.findById(updateRecord.getId())
     		.switchIfEmpty(Mono.just(new org.nhindirect.config.store.DNSRecord()))
     		.flatMap(record -> 
     		{
@@ -196,26 +533,68 @@ public class DNSResource extends ProtectedResource
     		    		log.error("Error updating DNS record.", e);
     		    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
     		    	}); 
-    		});
+    		}), ConfigEntityType.DNS_RECORD, ConfigChangeType.UPDATED, updateRecord.getName());
     }
     
     /**
      * Delete DNS records by system id. 
      * @param ids Comma delimited list of ids to delete.
-     * @return Status of 200 if the DNS records were deleted.
+     * @return Status of 200 if the DNS records were deleted or 400 if an id is not a number.
      */
     @DeleteMapping("{ids}")
     public Mono<Void> removeDNSRecordsByIds(@PathVariable("ids") String ids)
     {
-    	final String[] idArray = ids.split(",");
+    	final List<Long> idList = new ArrayList<>();
+    	try
+    	{
+    		for (String id : ids.split(","))
+    			idList.add(Long.parseLong(id.trim()));
+    	}
+    	catch (NumberFormatException e)
+    	{
+    		log.error("Invalid DNS record id list {}", ids);
+    		return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST));
+    	}
     	
-		return Flux.fromStream(Arrays.stream(idArray))
-		.flatMap(id ->
-		{
-			return dnsRepo.deleteById(Long.parseLong(id));
-		})
-		.collectList()
-		.flatMap(deletes -> Mono.empty()); 
-
+		return deleteDNSRecords(idList);
+    }
+    
+    /**
+     * Delete DNS records by system id.  The ids are sent in the request body so large lists of ids are not limited by the 
+     * length of the URL.
+     * @param ids JSON array of ids to delete.
+     * @return Status of 200 if the DNS records were deleted.
+     */
+    @PostMapping(value="remove", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<Void> removeDNSRecords(@RequestBody List<Long> ids)
+    {
+    	if (ids.isEmpty())
+    		return Mono.empty();
+    	
+		return deleteDNSRecords(ids);
+    }
+    
+    /**
+     * Deletes DNS records with a single delete statement per chunk of ids.  The names of the records of a chunk are selected before 
+     * the chunk is deleted, and a change is recorded for each deleted record.
+     * @param ids The ids to delete.
+     * @return A mono that completes when all chunks have been deleted.
+     */
+    protected Mono<Void> deleteDNSRecords(List<Long> ids)
+    {
+		return Flux.fromIterable(ids)
+			.buffer(DEFAULT_ID_CHUNK_SIZE)
+			.concatMap(chunk -> template.select(org.nhindirect.config.store.DNSRecord.class)
+				.matching(Query.query(Criteria.where("id").in(chunk)).columns("id", "name"))
+				.all()
+				.map(org.nhindirect.config.store.DNSRecord::getName)
+				.collectList()
+				.flatMap(names -> dnsRepo.deleteByIdIn(chunk)
+					.doOnSuccess(empty -> recordChanges(ConfigEntityType.DNS_RECORD, ConfigChangeType.REMOVED, names))))
+			.then()
+	     	.onErrorResume(e -> { 
+	    		log.error("Error removing DNS records by ids.", e);
+	    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
+	    	}); 
     }
 }
@@ -23,17 +23,27 @@ package org.nhindirect.config.resources;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
+import org.nhindirect.config.events.ConfigChangeType;
+import org.nhindirect.config.events.ConfigEntityType;
 import org.nhindirect.config.model.Domain;
 import org.nhindirect.config.repository.AddressRepository;
 import org.nhindirect.config.repository.CertPolicyGroupDomainReltnRepository;
 import org.nhindirect.config.repository.DomainRepository;
 import org.nhindirect.config.resources.util.EntityModelConversion;
+import org.nhindirect.config.resources.util.KeysetPaging;
+import org.nhindirect.config.resources.util.ResourceLookupCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -62,6 +72,11 @@ import reactor.core.publisher.Mono;
 @Slf4j
 public class DomainResource extends ProtectedResource
 {	
+	/**
+	 * The default number of domains whose addresses are loaded in a single query.
+	 */
+	protected static final int DEFAULT_DOMAIN_CHUNK_SIZE = 500;
+	
     /**
      * Trust bundle resource injected by Spring
      */
@@ -82,6 +97,21 @@ public class DomainResource extends ProtectedResource
      */
     protected DomainRepository domainRepo;
     
+    /**
+     * Entity template used for batched address lookups and paged queries injected by Spring
+     */
+    protected R2dbcEntityTemplate template;
+    
+    /**
+     * The number of domains whose addresses are loaded in a single query
+     */
+    protected int domainChunkSize = DEFAULT_DOMAIN_CHUNK_SIZE;
+    
+    /**
+     * Address and domain lookup cache injected by Spring
+     */
+    protected ResourceLookupCache lookupCache = new ResourceLookupCache(0, 0);
+    
     /**
      * Constructor
      */
@@ -110,6 +140,35 @@ public class DomainResource extends ProtectedResource
         this.domainRepo = domainRepo;
     }
     
+    /**
+     * Sets the entity template used for batched address lookups and paged queries.  Auto populate by Spring
+     * @param template The entity template.
+     */
+    @Autowired
+    public void setEntityTemplate(R2dbcEntityTemplate template) 
+    {
+        this.template = template;
+    }
+    
+    /**
+     * Sets the number of domains whose addresses are loaded in a single query.
+     * @param domainChunkSize The number of domains per address query.
+     */
+    public void setDomainChunkSize(int domainChunkSize) 
+    {
+        this.domainChunkSize = domainChunkSize;
+    }
+    
+    /**
+     * Sets the address and domain lookup cache.  Auto populate by Spring
+     * @param lookupCache The lookup cache.
+     */
+    @Autowired
+    public void setLookupCache(ResourceLookupCache lookupCache) 
+    {
+        this.lookupCache = lookupCache;
+    }
+    
     /**
      * Sets the trust bundle resource.  Auto populate by Spring
      * @param bundleResource The trust bundle resource.
@@ -139,35 +198,32 @@ public class DomainResource extends ProtectedResource
     @GetMapping(value="{domain}", produces = MediaType.APPLICATION_JSON_VALUE)
     public Mono<Domain> getDomain(@PathVariable("domain") String domain)
     {   	
-		return domainRepo.findByDomainNameIgnoreCase(domain)
-		.switchIfEmpty(Mono.just(new org.nhindirect.config.store.Domain()))
-		.flatMap(foundDomain -> 
-		{
-			if (foundDomain.getDomainName() == null)
-				return Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND));
-			
-			return addRepo.findByDomainId(foundDomain.getId())
-			.collectList()
-			.switchIfEmpty(Mono.just(Collections.emptyList()))
-			.map(addrs -> EntityModelConversion.toModelDomain(foundDomain, addrs))
-	     	.onErrorResume(e -> { 
-	    		log.error("Error looking up domain.", e);
-	    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
-	    	});	
-
-		});
+		return lookupCache.getDomain(domain, () -> domainRepo.findByDomainNameIgnoreCase(domain)
+				.flatMap(foundDomain -> addRepo.findByDomainId(foundDomain.getId())
+						.collectList()
+						.switchIfEmpty(Mono.just(Collections.emptyList()))
+						.map(addrs -> EntityModelConversion.toModelDomain(foundDomain, addrs))))
+     	.onErrorResume(e -> { 
+    		log.error("Error looking up domain.", e);
+    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
+    	})
+		.switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)));
     }
     
     /**
      * Gets a list of domains that match a query.
      * @param domainName The name of the domain to to get.  Defaults to an empty string which means get all domains.
      * @param entityStatus The entity status that the returned domain must match.  Default to empty string which means to ignore the status filter.
+     * @param limit The maximum number of domains to return in a page.  Defaults to 0 which means all domains are returned.
+     * @param after The cursor of the previous page returned in the X-Next-Cursor header.  Defaults to 0 which means the first page.
+     * @param response The response where the cursor of the next page is set.
      * @return A JSON representation of a collection of domains that match the search paremeters.  Returns a status of 204 if no
      * domains match the search parameters.
      */
     @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
     public Flux<Domain> searchDomains(@RequestParam(name="domainName", defaultValue="") String domainName,
-    		@RequestParam(name="entityStatus", defaultValue="")String entityStatus)
+    		@RequestParam(name="entityStatus", defaultValue="")String entityStatus, @RequestParam(name="limit", defaultValue="0") int limit,
+    		@RequestParam(name="after", defaultValue="0") long after, ServerHttpResponse response)
     {
     	
     	org.nhindirect.config.store.EntityStatus status = null;
@@ -188,7 +244,18 @@ public class DomainResource extends ProtectedResource
     	
 
 		Flux<org.nhindirect.config.store.Domain> domains = null;
-		if (status == null && domainName.isEmpty())
+		if (KeysetPaging.isPaged(limit))
+		{
+			Criteria criteria = Criteria.empty();
+			if (!domainName.isEmpty())
+				criteria = Criteria.where("domainName").like("%" + domainName + "%").ignoreCase(true);
+			if (status != null)
+				criteria = (criteria.isEmpty()) ? Criteria.where("status").is(status.ordinal()) : criteria.and("status").is(status.ordinal());
+			
+			domains = KeysetPaging.getEntityPage(template, org.nhindirect.config.store.Domain.class, criteria, after, limit, 
+					org.nhindirect.config.store.Domain::getId, response);
+		}
+		else if (status == null && domainName.isEmpty())
 			domains = domainRepo.findAll();
 		else if (status == null)
 			domains = domainRepo.findByDomainNameContainingIgnoreCase("%" + domainName.toUpperCase() + "%");
@@ -198,14 +265,9 @@ public class DomainResource extends ProtectedResource
 			domains = domainRepo.findByDomainNameContainingIgnoreCaseAndStatus("%" + domainName.toUpperCase() + "%", status.ordinal());
 
 
-		return domains.flatMap(domain -> 
-		{
-			return addRepo.findByDomainId(domain.getId())
-			.collectList()
-			.switchIfEmpty(Mono.just(Collections.emptyList()))
-			.map(addrs -> EntityModelConversion.toModelDomain(domain, addrs));
-			
-		})
+		// load the addresses of a chunk of domains at a time instead of one query per domain
+		return domains.buffer(domainChunkSize)
+		.concatMap(this::toModelDomains)
      	.onErrorResume(e -> { 
     		log.error("Error looking up domains.", e);
     		return Flux.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
@@ -213,6 +275,35 @@ public class DomainResource extends ProtectedResource
 
     }
     
+    /**
+     * Gets a list of domains that match a query.
+     * @param domainName The name of the domain to to get.  An empty string means get all domains.
+     * @param entityStatus The entity status that the returned domain must match.  An empty string means to ignore the status filter.
+     * @return A collection of domains that match the search paremeters.
+     */
+    public Flux<Domain> searchDomains(String domainName, String entityStatus)
+    {
+    	return searchDomains(domainName, entityStatus, 0, 0, null);
+    }
+    
+    /**
+     * Converts a chunk of domain entities to models.  The addresses of all domains in the chunk are loaded with a single query.
+     * @param domains The domain entities to convert.
+     * @return The domain models in the same order as the domain entities.
+     */
+    protected Flux<Domain> toModelDomains(List<org.nhindirect.config.store.Domain> domains)
+    {
+    	final List<Long> domainIds = domains.stream().map(org.nhindirect.config.store.Domain::getId).collect(Collectors.toList());
+    	
+    	return template.select(org.nhindirect.config.store.Address.class)
+    		.matching(Query.query(Criteria.where("domainId").in(domainIds)))
+    		.all()
+    		.collect(Collectors.groupingBy(org.nhindirect.config.store.Address::getDomainId))
+    		.flatMapIterable(addrsByDomain -> domains.stream()
+    			.map(domain -> EntityModelConversion.toModelDomain(domain, addrsByDomain.getOrDefault(domain.getId(), Collections.emptyList())))
+    			.collect(Collectors.toList()));
+    }
+    
     /**
      * Adds a domain to the system.
      * @param uriInfo Injected URI context used for building the location URI.
@@ -223,7 +314,7 @@ public class DomainResource extends ProtectedResource
     @ResponseStatus(HttpStatus.CREATED)
     public Mono<Void> addDomain(@RequestBody Domain domain) 
     {
-    	return domainRepo.findByDomainNameIgnoreCase(domain.getDomainName())
+    	return recordChange(domainRepo.findByDomainNameIgnoreCase(domain.getDomainName())
     		.switchIfEmpty(Mono.just(new org.nhindirect.config.store.Domain()))
     		.flatMap(foundDomain -> 
     		{
@@ -265,11 +356,19 @@ public class DomainResource extends ProtectedResource
     				else
     					return Mono.empty();
     			})
+    			.doOnSuccess(empty -> recordChanges(ConfigEntityType.ADDRESS, ConfigChangeType.ADDED, toEntry.getValue().stream()
+    					.map(org.nhindirect.config.store.Address::getEmailAddress).collect(Collectors.toList())))
+    			.doOnTerminate(() -> 
+    			{
+    				lookupCache.invalidateDomain(domain.getDomainName());
+    				if (domain.getAddresses() != null)
+    					domain.getAddresses().forEach(addr -> lookupCache.invalidateAddress(addr.getEmailAddress()));
+    			})
     	     	.onErrorResume(e -> { 
     	    		log.error("Error adding domain.", e);
     	    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
     	    	});
-    		});
+    		}), ConfigEntityType.DOMAIN, ConfigChangeType.ADDED, domain.getDomainName());
     }   
     
     /**
@@ -291,7 +390,7 @@ public class DomainResource extends ProtectedResource
     	    	final org.nhindirect.config.store.Domain toDomain = EntityModelConversion.toEntityDomain(domain).getKey();
     	    	toDomain.setId(existingDomain.getId());
     	    	
-    	    	return addRepo.findByDomainId(existingDomain.getId())
+    	    	return recordChange(addRepo.findByDomainId(existingDomain.getId())
     	    		.collectList()
     	    		.switchIfEmpty(Mono.just(Collections.emptyList()))
     	    		.flatMap(addrs -> 
@@ -312,10 +411,11 @@ public class DomainResource extends ProtectedResource
     	    	    	return domainRepo.save(toDomain).then();
     	    	    	
     	    		})
+    	    		.doOnTerminate(() -> lookupCache.invalidateDomain(domain.getDomainName()))
         	     	.onErrorResume(e -> { 
         	    		log.error("Error updating domain.", e);
         	    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
-        	    	});
+        	    	}), ConfigEntityType.DOMAIN, ConfigChangeType.UPDATED, existingDomain.getDomainName());
     			
     		});
     }     
@@ -335,14 +435,24 @@ public class DomainResource extends ProtectedResource
     			if (existingDomain.getDomainName() == null)
     				return Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND));
     			
-    			return bundleResource.disassociateTrustBundlesFromDomain(domain)
-    			   .then(domainReltnRepo.deleteByDomainId(existingDomain.getId()))
-    			   .then(addRepo.deleteByDomainId(existingDomain.getId()))
-    			   .then(domainRepo.deleteById(existingDomain.getId()))
+    			// the domain's addresses are deleted with the domain, so a change is recorded for each address
+    			return recordChange(addRepo.findByDomainId(existingDomain.getId())
+    			   .map(org.nhindirect.config.store.Address::getEmailAddress)
+    			   .collectList()
+    			   .flatMap(addresses -> bundleResource.disassociateTrustBundlesFromDomain(domain)
+    				   .then(domainReltnRepo.deleteByDomainId(existingDomain.getId()))
+    				   .then(addRepo.deleteByDomainId(existingDomain.getId()))
+    				   .then(domainRepo.deleteById(existingDomain.getId()))
+    				   .doOnSuccess(empty -> recordChanges(ConfigEntityType.ADDRESS, ConfigChangeType.REMOVED, addresses)))
+    			   .doOnTerminate(() -> 
+    			   {
+    				   lookupCache.invalidateDomain(domain);
+    				   lookupCache.invalidateAddresses();
+    			   })
 	       	       .onErrorResume(e -> { 
 	       	    		log.error("Error deleting domain.", e);
 	       	    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
-	       	       });
+	       	       }), ConfigEntityType.DOMAIN, ConfigChangeType.REMOVED, existingDomain.getDomainName());
     		});
     	  	
     }    
@@ -0,0 +1,112 @@
+/* 
+Copyright (c) 2010, NHIN Direct Project
+All rights reserved.
+
+Authors:
+   Greg Meyer      gm2552@cerner.com
+ 
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer 
+in the documentation and/or other materials provided with the distribution.  Neither the name of the The NHIN Direct Project (nhindirect.org). 
+nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS 
+BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE 
+GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package org.nhindirect.config.resources;
+
+import java.time.Duration;
+import java.util.Set;
+
+import org.nhindirect.config.events.ConfigChange;
+import org.nhindirect.config.events.ConfigEntityType;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+
+/**
+ * Resource for subscribing to configuration changes as server sent events.  Each change recorded in the configuration change log,
+ * including completed trust bundle refreshes, is pushed to subscribers as it happens so they can invalidate cached configuration
+ * without polling.
+ * @author Greg Meyer
+ * @since 8.0
+ */
+@RestController
+@RequestMapping("events")
+@Slf4j
+public class EventResource extends ProtectedResource
+{
+	protected static final Duration DEFAULT_HEARTBEAT_INTERVAL = Duration.ofSeconds(30);
+	
+	/**
+	 * Interval of the comments sent to keep idle connections open
+	 */
+	protected Duration heartbeatInterval = DEFAULT_HEARTBEAT_INTERVAL;
+	
+    /**
+     * Constructor
+     */
+	public EventResource()
+	{
+		
+	}
+	
+	/**
+	 * Sets the interval of the comments sent to keep idle connections open.
+	 * @param heartbeatInterval The heartbeat interval.
+	 */
+	public void setHeartbeatInterval(Duration heartbeatInterval)
+	{
+		this.heartbeatInterval = heartbeatInterval;
+	}
+	
+	/**
+	 * Streams configuration changes as server sent events.  The event name is the type of the changed entity, the event id is the
+	 * configuration version of the change, and the event data is a JSON representation of the change.  A reconnecting client receives
+	 * the changes it missed by sending the id of the last event it received in the Last-Event-ID header or the since parameter.
+	 * @param since The last configuration version seen by the client.  Defaults to -1 which means only new changes are streamed.
+	 * @param lastEventId The id of the last event received by a reconnecting client.  Overrides the since parameter.
+	 * @param types The entity types to stream.  Defaults to all types.
+	 * @return A stream of change events.  Returns a status of 410 if the changes since the given version are no longer retained, in
+	 * which case the client must reload the full configuration.  The stream ends with an error if the client falls too far behind.
+	 */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)      
+    public Flux<ServerSentEvent<ConfigChange>> getEvents(@RequestParam(name="since", defaultValue="-1") long since,
+    		@RequestHeader(name="Last-Event-ID", required=false) Long lastEventId,
+    		@RequestParam(name="types", required=false) Set<ConfigEntityType> types)
+    {
+    	final long startVersion = (lastEventId != null) ? lastEventId : since;
+    	
+    	if (changeLog.getChangesSince(startVersion) == null)
+    		return Flux.error(new ResponseStatusException(HttpStatus.GONE));
+    	
+    	final Flux<ServerSentEvent<ConfigChange>> changes = changeLog.getChangeStream(startVersion)
+    		.filter(change -> types == null || types.isEmpty() || types.contains(change.getEntityType()))
+    		.map(change -> ServerSentEvent.<ConfigChange>builder(change)
+    			.id(Long.toString(change.getVersion()))
+    			.event(change.getEntityType().name())
+    			.build())
+    		.doOnError(e -> log.warn("Change event stream ended: {}", e.getMessage()));
+    	
+    	final Flux<ServerSentEvent<ConfigChange>> heartbeats = Flux.interval(heartbeatInterval)
+    		.map(tick -> ServerSentEvent.<ConfigChange>builder().comment("heartbeat").build());
+    	
+    	// the change stream only ends with an error, which also ends the heartbeats
+    	return Flux.merge(changes, heartbeats);
+    }
+}
@@ -21,7 +21,29 @@ THE POSSIBILITY OF SUCH DAMAGE.
 
 package org.nhindirect.config.resources;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.bouncycastle.util.encoders.Hex;
+import org.nhindirect.config.events.ConfigChangeLog;
+import org.nhindirect.config.events.ConfigChangeType;
+import org.nhindirect.config.events.ConfigEntityType;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.CacheControl;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.reactive.ServerWebExchangeContextFilter;
+import org.springframework.web.server.ServerWebExchange;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
 
 /**
  * Base class for REST resources protected by an authorization module.  
@@ -39,4 +61,139 @@ public abstract class ProtectedResource
 	{
 		noCache = CacheControl.noCache();
 	}
+	
+	/**
+	 * Log of configuration changes injected by Spring
+	 */
+	protected ConfigChangeLog changeLog = new ConfigChangeLog();
+	
+	/**
+	 * Sets the log of configuration changes.  Auto populated by Spring
+	 * @param changeLog The configuration change log.
+	 */
+	@Autowired
+	public void setChangeLog(ConfigChangeLog changeLog)
+	{
+		this.changeLog = changeLog;
+	}
+	
+	/**
+	 * Records a change in the configuration change log when a modification completes successfully.  The change is recorded before
+	 * the modification's response is sent.
+	 * @param modification The modification of the configuration.
+	 * @param entityType The type of the modified entity.
+	 * @param changeType The kind of modification.
+	 * @param key The key of the modified entity.
+	 * @return The modification.
+	 */
+	protected <T> Mono<T> recordChange(Mono<T> modification, ConfigEntityType entityType, ConfigChangeType changeType, String key)
+	{
+		return modification.doOnSuccess(result -> changeLog.record(entityType, changeType, key));
+	}
+	
+	/**
+	 * Records a change in the configuration change log for each entity of a modification of multiple entities.
+	 * @param entityType The type of the modified entities.
+	 * @param changeType The kind of modification.
+	 * @param keys The keys of the modified entities.
+	 */
+	protected void recordChanges(ConfigEntityType entityType, ConfigChangeType changeType, Collection<String> keys)
+	{
+		keys.forEach(key -> changeLog.record(entityType, changeType, key));
+	}
+	
+	/**
+	 * Creates a weak entity tag from the parts of a representation.  Byte arrays are hashed by content, calendars by their time, and all
+	 * other parts by their string value.
+	 * @param parts The parts of the representation that identify its version.
+	 * @return A weak entity tag.
+	 */
+	protected static String toETag(Object... parts)
+	{
+		try
+		{
+			final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			for (Object part : parts)
+			{
+				if (part instanceof byte[])
+					digest.update((byte[])part);
+				else if (part instanceof Calendar)
+					digest.update(Long.toString(((Calendar)part).getTimeInMillis()).getBytes(StandardCharsets.UTF_8));
+				else
+					digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+				
+				digest.update((byte)0);
+			}
+			
+			return "W/\"" + Hex.toHexString(digest.digest()) + "\"";
+		}
+		catch (Exception e)
+		{
+			throw new IllegalStateException("Failed to create entity tag", e);
+		}
+	}
+	
+	/**
+	 * Sets the entity tag of a single entity response.  If the request's If-None-Match header matches the tag, the response status is set
+	 * to 304 and the entity is not returned so its body is never serialized.  Entities are returned unchanged when the method is not
+	 * invoked as part of a web request.
+	 * @param entity The entity to return.
+	 * @param tagFunction Creates the entity tag of the entity.
+	 * @return The entity or an empty result if the client's copy is not modified.
+	 */
+	protected <T> Mono<T> withETag(Mono<T> entity, Function<T, String> tagFunction)
+	{
+		return Mono.deferContextual(context -> getExchange(context)
+			.filter(ProtectedResource::isConditionalRead)
+			.map(exchange -> entity.flatMap(found -> 
+				isNotModified(exchange, tagFunction.apply(found)) ? Mono.<T>empty() : Mono.just(found)))
+			.orElse(entity));
+	}
+	
+	/**
+	 * Sets the entity tag of a collection response.  The tag is created from the tags of each entity in the collection, so the collection
+	 * is gathered before it is returned.  Streaming responses (NDJSON and server sent events) are returned unchanged.
+	 * @param entities The entities to return.
+	 * @param tagFunction Creates the entity tag of a single entity.
+	 * @return The entities or an empty result if the client's copy is not modified.
+	 */
+	protected <T> Flux<T> withETag(Flux<T> entities, Function<T, String> tagFunction)
+	{
+		return Flux.deferContextual(context -> getExchange(context)
+			.filter(exchange -> isConditionalRead(exchange) && !isStreaming(exchange))
+			.map(exchange -> entities.collectList()
+				.flatMapMany(found -> 
+				{
+					final List<String> tags = found.stream().map(tagFunction).collect(Collectors.toList());
+					
+					return isNotModified(exchange, toETag(tags)) ? Flux.<T>empty() : Flux.fromIterable(found);
+				}))
+			.orElse(entities));
+	}
+	
+	protected static Optional<ServerWebExchange> getExchange(ContextView context)
+	{
+		return context.getOrEmpty(ServerWebExchangeContextFilter.EXCHANGE_CONTEXT_ATTRIBUTE);
+	}
+	
+	protected static boolean isNotModified(ServerWebExchange exchange, String etag)
+	{
+		exchange.getResponse().getHeaders().setCacheControl(noCache);
+		
+		return exchange.checkNotModified(etag);
+	}
+	
+	protected static boolean isConditionalRead(ServerWebExchange exchange)
+	{
+		final HttpMethod method = exchange.getRequest().getMethod();
+		
+		return HttpMethod.GET == method || HttpMethod.HEAD == method;
+	}
+	
+	protected static boolean isStreaming(ServerWebExchange exchange)
+	{
+		return exchange.getRequest().getHeaders().getAccept().stream()
+			.anyMatch(type -> !type.isWildcardType() && (MediaType.APPLICATION_NDJSON.isCompatibleWith(type) 
+					|| MediaType.TEXT_EVENT_STREAM.isCompatibleWith(type)));
+	}
 }
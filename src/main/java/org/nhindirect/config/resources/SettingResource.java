@@ -21,12 +21,18 @@ THE POSSIBILITY OF SUCH DAMAGE.
 
 package org.nhindirect.config.resources;
 
+import org.nhindirect.config.events.ConfigChangeType;
+import org.nhindirect.config.events.ConfigEntityType;
 import org.nhindirect.config.model.Setting;
 import org.nhindirect.config.repository.SettingRepository;
 import org.nhindirect.config.resources.util.EntityModelConversion;
+import org.nhindirect.config.resources.util.KeysetPaging;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -34,6 +40,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
@@ -59,6 +66,11 @@ public class SettingResource extends ProtectedResource
      */
     protected SettingRepository settingRepo;
     
+    /**
+     * Entity template used for paged queries injected by Spring
+     */
+    protected R2dbcEntityTemplate template;
+    
     /**
      * Constructor
      */
@@ -77,21 +89,48 @@ public class SettingResource extends ProtectedResource
         this.settingRepo = settingRepo;
     }
     
+    /**
+     * Sets the entity template used for paged queries.  Auto populated by Spring
+     * @param template The entity template.
+     */
+    @Autowired
+    public void setEntityTemplate(R2dbcEntityTemplate template) 
+    {
+        this.template = template;
+    }
+    
     /**
      * Gets all settings in the system.
+     * @param limit The maximum number of settings to return in a page.  Defaults to 0 which means all settings are returned.
+     * @param after The cursor of the previous page returned in the X-Next-Cursor header.  Defaults to 0 which means the first page.
+     * @param response The response where the cursor of the next page is set.
      * @return A JSON representation of a collection of all settings in the system.  Returns a status of 204 if no settings exist.
      */
     @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-    public Flux<Setting> getAllSettings()
+    public Flux<Setting> getAllSettings(@RequestParam(name="limit", defaultValue="0") int limit,
+    		@RequestParam(name="after", defaultValue="0") long after, ServerHttpResponse response)
     {
-		return settingRepo.findAll()
-		    .map(setting -> EntityModelConversion.toModelSetting(setting))
+    	final Flux<Setting> settings = (KeysetPaging.isPaged(limit)) ?
+    		KeysetPaging.getPage(template, org.nhindirect.config.store.Setting.class, Criteria.empty(), after, limit, 
+    				org.nhindirect.config.store.Setting::getId, EntityModelConversion::toModelSetting, response) :
+    		settingRepo.findAll().map(setting -> EntityModelConversion.toModelSetting(setting));
+    	
+		return settings
    	     	.onErrorResume(e -> { 
    	    		log.error("Error looking up settings.", e);
    	    		return Flux.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
    	    	});    	
     }
     
+    /**
+     * Gets all settings in the system.
+     * @return A collection of all settings in the system.
+     */
+    public Flux<Setting> getAllSettings()
+    {
+    	return getAllSettings(0, 0, null);
+    }
+    
     /**
      * Gets a setting by name.
      * @param name The name of the setting to retrieve.
@@ -140,7 +179,7 @@ public class SettingResource extends ProtectedResource
     		return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST));
     	}
     	
-       	return settingRepo.findByNameIgnoreCase(name)
+       	return recordChange(settingRepo.findByNameIgnoreCase(name)
        	   .switchIfEmpty(Mono.just(new org.nhindirect.config.store.Setting()))
        	   .flatMap(setting -> 
        	   {
@@ -159,7 +198,7 @@ public class SettingResource extends ProtectedResource
 	   	    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
 	   	       }); 
 	       	   
-       	   });
+       	   }), ConfigEntityType.SETTING, ConfigChangeType.ADDED, name);
     }
     
     
@@ -189,7 +228,7 @@ public class SettingResource extends ProtectedResource
     public Mono<Void> updateSetting(@PathVariable("name") String name, @PathVariable("value") String value)
     {    	
     	
-       	return settingRepo.findByNameIgnoreCase(name)
+       	return recordChange(settingRepo.findByNameIgnoreCase(name)
     	   .switchIfEmpty(Mono.just(new org.nhindirect.config.store.Setting()))
     	   .flatMap(setting -> 
     	   {
@@ -204,7 +243,7 @@ public class SettingResource extends ProtectedResource
 	   	    		log.error("Error updating setting.", e);
 	   	    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
 	   	       }); 
-    	   });
+    	   }), ConfigEntityType.SETTING, ConfigChangeType.UPDATED, name);
     } 
     
     /**
@@ -229,7 +268,7 @@ public class SettingResource extends ProtectedResource
     @DeleteMapping("{name}")
     public Mono<Void> removeSettingByName(@PathVariable("name") String name)
     {
-       	return settingRepo.findByNameIgnoreCase(name)
+       	return recordChange(settingRepo.findByNameIgnoreCase(name)
     	   .switchIfEmpty(Mono.just(new org.nhindirect.config.store.Setting()))
     	   .flatMap(setting -> 
     	   {
@@ -241,6 +280,6 @@ public class SettingResource extends ProtectedResource
 	   	    	   log.error("Error removing setting by name.", e);
    	    			return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
    	           }); 
-    	   });
+    	   }), ConfigEntityType.SETTING, ConfigChangeType.REMOVED, name);
     }       
 }
@@ -27,24 +27,34 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
+import org.nhindirect.config.events.ConfigChangeType;
+import org.nhindirect.config.events.ConfigEntityType;
 import org.nhindirect.config.model.TrustBundle;
 import org.nhindirect.config.model.TrustBundleDomainReltn;
 import org.nhindirect.config.model.exceptions.CertificateConversionException;
 import org.nhindirect.config.model.utils.CertUtils;
 import org.nhindirect.config.processor.BundleRefreshProcessor;
+import org.nhindirect.config.processor.BundleRefreshScheduler;
 import org.nhindirect.config.repository.AddressRepository;
 import org.nhindirect.config.repository.DomainRepository;
 import org.nhindirect.config.repository.TrustBundleAnchorRepository;
 import org.nhindirect.config.repository.TrustBundleDomainReltnRepository;
 import org.nhindirect.config.repository.TrustBundleRepository;
 import org.nhindirect.config.resources.util.EntityModelConversion;
+import org.nhindirect.config.resources.util.TrustBundleView;
 import org.nhindirect.config.store.Domain;
 import org.nhindirect.config.store.TrustBundleAnchor;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -75,6 +85,11 @@ import reactor.core.publisher.Mono;
 @Slf4j
 public class TrustBundleResource extends ProtectedResource
 {	
+	/**
+	 * The default number of ids that are looked up in a single batched query.
+	 */
+	protected static final int DEFAULT_ID_CHUNK_SIZE = 500;
+	
     /**
      * TrustBundle repository is injected by Spring
      */
@@ -100,11 +115,21 @@ public class TrustBundleResource extends ProtectedResource
      */
     protected AddressRepository addRepo;
     
+    /**
+     * Entity template used for batched lookups injected by Spring
+     */
+    protected R2dbcEntityTemplate template;
+    
     /**
      * Bundle refresh processor used to manually refresh a trust bundle;
      */
     protected BundleRefreshProcessor bundleRefreshProcessor;
     
+    /**
+     * Bundle refresh scheduler that is updated when bundles are added, deleted, or their refresh interval changes.
+     */
+    protected BundleRefreshScheduler bundleRefreshScheduler;
+    
     /**
      * Constructor
      */
@@ -163,6 +188,16 @@ public class TrustBundleResource extends ProtectedResource
         this.addRepo = addRepo;
     }
     
+    /**
+     * Sets the entity template used for batched lookups.  Auto populate by Spring
+     * @param template The entity template.
+     */
+    @Autowired
+    public void setEntityTemplate(R2dbcEntityTemplate template) 
+    {
+        this.template = template;
+    }
+    
     /**
      * Sets the bundleRefreshProcessor.  Auto populate by Spring
      * @param bundleRefreshProcessor The bundleRefreshProcessor.
@@ -173,21 +208,38 @@ public class TrustBundleResource extends ProtectedResource
         this.bundleRefreshProcessor = bundleRefreshProcessor;
     }
     
+    /**
+     * Sets the bundleRefreshScheduler.  Auto populate by Spring
+     * @param bundleRefreshScheduler The bundleRefreshScheduler.
+     */
+    @Autowired(required = false)
+    public void setBundleRefreshScheduler(BundleRefreshScheduler bundleRefreshScheduler) 
+    {
+        this.bundleRefreshScheduler = bundleRefreshScheduler;
+    }
+    
     /**
      * Gets all trust bundles in the system.
+     * <p>
+     * The collection is streamed one element at a time as newline delimited JSON or server sent events if the application/x-ndjson
+     * or text/event-stream media type is requested.
      * @param fetchAnchors Indicates if the retrieval should also include the trust anchors in the bundle.  When only needing bundle names,
      * this parameter should be set to false for better performance. 
+     * @param view The projection of the trust bundles to return: full, thumbprints, or metadata.  Overrides the fetchAnchors parameter
+     * if specified.
      * @return A JSON representation of a collection of all trust bundles in the system.  Returns a status of 204 if no trust bundles exist.
      */
-    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-    public Flux<TrustBundle> getTrustBundles(@RequestParam(name="fetchAnchors", defaultValue="true") boolean fetchAnchors)
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<TrustBundle> getTrustBundles(@RequestParam(name="fetchAnchors", defaultValue="true") boolean fetchAnchors,
+    		@RequestParam(name="view", defaultValue="") String view)
     {
-    	return bundleRepo.findAll()
+    	final TrustBundleView bundleView = TrustBundleView.fromParameters(view, fetchAnchors);
+    	
+    	return withETag(bundleRepo.findAll()
     		.flatMap(bundle -> 
     		{
     			
-    			final Flux<TrustBundleAnchor> anchorFlux = (!fetchAnchors) ? Flux.fromIterable(new ArrayList<TrustBundleAnchor>()) :
-    							bundleAnchorRepo.findByTrustBundleId(bundle.getId());
+    			final Flux<TrustBundleAnchor> anchorFlux = findAnchors(Collections.singletonList(bundle.getId()), bundleView);
 
     			return anchorFlux
     			.collectList()
@@ -199,51 +251,146 @@ public class TrustBundleResource extends ProtectedResource
    	     	.onErrorResume(e -> { 
    	    		log.error("Error looking up trust bundles", e);
    	    		return Flux.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
-   	    	});	
+   	    	}), bundle -> toTrustBundleETag(bundle, bundleView));	
     		
 
     }
     
+    /**
+     * Gets all trust bundles in the system.
+     * @param fetchAnchors Indicates if the retrieval should also include the trust anchors in the bundle.
+     * @return A collection of all trust bundles in the system.
+     */
+    public Flux<TrustBundle> getTrustBundles(boolean fetchAnchors)
+    {
+    	return getTrustBundles(fetchAnchors, "");
+    }
+    
+    /**
+     * Gets all trust bundle to domain relationships in the system.  Each distinct trust bundle, anchor set, and domain is loaded and converted
+     * once per request and shared by all relationships that reference it.
+     * @param fetchAnchors Indicates if the retrieval should also include the trust anchors in the bundle.  When only needing bundle names,
+     * this parameter should be set to false for better performance. 
+     * @param view The projection of the trust bundles to return: full, thumbprints, or metadata.  Overrides the fetchAnchors parameter
+     * if specified.
+     * @return A JSON representation of a collection of all trust bundle to domain relationships in the system.
+     */
     @GetMapping(value="domains/bundles/reltns", produces = MediaType.APPLICATION_JSON_VALUE)
-    public Flux<TrustBundleDomainReltn> getAllTrustBundleDomainRelts(@RequestParam(name="fetchAnchors", defaultValue="true") boolean fetchAnchors)
+    public Flux<TrustBundleDomainReltn> getAllTrustBundleDomainRelts(@RequestParam(name="fetchAnchors", defaultValue="true") boolean fetchAnchors,
+    		@RequestParam(name="view", defaultValue="") String view)
     {
-    		return reltnRepo.findAll()
-    	    		.flatMap(bundleReltn -> 
-    	    		{
-    	    			return bundleRepo.findById(bundleReltn.getTrustBundleId())
-    		    		.flatMap(bundle -> 
-    		    		{
-    		    			
-    		    			final Flux<TrustBundleAnchor> anchorFlux = (!fetchAnchors) ? Flux.fromIterable(new ArrayList<TrustBundleAnchor>()) :
-    		    							bundleAnchorRepo.findByTrustBundleId(bundle.getId());
-
-    		    			return anchorFlux
-    		    			.collectList()
-    		    			.map(anchors ->
-    		    			{
-    		    				return EntityModelConversion.toModelTrustBundle(bundle , anchors);
-    		    			});
-    		    		})
-    	  	    		.flatMap(bundle ->
-        	    		{
-        	    			return domainRepo.findById(bundleReltn.getDomainId())
-        	    			.map(domain ->
-        	    			{
-            	    			final TrustBundleDomainReltn newReltn = new TrustBundleDomainReltn();
+    		final TrustBundleView bundleView = TrustBundleView.fromParameters(view, fetchAnchors);
+    		
+    		return withETag(reltnRepo.findAll()
+    			.collectList()
+    			.flatMapMany(bundleReltns -> 
+    			{
+    				if (bundleReltns.isEmpty())
+    					return Flux.empty();
+    				
+    				final Set<Long> bundleIds = bundleReltns.stream().map(org.nhindirect.config.store.TrustBundleDomainReltn::getTrustBundleId)
+    						.collect(Collectors.toSet());
+    				final Set<Long> domainIds = bundleReltns.stream().map(org.nhindirect.config.store.TrustBundleDomainReltn::getDomainId)
+    						.collect(Collectors.toSet());
+    				
+    				return Mono.zip(getModelTrustBundles(bundleIds, bundleView), getModelDomains(domainIds))
+    				.flatMapIterable(models -> 
+    				{
+    					final Map<Long, TrustBundle> bundles = models.getT1();
+    					final Map<Long, org.nhindirect.config.model.Domain> domains = models.getT2();
+    					
+    					// relationships to bundles or domains that no longer exist are skipped
+    					final List<TrustBundleDomainReltn> reltns = new ArrayList<>();
+    					for (org.nhindirect.config.store.TrustBundleDomainReltn bundleReltn : bundleReltns)
+    					{
+    						final TrustBundle bundle = bundles.get(bundleReltn.getTrustBundleId());
+    						final org.nhindirect.config.model.Domain domain = domains.get(bundleReltn.getDomainId());
+    						if (bundle == null || domain == null)
+    							continue;
+    						
+            	    		final TrustBundleDomainReltn newReltn = new TrustBundleDomainReltn();
             	    			
-            		    		newReltn.setIncoming(bundleReltn.isIncoming());
-            		    		newReltn.setOutgoing(bundleReltn.isOutgoing());	
-            		    		newReltn.setDomain(EntityModelConversion.toModelDomain(domain, Collections.emptyList()));
-            		    		newReltn.setTrustBundle(bundle);
-            		    		
-            	    			return newReltn;
-        	    			});
-        	    		});   
-    	    		})
-	       	     	.onErrorResume(e -> { 
-	       	    		log.error("Error looking up trust bundles", e);
-	       	    		return Flux.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
-	       	    	});	
+            		    	newReltn.setIncoming(bundleReltn.isIncoming());
+            		    	newReltn.setOutgoing(bundleReltn.isOutgoing());	
+            		    	newReltn.setDomain(domain);
+            		    	newReltn.setTrustBundle(bundle);
+            		    	
+            		    	reltns.add(newReltn);
+    					}
+    					
+    					return reltns;
+    				});
+    			})
+	       	    .onErrorResume(e -> { 
+	       	    	log.error("Error looking up trust bundles", e);
+	       	    	return Flux.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
+	       	    }), reltn -> toTrustBundleDomainReltnETag(reltn, bundleView));	
+    }
+    
+    /**
+     * Gets all trust bundle to domain relationships in the system.
+     * @param fetchAnchors Indicates if the retrieval should also include the trust anchors in the bundle.
+     * @return A collection of all trust bundle to domain relationships in the system.
+     */
+    public Flux<TrustBundleDomainReltn> getAllTrustBundleDomainRelts(boolean fetchAnchors)
+    {
+    	return getAllTrustBundleDomainRelts(fetchAnchors, "");
+    }
+    
+    /**
+     * Loads trust bundles and optionally their anchors in batched queries and converts each bundle to a model once.
+     * @param bundleIds The ids of the trust bundles to load.
+     * @param view The projection of the trust bundles.
+     * @return A map of trust bundle models keyed by trust bundle id.
+     */
+    protected Mono<Map<Long, TrustBundle>> getModelTrustBundles(Collection<Long> bundleIds, TrustBundleView view)
+    {
+    	final Mono<Map<Long, List<TrustBundleAnchor>>> anchorsMono = findAnchors(bundleIds, view)
+    		.collect(Collectors.groupingBy(TrustBundleAnchor::getTrustBundleId));
+    	
+    	return anchorsMono.flatMap(anchors -> 
+    		Flux.fromIterable(bundleIds)
+    		.buffer(DEFAULT_ID_CHUNK_SIZE)
+    		.concatMap(bundleRepo::findAllById)
+    		.collectMap(org.nhindirect.config.store.TrustBundle::getId, 
+    				bundle -> EntityModelConversion.toModelTrustBundle(bundle, anchors.getOrDefault(bundle.getId(), Collections.emptyList()))));
+    }
+    
+    /**
+     * Loads the anchors of trust bundles in batched queries.  Only the columns needed by the requested view are read, so the
+     * encoded anchor certificates are not loaded unless the view includes them.
+     * @param bundleIds The ids of the trust bundles.
+     * @param view The projection of the trust bundles.
+     * @return The anchors of the trust bundles.
+     */
+    protected Flux<TrustBundleAnchor> findAnchors(Collection<Long> bundleIds, TrustBundleView view)
+    {
+    	if (!view.includesAnchors())
+    		return Flux.empty();
+    	
+    	return Flux.fromIterable(bundleIds)
+    		.buffer(DEFAULT_ID_CHUNK_SIZE)
+    		.concatMap(ids -> 
+    		{
+    			Query query = Query.query(Criteria.where("trustBundleId").in(ids));
+    			if (!view.includesAnchorData())
+    				query = query.columns("id", "trustBundleId", "thumbprint", "validStartDate", "validEndDate");
+    			
+    			return template.select(TrustBundleAnchor.class).matching(query).all();
+    		});
+    }
+    
+    /**
+     * Loads domains in batched queries and converts each domain to a model once.  Addresses are not included in the domain models.
+     * @param domainIds The ids of the domains to load.
+     * @return A map of domain models keyed by domain id.
+     */
+    protected Mono<Map<Long, org.nhindirect.config.model.Domain>> getModelDomains(Collection<Long> domainIds)
+    {
+    	return Flux.fromIterable(domainIds)
+    		.buffer(DEFAULT_ID_CHUNK_SIZE)
+    		.concatMap(domainRepo::findAllById)
+    		.collectMap(Domain::getId, domain -> EntityModelConversion.toModelDomain(domain, Collections.emptyList()));
     }
     
     /**
@@ -251,13 +398,18 @@ public class TrustBundleResource extends ProtectedResource
      * @param domainName The name of the domain to fetch trust bundles for.
      * @param fetchAnchors  Indicates if the retrieval should also include the trust anchors in the bundle.  When only needing bundle names,
      * this parameter should be set to false for better performance. 
+     * @param view The projection of the trust bundles to return: full, thumbprints, or metadata.  Overrides the fetchAnchors parameter
+     * if specified.
      * @return  A JSON representation of a collection of trust bundle that are associated to the given domain.  Returns a status of
      * 404 if a domain with the given name does not exist or a status of 404 if no trust bundles are associated with the given name.
      */
     @GetMapping(value="domains/{domainName}", produces = MediaType.APPLICATION_JSON_VALUE)
     public Flux<TrustBundleDomainReltn> getTrustBundlesByDomain(@PathVariable("domainName") String domainName, 
-    		@RequestParam(name="fetchAnchors", defaultValue="true") boolean fetchAnchors)
+    		@RequestParam(name="fetchAnchors", defaultValue="true") boolean fetchAnchors,
+    		@RequestParam(name="view", defaultValue="") String view)
     {
+    	final TrustBundleView bundleView = TrustBundleView.fromParameters(view, fetchAnchors);
+    	
     	return domainRepo.findByDomainNameIgnoreCase(domainName)
     	.switchIfEmpty(Mono.just(new Domain()))	
     	.flatMapMany(domain -> 
@@ -265,15 +417,14 @@ public class TrustBundleResource extends ProtectedResource
     		if (domain.getDomainName() == null)
     			return Flux.error(new ResponseStatusException(HttpStatus.NOT_FOUND));
     		
-    		return reltnRepo.findByDomainId(domain.getId())
+    		return withETag(reltnRepo.findByDomainId(domain.getId())
        	    		.flatMap(bundleReltn -> 
     	    		{
     	    			return bundleRepo.findById(bundleReltn.getTrustBundleId())
     		    		.flatMap(bundle -> 
     		    		{
     		    			
-    		    			final Flux<TrustBundleAnchor> anchorFlux = (!fetchAnchors) ? Flux.fromIterable(new ArrayList<TrustBundleAnchor>()) :
-    		    							bundleAnchorRepo.findByTrustBundleId(bundle.getId());
+    		    			final Flux<TrustBundleAnchor> anchorFlux = findAnchors(Collections.singletonList(bundle.getId()), bundleView);
 
     		    			return anchorFlux
     		    			.collectList()
@@ -297,19 +448,34 @@ public class TrustBundleResource extends ProtectedResource
 	       	     	.onErrorResume(e -> { 
 	       	    		log.error("Error looking up trust bundles", e);
 	       	    		return Flux.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
-	       	    	});
+	       	    	}), reltn -> toTrustBundleDomainReltnETag(reltn, bundleView));
     	});
     }
     
+    /**
+     * Gets all trust bundles associated to a domain.
+     * @param domainName The name of the domain to fetch trust bundles for.
+     * @param fetchAnchors  Indicates if the retrieval should also include the trust anchors in the bundle.
+     * @return A collection of trust bundle that are associated to the given domain.
+     */
+    public Flux<TrustBundleDomainReltn> getTrustBundlesByDomain(String domainName, boolean fetchAnchors)
+    {
+    	return getTrustBundlesByDomain(domainName, fetchAnchors, "");
+    }
+    
     /**
      * Gets a trust bundle by name.
      * @param bundleName The name of the trust bundle to retrieve.
+     * @param view The projection of the trust bundle to return: full, thumbprints, or metadata.  Defaults to full.
      * @return A JSON representation of a the trust bundle.  Returns a status of 404 if a trust bundle with the given name
      * does not exist.
      */
     @GetMapping(value="{bundleName}", produces = MediaType.APPLICATION_JSON_VALUE)
-    public Mono<TrustBundle> getTrustBundleByName(@PathVariable("bundleName") String bundleName)
+    public Mono<TrustBundle> getTrustBundleByName(@PathVariable("bundleName") String bundleName,
+    		@RequestParam(name="view", defaultValue="") String view)
     {
+    	final TrustBundleView bundleView = TrustBundleView.fromParameters(view, true);
+    	
 		return bundleRepo.findByBundleNameIgnoreCase(bundleName)
 	    .switchIfEmpty(Mono.just(new org.nhindirect.config.store.TrustBundle()))
 		.flatMap(bundle ->
@@ -317,11 +483,9 @@ public class TrustBundleResource extends ProtectedResource
 			if (bundle.getBundleName() == null)
 				return Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND));
 			
-			final Flux<TrustBundleAnchor> anchorFlux = 
-				bundleAnchorRepo.findByTrustBundleId(bundle.getId());
-
-			return anchorFlux
-			.collectList()
+			// the bundle's check sum is validated before the anchors are loaded
+			return withETag(Mono.just(bundle), found -> toTrustBundleETag(found, bundleView))
+			.flatMap(found -> findAnchors(Collections.singletonList(found.getId()), bundleView).collectList())
 			.map(anchors ->
 			{
 				return EntityModelConversion.toModelTrustBundle(bundle , anchors);
@@ -333,6 +497,60 @@ public class TrustBundleResource extends ProtectedResource
 		});
     }  
     
+    /**
+     * Gets a trust bundle by name including all of its anchors.
+     * @param bundleName The name of the trust bundle to retrieve.
+     * @return The trust bundle.
+     */
+    public Mono<TrustBundle> getTrustBundleByName(String bundleName)
+    {
+    	return getTrustBundleByName(bundleName, "");
+    }  
+    
+    /**
+     * Creates the entity tag of a trust bundle.  The bundle's check sum changes whenever its anchors are refreshed, so the anchors
+     * themselves are not part of the tag.  The refresh status of the bundle is not part of the tag so that refreshes that do not
+     * change the bundle do not change the tag.
+     * @param bundle The trust bundle.
+     * @param view The projection of the trust bundle.
+     * @return The entity tag of the trust bundle.
+     */
+    protected static String toTrustBundleETag(org.nhindirect.config.store.TrustBundle bundle, TrustBundleView view)
+    {
+    	return toETag(bundle.getId(), bundle.getBundleName(), bundle.getBundleURL(), bundle.getRefreshInterval(), bundle.getCheckSum(),
+    			bundle.getSigningCertificateData(), view);
+    }
+    
+    /**
+     * Creates the entity tag of a trust bundle from its configuration, check sum, and the thumbprints of its anchors.  The refresh status 
+     * of the bundle is not part of the tag so that refreshes that do not change the bundle do not change the tag.
+     * @param bundle The trust bundle.
+     * @param view The projection of the trust bundle.
+     * @return The entity tag of the trust bundle.
+     */
+    protected static String toTrustBundleETag(TrustBundle bundle, TrustBundleView view)
+    {
+    	final List<String> thumbprints = (bundle.getTrustBundleAnchors() == null) ? Collections.emptyList() :
+    		bundle.getTrustBundleAnchors().stream().map(org.nhindirect.config.model.TrustBundleAnchor::getThumbprint).collect(Collectors.toList());
+    	
+    	return toETag(bundle.getId(), bundle.getBundleName(), bundle.getBundleURL(), bundle.getRefreshInterval(), bundle.getCheckSum(),
+    			bundle.getSigningCertificateData(), thumbprints, view);
+    }
+    
+    /**
+     * Creates the entity tag of a trust bundle to domain relationship.
+     * @param reltn The relationship.
+     * @param view The projection of the relationship's trust bundle.
+     * @return The entity tag of the relationship.
+     */
+    protected static String toTrustBundleDomainReltnETag(TrustBundleDomainReltn reltn, TrustBundleView view)
+    {
+    	final org.nhindirect.config.model.Domain domain = reltn.getDomain();
+    	
+    	return toETag(domain.getId(), domain.getDomainName(), domain.getStatus(), reltn.isIncoming(), reltn.isOutgoing(), 
+    			toTrustBundleETag(reltn.getTrustBundle(), view));
+    }
+    
     /**
      * Adds a trust bundle to the system.
      * @param uriInfo Injected URI context used for building the location URI.
@@ -343,7 +561,7 @@ public class TrustBundleResource extends ProtectedResource
     @ResponseStatus(HttpStatus.CREATED)
     public Mono<Void> addTrustBundle(@RequestBody TrustBundle bundle)
     {
-    	return bundleRepo.findByBundleNameIgnoreCase(bundle.getBundleName())
+    	return recordChange(bundleRepo.findByBundleNameIgnoreCase(bundle.getBundleName())
     	.switchIfEmpty(Mono.just(new org.nhindirect.config.store.TrustBundle()))
     	.flatMap(foundBundle ->
     	{
@@ -356,13 +574,14 @@ public class TrustBundleResource extends ProtectedResource
     		addBundle.setId(null);
     		
     		return bundleRepo.save(addBundle)
-    		  .flatMap(trustBundle -> bundleRefreshProcessor.refreshBundle(trustBundle).then())
+    		  .flatMap(trustBundle -> bundleRefreshProcessor.refreshBundle(trustBundle)
+    				  .then(Mono.<Void>fromRunnable(() -> scheduleBundle(trustBundle))))
      	      .onErrorResume(e -> { 
        	    		log.error("Error adding trust bundle", e);
        	    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
        	    	});
     		  
-    	});
+    	}), ConfigEntityType.TRUST_BUNDLE, ConfigChangeType.ADDED, bundle.getBundleName());
     }   
     
     /**
@@ -374,6 +593,7 @@ public class TrustBundleResource extends ProtectedResource
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public Mono<Void> refreshTrustBundle(@PathVariable("bundle") String bundleName)    
     {
+    	// the refresh processor records a change only if the bundle's anchors changed
     	return bundleRepo.findByBundleNameIgnoreCase(bundleName)
     	.switchIfEmpty(Mono.just(new org.nhindirect.config.store.TrustBundle()))
     	.flatMap(foundBundle ->
@@ -381,7 +601,8 @@ public class TrustBundleResource extends ProtectedResource
     		if (foundBundle.getBundleName() == null)
     			return Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND));
     			
-    	    return bundleRefreshProcessor.refreshBundle(foundBundle).then();
+    	    return bundleRefreshProcessor.refreshBundle(foundBundle)
+    	    		.then(Mono.<Void>fromRunnable(() -> scheduleBundle(foundBundle)));
     		  
     	});
     }
@@ -395,7 +616,7 @@ public class TrustBundleResource extends ProtectedResource
     @DeleteMapping("{bundle}")
     public Mono<Void> deleteBundle(@PathVariable("bundle") String bundleName)
     {
-    	return bundleRepo.findByBundleNameIgnoreCase(bundleName)
+    	return recordChange(bundleRepo.findByBundleNameIgnoreCase(bundleName)
     	.switchIfEmpty(Mono.just(new org.nhindirect.config.store.TrustBundle()))
     	.flatMap(foundBundle ->
     	{
@@ -405,12 +626,13 @@ public class TrustBundleResource extends ProtectedResource
     		return bundleAnchorRepo.deleteByTrustBundleId(foundBundle.getId())
     		.then(reltnRepo.deleteByTrustBundleId(foundBundle.getId())
     				.then(bundleRepo.deleteById(foundBundle.getId())))
+    		.doOnSuccess(empty -> unscheduleBundle(foundBundle.getId()))
    	      .onErrorResume(e -> { 
  	    		log.error("Error deleting bundle", e);
  	    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
  	    	});
     		  
-    	});
+    	}), ConfigEntityType.TRUST_BUNDLE, ConfigChangeType.REMOVED, bundleName);
     }
     
     /**
@@ -425,7 +647,7 @@ public class TrustBundleResource extends ProtectedResource
     public Mono<Void> updateSigningCert(@PathVariable("bundle") String bundleName, @RequestBody(required=false) byte[] certData)
     {   
     	
-    	return bundleRepo.findByBundleNameIgnoreCase(bundleName)
+    	return recordChange(bundleRepo.findByBundleNameIgnoreCase(bundleName)
     	.switchIfEmpty(Mono.just(new org.nhindirect.config.store.TrustBundle()))
     	.flatMap(foundBundle ->
     	{
@@ -462,7 +684,7 @@ public class TrustBundleResource extends ProtectedResource
     	       	    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
     	       	    	});
     		  
-    	});
+    	}), ConfigEntityType.TRUST_BUNDLE, ConfigChangeType.UPDATED, bundleName);
     	
     }
     
@@ -498,6 +720,7 @@ public class TrustBundleResource extends ProtectedResource
         	}
         
         	final String oldBundleURL = foundBundle.getBundleURL();
+        	final String oldBundleName = foundBundle.getBundleName();
         	
         	// if there is a signing certificate in the request, make sure it's valid
         	X509Certificate newSigningCert = null;
@@ -537,20 +760,29 @@ public class TrustBundleResource extends ProtectedResource
 			if (!StringUtils.isEmpty(bundleData.getBundleURL()))
 				foundBundle.setBundleURL(bundleData.getBundleURL());				
 			
-			return bundleRepo.save(foundBundle)
-  		    .doOnSuccess(trustBundle -> 
+			return recordChange(bundleRepo.save(foundBundle)
+  		    .flatMap(trustBundle -> 
   		    {
     			// if the URL changed, the bundle needs to be refreshed
     			if (bundleData.getBundleURL() != null && !bundleData.getBundleURL().isEmpty() && !oldBundleURL.equals(bundleData.getBundleURL()))
     			{
-    				bundleRefreshProcessor.refreshBundle(foundBundle);
-    			}      			  
+    				return bundleRefreshProcessor.refreshBundle(foundBundle).thenReturn(trustBundle);
+    			}  
+    			
+    			return Mono.just(trustBundle);
       		})
+  		    .doOnSuccess(trustBundle -> scheduleBundle(foundBundle))
       		.then()
        	    .onErrorResume(e -> { 
          	    		log.error("Error updating bundle attributes", e);
          	    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
-         	    	});    		  
+         	    	}), ConfigEntityType.TRUST_BUNDLE, ConfigChangeType.UPDATED, oldBundleName)
+  		    // a renamed bundle is also recorded under its new name
+  		    .doOnSuccess(empty -> 
+  		    {
+  		    	if (!oldBundleName.equals(foundBundle.getBundleName()))
+  		    		changeLog.record(ConfigEntityType.TRUST_BUNDLE, ConfigChangeType.UPDATED, foundBundle.getBundleName());
+  		    });    		  
     	});    	
     }
     
@@ -568,7 +800,7 @@ public class TrustBundleResource extends ProtectedResource
     public Mono<Void> associateTrustBundleToDomain(@PathVariable("bundle") String bundleName, @PathVariable("domain") String domainName,
     		@RequestParam(name="incoming", defaultValue="true") boolean incoming, @RequestParam(name="outgoing", defaultValue="true") boolean outgoing)
     {
-    	return  bundleRepo.findByBundleNameIgnoreCase(bundleName)
+    	return recordChange( bundleRepo.findByBundleNameIgnoreCase(bundleName)
     	.switchIfEmpty(Mono.just(new org.nhindirect.config.store.TrustBundle()))
     	.flatMap(foundBundle ->
     	{
@@ -599,7 +831,7 @@ public class TrustBundleResource extends ProtectedResource
              	    	});    
 
     			});    		
-    	});
+    	}), ConfigEntityType.TRUST_BUNDLE_DOMAIN_RELTN, ConfigChangeType.ADDED, bundleName + "/" + domainName);
     }
     
     /**
@@ -613,7 +845,7 @@ public class TrustBundleResource extends ProtectedResource
     public Mono<Void> disassociateTrustBundleFromDomain(@PathVariable("bundle") String bundleName, @PathVariable("domain") String domainName)
     {    
     	
-    	return  bundleRepo.findByBundleNameIgnoreCase(bundleName)
+    	return recordChange( bundleRepo.findByBundleNameIgnoreCase(bundleName)
     	.switchIfEmpty(Mono.just(new org.nhindirect.config.store.TrustBundle()))
     	.flatMap(foundBundle ->
     	{
@@ -636,7 +868,7 @@ public class TrustBundleResource extends ProtectedResource
              	    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
              	    	});    
     			});    		
-    	});    	 	
+    	}), ConfigEntityType.TRUST_BUNDLE_DOMAIN_RELTN, ConfigChangeType.REMOVED, bundleName + "/" + domainName);    	 	
     }
     
     /**
@@ -648,7 +880,7 @@ public class TrustBundleResource extends ProtectedResource
     @DeleteMapping("{domain}/deleteFromDomain")
     public Mono<Void> disassociateTrustBundlesFromDomain(@PathVariable("domain") String domainName)
     {   
-		return domainRepo.findByDomainNameIgnoreCase(domainName)
+		return recordChange(domainRepo.findByDomainNameIgnoreCase(domainName)
     			.switchIfEmpty(Mono.just(new org.nhindirect.config.store.Domain()))
     			.flatMap(foundDomain ->
     			{
@@ -662,7 +894,7 @@ public class TrustBundleResource extends ProtectedResource
     	     	    		log.error("Error disassociating trust bundle from domain.", e);
     	     	    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
     	     	    	}); 
-    			});
+    			}), ConfigEntityType.TRUST_BUNDLE_DOMAIN_RELTN, ConfigChangeType.REMOVED, "*/" + domainName);
     }
     
     /**
@@ -674,7 +906,7 @@ public class TrustBundleResource extends ProtectedResource
     @DeleteMapping("{bundle}/deleteFromBundle")
     public Mono<Void> disassociateTrustBundleFromDomains(@PathVariable("bundle") String bundleName)
     {   
-    	return  bundleRepo.findByBundleNameIgnoreCase(bundleName)
+    	return recordChange( bundleRepo.findByBundleNameIgnoreCase(bundleName)
     	.switchIfEmpty(Mono.just(new org.nhindirect.config.store.TrustBundle()))
     	.flatMap(foundBundle ->
     	{
@@ -687,7 +919,26 @@ public class TrustBundleResource extends ProtectedResource
 	     	    		log.error("Error disassociating trust bundle from domains.", e);
 	     	    		return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
 	     	    	}); 
-    	});
+    	}), ConfigEntityType.TRUST_BUNDLE_DOMAIN_RELTN, ConfigChangeType.REMOVED, bundleName + "/*");
     }  
     
+    /**
+     * Updates the refresh schedule of a bundle if a bundle refresh scheduler is configured.
+     * @param bundle The bundle to schedule.
+     */
+    protected void scheduleBundle(org.nhindirect.config.store.TrustBundle bundle)
+    {
+    	if (bundleRefreshScheduler != null)
+    		bundleRefreshScheduler.scheduleBundle(bundle);
+    }
+    
+    /**
+     * Removes a bundle from the refresh schedule if a bundle refresh scheduler is configured.
+     * @param bundleId The id of the bundle.
+     */
+    protected void unscheduleBundle(Long bundleId)
+    {
+    	if (bundleRefreshScheduler != null)
+    		bundleRefreshScheduler.unscheduleBundle(bundleId);
+    }
 }
@@ -0,0 +1,133 @@
+/* 
+Copyright (c) 2010, NHIN Direct Project
+All rights reserved.
+
+Authors:
+   Greg Meyer      gm2552@cerner.com
+ 
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer 
+in the documentation and/or other materials provided with the distribution.  Neither the name of the The NHIN Direct Project (nhindirect.org). 
+nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS 
+BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE 
+GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package org.nhindirect.config.resources.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.data.r2dbc.convert.R2dbcConverter;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.mapping.OutboundRow;
+import org.springframework.data.relational.core.mapping.RelationalPersistentEntity;
+import org.springframework.data.relational.core.mapping.RelationalPersistentProperty;
+import org.springframework.data.relational.core.sql.IdentifierProcessing;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.Parameter;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Utility methods for inserting a chunk of entities with a single multi-row insert statement instead of one statement per entity.
+ * The table and columns are taken from the entity mapping of the template, so the statement matches the statement that the
+ * repositories generate for a single entity.
+ * <p>
+ * Identifier columns are not included in the statement and are generated by the database.  A column that is mapped by more
+ * than one property is only included once with the value that a single entity insert would use.  The generated identifiers are not
+ * set on the inserted entities.
+ * @author Greg Meyer
+ * @since 8.0
+ */
+public class BatchInserter 
+{
+	private BatchInserter()
+	{
+		
+	}
+	
+	/**
+	 * Inserts a chunk of entities with a single statement.
+	 * @param template The template used to map and insert the entities.
+	 * @param entityClass The class of the entities.
+	 * @param entities The entities to insert.
+	 * @return The number of inserted rows.
+	 */
+	public static <T> Mono<Integer> insertAll(R2dbcEntityTemplate template, Class<T> entityClass, Collection<T> entities)
+	{
+		if (entities.isEmpty())
+			return Mono.just(0);
+		
+		final R2dbcConverter converter = template.getConverter();
+		final RelationalPersistentEntity<?> persistentEntity = converter.getMappingContext().getRequiredPersistentEntity(entityClass);
+		
+		final List<SqlIdentifier> columns = new ArrayList<>();
+		for (RelationalPersistentProperty property : persistentEntity)
+		{
+			if (!property.isIdProperty() && !columns.contains(property.getColumnName()))
+				columns.add(property.getColumnName());
+		}
+		
+		final List<OutboundRow> rows = new ArrayList<>(entities.size());
+		for (T entity : entities)
+		{
+			final OutboundRow row = new OutboundRow();
+			converter.write(entity, row);
+			rows.add(row);
+		}
+		
+		final StringBuilder sql = new StringBuilder("INSERT INTO ").append(toSql(persistentEntity.getTableName())).append(" (")
+				.append(columns.stream().map(BatchInserter::toSql).collect(Collectors.joining(", "))).append(") VALUES ");
+		
+		for (int row = 0; row < rows.size(); ++row)
+		{
+			if (row > 0)
+				sql.append(", ");
+			
+			sql.append('(');
+			for (int col = 0; col < columns.size(); ++col)
+			{
+				if (col > 0)
+					sql.append(", ");
+				
+				sql.append(':').append(getParameterName(row, col));
+			}
+			sql.append(')');
+		}
+		
+		DatabaseClient.GenericExecuteSpec spec = template.getDatabaseClient().sql(sql.toString());
+		for (int row = 0; row < rows.size(); ++row)
+		{
+			final Map<SqlIdentifier, Parameter> values = rows.get(row);
+			for (int col = 0; col < columns.size(); ++col)
+			{
+				final Parameter value = values.getOrDefault(columns.get(col), Parameter.empty(Object.class));
+				spec = (value.hasValue()) ? spec.bind(getParameterName(row, col), value.getValue()) : 
+					spec.bindNull(getParameterName(row, col), value.getType());
+			}
+		}
+		
+		return spec.fetch().rowsUpdated();
+	}
+	
+	protected static String toSql(SqlIdentifier identifier)
+	{
+		return identifier.toSql(IdentifierProcessing.ANSI);
+	}
+	
+	protected static String getParameterName(int row, int column)
+	{
+		return "r" + row + "c" + column;
+	}
+}
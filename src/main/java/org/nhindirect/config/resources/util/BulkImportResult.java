@@ -0,0 +1,89 @@
+/* 
+Copyright (c) 2010, NHIN Direct Project
+All rights reserved.
+
+Authors:
+   Greg Meyer      gm2552@cerner.com
+ 
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer 
+in the documentation and/or other materials provided with the distribution.  Neither the name of the The NHIN Direct Project (nhindirect.org). 
+nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS 
+BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE 
+GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package org.nhindirect.config.resources.util;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * The result of importing a single entity with a bulk import request.  The status is the HTTP status that the single entity
+ * add operation returns for the entity, so clients can handle the result of each entity in the same way as a single add.
+ * @author Greg Meyer
+ * @since 8.0
+ */
+public class BulkImportResult 
+{
+	private String key;
+	
+	private int status;
+	
+	private String reason;
+	
+	/**
+	 * Empty constructor
+	 */
+	public BulkImportResult()
+	{
+		
+	}
+	
+	/**
+	 * Constructor
+	 * @param key The key of the imported entity.
+	 * @param status The status of the import of the entity.
+	 */
+	public BulkImportResult(String key, HttpStatus status)
+	{
+		this.key = key;
+		this.status = status.value();
+		this.reason = status.getReasonPhrase();
+	}
+
+	public String getKey() 
+	{
+		return key;
+	}
+
+	public void setKey(String key) 
+	{
+		this.key = key;
+	}
+
+	public int getStatus() 
+	{
+		return status;
+	}
+
+	public void setStatus(int status) 
+	{
+		this.status = status;
+	}
+
+	public String getReason() 
+	{
+		return reason;
+	}
+
+	public void setReason(String reason) 
+	{
+		this.reason = reason;
+	}
+}
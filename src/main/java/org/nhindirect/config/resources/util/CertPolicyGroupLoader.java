@@ -0,0 +1,188 @@
+/* 
+Copyright (c) 2010, NHIN Direct Project
+All rights reserved.
+
+Authors:
+   Greg Meyer      gm2552@cerner.com
+ 
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer 
+in the documentation and/or other materials provided with the distribution.  Neither the name of the The NHIN Direct Project (nhindirect.org). 
+nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS 
+BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE 
+GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package org.nhindirect.config.resources.util;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.nhindirect.config.model.CertPolicyGroup;
+import org.nhindirect.config.repository.CertPolicyGroupRepository;
+import org.nhindirect.config.repository.CertPolicyRepository;
+import org.nhindirect.config.store.CertPolicy;
+import org.nhindirect.config.store.CertPolicyGroupReltn;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Request scoped loader of certificate policy groups.  The policy uses and policies of all requested groups are loaded
+ * with batched IN queries instead of one query per group and policy use.  Loaded groups and policies are remembered for the
+ * life of the loader, so a group that is referenced by multiple domain relationships is only loaded and converted once.
+ * <p>
+ * A new loader should be created for each request; loaded groups are not refreshed if they are modified after they are loaded.
+ * @author Greg Meyer
+ * @since 8.0
+ */
+public class CertPolicyGroupLoader 
+{
+	/**
+	 * The default number of ids that are looked up in a single batched query.
+	 */
+	protected static final int DEFAULT_ID_CHUNK_SIZE = 500;
+	
+	protected final R2dbcEntityTemplate template;
+	
+	protected final CertPolicyGroupRepository groupRepo;
+	
+	protected final CertPolicyRepository policyRepo;
+	
+	protected final Map<Long, CertPolicyGroup> loadedGroups;
+	
+	protected final Map<Long, CertPolicy> loadedPolicies;
+	
+	/**
+	 * Constructor
+	 * @param template The entity template used for batched policy use lookups.
+	 * @param groupRepo The policy group repository.
+	 * @param policyRepo The policy repository.
+	 */
+	public CertPolicyGroupLoader(R2dbcEntityTemplate template, CertPolicyGroupRepository groupRepo, CertPolicyRepository policyRepo)
+	{
+		this.template = template;
+		this.groupRepo = groupRepo;
+		this.policyRepo = policyRepo;
+		
+		this.loadedGroups = new ConcurrentHashMap<>();
+		this.loadedPolicies = new ConcurrentHashMap<>();
+	}
+	
+	/**
+	 * Loads policy groups by id.  Groups that do not exist are not included in the returned map.
+	 * @param groupIds The ids of the policy groups to load.
+	 * @return A map of policy group models keyed by policy group id.
+	 */
+	public Mono<Map<Long, CertPolicyGroup>> loadGroupsById(Collection<Long> groupIds)
+	{
+		final List<Long> unloadedIds = groupIds.stream().distinct().filter(id -> !loadedGroups.containsKey(id)).collect(Collectors.toList());
+		
+		if (unloadedIds.isEmpty())
+			return Mono.just(getLoadedGroups(groupIds));
+		
+		return Flux.fromIterable(unloadedIds)
+			.buffer(DEFAULT_ID_CHUNK_SIZE)
+			.concatMap(groupRepo::findAllById)
+			.collectList()
+			.flatMap(this::loadGroups)
+			.map(groups -> getLoadedGroups(groupIds));
+	}
+	
+	/**
+	 * Converts policy group entities to models.  The policy uses and policies of all groups that have not already been loaded
+	 * are fetched with batched queries.
+	 * @param groups The policy group entities.
+	 * @return A map of policy group models keyed by policy group id in the same order as the group entities.
+	 */
+	public Mono<Map<Long, CertPolicyGroup>> loadGroups(Collection<org.nhindirect.config.store.CertPolicyGroup> groups)
+	{
+		final List<Long> groupIds = groups.stream().map(org.nhindirect.config.store.CertPolicyGroup::getId).collect(Collectors.toList());
+		
+		final List<org.nhindirect.config.store.CertPolicyGroup> unloadedGroups = groups.stream()
+				.filter(group -> !loadedGroups.containsKey(group.getId())).collect(Collectors.toList());
+		
+		if (unloadedGroups.isEmpty())
+			return Mono.just(getLoadedGroups(groupIds));
+		
+		return Flux.fromIterable(unloadedGroups)
+			.map(org.nhindirect.config.store.CertPolicyGroup::getId)
+			.buffer(DEFAULT_ID_CHUNK_SIZE)
+			.concatMap(ids -> template.select(CertPolicyGroupReltn.class)
+					.matching(Query.query(Criteria.where("policyGroupId").in(ids)))
+					.all())
+			.collectList()
+			.flatMap(reltns -> 
+			{
+				final Set<Long> policyIds = reltns.stream().map(CertPolicyGroupReltn::getPolicyId).collect(Collectors.toSet());
+				
+				return loadPolicies(policyIds)
+				.map(policies -> 
+				{
+					final Map<Long, List<CertPolicyGroupReltn>> reltnsByGroup = reltns.stream()
+							.collect(Collectors.groupingBy(CertPolicyGroupReltn::getPolicyGroupId));
+					
+					for (org.nhindirect.config.store.CertPolicyGroup group : unloadedGroups)
+					{
+						final Map<CertPolicyGroupReltn, CertPolicy> polUseMap = new LinkedHashMap<>();
+						for (CertPolicyGroupReltn reltn : reltnsByGroup.getOrDefault(group.getId(), Collections.emptyList()))
+						{
+							// policy uses that reference a policy that no longer exists are skipped
+							final CertPolicy policy = policies.get(reltn.getPolicyId());
+							if (policy != null)
+								polUseMap.put(reltn, policy);
+						}
+						
+						loadedGroups.put(group.getId(), EntityModelConversion.toModelCertPolicyGroup(group, polUseMap));
+					}
+					
+					return getLoadedGroups(groupIds);
+				});
+			});
+	}
+	
+	/**
+	 * Loads policies by id.  Policies that have already been loaded are not fetched again.
+	 * @param policyIds The ids of the policies to load.
+	 * @return A map of policy entities keyed by policy id.
+	 */
+	protected Mono<Map<Long, CertPolicy>> loadPolicies(Collection<Long> policyIds)
+	{
+		final List<Long> unloadedIds = policyIds.stream().filter(id -> !loadedPolicies.containsKey(id)).collect(Collectors.toList());
+		
+		return Flux.fromIterable(unloadedIds)
+			.buffer(DEFAULT_ID_CHUNK_SIZE)
+			.concatMap(policyRepo::findAllById)
+			.doOnNext(policy -> loadedPolicies.put(policy.getId(), policy))
+			.then(Mono.fromSupplier(() -> Collections.unmodifiableMap(loadedPolicies)));
+	}
+	
+	protected Map<Long, CertPolicyGroup> getLoadedGroups(Collection<Long> groupIds)
+	{
+		final Map<Long, CertPolicyGroup> retVal = new LinkedHashMap<>();
+		for (Long groupId : groupIds)
+		{
+			final CertPolicyGroup group = loadedGroups.get(groupId);
+			if (group != null)
+				retVal.put(groupId, group);
+		}
+		
+		return retVal;
+	}
+
+}
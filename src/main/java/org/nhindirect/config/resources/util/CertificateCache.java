@@ -0,0 +1,189 @@
+/* 
+Copyright (c) 2010, NHIN Direct Project
+All rights reserved.
+
+Authors:
+   Greg Meyer      gm2552@cerner.com
+ 
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer 
+in the documentation and/or other materials provided with the distribution.  Neither the name of the The NHIN Direct Project (nhindirect.org). 
+nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS 
+BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE 
+GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package org.nhindirect.config.resources.util;
+
+import java.io.ByteArrayInputStream;
+import java.security.MessageDigest;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import org.nhindirect.common.options.OptionsManager;
+import org.nhindirect.common.options.OptionsParameter;
+import org.nhindirect.config.store.CertificateException;
+import org.nhindirect.config.store.TrustBundleAnchor;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * Bounded cache of parsed X509 certificates keyed by certificate thumbprint.  The thumbprint is calculated from the encoded
+ * certificate, so looking up a certificate that has already been parsed only costs a hash of its encoded bytes.
+ * <p>
+ * The cache is shared by the bundle refresh processor and the entity/model conversion methods.
+ * @author Greg Meyer
+ * @since 8.0
+ */
+public class CertificateCache 
+{
+	/**
+	 * Integer value that specifies the maximum number of parsed certificates that are cached.  The default value is 10000.
+	 * <p><b>JVM Parameter/Options Name:</b> org.nhindirect.config.resources.util.CertificateCacheMaxSize
+	 */
+	public final static String CERTIFICATE_CACHE_MAX_SIZE = "CONFIG_SERVICE_CERTIFICATE_CACHE_MAX_SIZE";
+	
+	protected static final int DEFAULT_MAX_SIZE = 10000;
+	
+	private static final char[] HEX_CHARS = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+	
+	private static final Cache<String, X509Certificate> cache;
+	
+	static
+	{
+		final Map<String, String> JVM_PARAMS = new HashMap<String, String>();
+		JVM_PARAMS.put(CERTIFICATE_CACHE_MAX_SIZE, "org.nhindirect.config.resources.util.CertificateCacheMaxSize");
+		OptionsManager.addInitParameters(JVM_PARAMS);
+		
+		final int maxSize = OptionsParameter.getParamValueAsInteger(OptionsManager.getInstance().getParameter(CERTIFICATE_CACHE_MAX_SIZE), DEFAULT_MAX_SIZE);
+		
+		cache = CacheBuilder.newBuilder()
+				.maximumSize(maxSize)
+				.recordStats()
+				.build();
+	}
+	
+	private CertificateCache()
+	{
+		
+	}
+	
+	/**
+	 * Gets the parsed certificate for an encoded certificate.  The certificate is only parsed if it is not already cached.
+	 * @param encoded The DER encoded certificate.
+	 * @return The parsed certificate.
+	 * @throws CertificateException If the certificate cannot be parsed.
+	 */
+	public static X509Certificate getCertificate(byte[] encoded) throws CertificateException
+	{
+		return getCertificate(getThumbprint(encoded), encoded);
+	}
+	
+	/**
+	 * Converts an encoded certificate to a trust bundle anchor entity.  The certificate is validated against the cache
+	 * first, and the anchor data is set from the DER encoding of the cached certificate through the entity's public setter.
+	 * @param encoded The DER encoded certificate.
+	 * @return The trust bundle anchor entity.
+	 * @throws CertificateException If the certificate cannot be parsed.
+	 */
+	public static TrustBundleAnchor toEntityTrustBundleAnchor(byte[] encoded) throws CertificateException
+	{
+		final X509Certificate cert = getCertificate(encoded);
+		
+		final TrustBundleAnchor anchor = new TrustBundleAnchor();
+		try
+		{
+			anchor.setAnchorData(cert.getEncoded());
+		}
+		catch (CertificateEncodingException e)
+		{
+			throw new CertificateException("Failed to encode certificate", e);
+		}
+		
+		return anchor;
+	}
+	
+	/**
+	 * Calculates the thumbprint of an encoded certificate.  The format matches {@link org.nhindirect.common.cert.Thumbprint}.
+	 * @param encoded The DER encoded certificate.
+	 * @return The thumbprint of the certificate.
+	 */
+	public static String getThumbprint(byte[] encoded) throws CertificateException
+	{
+		if (encoded == null)
+			throw new CertificateException("Certificate data cannot be null");
+		
+		try
+		{
+			final byte[] digest = MessageDigest.getInstance("SHA-1").digest(encoded);
+			
+			final StringBuilder builder = new StringBuilder(digest.length * 2);
+			for (byte b : digest)
+			{
+				builder.append(HEX_CHARS[(b & 0xf0) >> 4]);
+				builder.append(HEX_CHARS[b & 0x0f]);
+			}
+			
+			return builder.toString();
+		}
+		catch (Exception e)
+		{
+			throw new CertificateException("Failed to calculate certificate thumbprint", e);
+		}
+	}
+	
+	/**
+	 * Gets the statistics of the cache.
+	 * @return The cache statistics.
+	 */
+	public static CacheStats getStats()
+	{
+		return cache.stats();
+	}
+	
+	/**
+	 * Gets the number of certificates in the cache.
+	 * @return The number of cached certificates.
+	 */
+	public static long size()
+	{
+		return cache.size();
+	}
+
+	/**
+	 * Removes all certificates from the cache.
+	 */
+	public static void clear()
+	{
+		cache.invalidateAll();
+	}
+	
+	protected static X509Certificate getCertificate(String thumbprint, byte[] encoded) throws CertificateException
+	{
+		try
+		{
+			return cache.get(thumbprint, () -> 
+				(X509Certificate)CertificateFactory.getInstance("X.509").generateCertificate(new ByteArrayInputStream(encoded)));
+		}
+		catch (ExecutionException e)
+		{
+			throw new CertificateException("Data cannot be converted to a valid X.509 Certificate", e.getCause());
+		}
+		catch (Exception e)
+		{
+			throw new CertificateException("Data cannot be converted to a valid X.509 Certificate", e);
+		}
+	}
+}
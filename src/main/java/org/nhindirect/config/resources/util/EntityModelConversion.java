@@ -253,6 +253,14 @@ public class EntityModelConversion
     }   
     
     public static org.nhindirect.config.store.Certificate toEntityCertificate(Certificate cert) throws CertificateException
+    {
+    	if (cert == null)
+    		return null;
+    	
+    	return toEntityCertificate(cert, CertUtils.toCertContainer(cert.getData()));
+    }
+    
+    public static org.nhindirect.config.store.Certificate toEntityCertificate(Certificate cert, CertContainer cont) throws CertificateException
     {
     	if (cert == null)
     		return null;
@@ -269,8 +277,6 @@ public class EntityModelConversion
     	if (cert.getStatus() != null)
     		retVal.setStatus(org.nhindirect.config.store.EntityStatus.valueOf(cert.getStatus().toString()).ordinal());
     	
-    	final CertContainer cont = CertUtils.toCertContainer(retVal.getData());
-    	
     	final Calendar endDate = Calendar.getInstance(Locale.getDefault());
     	endDate.setTime(cont.getCert().getNotAfter());
     	retVal.setValidEndDate(localDateTimeFromCalendar(endDate));
@@ -394,16 +400,16 @@ public class EntityModelConversion
     	{
     		for (TrustBundleAnchor anchor : bundle.getTrustBundleAnchors())
     		{
-    			final org.nhindirect.config.store.TrustBundleAnchor retAnchor = new org.nhindirect.config.store.TrustBundleAnchor();
+    			final org.nhindirect.config.store.TrustBundleAnchor retAnchor;
     			try
     			{
-    				retAnchor.setData(anchor.getAnchorData());
+    				retAnchor = CertificateCache.toEntityTrustBundleAnchor(anchor.getAnchorData());
     			}
     			catch (CertificateException e) 
     			{
     				throw new CertificateConversionException(e);
 				}
-    			// the entity object sets all other attributes based on the cert data,
+    			// the cache sets all other attributes based on the cert data,
     			// no need to explicitly set it here
     	    	retAnchor.setTrustBundleId(retVal.getId());
     	    	
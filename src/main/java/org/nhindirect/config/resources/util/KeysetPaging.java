@@ -0,0 +1,122 @@
+/* 
+Copyright (c) 2010, NHIN Direct Project
+All rights reserved.
+
+Authors:
+   Greg Meyer      gm2552@cerner.com
+ 
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer 
+in the documentation and/or other materials provided with the distribution.  Neither the name of the The NHIN Direct Project (nhindirect.org). 
+nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS 
+BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE 
+GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package org.nhindirect.config.resources.util;
+
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Utility methods for keyset (cursor) pagination of list endpoints.  Pages are ordered by the id column and a page is selected
+ * with an id greater than the cursor of the previous page, so the cost of a page query does not depend on the page depth.
+ * <p>
+ * The cursor of the next page is returned in the {@link #NEXT_CURSOR_HEADER} response header.  The header is not returned
+ * for the last page.
+ * @author Greg Meyer
+ * @since 8.0
+ */
+public class KeysetPaging 
+{
+	/**
+	 * Response header containing the cursor that is passed as the after parameter to retrieve the next page.
+	 */
+	public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+	
+	private KeysetPaging()
+	{
+		
+	}
+	
+	/**
+	 * Indicates if a request asks for a page of results.
+	 * @param limit The requested page size.  A value less than or equal to 0 means all results are returned.
+	 * @return True if the request asks for a page of results.
+	 */
+	public static boolean isPaged(int limit)
+	{
+		return limit > 0;
+	}
+	
+	/**
+	 * Gets a page of entities and converts them to models.
+	 * @param template The entity template used to run the page query.
+	 * @param entityClass The class of the entities.
+	 * @param criteria Additional filter criteria.  May be {@link Criteria#empty()}.
+	 * @param after The cursor of the previous page.  Only entities with an id greater than the cursor are returned.
+	 * @param limit The maximum number of entities in the page.
+	 * @param idFunction Function that gets the id of an entity.
+	 * @param converter Function that converts an entity to a model.
+	 * @param response The response where the next page cursor is set.  May be null.
+	 * @return The models in the page ordered by id.
+	 */
+	public static <E, M> Flux<M> getPage(R2dbcEntityTemplate template, Class<E> entityClass, Criteria criteria, long after, int limit,
+			Function<E, Long> idFunction, Function<E, M> converter, ServerHttpResponse response)
+	{
+		return getEntityPage(template, entityClass, criteria, after, limit, idFunction, response).map(converter);
+	}
+	
+	/**
+	 * Gets a page of entities.
+	 * @param template The entity template used to run the page query.
+	 * @param entityClass The class of the entities.
+	 * @param criteria Additional filter criteria.  May be {@link Criteria#empty()}.
+	 * @param after The cursor of the previous page.  Only entities with an id greater than the cursor are returned.
+	 * @param limit The maximum number of entities in the page.
+	 * @param idFunction Function that gets the id of an entity.
+	 * @param response The response where the next page cursor is set.  May be null.
+	 * @return The entities in the page ordered by id.
+	 */
+	public static <E> Flux<E> getEntityPage(R2dbcEntityTemplate template, Class<E> entityClass, Criteria criteria, long after, int limit,
+			Function<E, Long> idFunction, ServerHttpResponse response)
+	{
+		final Criteria afterCriteria = Criteria.where("id").greaterThan(after);
+		
+		// one extra entity is read to determine if there is a next page
+		final Query query = Query.query((criteria.isEmpty()) ? afterCriteria : criteria.and(afterCriteria))
+				.sort(Sort.by("id"))
+				.limit(limit + 1);
+		
+		return template.select(entityClass)
+			.matching(query)
+			.all()
+			.collectList()
+			.flatMapMany(entities -> 
+			{
+				List<E> page = entities;
+				if (entities.size() > limit)
+				{
+					page = entities.subList(0, limit);
+					if (response != null)
+						response.getHeaders().set(NEXT_CURSOR_HEADER, String.valueOf(idFunction.apply(page.get(limit - 1))));
+				}
+				
+				return Flux.fromIterable(page);
+			});
+	}
+}
@@ -0,0 +1,255 @@
+/* 
+Copyright (c) 2010, NHIN Direct Project
+All rights reserved.
+
+Authors:
+   Greg Meyer      gm2552@cerner.com
+ 
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer 
+in the documentation and/or other materials provided with the distribution.  Neither the name of the The NHIN Direct Project (nhindirect.org). 
+nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS 
+BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE 
+GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package org.nhindirect.config.resources.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.nhindirect.config.model.Address;
+import org.nhindirect.config.model.Domain;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Bounded read-through cache of address and domain lookups.  Lookups are keyed by the lower case address or domain name, and
+ * lookups that do not find an address or domain are cached as well so repeated lookups of unknown recipients do not reach the
+ * database.  Entries are evicted after a configurable time to live or when the cache reaches its maximum size.
+ * <p>
+ * Resources that modify addresses or domains must invalidate the affected entries after the modification is stored.  A lookup that
+ * was loading while an entry was invalidated does not leave its possibly stale result in the cache.
+ * @author Greg Meyer
+ * @since 8.0
+ */
+public class ResourceLookupCache 
+{
+	protected static final long DEFAULT_MAX_SIZE = 10000;
+	
+	protected static final long DEFAULT_TTL_SECONDS = 60;
+	
+	protected final Cache<String, Optional<Address>> addressCache;
+	
+	protected final Cache<String, Optional<Domain>> domainCache;
+	
+	/**
+	 * Incremented each time an address entry is invalidated
+	 */
+	protected final AtomicLong addressGeneration = new AtomicLong();
+	
+	/**
+	 * Incremented each time a domain entry is invalidated
+	 */
+	protected final AtomicLong domainGeneration = new AtomicLong();
+	
+	/**
+	 * Creates a cache with the default size and time to live.
+	 */
+	public ResourceLookupCache()
+	{
+		this(DEFAULT_MAX_SIZE, DEFAULT_TTL_SECONDS);
+	}
+	
+	/**
+	 * Constructor
+	 * @param maxSize The maximum number of addresses and the maximum number of domains that are cached.
+	 * @param ttlSeconds The number of seconds an entry is cached after it is loaded.  A value less than or equal to 0 disables caching.
+	 */
+	public ResourceLookupCache(long maxSize, long ttlSeconds)
+	{
+		final long size = (ttlSeconds > 0) ? maxSize : 0;
+		final long ttl = Math.max(ttlSeconds, 0);
+		
+		addressCache = CacheBuilder.newBuilder()
+				.maximumSize(size)
+				.expireAfterWrite(ttl, TimeUnit.SECONDS)
+				.recordStats()
+				.build();
+		
+		domainCache = CacheBuilder.newBuilder()
+				.maximumSize(size)
+				.expireAfterWrite(ttl, TimeUnit.SECONDS)
+				.recordStats()
+				.build();
+	}
+	
+	/**
+	 * Gets an address from the cache or loads it if it is not cached.
+	 * @param emailAddress The email address to look up.
+	 * @param loader Supplies the lookup of the address.  The lookup completes empty if the address does not exist.
+	 * @return The address or an empty result if the address does not exist.
+	 */
+	public Mono<Address> getAddress(String emailAddress, Supplier<Mono<Address>> loader)
+	{
+		return get(addressCache, addressGeneration, toKey(emailAddress), loader);
+	}
+	
+	/**
+	 * Gets a domain from the cache or loads it if it is not cached.
+	 * @param domainName The domain name to look up.
+	 * @param loader Supplies the lookup of the domain.  The lookup completes empty if the domain does not exist.
+	 * @return The domain or an empty result if the domain does not exist.
+	 */
+	public Mono<Domain> getDomain(String domainName, Supplier<Mono<Domain>> loader)
+	{
+		return get(domainCache, domainGeneration, toKey(domainName), loader);
+	}
+	
+	/**
+	 * Removes an address from the cache.
+	 * @param emailAddress The email address to remove.
+	 */
+	public void invalidateAddress(String emailAddress)
+	{
+		if (emailAddress != null)
+		{
+			addressGeneration.incrementAndGet();
+			addressCache.invalidate(toKey(emailAddress));
+		}
+	}
+	
+	/**
+	 * Removes a domain from the cache.
+	 * @param domainName The domain name to remove.
+	 */
+	public void invalidateDomain(String domainName)
+	{
+		if (domainName != null)
+		{
+			domainGeneration.incrementAndGet();
+			domainCache.invalidate(toKey(domainName));
+		}
+	}
+	
+	/**
+	 * Removes all addresses from the cache.
+	 */
+	public void invalidateAddresses()
+	{
+		addressGeneration.incrementAndGet();
+		addressCache.invalidateAll();
+	}
+	
+	/**
+	 * Removes all domains from the cache.
+	 */
+	public void invalidateDomains()
+	{
+		domainGeneration.incrementAndGet();
+		domainCache.invalidateAll();
+	}
+	
+	/**
+	 * Removes all entries from the cache.
+	 */
+	public void invalidateAll()
+	{
+		invalidateAddresses();
+		invalidateDomains();
+	}
+	
+	/**
+	 * Gets the statistics of the address cache.
+	 * @return The address cache statistics.
+	 */
+	public CacheStats getAddressStats()
+	{
+		return addressCache.stats();
+	}
+	
+	/**
+	 * Gets the statistics of the domain cache.
+	 * @return The domain cache statistics.
+	 */
+	public CacheStats getDomainStats()
+	{
+		return domainCache.stats();
+	}
+	
+	/**
+	 * Converts cache statistics to a map of metric names and values.
+	 * @param stats The cache statistics.
+	 * @param size The number of entries in the cache.
+	 * @return A map of metric names and values.
+	 */
+	public static Map<String, Number> toMetrics(CacheStats stats, long size)
+	{
+		final Map<String, Number> metrics = new LinkedHashMap<>();
+		metrics.put("size", size);
+		metrics.put("hitCount", stats.hitCount());
+		metrics.put("missCount", stats.missCount());
+		metrics.put("hitRate", stats.hitRate());
+		metrics.put("evictionCount", stats.evictionCount());
+		
+		return metrics;
+	}
+	
+	/**
+	 * Gets the hit, miss, and eviction metrics of the address and domain caches.
+	 * @return A map of metrics keyed by cache name.
+	 */
+	public Map<String, Map<String, Number>> getMetrics()
+	{
+		final Map<String, Map<String, Number>> metrics = new LinkedHashMap<>();
+		metrics.put("address", toMetrics(addressCache.stats(), addressCache.size()));
+		metrics.put("domain", toMetrics(domainCache.stats(), domainCache.size()));
+		
+		return metrics;
+	}
+	
+	protected <T> Mono<T> get(Cache<String, Optional<T>> cache, AtomicLong generation, String key, Supplier<Mono<T>> loader)
+	{
+		return Mono.defer(() -> 
+		{
+			final Optional<T> cached = cache.getIfPresent(key);
+			if (cached != null)
+				return Mono.justOrEmpty(cached);
+			
+			final long loadGeneration = generation.get();
+			
+			// errors are not cached; only found and not found results
+			return loader.get()
+				.map(Optional::of)
+				.defaultIfEmpty(Optional.empty())
+				.doOnNext(result -> 
+				{
+					cache.put(key, result);
+					
+					// an invalidation during the load may have been overwritten by a result read before the modification
+					if (generation.get() != loadGeneration)
+						cache.invalidate(key);
+				})
+				.flatMap(Mono::justOrEmpty);
+		});
+	}
+	
+	protected static String toKey(String name)
+	{
+		return name.toLowerCase();
+	}
+}
@@ -0,0 +1,94 @@
+/* 
+Copyright (c) 2010, NHIN Direct Project
+All rights reserved.
+
+Authors:
+   Greg Meyer      gm2552@cerner.com
+ 
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer 
+in the documentation and/or other materials provided with the distribution.  Neither the name of the The NHIN Direct Project (nhindirect.org). 
+nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS 
+BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE 
+GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package org.nhindirect.config.resources.util;
+
+import org.apache.commons.lang3.StringUtils;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Projections of a trust bundle that may be requested from the trust bundle resource.  Callers that only need bundle
+ * metadata, such as refresh times or check sums, can request a projection that does not include the encoded anchors.
+ * @author Greg Meyer
+ * @since 8.0
+ */
+@Slf4j
+public enum TrustBundleView 
+{
+	/**
+	 * The bundle metadata and all anchors including the encoded anchor certificates.
+	 */
+	FULL,
+	
+	/**
+	 * The bundle metadata and the thumbprint and validity dates of each anchor.  Encoded anchor certificates are not included.
+	 */
+	THUMBPRINTS,
+	
+	/**
+	 * Only the bundle metadata.  Anchors are not included.
+	 */
+	METADATA;
+	
+	/**
+	 * Indicates if the view includes the anchors of the bundle.
+	 * @return True if anchors are included in the view.
+	 */
+	public boolean includesAnchors()
+	{
+		return this != METADATA;
+	}
+	
+	/**
+	 * Indicates if the view includes the encoded anchor certificates of the bundle.
+	 * @return True if encoded anchor certificates are included in the view.
+	 */
+	public boolean includesAnchorData()
+	{
+		return this == FULL;
+	}
+	
+	/**
+	 * Gets the view from request parameters.  If a view is not specified, the legacy fetchAnchors parameter selects
+	 * either the full view or the metadata view.
+	 * @param view The name of the requested view.  May be empty.
+	 * @param fetchAnchors The legacy fetch anchors parameter.
+	 * @return The requested view.
+	 */
+	public static TrustBundleView fromParameters(String view, boolean fetchAnchors)
+	{
+		final TrustBundleView defaultView = (fetchAnchors) ? FULL : METADATA;
+		
+		if (StringUtils.isEmpty(view))
+			return defaultView;
+		
+		try
+		{
+			return TrustBundleView.valueOf(view.toUpperCase());
+		}
+		catch (IllegalArgumentException e)
+		{
+			log.warn("TrustBundleView enum value of " + view + " encountered.  Defaulting TrustBundleView to " + defaultView);
+			return defaultView;
+		}
+	}
+}
@@ -0,0 +1,233 @@
+/* 
+Copyright (c) 2010, NHIN Direct Project
+All rights reserved.
+
+Authors:
+   Greg Meyer      gm2552@cerner.com
+ 
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer 
+in the documentation and/or other materials provided with the distribution.  Neither the name of the The NHIN Direct Project (nhindirect.org). 
+nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS 
+BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE 
+GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, 
+STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package org.nhindirect.config.resources.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.xbill.DNS.Master;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.TTL;
+
+/**
+ * Reads DNS records from the lines of a zone file in master file format (RFC 1035 section 5).  Lines are passed to the reader
+ * one at a time so a zone file can be read as it is streamed.  The $ORIGIN and $TTL directives, owner names that are inherited
+ * from the previous record, and records that span multiple lines with parentheses are supported.  The $INCLUDE directive
+ * is not supported.
+ * <p>
+ * Each complete entry of the zone file is parsed independently, so an entry that cannot be parsed does not prevent the
+ * remaining entries from being read.  A reader keeps the state of a single zone file and is not thread safe.
+ * @author Greg Meyer
+ * @since 8.0
+ */
+public class ZoneFileReader 
+{
+	protected Name origin;
+	
+	protected long defaultTtl;
+	
+	protected Name lastOwner;
+	
+	protected final StringBuilder pending = new StringBuilder();
+	
+	protected int openParens;
+	
+	/**
+	 * Constructor
+	 * @param origin The initial origin of relative names.  May be null if the zone file only contains absolute names or
+	 * sets the origin with the $ORIGIN directive.
+	 * @param defaultTtl The TTL of records that do not specify a TTL.
+	 */
+	public ZoneFileReader(Name origin, long defaultTtl)
+	{
+		this.origin = origin;
+		this.defaultTtl = defaultTtl;
+	}
+	
+	/**
+	 * Reads a line of the zone file.
+	 * @param line The line to read.
+	 * @return The entries completed by the line.  Empty if the line does not complete an entry.
+	 */
+	public List<Entry> readLine(String line)
+	{
+		if (pending.length() > 0)
+			pending.append('\n');
+		pending.append(line);
+		
+		openParens += countParens(line);
+		if (openParens > 0)
+			return Collections.emptyList();
+		
+		return readPending();
+	}
+	
+	/**
+	 * Reads the remaining entry at the end of the zone file.
+	 * @return The remaining entry or an empty list if there is no remaining entry.
+	 */
+	public List<Entry> finish()
+	{
+		return (pending.length() > 0) ? readPending() : Collections.emptyList();
+	}
+	
+	protected List<Entry> readPending()
+	{
+		String text = pending.toString();
+		pending.setLength(0);
+		openParens = 0;
+		
+		final String trimmed = text.trim();
+		if (trimmed.isEmpty() || trimmed.startsWith(";"))
+			return Collections.emptyList();
+		
+		try
+		{
+			if (trimmed.startsWith("$"))
+			{
+				readDirective(trimmed);
+				return Collections.emptyList();
+			}
+			
+			// an entry that starts with white space belongs to the owner of the previous record
+			if (Character.isWhitespace(text.charAt(0)))
+			{
+				if (lastOwner == null)
+					throw new IOException("Record does not have an owner name");
+				
+				text = lastOwner.toString() + text;
+			}
+			
+			final List<Record> records = new ArrayList<>();
+			try (final Master master = new Master(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), origin, defaultTtl))
+			{
+				master.disableIncludes(true);
+				
+				Record record;
+				while ((record = master.nextRecord()) != null)
+					records.add(record);
+			}
+			
+			if (!records.isEmpty())
+				lastOwner = records.get(records.size() - 1).getName();
+			
+			return Collections.singletonList(new Entry(trimmed, records, null));
+		}
+		catch (Exception e)
+		{
+			return Collections.singletonList(new Entry(trimmed, Collections.emptyList(), e));
+		}
+	}
+	
+	protected void readDirective(String directive) throws IOException
+	{
+		final String[] tokens = directive.split("\\s+");
+		if (tokens.length < 2)
+			throw new IOException("Directive does not have a value: " + directive);
+		
+		if (tokens[0].equalsIgnoreCase("$ORIGIN"))
+			origin = Name.fromString(tokens[1], Name.root);
+		else if (tokens[0].equalsIgnoreCase("$TTL"))
+			defaultTtl = TTL.parseTTL(tokens[1]);
+		else
+			throw new IOException("Unsupported directive: " + tokens[0]);
+	}
+	
+	/**
+	 * Counts the open parentheses of a line that are not inside a quoted string or a comment.
+	 * @param line The line to count.
+	 * @return The number of opening parentheses minus the number of closing parentheses.
+	 */
+	protected static int countParens(String line)
+	{
+		int count = 0;
+		boolean quoted = false;
+		
+		for (int i = 0; i < line.length(); ++i)
+		{
+			final char c = line.charAt(i);
+			if (c == '\\')
+				++i;
+			else if (c == '"')
+				quoted = !quoted;
+			else if (!quoted && c == ';')
+				break;
+			else if (!quoted && c == '(')
+				++count;
+			else if (!quoted && c == ')')
+				--count;
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * A complete entry of a zone file.
+	 */
+	public static class Entry
+	{
+		protected final String text;
+		
+		protected final List<Record> records;
+		
+		protected final Exception error;
+		
+		public Entry(String text, List<Record> records, Exception error)
+		{
+			this.text = text;
+			this.records = records;
+			this.error = error;
+		}
+		
+		/**
+		 * Gets the text of the entry.
+		 * @return The text of the entry.
+		 */
+		public String getText()
+		{
+			return text;
+		}
+		
+		/**
+		 * Gets the records of the entry.
+		 * @return The records of the entry.  Empty if the entry cannot be parsed.
+		 */
+		public List<Record> getRecords()
+		{
+			return records;
+		}
+		
+		/**
+		 * Gets the error that occurred parsing the entry.
+		 * @return The error or null if the entry was parsed.
+		 */
+		public Exception getError()
+		{
+			return error;
+		}
+	}
+}
@@ -1,23 +1,39 @@
 package org.nhindirect.config.springconfig;
 
+import org.nhindirect.config.events.ConfigChangeLog;
 import org.nhindirect.config.processor.BundleCacheUpdateProcessor;
 import org.nhindirect.config.processor.BundleRefreshProcessor;
+import org.nhindirect.config.processor.BundleRefreshScheduler;
 import org.nhindirect.config.processor.impl.DefaultBundleCacheUpdateProcessorImpl;
 import org.nhindirect.config.processor.impl.DefaultBundleRefreshProcessorImpl;
+import org.nhindirect.config.processor.impl.DefaultBundleRefreshSchedulerImpl;
 import org.nhindirect.config.repository.TrustBundleAnchorRepository;
 import org.nhindirect.config.repository.TrustBundleRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
 
 @Configuration
 public class BundleProcessorConfig
 {	
-	@Bean
-	public BundleRefreshProcessor bundleRefreshProcessor(TrustBundleRepository trustBundleRepo, TrustBundleAnchorRepository bundleAnchorRepo)
+	@Value("${direct.trustbundles.refresh.maxConcurrent:4}")	
+	private int maxConcurrentRefreshes;
+	
+	@Value("${direct.trustbundles.refresh.maxConcurrentPerHost:1}")	
+	private int maxConcurrentRefreshesPerHost;
+	
+	@Bean(destroyMethod = "shutdown")
+	public BundleRefreshProcessor bundleRefreshProcessor(TrustBundleRepository trustBundleRepo, TrustBundleAnchorRepository bundleAnchorRepo,
+			ObjectProvider<ReactiveTransactionManager> transactionManager, ConfigChangeLog changeLog)
 	{
 		final DefaultBundleRefreshProcessorImpl retVal = new DefaultBundleRefreshProcessorImpl();
 		retVal.setRepositories(trustBundleRepo, bundleAnchorRepo);
+		retVal.setChangeLog(changeLog);
+		transactionManager.ifAvailable(txManager -> retVal.setTransactionalOperator(TransactionalOperator.create(txManager)));
 		
 		return retVal;
 	}
@@ -29,9 +45,24 @@ public class BundleProcessorConfig
 		DefaultBundleCacheUpdateProcessorImpl proc = new DefaultBundleCacheUpdateProcessorImpl();
 		proc.setRefreshProcessor(refreshProc);
 		proc.setRepository(trustBundleRepo);
+		proc.setMaxConcurrentRefreshes(maxConcurrentRefreshes);
+		proc.setMaxConcurrentRefreshesPerHost(maxConcurrentRefreshesPerHost);
 		
 		return proc;
 	}
 	
+	@ConditionalOnMissingBean
+	@Bean(destroyMethod = "shutdown")
+	public BundleRefreshScheduler bundleRefreshScheduler(BundleRefreshProcessor refreshProc, TrustBundleRepository trustBundleRepo)
+	{
+		final DefaultBundleRefreshSchedulerImpl scheduler = new DefaultBundleRefreshSchedulerImpl();
+		scheduler.setRefreshProcessor(refreshProc);
+		scheduler.setRepository(trustBundleRepo);
+		scheduler.setMaxConcurrentRefreshes(maxConcurrentRefreshes);
+		scheduler.setMaxConcurrentRefreshesPerHost(maxConcurrentRefreshesPerHost);
+		
+		return scheduler;
+	}
+	
 
 }
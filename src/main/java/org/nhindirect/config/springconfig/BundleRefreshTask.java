@@ -1,19 +1,73 @@
 package org.nhindirect.config.springconfig;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PreDestroy;
+
 import org.nhindirect.config.processor.BundleCacheUpdateProcessor;
+import org.nhindirect.config.processor.BundleRefreshScheduler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
 @Component
+@Slf4j
 public class BundleRefreshTask 
 {
 	@Autowired
 	protected BundleCacheUpdateProcessor updateProcessor;
 	
+	@Autowired(required = false)
+	protected BundleRefreshScheduler refreshScheduler;
+	
+	protected final AtomicBoolean running = new AtomicBoolean(false);
+	
+	protected volatile Disposable currentRun;
+	
+	/**
+	 * Synchronizes the per bundle refresh schedule with the trust bundles in the store.  Bundles are refreshed by the schedule when
+	 * they are due, and bundles that are overdue or have never been refreshed are scheduled immediately, so this only needs to run 
+	 * at startup and occasionally to pick up bundles that were changed outside of this service.  If no refresh scheduler is configured,
+	 * all overdue bundles are refreshed by the {@link BundleCacheUpdateProcessor} instead.
+	 * <p>
+	 * The run is asynchronous and does not hold the scheduler thread.  A run is skipped if the previous run has not finished.
+	 */
 	@Scheduled(fixedRateString = "${direct.trustbundles.refresh.period:3600000}")
 	public void refreshBundles()
 	{
-		updateProcessor.updateBundleCache().block();
+		if (!running.compareAndSet(false, true))
+		{
+			log.info("Skipping trust bundle refresh; the previous refresh is still running.");
+			return;
+		}
+		
+		final long start = System.currentTimeMillis();
+		
+		// the scheduler refreshes bundles on their own timers and logs each refresh, so only the schedule synchronization is timed here
+		final String runName = (refreshScheduler == null) ? "refresh" : "schedule synchronization";
+		
+		currentRun = Mono.defer(() -> (refreshScheduler == null) ? updateProcessor.updateBundleCache() : refreshScheduler.scheduleAll())
+			.doFinally(signal -> running.set(false))
+			.subscribe(empty -> {}, 
+				e -> log.error("Trust bundle {} failed after {} ms", runName, System.currentTimeMillis() - start, e),
+				() -> log.info("Trust bundle {} completed in {} ms", runName, System.currentTimeMillis() - start));
+	}
+	
+	/**
+	 * Cancels a refresh that is in progress.
+	 */
+	@PreDestroy
+	public void shutdown()
+	{
+		final Disposable run = currentRun;
+		if (run != null && !run.isDisposed())
+		{
+			log.info("Cancelling in progress trust bundle refresh.");
+			run.dispose();
+		}
 	}
 }
@@ -0,0 +1,21 @@
+package org.nhindirect.config.springconfig;
+
+import org.nhindirect.config.events.ConfigChangeLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ChangeLogConfig
+{
+	@Value("${direct.config.changelog.maxSize:10000}")	
+	private int maxSize;
+	
+	@ConditionalOnMissingBean
+	@Bean
+	public ConfigChangeLog configChangeLog()
+	{
+		return new ConfigChangeLog(maxSize);
+	}
+}
@@ -0,0 +1,32 @@
+package org.nhindirect.config.springconfig;
+
+import org.nhindirect.config.resources.util.ResourceLookupCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.filter.reactive.ServerWebExchangeContextFilter;
+
+@Configuration
+public class ResourceCacheConfig
+{
+	@Value("${direct.config.lookupcache.maxSize:10000}")	
+	private long maxSize;
+	
+	@Value("${direct.config.lookupcache.ttlSeconds:60}")	
+	private long ttlSeconds;
+	
+	@ConditionalOnMissingBean
+	@Bean
+	public ServerWebExchangeContextFilter serverWebExchangeContextFilter()
+	{
+		return new ServerWebExchangeContextFilter();
+	}
+	
+	@ConditionalOnMissingBean
+	@Bean
+	public ResourceLookupCache resourceLookupCache()
+	{
+		return new ResourceLookupCache(maxSize, ttlSeconds);
+	}
+}
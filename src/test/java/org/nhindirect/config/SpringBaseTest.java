@@ -18,6 +18,7 @@ import org.nhindirect.config.repository.SettingRepository;
 import org.nhindirect.config.repository.TrustBundleAnchorRepository;
 import org.nhindirect.config.repository.TrustBundleDomainReltnRepository;
 import org.nhindirect.config.repository.TrustBundleRepository;
+import org.nhindirect.config.resources.util.ResourceLookupCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
@@ -76,6 +77,9 @@ public abstract class SpringBaseTest
 	@Autowired
 	protected CertPolicyGroupReltnRepository policyGroupReltn;
 	
+	@Autowired
+	protected ResourceLookupCache lookupCache;
+	
 	@BeforeEach
 	public void setUp()
 	{
@@ -128,6 +132,8 @@ public abstract class SpringBaseTest
 		dnsRepo.deleteAll().block();
 		
 		settingRepo.deleteAll().block();
+		
+		lookupCache.invalidateAll();
 	
 	}
 }
@@ -0,0 +1,118 @@
+package org.nhindirect.config.events;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+
+public class ConfigChangeLog_getChangeStreamTest
+{
+	@Test
+	public void testGetChangeStream_missedAndNewChanges_assertAllChangesInOrder()
+	{
+		final ConfigChangeLog log = new ConfigChangeLog(10);
+		
+		final long since = log.getVersion();
+		log.record(ConfigEntityType.DOMAIN, ConfigChangeType.ADDED, "test.com");
+		
+		final List<String> keys = new CopyOnWriteArrayList<>();
+		final Disposable sub = log.getChangeStream(since).subscribe(change -> keys.add(change.getKey()));
+		
+		log.record(ConfigEntityType.ADDRESS, ConfigChangeType.ADDED, "me@test.com");
+		sub.dispose();
+		
+		assertEquals(2, keys.size());
+		assertEquals("test.com", keys.get(0));
+		assertEquals("me@test.com", keys.get(1));
+	}
+	
+	@Test
+	public void testGetChangeStream_negativeVersion_assertOnlyNewChanges()
+	{
+		final ConfigChangeLog log = new ConfigChangeLog(10);
+		
+		log.record(ConfigEntityType.DOMAIN, ConfigChangeType.ADDED, "test.com");
+		
+		final List<ConfigChange> changes = new CopyOnWriteArrayList<>();
+		final Disposable sub = log.getChangeStream(-1).subscribe(changes::add);
+		
+		log.record(ConfigEntityType.DOMAIN, ConfigChangeType.REMOVED, "test.com");
+		sub.dispose();
+		
+		assertEquals(1, changes.size());
+		assertEquals(ConfigChangeType.REMOVED, changes.get(0).getChangeType());
+	}
+	
+	@Test
+	public void testGetChangeStream_versionNoLongerRetained_assertError()
+	{
+		final ConfigChangeLog log = new ConfigChangeLog(1);
+		
+		final long since = log.getVersion();
+		log.record(ConfigEntityType.SETTING, ConfigChangeType.ADDED, "setting1");
+		log.record(ConfigEntityType.SETTING, ConfigChangeType.ADDED, "setting2");
+		
+		assertThrows(IllegalStateException.class, () -> log.getChangeStream(since).blockFirst(Duration.ofSeconds(5)));
+	}
+	
+	@Test
+	public void testGetChangeStream_subscriberFallsBehind_assertError()
+	{
+		final ConfigChangeLog log = new ConfigChangeLog(100);
+		
+		final List<ConfigChange> changes = new CopyOnWriteArrayList<>();
+		final AtomicReference<Throwable> error = new AtomicReference<>();
+		
+		final BaseSubscriber<ConfigChange> subscriber = new BaseSubscriber<ConfigChange>()
+		{
+			@Override
+			protected void hookOnSubscribe(Subscription subscription)
+			{
+				// request nothing so changes are buffered
+			}
+			
+			@Override
+			protected void hookOnNext(ConfigChange change)
+			{
+				changes.add(change);
+			}
+			
+			@Override
+			protected void hookOnError(Throwable throwable)
+			{
+				error.set(throwable);
+			}
+		};
+		log.getChangeStream(-1, 8).subscribe(subscriber);
+		
+		for (int i = 0; i < 20; ++i)
+			log.record(ConfigEntityType.SETTING, ConfigChangeType.ADDED, "setting" + i);
+		
+		subscriber.request(Long.MAX_VALUE);
+		
+		assertEquals(8, changes.size());
+		assertTrue(error.get() instanceof IllegalStateException);
+	}
+	
+	@Test
+	public void testGetChangeStream_cancelled_assertSubscriptionReleased()
+	{
+		final ConfigChangeLog log = new ConfigChangeLog(10);
+		
+		final Disposable sub = log.getChangeStream(-1).subscribe();
+		assertEquals(1, log.changeSink.currentSubscriberCount());
+		
+		sub.dispose();
+		assertEquals(0, log.changeSink.currentSubscriberCount());
+	}
+}
@@ -0,0 +1,86 @@
+package org.nhindirect.config.events;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class ConfigChangeLog_getChangesSinceTest
+{
+	@Test
+	public void testGetChangesSince_changesRecorded_assertOnlyLaterChangesReturned()
+	{
+		final ConfigChangeLog log = new ConfigChangeLog(10);
+		
+		log.record(ConfigEntityType.DOMAIN, ConfigChangeType.ADDED, "test.com");
+		final long since = log.getVersion();
+		
+		log.record(ConfigEntityType.ADDRESS, ConfigChangeType.ADDED, "me@test.com");
+		log.record(ConfigEntityType.DOMAIN, ConfigChangeType.REMOVED, "test.com");
+		
+		final ConfigChanges changes = log.getChangesSince(since);
+		assertNotNull(changes);
+		assertEquals(log.getVersion(), changes.getVersion());
+		
+		final List<ConfigChange> changeList = new ArrayList<>(changes.getChanges());
+		assertEquals(2, changeList.size());
+		assertEquals(since + 1, changeList.get(0).getVersion());
+		assertEquals(ConfigEntityType.ADDRESS, changeList.get(0).getEntityType());
+		assertEquals("me@test.com", changeList.get(0).getKey());
+		assertEquals(ConfigChangeType.REMOVED, changeList.get(1).getChangeType());
+	}
+	
+	@Test
+	public void testGetChangesSince_currentVersion_assertNoChanges()
+	{
+		final ConfigChangeLog log = new ConfigChangeLog(10);
+		
+		log.record(ConfigEntityType.SETTING, ConfigChangeType.ADDED, "setting1");
+		
+		assertTrue(log.getChangesSince(log.getVersion()).getChanges().isEmpty());
+	}
+	
+	@Test
+	public void testGetChangesSince_negativeVersion_assertCurrentVersionReturned()
+	{
+		final ConfigChangeLog log = new ConfigChangeLog(10);
+		
+		log.record(ConfigEntityType.SETTING, ConfigChangeType.ADDED, "setting1");
+		
+		final ConfigChanges changes = log.getChangesSince(-1);
+		assertEquals(log.getVersion(), changes.getVersion());
+		assertTrue(changes.getChanges().isEmpty());
+	}
+	
+	@Test
+	public void testGetChangesSince_versionNoLongerRetained_assertNull()
+	{
+		final ConfigChangeLog log = new ConfigChangeLog(2);
+		
+		final long since = log.getVersion();
+		
+		log.record(ConfigEntityType.SETTING, ConfigChangeType.ADDED, "setting1");
+		log.record(ConfigEntityType.SETTING, ConfigChangeType.ADDED, "setting2");
+		
+		assertEquals(2, log.getChangesSince(since).getChanges().size());
+		
+		log.record(ConfigEntityType.SETTING, ConfigChangeType.ADDED, "setting3");
+		
+		assertNull(log.getChangesSince(since));
+		assertEquals(2, log.getChangesSince(since + 1).getChanges().size());
+	}
+	
+	@Test
+	public void testGetChangesSince_versionFromPreviousInstance_assertNull()
+	{
+		final ConfigChangeLog log = new ConfigChangeLog(10);
+		
+		assertNull(log.getChangesSince(log.getVersion() - 1));
+		assertNull(log.getChangesSince(log.getVersion() + 1));
+	}
+}
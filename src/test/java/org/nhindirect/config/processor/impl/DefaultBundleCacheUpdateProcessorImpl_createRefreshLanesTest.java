@@ -0,0 +1,129 @@
+package org.nhindirect.config.processor.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.nhindirect.config.processor.BundleRefreshProcessor;
+import org.nhindirect.config.repository.TrustBundleRepository;
+import org.nhindirect.config.store.TrustBundle;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class DefaultBundleCacheUpdateProcessorImpl_createRefreshLanesTest
+{
+	protected TrustBundle createBundle(String name, String url, LocalDateTime lastRefresh)
+	{
+		final TrustBundle bundle = new TrustBundle();
+		bundle.setBundleName(name);
+		bundle.setBundleURL(url);
+		bundle.setRefreshInterval(60);
+		bundle.setLastSuccessfulRefresh(lastRefresh);
+		
+		return bundle;
+	}
+	
+	@Test
+	public void testCreateRefreshLanes_singleHost_assertLanesLimitedToPerHostLimit()
+	{
+		final DefaultBundleCacheUpdateProcessorImpl cacheUpdate = new DefaultBundleCacheUpdateProcessorImpl();
+		cacheUpdate.setMaxConcurrentRefreshesPerHost(2);
+		
+		final TrustBundle bundle1 = createBundle("b1", "http://host1/b1", null);
+		final TrustBundle bundle2 = createBundle("b2", "http://HOST1/b2", null);
+		final TrustBundle bundle3 = createBundle("b3", "http://host1/b3", null);
+		
+		final List<List<TrustBundle>> lanes = cacheUpdate.createRefreshLanes(Arrays.asList(bundle1, bundle2, bundle3));
+		
+		assertEquals(2, lanes.size());
+		assertEquals(Arrays.asList(bundle1, bundle3), lanes.get(0));
+		assertEquals(Arrays.asList(bundle2), lanes.get(1));
+	}
+	
+	@Test
+	public void testCreateRefreshLanes_multipleHosts_assertLanePerHost()
+	{
+		final DefaultBundleCacheUpdateProcessorImpl cacheUpdate = new DefaultBundleCacheUpdateProcessorImpl();
+		
+		final TrustBundle bundle1 = createBundle("b1", "http://host1/b1", null);
+		final TrustBundle bundle2 = createBundle("b2", "http://host2/b2", null);
+		final TrustBundle bundle3 = createBundle("b3", "http://host1/b3", null);
+		
+		final List<List<TrustBundle>> lanes = cacheUpdate.createRefreshLanes(Arrays.asList(bundle1, bundle2, bundle3));
+		
+		assertEquals(2, lanes.size());
+		assertEquals(Arrays.asList(bundle1, bundle3), lanes.get(0));
+		assertEquals(Arrays.asList(bundle2), lanes.get(1));
+	}
+	
+	@Test
+	public void testUpdateBundleCache_multipleDueBundles_assertMostOverdueRefreshedFirst()
+	{
+		final BundleRefreshProcessor processor = mock(BundleRefreshProcessor.class);
+		final TrustBundleRepository repo = mock(TrustBundleRepository.class);
+		
+		final DefaultBundleCacheUpdateProcessorImpl cacheUpdate = new DefaultBundleCacheUpdateProcessorImpl();
+		cacheUpdate.setRepository(repo);
+		cacheUpdate.setRefreshProcessor(processor);
+		cacheUpdate.setMaxConcurrentRefreshes(1);
+		
+		final LocalDateTime now = LocalDateTime.now();
+		final TrustBundle bundle1 = createBundle("b1", "http://host1/b1", now.minusSeconds(120));
+		final TrustBundle bundle2 = createBundle("b2", "http://host2/b2", null);
+		final TrustBundle bundle3 = createBundle("b3", "http://host3/b3", now.minusSeconds(600));
+		final TrustBundle notDue = createBundle("b4", "http://host4/b4", now);
+		
+		final List<String> refreshed = Collections.synchronizedList(new ArrayList<>());
+		when(processor.refreshBundle(any())).thenAnswer(invocation -> 
+		{
+			refreshed.add(((TrustBundle)invocation.getArgument(0)).getBundleName());
+			return Mono.empty();
+		});
+		when(repo.findAll()).thenReturn(Flux.just(bundle1, bundle2, bundle3, notDue));
+		
+		cacheUpdate.updateBundleCache().block();
+		
+		assertEquals(Arrays.asList("b2", "b3", "b1"), refreshed);
+	}
+	
+	@Test
+	public void testUpdateBundleCache_maxConcurrentRefreshes_assertLimitNotExceeded()
+	{
+		final BundleRefreshProcessor processor = mock(BundleRefreshProcessor.class);
+		final TrustBundleRepository repo = mock(TrustBundleRepository.class);
+		
+		final DefaultBundleCacheUpdateProcessorImpl cacheUpdate = new DefaultBundleCacheUpdateProcessorImpl();
+		cacheUpdate.setRepository(repo);
+		cacheUpdate.setRefreshProcessor(processor);
+		cacheUpdate.setMaxConcurrentRefreshes(2);
+		
+		final List<TrustBundle> bundles = new ArrayList<>();
+		for (int i = 0; i < 8; ++i)
+			bundles.add(createBundle("b" + i, "http://host" + i + "/bundle", null));
+		
+		final AtomicInteger inFlight = new AtomicInteger();
+		final AtomicInteger maxInFlight = new AtomicInteger();
+		when(processor.refreshBundle(any())).thenAnswer(invocation -> 
+			Mono.delay(Duration.ofMillis(20))
+				.doOnSubscribe(sub -> maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max))
+				.doOnTerminate(() -> inFlight.decrementAndGet()));
+		when(repo.findAll()).thenReturn(Flux.fromIterable(bundles));
+		
+		cacheUpdate.updateBundleCache().block();
+		
+		assertTrue(maxInFlight.get() <= 2);
+		assertEquals(0, inFlight.get());
+	}
+}
@@ -0,0 +1,75 @@
+package org.nhindirect.config.processor.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.nhindirect.config.processor.impl.DefaultBundleRefreshProcessorImpl.BundleDownload;
+import org.nhindirect.config.processor.impl.DefaultBundleRefreshProcessorImpl.BundleValidators;
+import org.nhindirect.config.store.TrustBundle;
+
+public class DefaultBundleRefreshProcessorImpl_getValidatorsTest
+{
+	protected DefaultBundleRefreshProcessorImpl processor;
+
+	protected TrustBundle bundle;
+
+	@BeforeEach
+	public void setUp()
+	{
+		processor = new DefaultBundleRefreshProcessorImpl();
+
+		bundle = new TrustBundle();
+		bundle.setId(1234L);
+		bundle.setBundleURL("http://localhost/bundle.p7b");
+		bundle.setCheckSum("12345");
+	}
+
+	@Test
+	public void testGetValidators_rememberedValidators_assertReturned()
+	{
+		processor.rememberValidators(bundle, new BundleDownload(null, "12345", "\"abc\"", "Wed, 21 Oct 2015 07:28:00 GMT"), "12345");
+
+		final BundleValidators validators = processor.getValidators(bundle);
+		assertNotNull(validators);
+		assertEquals("\"abc\"", validators.getETag());
+		assertEquals("Wed, 21 Oct 2015 07:28:00 GMT", validators.getLastModified());
+	}
+
+	@Test
+	public void testGetValidators_noRememberedValidators_assertNull()
+	{
+		assertNull(processor.getValidators(bundle));
+	}
+
+	@Test
+	public void testGetValidators_checkSumChanged_assertNull()
+	{
+		processor.rememberValidators(bundle, new BundleDownload(null, "12345", "\"abc\"", null), "12345");
+
+		bundle.setCheckSum("67890");
+
+		assertNull(processor.getValidators(bundle));
+	}
+
+	@Test
+	public void testGetValidators_urlChanged_assertNull()
+	{
+		processor.rememberValidators(bundle, new BundleDownload(null, "12345", "\"abc\"", null), "12345");
+
+		bundle.setBundleURL("http://localhost/otherbundle.p7b");
+
+		assertNull(processor.getValidators(bundle));
+	}
+
+	@Test
+	public void testGetValidators_noValidatorsInDownload_assertPreviousRemoved()
+	{
+		processor.rememberValidators(bundle, new BundleDownload(null, "12345", "\"abc\"", null), "12345");
+		processor.rememberValidators(bundle, new BundleDownload(null, "12345", null, null), "12345");
+
+		assertNull(processor.getValidators(bundle));
+	}
+}
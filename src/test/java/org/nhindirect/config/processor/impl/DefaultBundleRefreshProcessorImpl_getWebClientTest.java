@@ -0,0 +1,44 @@
+package org.nhindirect.config.processor.impl;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+public class DefaultBundleRefreshProcessorImpl_getWebClientTest
+{
+	@Test
+	public void testGetWebClient_multipleCalls_assertSameClient() throws Exception
+	{
+		final DefaultBundleRefreshProcessorImpl processor = new DefaultBundleRefreshProcessorImpl();
+
+		final WebClient client = processor.getWebClient();
+
+		assertNotNull(client);
+		assertSame(client, processor.getWebClient());
+		assertNotNull(processor.connectionProvider);
+
+		processor.shutdown();
+	}
+
+	@Test
+	public void testGetWebClient_afterShutdown_assertNewClient() throws Exception
+	{
+		final DefaultBundleRefreshProcessorImpl processor = new DefaultBundleRefreshProcessorImpl();
+
+		final WebClient client = processor.getWebClient();
+
+		processor.shutdown();
+
+		assertNull(processor.connectionProvider);
+		assertTrue(processor.getConnectionPoolMetrics().isEmpty());
+
+		assertNotSame(client, processor.getWebClient());
+
+		processor.shutdown();
+	}
+}
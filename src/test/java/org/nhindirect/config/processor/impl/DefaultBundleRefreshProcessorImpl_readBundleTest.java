@@ -0,0 +1,56 @@
+package org.nhindirect.config.processor.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.nhindirect.config.TestUtils;
+import org.nhindirect.config.processor.impl.DefaultBundleRefreshProcessorImpl.BundleDownload;
+import org.nhindirect.config.store.BundleThumbprint;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import reactor.core.publisher.Flux;
+
+public class DefaultBundleRefreshProcessorImpl_readBundleTest
+{
+	protected Flux<DataBuffer> toBuffers(byte[] data, int chunkSize)
+	{
+		return Flux.range(0, (data.length + chunkSize - 1) / chunkSize)
+			.map(chunk -> 
+			{
+				final int offset = chunk * chunkSize;
+				return DefaultDataBufferFactory.sharedInstance.wrap(Arrays.copyOfRange(data, offset, Math.min(offset + chunkSize, data.length)));
+			});
+	}
+	
+	@Test
+	public void testReadBundle_multipleBuffers_assertCheckSumMatchesBundleThumbprint() throws Exception
+	{
+		final byte[] rawBundle = TestUtils.loadBundle("signedbundle.p7b");
+		
+		final DefaultBundleRefreshProcessorImpl processor = new DefaultBundleRefreshProcessorImpl();
+		
+		final BundleDownload download = processor.readBundle(toBuffers(rawBundle, 100), "\"abc\"", null).block();
+		
+		assertEquals(BundleThumbprint.toThumbprint(rawBundle).toString(), download.getCheckSum());
+		assertEquals(rawBundle.length, download.getData().readableByteCount());
+		assertEquals("\"abc\"", download.getETag());
+		
+		download.release().block();
+	}
+	
+	@Test
+	public void testReadBundle_exceedsMaxSize_assertException() throws Exception
+	{
+		final byte[] rawBundle = TestUtils.loadBundle("signedbundle.p7b");
+		
+		final DefaultBundleRefreshProcessorImpl processor = new DefaultBundleRefreshProcessorImpl();
+		processor.maxBundleSize = rawBundle.length - 1;
+		
+		assertThrows(DataBufferLimitException.class, () -> processor.readBundle(toBuffers(rawBundle, 100), null, null).block());
+	}
+}
@@ -1,5 +1,7 @@
 package org.nhindirect.config.processor.impl;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -14,12 +16,16 @@ import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.nhindirect.config.events.ConfigChangeLog;
+import org.nhindirect.config.events.ConfigEntityType;
 import org.nhindirect.config.repository.TrustBundleAnchorRepository;
 import org.nhindirect.config.repository.TrustBundleRepository;
+import org.nhindirect.config.store.BundleRefreshError;
 import org.nhindirect.config.store.BundleThumbprint;
 import org.nhindirect.config.store.ConfigurationStoreException;
 import org.nhindirect.config.store.TrustBundle;
 import org.nhindirect.config.store.TrustBundleAnchor;
+import org.springframework.transaction.reactive.TransactionalOperator;
 
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -39,6 +45,8 @@ public class DefaultBundleRefreshProcessorImpl_refreshBundleTest
 		
 		when(repo.save(any())).thenReturn(Mono.empty());
 		when(anchorRepo.deleteByTrustBundleId(any())).thenReturn(Mono.empty());
+		when(anchorRepo.findByTrustBundleId(any())).thenReturn(Flux.empty());
+		when(anchorRepo.deleteAllById(any())).thenReturn(Mono.empty());
 		when(anchorRepo.saveAll((Collection<TrustBundleAnchor>)any())).thenReturn(Flux.empty());
 	}
 	
@@ -148,4 +156,130 @@ public class DefaultBundleRefreshProcessorImpl_refreshBundleTest
 		});
 	}
 	
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testRefreshBundle_transactionalOperator_assertAnchorUpdateRunInTransaction() throws Exception
+	{
+		final TransactionalOperator txOperator = mock(TransactionalOperator.class);
+		when(txOperator.transactional(any(Mono.class))).thenAnswer(invocation -> invocation.getArgument(0));
+		
+		DefaultBundleRefreshProcessorImpl processor = new DefaultBundleRefreshProcessorImpl();
+		processor.setRepositories(repo, anchorRepo);
+		processor.setTransactionalOperator(txOperator);
+		
+		final TrustBundle bundle = new TrustBundle();
+		bundle.setBundleName("Junit Bundle");
+		String bundleURL = getClass().getClassLoader().getResource("bundles/signedbundle.p7b").toString();
+		bundle.setBundleURL(bundleURL);
+	
+		processor.refreshBundle(bundle).block();
+	
+		verify(txOperator, times(1)).transactional(any(Mono.class));
+		verify(repo, times(1)).save((TrustBundle)any());
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testRefreshBundle_errorOnAnchorUpdate_assertPreviousCheckSumKept() throws Exception
+	{
+		when(anchorRepo.saveAll((Collection<TrustBundleAnchor>)any())).thenReturn(Flux.error(new ConfigurationStoreException("Just Passing Through")));
+		
+		DefaultBundleRefreshProcessorImpl processor = new DefaultBundleRefreshProcessorImpl();
+		processor.setRepositories(repo, anchorRepo);
+		
+		final TrustBundle bundle = new TrustBundle();
+		bundle.setBundleName("Junit Bundle");
+		bundle.setCheckSum("12345");
+		String bundleURL = getClass().getClassLoader().getResource("bundles/signedbundle.p7b").toString();
+		bundle.setBundleURL(bundleURL);
+	
+		processor.refreshBundle(bundle).block();
+	
+		verify(repo, times(1)).save((TrustBundle)any());
+		assertEquals("12345", bundle.getCheckSum());
+		assertNull(bundle.getLastSuccessfulRefresh());
+		assertEquals(BundleRefreshError.INVALID_BUNDLE_FORMAT.ordinal(), bundle.getLastRefreshError());
+	}
+	
+	@Test
+	public void testRefreshBundle_noCheckSum_assertCheckSumPersisted() throws Exception
+	{
+		DefaultBundleRefreshProcessorImpl processor = new DefaultBundleRefreshProcessorImpl();
+		processor.setRepositories(repo, anchorRepo);
+		
+		final TrustBundle bundle = new TrustBundle();
+		bundle.setBundleName("Junit Bundle");
+		String bundleURL = getClass().getClassLoader().getResource("bundles/signedbundle.p7b").toString();
+		bundle.setBundleURL(bundleURL);
+	
+		processor.refreshBundle(bundle).block();
+	
+		final byte[] rawBundle = IOUtils.resourceToByteArray("bundles/signedbundle.p7b", getClass().getClassLoader());
+		assertEquals(BundleThumbprint.toThumbprint(rawBundle).toString(), bundle.getCheckSum());
+		verify(repo, times(1)).save((TrustBundle)any());
+	}
+	
+	@Test
+	public void testRefreshBundle_anchorsAdded_assertChangeRecorded() throws Exception
+	{
+		final ConfigChangeLog changeLog = new ConfigChangeLog(10);
+		final long since = changeLog.getVersion();
+		
+		DefaultBundleRefreshProcessorImpl processor = new DefaultBundleRefreshProcessorImpl();
+		processor.setRepositories(repo, anchorRepo);
+		processor.setChangeLog(changeLog);
+		
+		final TrustBundle bundle = new TrustBundle();
+		bundle.setBundleName("Junit Bundle");
+		String bundleURL = getClass().getClassLoader().getResource("bundles/signedbundle.p7b").toString();
+		bundle.setBundleURL(bundleURL);
+	
+		processor.refreshBundle(bundle).block();
+	
+		assertEquals(1, changeLog.getChangesSince(since).getChanges().size());
+		assertEquals(ConfigEntityType.TRUST_BUNDLE, changeLog.getChangesSince(since).getChanges().iterator().next().getEntityType());
+	}
+	
+	@Test
+	public void testRefreshBundle_checkSumsMatch_assertNoChangeRecorded() throws Exception
+	{
+		final ConfigChangeLog changeLog = new ConfigChangeLog(10);
+		final long since = changeLog.getVersion();
+		
+		DefaultBundleRefreshProcessorImpl processor = new DefaultBundleRefreshProcessorImpl();
+		processor.setRepositories(repo, anchorRepo);
+		processor.setChangeLog(changeLog);
+		
+		final TrustBundle bundle = new TrustBundle();
+		
+		String bundleResourceName = "bundles/signedbundle.p7b";
+		byte[] rawBundleByte = IOUtils.resourceToByteArray(bundleResourceName, getClass().getClassLoader());
+		
+		bundle.setBundleName("Junit Bundle");
+		bundle.setBundleURL(getClass().getClassLoader().getResource(bundleResourceName).toString());
+		bundle.setCheckSum(BundleThumbprint.toThumbprint(rawBundleByte).toString());
+		
+		processor.refreshBundle(bundle).block();
+		
+		assertEquals(0, changeLog.getChangesSince(since).getChanges().size());
+	}
+	
+	@Test
+	public void testRefreshBundle_invalidBundle_assertNoChangeRecorded() throws Exception
+	{
+		final ConfigChangeLog changeLog = new ConfigChangeLog(10);
+		final long since = changeLog.getVersion();
+		
+		DefaultBundleRefreshProcessorImpl processor = new DefaultBundleRefreshProcessorImpl();
+		processor.setRepositories(repo, anchorRepo);
+		processor.setChangeLog(changeLog);
+		
+		final TrustBundle bundle = new TrustBundle();
+		bundle.setBundleName("Junit Bundle");
+		bundle.setBundleURL(getClass().getClassLoader().getResource("bundles/invalidBundle.der").toString());
+	
+		processor.refreshBundle(bundle).block();
+	
+		assertEquals(0, changeLog.getChangesSince(since).getChanges().size());
+	}
 }
@@ -0,0 +1,102 @@
+package org.nhindirect.config.processor.impl;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.nhindirect.config.repository.TrustBundleAnchorRepository;
+import org.nhindirect.config.repository.TrustBundleRepository;
+import org.nhindirect.config.store.TrustBundle;
+import org.nhindirect.config.store.TrustBundleAnchor;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class DefaultBundleRefreshProcessorImpl_updateBundleAnchorsTest
+{
+	protected TrustBundleRepository repo;
+	
+	protected TrustBundleAnchorRepository anchorRepo;
+	
+	protected DefaultBundleRefreshProcessorImpl processor;
+	
+	protected TrustBundle bundle;
+	
+	@SuppressWarnings("unchecked")
+	@BeforeEach
+	public void setUp()
+	{
+		repo = mock(TrustBundleRepository.class);
+		anchorRepo = mock(TrustBundleAnchorRepository.class);
+		
+		when(anchorRepo.saveAll((Collection<TrustBundleAnchor>)any())).thenReturn(Flux.empty());
+		when(anchorRepo.deleteAllById(any())).thenReturn(Mono.empty());
+		
+		processor = new DefaultBundleRefreshProcessorImpl();
+		processor.setRepositories(repo, anchorRepo);
+		
+		bundle = new TrustBundle();
+		bundle.setId(1234L);
+		bundle.setBundleName("TestBundle");
+	}
+	
+	protected TrustBundleAnchor createAnchor(Long id, String thumbprint)
+	{
+		final TrustBundleAnchor anchor = new TrustBundleAnchor();
+		anchor.setId(id);
+		anchor.setThumbprint(thumbprint);
+		anchor.setTrustBundleId(1234L);
+		
+		return anchor;
+	}
+	
+	@Test
+	public void testUpdateBundleAnchors_anchorAddedAndRemoved_assertOnlyChangesWritten()
+	{
+		final TrustBundleAnchor kept = createAnchor(1L, "aaa");
+		final TrustBundleAnchor removed = createAnchor(2L, "bbb");
+		when(anchorRepo.findByTrustBundleId(1234L)).thenReturn(Flux.just(kept, removed));
+		
+		final TrustBundleAnchor keptDownload = createAnchor(null, "aaa");
+		final TrustBundleAnchor added = createAnchor(null, "ccc");
+		
+		assertTrue(processor.updateBundleAnchors(bundle, Arrays.asList(keptDownload, added)).block());
+		
+		verify(anchorRepo).saveAll(Collections.singletonList(added));
+		verify(anchorRepo).deleteAllById(Collections.singletonList(2L));
+		verify(anchorRepo, never()).deleteByTrustBundleId(any());
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testUpdateBundleAnchors_noChanges_assertNothingWritten()
+	{
+		when(anchorRepo.findByTrustBundleId(1234L)).thenReturn(Flux.just(createAnchor(1L, "aaa")));
+		
+		assertFalse(processor.updateBundleAnchors(bundle, Arrays.asList(createAnchor(null, "aaa"))).block());
+		
+		verify(anchorRepo, never()).saveAll((Collection<TrustBundleAnchor>)any());
+		verify(anchorRepo, never()).deleteAllById(anyIterable());
+	}
+	
+	@Test
+	public void testUpdateBundleAnchors_duplicateStoredAnchor_assertDuplicateRemoved()
+	{
+		when(anchorRepo.findByTrustBundleId(1234L)).thenReturn(Flux.just(createAnchor(1L, "aaa"), createAnchor(2L, "aaa")));
+		
+		processor.updateBundleAnchors(bundle, Arrays.asList(createAnchor(null, "aaa"))).block();
+		
+		verify(anchorRepo).deleteAllById(Collections.singletonList(2L));
+	}
+}
@@ -0,0 +1,121 @@
+package org.nhindirect.config.processor.impl;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.nhindirect.config.processor.BundleRefreshProcessor;
+import org.nhindirect.config.repository.TrustBundleRepository;
+import org.nhindirect.config.store.TrustBundle;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+public class DefaultBundleRefreshSchedulerImpl_refreshDueBundlesTest
+{
+	protected BundleRefreshProcessor processor;
+	
+	protected TrustBundleRepository repo;
+	
+	protected DefaultBundleRefreshSchedulerImpl scheduler;
+	
+	protected Map<Long, Sinks.Empty<Void>> refreshes;
+	
+	@BeforeEach
+	public void setUp()
+	{
+		processor = mock(BundleRefreshProcessor.class);
+		repo = mock(TrustBundleRepository.class);
+		refreshes = new ConcurrentHashMap<>();
+		
+		// each refresh stays in progress until the test completes it
+		doAnswer(invocation -> 
+		{
+			final Sinks.Empty<Void> refresh = Sinks.empty();
+			refreshes.put(((TrustBundle)invocation.getArgument(0)).getId(), refresh);
+			return refresh.asMono();
+		}).when(processor).refreshBundle(any());
+		
+		scheduler = new DefaultBundleRefreshSchedulerImpl();
+		scheduler.setRefreshProcessor(processor);
+		scheduler.setRepository(repo);
+		scheduler.setMaxConcurrentRefreshes(4);
+		scheduler.setMaxConcurrentRefreshesPerHost(1);
+	}
+	
+	@AfterEach
+	public void tearDown()
+	{
+		scheduler.shutdown();
+	}
+	
+	protected TrustBundle createBundle(long id, String url, LocalDateTime lastRefresh)
+	{
+		final TrustBundle bundle = new TrustBundle();
+		bundle.setId(id);
+		bundle.setBundleName("Bundle" + id);
+		bundle.setBundleURL(url);
+		bundle.setRefreshInterval(3600);
+		bundle.setLastSuccessfulRefresh(lastRefresh);
+		
+		when(repo.findById(id)).thenReturn(Mono.just(bundle));
+		
+		return bundle;
+	}
+	
+	@Test
+	public void testRefreshDueBundles_sameHost_assertHostLimitEnforced()
+	{
+		final TrustBundle hostA1 = createBundle(1L, "https://a.test.com/bundle1.p7b", LocalDateTime.now().minusHours(5));
+		final TrustBundle hostA2 = createBundle(2L, "https://A.test.com/bundle2.p7b", LocalDateTime.now().minusHours(2));
+		final TrustBundle hostB = createBundle(3L, "https://b.test.com/bundle.p7b", LocalDateTime.now().minusHours(2));
+		
+		scheduler.refreshDueBundles(Arrays.asList(1L, 2L, 3L)).subscribe();
+		
+		// one bundle per host is refreshed, starting with the most overdue bundle of the host
+		verify(processor, timeout(5000)).refreshBundle(hostA1);
+		verify(processor, timeout(5000)).refreshBundle(hostB);
+		verify(processor, never()).refreshBundle(hostA2);
+		
+		while (!refreshes.containsKey(1L))
+			Thread.yield();
+		refreshes.get(1L).tryEmitEmpty();
+		
+		verify(processor, timeout(5000)).refreshBundle(hostA2);
+	}
+	
+	@Test
+	public void testScheduleBundle_sameHostBundlesDue_assertHostLimitEnforced()
+	{
+		final TrustBundle hostA1 = createBundle(1L, "https://a.test.com/bundle1.p7b", null);
+		final TrustBundle hostA2 = createBundle(2L, "https://a.test.com/bundle2.p7b", null);
+		
+		scheduler.scheduleBundle(hostA1);
+		scheduler.scheduleBundle(hostA2);
+		
+		// wait for the first refresh to start
+		final long waitUntil = System.currentTimeMillis() + 5000;
+		while (refreshes.isEmpty() && System.currentTimeMillis() < waitUntil)
+			Thread.yield();
+		
+		final TrustBundle started = refreshes.containsKey(1L) ? hostA1 : hostA2;
+		final TrustBundle waiting = (started == hostA1) ? hostA2 : hostA1;
+		verify(processor, never()).refreshBundle(waiting);
+		
+		refreshes.get(started.getId()).tryEmitEmpty();
+		
+		verify(processor, timeout(5000)).refreshBundle(waiting);
+	}
+}
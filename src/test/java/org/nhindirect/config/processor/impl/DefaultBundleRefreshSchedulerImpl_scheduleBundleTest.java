@@ -0,0 +1,216 @@
+package org.nhindirect.config.processor.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.nhindirect.config.processor.BundleRefreshProcessor;
+import org.nhindirect.config.repository.TrustBundleRepository;
+import org.nhindirect.config.store.BundleRefreshError;
+import org.nhindirect.config.store.TrustBundle;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+public class DefaultBundleRefreshSchedulerImpl_scheduleBundleTest
+{
+	protected BundleRefreshProcessor processor;
+	
+	protected TrustBundleRepository repo;
+	
+	protected DefaultBundleRefreshSchedulerImpl scheduler;
+	
+	@BeforeEach
+	public void setUp()
+	{
+		processor = mock(BundleRefreshProcessor.class);
+		repo = mock(TrustBundleRepository.class);
+		when(processor.refreshBundle(any())).thenReturn(Mono.empty());
+		
+		scheduler = new DefaultBundleRefreshSchedulerImpl();
+		scheduler.setRefreshProcessor(processor);
+		scheduler.setRepository(repo);
+	}
+	
+	@AfterEach
+	public void tearDown()
+	{
+		scheduler.shutdown();
+	}
+	
+	protected TrustBundle createBundle(long id, int refreshInterval, LocalDateTime lastRefresh)
+	{
+		final TrustBundle bundle = new TrustBundle();
+		bundle.setId(id);
+		bundle.setBundleName("Bundle" + id);
+		bundle.setRefreshInterval(refreshInterval);
+		bundle.setLastSuccessfulRefresh(lastRefresh);
+		
+		when(repo.findById(id)).thenReturn(Mono.just(bundle));
+		
+		return bundle;
+	}
+	
+	@Test
+	public void testScheduleBundle_bundleDue_assertRefreshedAndRescheduled()
+	{
+		final TrustBundle bundle = createBundle(1234L, 3600, null);
+		
+		scheduler.scheduleBundle(bundle);
+		
+		verify(processor, timeout(5000)).refreshBundle(bundle);
+		
+		// wait for the next refresh to be scheduled
+		final long waitUntil = System.currentTimeMillis() + 5000;
+		while (!scheduler.scheduledRefreshes.containsKey(1234L) && System.currentTimeMillis() < waitUntil)
+			Thread.yield();
+		
+		assertTrue(scheduler.scheduledRefreshes.containsKey(1234L));
+	}
+	
+	@Test
+	public void testScheduleBundle_bundleNotDue_assertNotRefreshed() throws Exception
+	{
+		final TrustBundle bundle = createBundle(1234L, 3600, LocalDateTime.now());
+		
+		scheduler.scheduleBundle(bundle);
+		
+		Thread.sleep(200);
+		
+		verify(processor, never()).refreshBundle(any());
+		assertTrue(scheduler.scheduledRefreshes.containsKey(1234L));
+	}
+	
+	@Test
+	public void testScheduleBundle_zeroRefreshInterval_assertNotScheduled()
+	{
+		final TrustBundle bundle = createBundle(1234L, 0, null);
+		
+		scheduler.scheduleBundle(bundle);
+		
+		assertFalse(scheduler.scheduledRefreshes.containsKey(1234L));
+	}
+	
+	@Test
+	public void testUnscheduleBundle_assertRemoved()
+	{
+		final TrustBundle bundle = createBundle(1234L, 3600, LocalDateTime.now());
+		
+		scheduler.scheduleBundle(bundle);
+		scheduler.unscheduleBundle(1234L);
+		
+		assertFalse(scheduler.scheduledRefreshes.containsKey(1234L));
+	}
+	
+	@Test
+	public void testScheduleAll_bundleRemovedFromStore_assertUnscheduled()
+	{
+		final TrustBundle removedBundle = createBundle(1234L, 3600, LocalDateTime.now());
+		final TrustBundle bundle = createBundle(5678L, 3600, LocalDateTime.now());
+		
+		scheduler.scheduleBundle(removedBundle);
+		
+		when(repo.findAll()).thenReturn(Flux.just(bundle));
+		
+		scheduler.scheduleAll().block();
+		
+		assertFalse(scheduler.scheduledRefreshes.containsKey(1234L));
+		assertTrue(scheduler.scheduledRefreshes.containsKey(5678L));
+	}
+	
+	@Test
+	public void testScheduleAll_bundleRefreshing_assertNotRefreshedAgain() throws Exception
+	{
+		final Sinks.Empty<Void> inProgress = Sinks.empty();
+		doReturn(inProgress.asMono()).when(processor).refreshBundle(any());
+		
+		final TrustBundle bundle = createBundle(1234L, 3600, null);
+		
+		scheduler.scheduleBundle(bundle);
+		
+		verify(processor, timeout(5000)).refreshBundle(bundle);
+		assertTrue(scheduler.refreshingBundles.contains(1234L));
+		
+		when(repo.findAll()).thenReturn(Flux.just(bundle));
+		scheduler.scheduleAll().block();
+		
+		Thread.sleep(200);
+		
+		verify(processor, times(1)).refreshBundle(any());
+		assertFalse(scheduler.scheduledRefreshes.containsKey(1234L));
+		
+		inProgress.tryEmitEmpty();
+		
+		assertFalse(scheduler.refreshingBundles.contains(1234L));
+		assertTrue(scheduler.scheduledRefreshes.containsKey(1234L));
+	}
+	
+	@Test
+	public void testUnscheduleBundle_bundleRefreshing_assertNotRescheduled() throws Exception
+	{
+		final Sinks.Empty<Void> inProgress = Sinks.empty();
+		doReturn(inProgress.asMono()).when(processor).refreshBundle(any());
+		
+		final TrustBundle bundle = createBundle(1234L, 3600, null);
+		
+		scheduler.scheduleBundle(bundle);
+		
+		verify(processor, timeout(5000)).refreshBundle(bundle);
+		
+		// the bundle is deleted while its refresh is running
+		scheduler.unscheduleBundle(1234L);
+		
+		inProgress.tryEmitEmpty();
+		
+		assertFalse(scheduler.refreshingBundles.contains(1234L));
+		assertFalse(scheduler.unscheduledBundles.contains(1234L));
+		assertFalse(scheduler.scheduledRefreshes.containsKey(1234L));
+	}
+	
+	@Test
+	public void testRefreshDueBundles_assertRefreshedInOrderOfOverdue()
+	{
+		scheduler.setMaxConcurrentRefreshes(1);
+		
+		final TrustBundle lessOverdue = createBundle(1L, 3600, LocalDateTime.now().minusHours(2));
+		final TrustBundle mostOverdue = createBundle(2L, 3600, LocalDateTime.now().minusHours(5));
+		final TrustBundle neverRefreshed = createBundle(3L, 3600, null);
+		
+		scheduler.refreshDueBundles(Arrays.asList(1L, 2L, 3L)).block();
+		
+		final InOrder inOrder = inOrder(processor);
+		inOrder.verify(processor).refreshBundle(neverRefreshed);
+		inOrder.verify(processor).refreshBundle(mostOverdue);
+		inOrder.verify(processor).refreshBundle(lessOverdue);
+	}
+	
+	@Test
+	public void testGetRefreshStatus_assertStatusFromBundle()
+	{
+		final TrustBundle bundle = createBundle(1234L, 3600, null);
+		
+		bundle.setLastRefreshError(BundleRefreshError.DOWNLOAD_TIMEOUT.ordinal());
+		assertEquals(BundleRefreshError.DOWNLOAD_TIMEOUT, DefaultBundleRefreshSchedulerImpl.getRefreshStatus(bundle));
+		
+		bundle.setLastRefreshError(-1);
+		assertNull(DefaultBundleRefreshSchedulerImpl.getRefreshStatus(bundle));
+	}
+}
@@ -0,0 +1,262 @@
+package org.nhindirect.config.resources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.nhindirect.config.BaseTestPlan;
+import org.nhindirect.config.SpringBaseTest;
+import org.nhindirect.config.events.ConfigChangeLog;
+import org.nhindirect.config.events.ConfigChangeType;
+import org.nhindirect.config.events.ConfigChanges;
+import org.nhindirect.config.events.ConfigEntityType;
+import org.nhindirect.config.model.Address;
+import org.nhindirect.config.resources.util.BulkImportResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.http.MediaType;
+
+public class AddressResource_addAddressesTest extends SpringBaseTest
+{
+	@Autowired
+	protected AddressResource addressService;
+	
+	@Autowired
+	protected R2dbcEntityTemplate template;
+	
+	@Autowired
+	protected ConfigChangeLog changeLog;
+	
+	abstract class TestPlan extends BaseTestPlan 
+	{
+		@Override
+		protected void tearDownMocks()
+		{
+			addressService.setImportChunkSize(AddressResource.DEFAULT_IMPORT_CHUNK_SIZE);
+			addressService.setEntityTemplate(template);
+		}
+		
+		protected Collection<String> getDomainsToAdd()
+		{
+			return Arrays.asList("test.com", "test2.com");
+		}
+		
+		protected Collection<Address> getExistingAddresses()
+		{
+			return new ArrayList<>();
+		}
+		
+		protected abstract Collection<Address> getAddressesToAdd();
+		
+		protected MediaType getContentType()
+		{
+			return MediaType.APPLICATION_JSON;
+		}
+		
+		@Override
+		protected void performInner() throws Exception
+		{				
+			for (String domainName : getDomainsToAdd())
+			{
+				final org.nhindirect.config.store.Domain domain = new org.nhindirect.config.store.Domain();
+				domain.setDomainName(domainName);
+				domain.setStatus(org.nhindirect.config.store.EntityStatus.ENABLED.ordinal());
+				domainRepo.save(domain).block();
+			}
+			
+			for (Address address : getExistingAddresses())
+			{
+				final org.nhindirect.config.store.Domain domain = domainRepo.findByDomainNameIgnoreCase(address.getDomainName()).block();
+				final org.nhindirect.config.store.Address entity = new org.nhindirect.config.store.Address(domain.getId(), address.getEmailAddress());
+				addressRepo.save(entity).block();
+			}
+			
+			final long since = changeLog.getVersion();
+			
+			final Object body = (MediaType.APPLICATION_NDJSON.equals(getContentType())) ?
+					getAddressesToAdd().stream().map(this::toJson).collect(Collectors.joining("\n")) : getAddressesToAdd();
+			
+			final List<BulkImportResult> results = webClient.put()
+				.uri("/address/bulk")
+				.contentType(getContentType())
+				.accept(MediaType.APPLICATION_NDJSON)
+				.bodyValue(body)
+				.retrieve()
+				.bodyToFlux(BulkImportResult.class)
+				.collectList()
+				.block();
+			
+			doAssertions(results, changeLog.getChangesSince(since));
+		}
+		
+		protected String toJson(Address address)
+		{
+			return "{\"emailAddress\":\"" + address.getEmailAddress() + "\",\"domainName\":\"" + address.getDomainName() + "\"}";
+		}
+		
+		protected void doAssertions(List<BulkImportResult> results, ConfigChanges changes) throws Exception
+		{
+			
+		}
+	}
+	
+	protected static Address newAddress(String emailAddress, String domainName)
+	{
+		final Address address = new Address();
+		address.setEmailAddress(emailAddress);
+		address.setDomainName(domainName);
+		address.setDisplayName(emailAddress);
+		address.setEndpoint("none");
+		address.setType("email");
+		
+		return address;
+	}
+	
+	@Test
+	public void testAddAddresses_newAddressesInMultipleChunks_assertAddressesCreated() throws Exception
+	{
+		new TestPlan()
+		{
+			@Override
+			protected void setupMocks()
+			{
+				addressService.setImportChunkSize(2);
+			}
+			
+			@Override
+			protected Collection<Address> getAddressesToAdd()
+			{
+				return Arrays.asList(newAddress("me@test.com", "test.com"), newAddress("you@test.com", "TEST.com"), 
+						newAddress("them@test2.com", "test2.com"), newAddress("us@test.com", "test.com"), newAddress("we@test2.com", "test2.com"));
+			}
+			
+			@Override
+			protected void doAssertions(List<BulkImportResult> results, ConfigChanges changes) throws Exception
+			{
+				assertEquals(5, results.size());
+				assertEquals(Arrays.asList("me@test.com", "you@test.com", "them@test2.com", "us@test.com", "we@test2.com"), 
+						results.stream().map(BulkImportResult::getKey).collect(Collectors.toList()));
+				results.forEach(result -> assertEquals(201, result.getStatus()));
+				
+				final Address address = addressService.getAddress("you@test.com").block();
+				assertNotNull(address);
+				assertEquals("test.com", address.getDomainName());
+				assertEquals("you@test.com", address.getDisplayName());
+				assertEquals("none", address.getEndpoint());
+				assertEquals("email", address.getType());
+				
+				assertEquals(3, addressService.getAddressesByDomain("test.com").collectList().block().size());
+				assertEquals(2, addressService.getAddressesByDomain("test2.com").collectList().block().size());
+				
+				assertEquals(5, changes.getChanges().size());
+				changes.getChanges().forEach(change -> 
+				{
+					assertEquals(ConfigEntityType.ADDRESS, change.getEntityType());
+					assertEquals(ConfigChangeType.ADDED, change.getChangeType());
+				});
+			}
+		}.perform();
+	}
+	
+	@Test
+	public void testAddAddresses_ndjsonRequest_assertAddressesCreated() throws Exception
+	{
+		new TestPlan()
+		{
+			@Override
+			protected MediaType getContentType()
+			{
+				return MediaType.APPLICATION_NDJSON;
+			}
+			
+			@Override
+			protected Collection<Address> getAddressesToAdd()
+			{
+				return Arrays.asList(newAddress("me@test.com", "test.com"), newAddress("them@test2.com", "test2.com"));
+			}
+			
+			@Override
+			protected void doAssertions(List<BulkImportResult> results, ConfigChanges changes) throws Exception
+			{
+				assertEquals(2, results.size());
+				results.forEach(result -> assertEquals(201, result.getStatus()));
+				
+				assertNotNull(addressService.getAddress("them@test2.com").block());
+			}
+		}.perform();
+	}
+	
+	@Test
+	public void testAddAddresses_invalidAndDuplicateAddresses_assertPerItemStatus() throws Exception
+	{
+		new TestPlan()
+		{
+			@Override
+			protected Collection<Address> getExistingAddresses()
+			{
+				return Arrays.asList(newAddress("existing@test.com", "test.com"));
+			}
+			
+			@Override
+			protected Collection<Address> getAddressesToAdd()
+			{
+				return Arrays.asList(newAddress("EXISTING@test.com", "test.com"), newAddress("me@test.com", "test.com"), 
+						newAddress("ME@test.com", "test.com"), newAddress("me@bogus.com", "bogus.com"), newAddress("me@test2.com", ""));
+			}
+			
+			@Override
+			protected void doAssertions(List<BulkImportResult> results, ConfigChanges changes) throws Exception
+			{
+				assertEquals(Arrays.asList(409, 201, 409, 404, 400), 
+						results.stream().map(BulkImportResult::getStatus).collect(Collectors.toList()));
+				
+				assertEquals(2, addressService.getAddressesByDomain("test.com").collectList().block().size());
+				
+				assertEquals(1, changes.getChanges().size());
+				assertEquals("me@test.com", changes.getChanges().iterator().next().getKey());
+			}
+		}.perform();
+	}
+	
+	@Test
+	public void testAddAddresses_errorInLookup_assertServerErrorStatus() throws Exception
+	{
+		new TestPlan()
+		{
+			@Override
+			protected void setupMocks()
+			{
+				super.setupMocks();
+				
+				final R2dbcEntityTemplate mockTemplate = mock(R2dbcEntityTemplate.class);
+				doThrow(new RuntimeException()).when(mockTemplate).select(any());
+				
+				addressService.setEntityTemplate(mockTemplate);
+			}
+			
+			@Override
+			protected Collection<Address> getAddressesToAdd()
+			{
+				return Arrays.asList(newAddress("me@test.com", "test.com"), newAddress("you@test.com", "test.com"));
+			}
+			
+			@Override
+			protected void doAssertions(List<BulkImportResult> results, ConfigChanges changes) throws Exception
+			{
+				assertEquals(2, results.size());
+				results.forEach(result -> assertEquals(500, result.getStatus()));
+				
+				assertEquals(0, changes.getChanges().size());
+			}
+		}.perform();
+	}
+}
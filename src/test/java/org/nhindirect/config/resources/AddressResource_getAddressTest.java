@@ -4,6 +4,7 @@ package org.nhindirect.config.resources;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
 
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
@@ -130,6 +131,68 @@ public class AddressResource_getAddressTest  extends SpringBaseTest
 		}.perform();
 	}	
 	
+	@Test
+	public void testGetAddress_lookupBeforeAdd_assertAddedAddressRetrieved() throws Exception
+	{
+		new TestPlan()
+		{
+			protected Address address;
+			
+			@Override
+			protected void performInner() throws Exception
+			{
+				// the not found result is cached and must be invalidated when the address is added
+				try
+				{
+					webClient.get()
+					.uri(uriBuilder ->  uriBuilder.path("address/{addr}").build("ME@test.com"))
+					.retrieve().bodyToMono(Address.class).block();
+					
+					fail("Expected address to not be found");
+				}
+				catch (WebClientResponseException e)
+				{
+					assertEquals(404, e.getRawStatusCode());
+				}
+				
+				super.performInner();
+			}
+			
+			@Override
+			protected  Address getAddressToAdd()
+			{
+				address = new Address();
+				
+				address.setEmailAddress("me@test.com");
+				address.setType("email");
+				address.setEndpoint("none");
+				address.setDisplayName("me");
+				
+				return address;
+			}
+			
+			@Override
+			protected String getDomainToAdd()
+			{
+				return "test.com";
+			}
+			
+			@Override
+			protected String getAddressNameToGet()
+			{
+				return "me@test.com";
+			}
+			
+			@Override
+			protected void doAssertions(Address address) throws Exception
+			{
+				assertNotNull(address);
+				assertEquals(this.address.getEmailAddress(), address.getEmailAddress());
+				assertEquals(this.address.getDomainName(), address.getDomainName());
+			}
+		}.perform();
+	}	
+	
 	@Test
 	public void testGetAddress_nonExistentAddress_assertNotFound() throws Exception
 	{
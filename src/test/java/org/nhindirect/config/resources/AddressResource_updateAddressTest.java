@@ -9,11 +9,14 @@ import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.util.Collection;
+
 import org.junit.jupiter.api.Test;
 
 import org.nhindirect.config.BaseTestPlan;
 import org.nhindirect.config.SpringBaseTest;
 import org.nhindirect.config.model.Address;
+import org.nhindirect.config.model.Domain;
 import org.nhindirect.config.repository.AddressRepository;
 import org.nhindirect.config.repository.DomainRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -156,6 +159,71 @@ public class AddressResource_updateAddressTest  extends SpringBaseTest
 		}.perform();
 	}	
 	
+	@Test
+	public void testUpdateAddress_moveToOtherDomain_assertDomainsNotStale() throws Exception
+	{
+		new TestPlan()
+		{
+			protected Address address;
+			
+			@Override
+			protected  Address getAddressToAdd()
+			{
+				address = new Address();
+				
+				address.setEmailAddress("me@test.com");
+				address.setType("email");
+				address.setEndpoint("none");
+				address.setDisplayName("me");
+				
+				return address;
+			}
+			
+			@Override
+			protected String getDomainToAdd()
+			{
+				return "test.com";
+			}
+			
+			protected Address getAddressToUpdate()
+			{
+				if (domainRepo.findByDomainNameIgnoreCase("test2.com").block() == null)
+				{
+					final org.nhindirect.config.store.Domain domain = new org.nhindirect.config.store.Domain();
+					domain.setDomainName("test2.com");
+					domain.setStatus(org.nhindirect.config.store.EntityStatus.ENABLED.ordinal());
+					domainRepo.save(domain).block();
+					
+					// load both domains into the lookup cache before the address is moved
+					assertEquals(1, testRestTemplate.getForObject("/domain/test.com", Domain.class).getAddresses().size());
+					assertTrue(testRestTemplate.getForObject("/domain/test2.com", Domain.class).getAddresses().isEmpty());
+				}
+				
+				address = new Address();
+				
+				address.setEmailAddress("me@test.com");
+				address.setType("email");
+				address.setEndpoint("none");
+				address.setDisplayName("me");
+				address.setDomainName("test2.com");
+				
+				return address;
+			}
+			
+			@Override
+			protected void doAssertions(Address address) throws Exception
+			{
+				assertEquals("test2.com", address.getDomainName());
+				
+				assertTrue(testRestTemplate.getForObject("/domain/test.com", Domain.class).getAddresses().isEmpty());
+				
+				final Collection<Address> movedAddresses = testRestTemplate.getForObject("/domain/test2.com", Domain.class).getAddresses();
+				assertEquals(1, movedAddresses.size());
+				assertEquals("me@test.com", movedAddresses.iterator().next().getEmailAddress());
+			}
+		}.perform();
+	}	
+	
 	@Test
 	public void testUpdateAddress_nonExistentDomain_assertNotFound() throws Exception
 	{
@@ -24,6 +24,7 @@ import org.nhindirect.config.model.Anchor;
 import org.nhindirect.config.model.EntityStatus;
 import org.nhindirect.config.repository.AnchorRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
@@ -34,6 +35,9 @@ public class AnchorResource_addAnchorTest extends SpringBaseTest
 	@Autowired
 	protected AnchorResource anchorService;
 	
+	@Autowired
+	protected R2dbcEntityTemplate template;
+	
 	abstract class TestPlan extends BaseTestPlan 
 	{		
 		@Override
@@ -334,10 +338,10 @@ public class AnchorResource_addAnchorTest extends SpringBaseTest
 				{
 					super.setupMocks();
 					
-					AnchorRepository mockDAO = mock(AnchorRepository.class);
-					doThrow(new RuntimeException()).when(mockDAO).findByOwnerIgnoreCase((String)any());
+					R2dbcEntityTemplate mockTemplate = mock(R2dbcEntityTemplate.class);
+					doThrow(new RuntimeException()).when(mockTemplate).exists(any(), any());
 					
-					anchorService.setAnchorRepository(mockDAO);
+					anchorService.setEntityTemplate(mockTemplate);
 				}
 				catch (Throwable t)
 				{
@@ -350,7 +354,7 @@ public class AnchorResource_addAnchorTest extends SpringBaseTest
 			{
 				super.tearDownMocks();
 				
-				anchorService.setAnchorRepository(anchorRepo);
+				anchorService.setEntityTemplate(template);
 			}			
 			
 			@Override
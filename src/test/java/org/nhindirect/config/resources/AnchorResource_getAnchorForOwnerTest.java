@@ -4,7 +4,6 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
-import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 
@@ -20,8 +19,8 @@ import org.nhindirect.config.SpringBaseTest;
 import org.nhindirect.config.TestUtils;
 import org.nhindirect.config.model.Anchor;
 import org.nhindirect.config.model.EntityStatus;
-import org.nhindirect.config.repository.AnchorRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
@@ -36,6 +35,9 @@ public class AnchorResource_getAnchorForOwnerTest extends SpringBaseTest
 	@Autowired
 	protected AnchorResource anchorService;
 	
+	@Autowired
+	protected R2dbcEntityTemplate template;
+	
 	abstract class TestPlan extends BaseTestPlan 
 	{
 		@Override
@@ -463,6 +465,79 @@ public class AnchorResource_getAnchorForOwnerTest extends SpringBaseTest
 		}.perform();
 	}	
 	
+	@Test
+	public void testGetAnchorForOwner_mixedCaseOwnerAndThumbprint_incomingOnly_assertAnchorRetrieved() throws Exception
+	{
+		new TestPlan()
+		{
+			@Override
+			protected Collection<Anchor> getAnchorsToAdd()
+			{
+				try
+				{
+					final Collection<Anchor> anchors = new ArrayList<Anchor>();
+					
+					Anchor anchor = new Anchor();
+					anchor.setOwner("test.com");
+					anchor.setIncoming(true);
+					anchor.setOutgoing(false);
+					anchor.setStatus(EntityStatus.ENABLED);
+					anchor.setCertificateData(TestUtils.loadSigner("bundleSigner.der").getEncoded());
+								
+					anchors.add(anchor);
+					
+				    anchor = new Anchor();
+					anchor.setOwner("test.com");
+					anchor.setIncoming(false);
+					anchor.setOutgoing(true);
+					anchor.setStatus(EntityStatus.ENABLED);
+					anchor.setCertificateData(TestUtils.loadSigner("sm1.direct.com Root CA.der").getEncoded());	
+					
+					anchors.add(anchor);
+					
+					return anchors;
+				}
+				catch (Exception e)
+				{
+					throw new RuntimeException (e);
+				}
+			}
+			
+			@Override
+			protected String getIncoming()
+			{
+				return "true";
+			}
+			
+			@Override
+			protected String getThumbprint()
+			{
+				try
+				{
+					return Thumbprint.toThumbprint(TestUtils.loadSigner("bundleSigner.der")).toString().toUpperCase();
+				}
+				catch (Exception e)
+				{
+					throw new RuntimeException(e);
+				}
+			}
+			
+			@Override
+			protected String getOwner()
+			{
+				return "TEST.com";
+			}
+			
+			@Override
+			protected void doAssertions(Collection<Anchor> anchors) throws Exception
+			{
+				assertNotNull(anchors);
+				assertEquals(1, anchors.size());
+				assertEquals(TestUtils.loadSigner("bundleSigner.der"), anchors.iterator().next().getAnchorAsX509Certificate());
+			}
+		}.perform();
+	}	
+	
 	@Test
 	public void testGetAnchorForOwner_getMultiple_specificOwner_assertAnchorRetrieved() throws Exception
 	{
@@ -661,10 +736,10 @@ public class AnchorResource_getAnchorForOwnerTest extends SpringBaseTest
 				{
 					super.setupMocks();
 
-					AnchorRepository mockDAO = mock(AnchorRepository.class);
-					doThrow(new RuntimeException()).when(mockDAO).findByOwnerIgnoreCase((String)any());
+					R2dbcEntityTemplate mockTemplate = mock(R2dbcEntityTemplate.class);
+					doThrow(new RuntimeException()).when(mockTemplate).select(org.nhindirect.config.store.Anchor.class);
 					
-					anchorService.setAnchorRepository(mockDAO);
+					anchorService.setEntityTemplate(mockTemplate);
 				}
 				catch (Throwable t)
 				{
@@ -677,7 +752,7 @@ public class AnchorResource_getAnchorForOwnerTest extends SpringBaseTest
 			{
 				super.tearDownMocks();
 				
-				anchorService.setAnchorRepository(anchorRepo);
+				anchorService.setEntityTemplate(template);
 			}
 			
 			@Override
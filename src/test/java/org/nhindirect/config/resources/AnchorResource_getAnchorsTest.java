@@ -2,7 +2,9 @@ package org.nhindirect.config.resources;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
@@ -23,6 +25,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
@@ -42,6 +45,11 @@ public class AnchorResource_getAnchorsTest extends SpringBaseTest
 
 		protected abstract Collection<Anchor> getAnchorsToAdd();
 		
+		protected MediaType getMediaType()
+		{
+			return MediaType.APPLICATION_JSON;
+		}
+		
 		@Override
 		protected void performInner() throws Exception
 		{				
@@ -59,9 +67,14 @@ public class AnchorResource_getAnchorsTest extends SpringBaseTest
 				});
 			}
 			
-			final Collection<Anchor> getAnchors = webClient.get()
-			.uri(uriBuilder ->  uriBuilder.path("/anchor/").build())
-			.retrieve().bodyToMono(new ParameterizedTypeReference<Collection<Anchor>>() {}).block();
+			final Collection<Anchor> getAnchors = (MediaType.APPLICATION_JSON.equals(getMediaType())) ?
+				webClient.get()
+				.uri(uriBuilder ->  uriBuilder.path("/anchor/").build())
+				.retrieve().bodyToMono(new ParameterizedTypeReference<Collection<Anchor>>() {}).block() :
+				webClient.get()
+				.uri(uriBuilder ->  uriBuilder.path("/anchor/").build())
+				.accept(getMediaType())
+				.retrieve().bodyToFlux(Anchor.class).collectList().block();
 
 			doAssertions(getAnchors);
 			
@@ -140,6 +153,65 @@ public class AnchorResource_getAnchorsTest extends SpringBaseTest
 		}.perform();
 	}	
 	
+	@Test
+	public void testGetAnchors_ndjson_assertAnchorsStreamed() throws Exception
+	{
+		new TestPlan()
+		{
+			@Override
+			protected MediaType getMediaType()
+			{
+				return MediaType.APPLICATION_NDJSON;
+			}
+			
+			@Override
+			protected Collection<Anchor> getAnchorsToAdd()
+			{
+				try
+				{
+					final Collection<Anchor> anchors = new ArrayList<Anchor>();
+					
+					Anchor anchor = new Anchor();
+					anchor.setOwner("test.com");
+					anchor.setIncoming(true);
+					anchor.setOutgoing(true);
+					anchor.setStatus(EntityStatus.ENABLED);
+					anchor.setCertificateData(TestUtils.loadSigner("bundleSigner.der").getEncoded());
+								
+					anchors.add(anchor);
+					
+				    anchor = new Anchor();
+					anchor.setOwner("test2.com");
+					anchor.setIncoming(true);
+					anchor.setOutgoing(true);
+					anchor.setStatus(EntityStatus.ENABLED);
+					anchor.setCertificateData(TestUtils.loadSigner("sm1.direct.com Root CA.der").getEncoded());	
+					
+					anchors.add(anchor);
+					
+					return anchors;
+				}
+				catch (Exception e)
+				{
+					throw new RuntimeException (e);
+				}
+			}
+			
+			@Override
+			protected void doAssertions(Collection<Anchor> anchors)
+			{
+				assertNotNull(anchors);
+				assertEquals(2, anchors.size());
+				
+				for (Anchor retrievedAnchor : anchors)
+				{
+					assertNotNull(retrievedAnchor.getAnchorAsX509Certificate());
+					assertFalse(retrievedAnchor.getThumbprint().isEmpty());
+				}
+			}
+		}.perform();
+	}
+	
 	@Test
 	public void testGetAnchors_noAnchorsInStore_assertNoAnchorsRetrieved() throws Exception
 	{
@@ -208,5 +280,68 @@ public class AnchorResource_getAnchorsTest extends SpringBaseTest
 				assertEquals(500, ex.getRawStatusCode());
 			}
 		}.perform();
-	}		
+	}
+
+	@Test
+	public void testGetAnchors_matchingETag_assertNotModifiedUntilAnchorChanged() throws Exception
+	{
+		new TestPlan()
+		{
+			@Override
+			protected Collection<Anchor> getAnchorsToAdd()
+			{
+				try
+				{
+					final Collection<Anchor> anchors = new ArrayList<Anchor>();
+				
+					final Anchor anchor = new Anchor();
+					anchor.setOwner("test.com");
+					anchor.setIncoming(true);
+					anchor.setOutgoing(true);
+					anchor.setStatus(EntityStatus.ENABLED);
+					anchor.setCertificateData(TestUtils.loadSigner("bundleSigner.der").getEncoded());
+							
+					anchors.add(anchor);
+				
+					return anchors;
+				}
+				catch (Exception e)
+				{
+					throw new RuntimeException (e);
+				}
+			}
+		
+			protected ResponseEntity<Collection<Anchor>> getAnchors(String etag)
+			{
+				return webClient.get()
+						.uri("/anchor/")
+						.headers(headers -> 
+						{
+							if (etag != null)
+								headers.setIfNoneMatch(etag);
+						})
+						.retrieve().toEntity(new ParameterizedTypeReference<Collection<Anchor>>() {}).block();
+			}
+		
+			@Override
+			protected void doAssertions(Collection<Anchor> anchors) throws Exception
+			{
+				final String etag = getAnchors(null).getHeaders().getETag();
+				assertNotNull(etag);
+			
+				final ResponseEntity<Collection<Anchor>> notModifiedResp = getAnchors(etag);
+				assertEquals(304, notModifiedResp.getStatusCodeValue());
+				assertNull(notModifiedResp.getBody());
+			
+				final org.nhindirect.config.store.Anchor anchor = anchorRepo.findAll().blockFirst();
+				anchor.setOutgoing(false);
+				anchorRepo.save(anchor).block();
+			
+				final ResponseEntity<Collection<Anchor>> modifiedResp = getAnchors(etag);
+				assertEquals(200, modifiedResp.getStatusCodeValue());
+				assertNotEquals(etag, modifiedResp.getHeaders().getETag());
+				assertFalse(modifiedResp.getBody().iterator().next().isOutgoing());
+			}
+		}.perform();
+	}
 }
@@ -11,10 +11,14 @@ import org.junit.jupiter.api.Test;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import org.nhindirect.config.BaseTestPlan;
 import org.nhindirect.config.SpringBaseTest;
 import org.nhindirect.config.TestUtils;
+import org.nhindirect.config.events.ConfigChange;
+import org.nhindirect.config.events.ConfigChangeType;
+import org.nhindirect.config.events.ConfigEntityType;
 import org.nhindirect.config.model.Anchor;
 import org.nhindirect.config.model.EntityStatus;
 import org.nhindirect.config.repository.AnchorRepository;
@@ -93,6 +97,10 @@ public class AnchorResource_removeAnchorsByIdsTest extends SpringBaseTest
 	{
 		new TestPlan()
 		{
+			protected long since;
+			
+			protected List<String> owners;
+			
 			protected Collection<Anchor> anchors;
 			
 			@Override
@@ -132,6 +140,9 @@ public class AnchorResource_removeAnchorsByIdsTest extends SpringBaseTest
 			@Override
 			protected Collection<Long> getIdsToRemove()
 			{
+				since = anchorService.changeLog.getVersion();
+				owners = anchorRepo.findAll().map(org.nhindirect.config.store.Anchor::getOwner).collectList().block();
+				
 				final Collection<org.nhindirect.config.store.Anchor> anchors = anchorRepo.findAll().collectList().block();
 				
 				final Collection<Long> ids = new ArrayList<Long>();
@@ -146,6 +157,15 @@ public class AnchorResource_removeAnchorsByIdsTest extends SpringBaseTest
 			{
 				final Collection<org.nhindirect.config.store.Anchor> anchors = anchorRepo.findAll().collectList().block();
 				assertTrue(anchors.isEmpty());
+				
+				final Collection<ConfigChange> changes = anchorService.changeLog.getChangesSince(since).getChanges();
+				assertEquals(owners.size(), changes.size());
+				for (ConfigChange change : changes)
+				{
+					assertEquals(ConfigEntityType.ANCHOR, change.getEntityType());
+					assertEquals(ConfigChangeType.REMOVED, change.getChangeType());
+				}
+				assertEquals(owners.stream().sorted().collect(Collectors.toList()), changes.stream().map(ConfigChange::getKey).sorted().collect(Collectors.toList()));
 			}
 		}.perform();
 	}	
@@ -1,7 +1,9 @@
 package org.nhindirect.config.resources;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
@@ -211,5 +213,62 @@ public class CertPolicyResource_getPoliciesTest extends SpringBaseTest
 					assertEquals(500, ex.getRawStatusCode());
 				}
 			}.perform();
-		}		
+		}
+
+		@Test
+		public void testGetAllPolicies_matchingETag_assertNotModifiedUntilPolicyChanged() throws Exception
+		{
+			new TestPlan()
+			{
+				@Override
+				protected Collection<CertPolicy> getPoliciesToAdd()
+				{
+					final Collection<CertPolicy> policies = new ArrayList<CertPolicy>();
+			
+					final CertPolicy policy = new CertPolicy();
+					policy.setPolicyName("Policy1");
+					policy.setPolicyData(new byte[] {1,2,3});
+					policy.setLexicon(PolicyLexicon.SIMPLE_TEXT_V1);
+					policies.add(policy);
+			
+					return policies;
+				}
+		
+				protected ResponseEntity<Collection<CertPolicy>> getPolicies(String etag)
+				{
+					return webClient.get()
+							.uri("certpolicy/")
+							.headers(headers -> 
+							{
+								if (etag != null)
+									headers.setIfNoneMatch(etag);
+							})
+							.retrieve().toEntity(new ParameterizedTypeReference<Collection<CertPolicy>>() {}).block();
+				}
+		
+				@Override
+				protected void doAssertions(Collection<CertPolicy> policies) throws Exception
+				{
+					final String etag = getPolicies(null).getHeaders().getETag();
+					assertNotNull(etag);
+			
+					final ResponseEntity<Collection<CertPolicy>> notModifiedResp = getPolicies(etag);
+					assertEquals(304, notModifiedResp.getStatusCodeValue());
+					assertNull(notModifiedResp.getBody());
+			
+					final CertPolicy policyData = new CertPolicy();
+					policyData.setPolicyData(new byte[] {4,5,6});
+			
+					final HttpEntity<CertPolicy> requestEntity = new HttpEntity<>(policyData);
+					final ResponseEntity<Void> resp = testRestTemplate.exchange("/certpolicy/{policyName}/policyAttributes", HttpMethod.POST, requestEntity, Void.class, 
+							"Policy1");
+					assertEquals(204, resp.getStatusCodeValue());
+			
+					final ResponseEntity<Collection<CertPolicy>> modifiedResp = getPolicies(etag);
+					assertEquals(200, modifiedResp.getStatusCodeValue());
+					assertNotEquals(etag, modifiedResp.getHeaders().getETag());
+					assertTrue(Arrays.equals(new byte[] {4,5,6}, modifiedResp.getBody().iterator().next().getPolicyData()));
+				}
+			}.perform();
+		}
 }
@@ -0,0 +1,186 @@
+package org.nhindirect.config.resources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.security.cert.X509Certificate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.nhindirect.common.cert.Thumbprint;
+import org.nhindirect.config.BaseTestPlan;
+import org.nhindirect.config.SpringBaseTest;
+import org.nhindirect.config.TestUtils;
+import org.nhindirect.config.events.ConfigChangeLog;
+import org.nhindirect.config.events.ConfigChangeType;
+import org.nhindirect.config.events.ConfigChanges;
+import org.nhindirect.config.events.ConfigEntityType;
+import org.nhindirect.config.model.Certificate;
+import org.nhindirect.config.model.utils.CertUtils;
+import org.nhindirect.config.resources.util.BulkImportResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+
+public class CertificateResource_addCertificatesTest extends SpringBaseTest
+{
+	@Autowired
+	protected CertificateResource certService;
+	
+	@Autowired
+	protected ConfigChangeLog changeLog;
+	
+	abstract class TestPlan extends BaseTestPlan 
+	{
+		@Override
+		protected void tearDownMocks()
+		{
+			certService.setImportChunkSize(CertificateResource.DEFAULT_IMPORT_CHUNK_SIZE);
+			certService.setImportParallelism(Runtime.getRuntime().availableProcessors());
+		}
+		
+		protected Collection<Certificate> getExistingCerts() throws Exception
+		{
+			return new ArrayList<>();
+		}
+		
+		protected abstract Collection<Certificate> getCertsToAdd() throws Exception;
+		
+		@Override
+		protected void performInner() throws Exception
+		{				
+			for (Certificate cert : getExistingCerts())
+			{
+				final org.nhindirect.config.store.Certificate entCert = new org.nhindirect.config.store.Certificate();
+				entCert.setData(cert.getData());
+				entCert.setOwner(cert.getOwner());
+				certRepo.save(entCert).block();
+			}
+			
+			final long since = changeLog.getVersion();
+			
+			final List<BulkImportResult> results = webClient.put()
+				.uri("/certificate/bulk")
+				.contentType(MediaType.APPLICATION_JSON)
+				.accept(MediaType.APPLICATION_NDJSON)
+				.bodyValue(getCertsToAdd())
+				.retrieve()
+				.bodyToFlux(BulkImportResult.class)
+				.collectList()
+				.block();
+			
+			doAssertions(results, changeLog.getChangesSince(since));
+		}
+		
+		protected void doAssertions(List<BulkImportResult> results, ConfigChanges changes) throws Exception
+		{
+			
+		}
+	}
+	
+	protected static Certificate newCertificate(String certFile, String owner) throws Exception
+	{
+		final Certificate cert = new Certificate();
+		cert.setData(TestUtils.loadCert(certFile).getEncoded());
+		cert.setOwner(owner);
+		
+		return cert;
+	}
+	
+	@Test
+	public void testAddCertificates_newCertsInMultipleChunks_assertCertsAdded() throws Exception
+	{
+		new TestPlan()
+		{
+			@Override
+			protected void setupMocks()
+			{
+				certService.setImportChunkSize(1);
+				certService.setImportParallelism(2);
+			}
+			
+			@Override
+			protected Collection<Certificate> getCertsToAdd() throws Exception
+			{
+				return Arrays.asList(newCertificate("gm2552.der", null), newCertificate("umesh.der", "umesh@securehealthemail.com"));
+			}
+			
+			@Override
+			protected void doAssertions(List<BulkImportResult> results, ConfigChanges changes) throws Exception
+			{
+				final X509Certificate gmCert = TestUtils.loadCert("gm2552.der");
+				final X509Certificate umeshCert = TestUtils.loadCert("umesh.der");
+				
+				assertEquals(2, results.size());
+				assertEquals(Thumbprint.toThumbprint(gmCert).toString(), results.get(0).getKey());
+				assertEquals(Thumbprint.toThumbprint(umeshCert).toString(), results.get(1).getKey());
+				results.forEach(result -> assertEquals(201, result.getStatus()));
+				
+				final org.nhindirect.config.store.Certificate retrievedCert = 
+						certRepo.findByOwnerIgnoreCase(CertUtils.getOwner(gmCert)).blockFirst();
+				assertNotNull(retrievedCert);
+				assertEquals(Thumbprint.toThumbprint(gmCert).toString(), retrievedCert.getThumbprint());
+				assertEquals(gmCert, CertUtils.toX509Certificate(retrievedCert.getData()));
+				assertEquals(org.nhindirect.config.store.EntityStatus.NEW.ordinal(), retrievedCert.getStatus());
+				assertEquals(gmCert.getNotAfter().getTime(), retrievedCert.getValidEndDate().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+				assertEquals(gmCert.getNotBefore().getTime(), retrievedCert.getValidStartDate().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+				assertNotNull(retrievedCert.getCreateTime());
+				
+				assertNotNull(certRepo.findByOwnerIgnoreCase("umesh@securehealthemail.com").blockFirst());
+				
+				assertEquals(2, changes.getChanges().size());
+				changes.getChanges().forEach(change -> 
+				{
+					assertEquals(ConfigEntityType.CERTIFICATE, change.getEntityType());
+					assertEquals(ConfigChangeType.ADDED, change.getChangeType());
+				});
+			}
+		}.perform();
+	}
+	
+	@Test
+	public void testAddCertificates_invalidAndDuplicateCerts_assertPerItemStatus() throws Exception
+	{
+		new TestPlan()
+		{
+			@Override
+			protected void setupMocks()
+			{
+				certService.setImportChunkSize(2);
+			}
+			
+			@Override
+			protected Collection<Certificate> getExistingCerts() throws Exception
+			{
+				return Arrays.asList(newCertificate("gm2552.der", "gm2552@securehealthemail.com"));
+			}
+			
+			@Override
+			protected Collection<Certificate> getCertsToAdd() throws Exception
+			{
+				final Certificate invalidCert = new Certificate();
+				invalidCert.setData(new byte[] {1, 2, 3});
+				invalidCert.setOwner("bogus@test.com");
+				
+				return Arrays.asList(newCertificate("gm2552.der", "GM2552@securehealthemail.com"), newCertificate("gm2552.der", "other@test.com"), 
+						newCertificate("umesh.der", "umesh@test.com"), newCertificate("umesh.der", "umesh@test.com"), invalidCert);
+			}
+			
+			@Override
+			protected void doAssertions(List<BulkImportResult> results, ConfigChanges changes) throws Exception
+			{
+				assertEquals(Arrays.asList(409, 201, 201, 409, 400), 
+						results.stream().map(BulkImportResult::getStatus).collect(Collectors.toList()));
+				assertEquals("bogus@test.com#4", results.get(4).getKey());
+				
+				assertEquals(3, certRepo.findAll().collectList().block().size());
+				
+				assertEquals(2, changes.getChanges().size());
+			}
+		}.perform();
+	}
+}
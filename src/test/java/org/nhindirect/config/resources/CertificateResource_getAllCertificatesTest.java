@@ -1,7 +1,9 @@
 package org.nhindirect.config.resources;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
@@ -274,5 +276,64 @@ public class CertificateResource_getAllCertificatesTest extends SpringBaseTest
 					assertEquals(500, ex.getRawStatusCode());
 				}
 			}.perform();
-		}		
+		}
+
+		@Test
+		public void testGetAllCertificates_matchingETag_assertNotModifiedUntilCertChanged() throws Exception
+		{
+			new TestPlan()
+			{
+				@Override
+				protected Collection<Certificate> getCertsToAdd()
+				{
+					try
+					{
+						final Collection<Certificate> certs = new ArrayList<Certificate>();
+				
+						Certificate cert = new Certificate();					
+						cert.setData(TestUtils.loadCert("gm2552.der").getEncoded());
+				
+						certs.add(cert);
+				
+						return certs;
+					}
+					catch (Exception e)
+					{
+						throw new RuntimeException (e);
+					}
+				}
+		
+				protected ResponseEntity<Collection<Certificate>> getCerts(String etag)
+				{
+					return webClient.get()
+							.uri("/certificate")
+							.headers(headers -> 
+							{
+								if (etag != null)
+									headers.setIfNoneMatch(etag);
+							})
+							.retrieve().toEntity(new ParameterizedTypeReference<Collection<Certificate>>() {}).block();
+				}
+		
+				@Override
+				protected void doAssertions(Collection<Certificate> certs) throws Exception
+				{
+					final String etag = getCerts(null).getHeaders().getETag();
+					assertNotNull(etag);
+			
+					final ResponseEntity<Collection<Certificate>> notModifiedResp = getCerts(etag);
+					assertEquals(304, notModifiedResp.getStatusCodeValue());
+					assertNull(notModifiedResp.getBody());
+			
+					final org.nhindirect.config.store.Certificate cert = certRepo.findAll().blockFirst();
+					cert.setStatus(org.nhindirect.config.store.EntityStatus.DISABLED.ordinal());
+					certRepo.save(cert).block();
+			
+					final ResponseEntity<Collection<Certificate>> modifiedResp = getCerts(etag);
+					assertEquals(200, modifiedResp.getStatusCodeValue());
+					assertNotEquals(etag, modifiedResp.getHeaders().getETag());
+					assertEquals(EntityStatus.DISABLED, modifiedResp.getBody().iterator().next().getStatus());
+				}
+			}.perform();
+		}
 }
@@ -12,11 +12,15 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import org.apache.commons.io.IOUtils;
 import org.nhindirect.config.BaseTestPlan;
 import org.nhindirect.config.SpringBaseTest;
 import org.nhindirect.config.TestUtils;
+import org.nhindirect.config.events.ConfigChange;
+import org.nhindirect.config.events.ConfigChangeType;
+import org.nhindirect.config.events.ConfigEntityType;
 import org.nhindirect.config.model.utils.CertUtils;
 import org.nhindirect.config.repository.CertificateRepository;
 import org.nhindirect.config.model.Certificate;
@@ -94,6 +98,10 @@ public class CertificateResource_removeCertificatesByIdsTest extends SpringBaseT
 		{
 			new TestPlan()
 			{
+				protected long since;
+				
+				protected List<String> owners;
+				
 				protected Collection<Certificate> certs;
 				
 				@Override
@@ -124,6 +132,9 @@ public class CertificateResource_removeCertificatesByIdsTest extends SpringBaseT
 				@Override
 				protected Collection<Long> getIdsToRemove()
 				{
+					since = certService.changeLog.getVersion();
+					owners = certRepo.findAll().map(org.nhindirect.config.store.Certificate::getOwner).collectList().block();
+					
 					final Collection<org.nhindirect.config.store.Certificate> certs = certRepo.findAll().collectList().block();
 					
 					final Collection<Long> ids = new ArrayList<Long>();
@@ -138,6 +149,15 @@ public class CertificateResource_removeCertificatesByIdsTest extends SpringBaseT
 				{
 					final Collection<org.nhindirect.config.store.Certificate> certs = certRepo.findAll().collectList().block();
 					assertTrue(certs.isEmpty());
+					
+					final Collection<ConfigChange> changes = certService.changeLog.getChangesSince(since).getChanges();
+					assertEquals(owners.size(), changes.size());
+					for (ConfigChange change : changes)
+					{
+						assertEquals(ConfigEntityType.CERTIFICATE, change.getEntityType());
+						assertEquals(ConfigChangeType.REMOVED, change.getChangeType());
+					}
+					assertEquals(owners.stream().sorted().collect(Collectors.toList()), changes.stream().map(ConfigChange::getKey).sorted().collect(Collectors.toList()));
 				}
 			}.perform();
 		}			
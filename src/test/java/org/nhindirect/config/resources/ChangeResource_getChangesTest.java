@@ -0,0 +1,153 @@
+package org.nhindirect.config.resources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.nhindirect.config.BaseTestPlan;
+import org.nhindirect.config.SpringBaseTest;
+import org.nhindirect.config.events.ConfigChange;
+import org.nhindirect.config.events.ConfigChangeType;
+import org.nhindirect.config.events.ConfigChanges;
+import org.nhindirect.config.events.ConfigEntityType;
+import org.nhindirect.config.model.Domain;
+import org.nhindirect.config.model.EntityStatus;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+public class ChangeResource_getChangesTest extends SpringBaseTest
+{
+	abstract class TestPlan extends BaseTestPlan 
+	{
+		@Override
+		protected void tearDownMocks()
+		{
+
+		}
+		
+		protected ConfigChanges getChanges(long since)
+		{
+			return webClient.get()
+				.uri(uriBuilder ->  uriBuilder.path("changes").queryParam("since", since).build())
+				.retrieve().bodyToMono(ConfigChanges.class).block();
+		}
+		
+		protected abstract void makeChanges() throws Exception;
+		
+		@Override
+		protected void performInner() throws Exception
+		{
+			final long since = getChanges(-1).getVersion();
+			
+			makeChanges();
+			
+			doAssertions(since, getChanges(since));
+		}
+		
+		protected void doAssertions(long since, ConfigChanges changes) throws Exception
+		{
+			
+		}
+	}
+	
+	@Test
+	public void testGetChanges_domainAddedAndSettingRemoved_assertChangesReturned() throws Exception
+	{
+		new TestPlan()
+		{
+			@Override
+			protected void makeChanges() throws Exception
+			{
+				final Domain domain = new Domain();
+				domain.setDomainName("test.com");
+				domain.setStatus(EntityStatus.ENABLED);
+				
+				ResponseEntity<Void> resp = testRestTemplate.exchange("/domain", HttpMethod.PUT, new HttpEntity<Domain>(domain), Void.class);
+				assertEquals(201, resp.getStatusCodeValue());
+				
+				resp = testRestTemplate.exchange("/setting/setting1/value1", HttpMethod.PUT, null, Void.class);
+				assertEquals(201, resp.getStatusCodeValue());
+				
+				resp = testRestTemplate.exchange("/setting/setting1", HttpMethod.DELETE, null, Void.class);
+				assertEquals(200, resp.getStatusCodeValue());
+				
+				// conflicts are not changes
+				resp = testRestTemplate.exchange("/domain", HttpMethod.PUT, new HttpEntity<Domain>(domain), Void.class);
+				assertEquals(409, resp.getStatusCodeValue());
+			}
+			
+			@Override
+			protected void doAssertions(long since, ConfigChanges changes) throws Exception
+			{
+				final List<ConfigChange> changeList = new ArrayList<>(changes.getChanges());
+				
+				assertEquals(3, changeList.size());
+				assertEquals(since + 3, changes.getVersion());
+				
+				assertEquals(ConfigEntityType.DOMAIN, changeList.get(0).getEntityType());
+				assertEquals(ConfigChangeType.ADDED, changeList.get(0).getChangeType());
+				assertEquals("test.com", changeList.get(0).getKey());
+				
+				assertEquals(ConfigEntityType.SETTING, changeList.get(1).getEntityType());
+				assertEquals(ConfigChangeType.ADDED, changeList.get(1).getChangeType());
+				
+				assertEquals(ConfigEntityType.SETTING, changeList.get(2).getEntityType());
+				assertEquals(ConfigChangeType.REMOVED, changeList.get(2).getChangeType());
+				assertEquals("setting1", changeList.get(2).getKey());
+			}
+		}.perform();
+	}
+	
+	@Test
+	public void testGetChanges_noChanges_assertEmptyChanges() throws Exception
+	{
+		new TestPlan()
+		{
+			@Override
+			protected void makeChanges() throws Exception
+			{
+
+			}
+			
+			@Override
+			protected void doAssertions(long since, ConfigChanges changes) throws Exception
+			{
+				assertEquals(since, changes.getVersion());
+				assertTrue(changes.getChanges().isEmpty());
+			}
+		}.perform();
+	}
+	
+	@Test
+	public void testGetChanges_versionNotRetained_assertGone() throws Exception
+	{
+		new TestPlan()
+		{
+			@Override
+			protected void makeChanges() throws Exception
+			{
+
+			}
+			
+			@Override
+			protected void doAssertions(long since, ConfigChanges changes) throws Exception
+			{
+				try
+				{
+					getChanges(1);
+					fail("Expected changes since version 1 to be gone");
+				}
+				catch (WebClientResponseException e)
+				{
+					assertEquals(410, e.getRawStatusCode());
+				}
+			}
+		}.perform();
+	}
+}
@@ -2,6 +2,7 @@ package org.nhindirect.config.resources;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doThrow;
@@ -335,6 +336,57 @@ public class DNSRecource_getDNSRecordsTest extends SpringBaseTest
 			}.perform();
 		}	
 		
+		@Test
+		public void testGetDNSRecords_matchingETag_assertNotModifiedUntilRecordAdded() throws Exception
+		{
+			new TestPlan()
+			{
+					
+				@Override
+				protected String getTypeToRetrieve()
+				{
+					return Integer.toString(Type.A);
+				}
+				
+				@Override
+				protected String getNameToRetrieve()
+				{
+					return "";
+				}
+				
+				protected ResponseEntity<Collection<DNSRecord>> getRecords(String etag)
+				{
+					return webClient.get()
+							.uri("/dns?type=" + Type.A)
+							.headers(headers -> 
+							{
+								if (etag != null)
+									headers.setIfNoneMatch(etag);
+							})
+							.retrieve().toEntity(new ParameterizedTypeReference<Collection<DNSRecord>>() {}).block();
+				}
+				
+				@Override
+				protected void doAssertions(Collection<DNSRecord> records) throws Exception
+				{
+					final String etag = getRecords(null).getHeaders().getETag();
+					assertNotNull(etag);
+					
+					final ResponseEntity<Collection<DNSRecord>> notModifiedResp = getRecords(etag);
+					assertEquals(304, notModifiedResp.getStatusCodeValue());
+					assertNull(notModifiedResp.getBody());
+					
+					final HttpEntity<DNSRecord> requestEntity = new HttpEntity<>(DNSUtils.createARecord("myserver3.com", 3600, "10.232.12.100"));
+					final ResponseEntity<Void> resp = testRestTemplate.exchange("/dns", HttpMethod.PUT, requestEntity, Void.class);
+					assertEquals(201, resp.getStatusCodeValue());
+					
+					final ResponseEntity<Collection<DNSRecord>> modifiedResp = getRecords(etag);
+					assertEquals(200, modifiedResp.getStatusCodeValue());
+					assertEquals(4, modifiedResp.getBody().size());
+				}
+			}.perform();
+		}
+		
 		@Test
 		public void testGetDNSRecords_typeNotInStore_assertNoRecordsRetrieved() throws Exception
 		{
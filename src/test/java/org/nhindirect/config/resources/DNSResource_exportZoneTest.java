@@ -0,0 +1,157 @@
+package org.nhindirect.config.resources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.nhindirect.config.BaseTestPlan;
+import org.nhindirect.config.SpringBaseTest;
+import org.nhindirect.config.TestUtils;
+import org.nhindirect.config.model.DNSRecord;
+import org.nhindirect.config.model.utils.DNSUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.xbill.DNS.Type;
+
+import reactor.core.publisher.Flux;
+
+public class DNSResource_exportZoneTest extends SpringBaseTest
+{
+	@Autowired
+	protected DNSResource dnsService;
+	
+	abstract class TestPlan extends BaseTestPlan 
+	{
+		@Override
+		protected void tearDownMocks()
+		{
+
+		}
+		
+		protected Collection<DNSRecord> getRecordsToAdd() throws Exception
+		{
+			return Arrays.asList(DNSUtils.createMXRecord("test.com", "mail.test.com", 3600, 10),
+				DNSUtils.createARecord("mail.test.com", 3600, "10.0.0.1"),
+				DNSUtils.createX509CERTRecord("test.com", 3600, TestUtils.loadCert("gm2552.der")),
+				DNSUtils.createARecord("alpha.test.com", 3600, "10.0.0.2"),
+				DNSUtils.createARecord("mail.other.com", 3600, "10.0.0.3"),
+				DNSUtils.createARecord("othertest.com", 3600, "10.0.0.4"));
+		}
+		
+		protected abstract String getZoneName();
+		
+		protected int getType()
+		{
+			return -1;
+		}
+		
+		@Override
+		protected void performInner() throws Exception
+		{				
+			for (DNSRecord record : getRecordsToAdd())
+				dnsService.addDNSRecord(record).block();
+			
+			final String zoneFile = webClient.get()
+				.uri(uriBuilder -> uriBuilder.path("/dns/zone").queryParam("name", getZoneName()).queryParam("type", getType()).build())
+				.accept(MediaType.TEXT_PLAIN)
+				.retrieve()
+				.bodyToMono(String.class)
+				.block();
+			
+			doAssertions(Arrays.stream(zoneFile.split("\n")).collect(Collectors.toList()));
+		}
+		
+		protected void doAssertions(List<String> lines) throws Exception
+		{
+			
+		}
+	}
+	
+	@Test
+	public void testExportZone_zoneName_assertZoneRecordsExportedByType() throws Exception
+	{
+		new TestPlan()
+		{
+			@Override
+			protected String getZoneName()
+			{
+				return "test.com";
+			}
+			
+			@Override
+			protected void doAssertions(List<String> lines) throws Exception
+			{
+				assertEquals(4, lines.size());
+				assertTrue(lines.get(0).matches("alpha\\.test\\.com\\.\\s+3600\\s+IN\\s+A\\s+10\\.0\\.0\\.2"));
+				assertTrue(lines.get(1).matches("mail\\.test\\.com\\.\\s+3600\\s+IN\\s+A\\s+10\\.0\\.0\\.1"));
+				assertTrue(lines.get(2).matches("test\\.com\\.\\s+3600\\s+IN\\s+MX\\s+10 mail\\.test\\.com\\."));
+				assertTrue(lines.get(3).matches("test\\.com\\.\\s+3600\\s+IN\\s+CERT\\s+.*"));
+			}
+		}.perform();
+	}
+	
+	@Test
+	public void testExportZone_exportAndReimport_assertSameRecords() throws Exception
+	{
+		new TestPlan()
+		{
+			@Override
+			protected String getZoneName()
+			{
+				return "";
+			}
+			
+			@Override
+			protected void doAssertions(List<String> lines) throws Exception
+			{
+				assertEquals(6, lines.size());
+				
+				final List<DNSRecord> exported = dnsService.getDNSRecords(Type.ANY, "").collectList().block();
+				
+				dnsRepo.deleteAll().block();
+				
+				dnsService.importZone(Flux.fromIterable(lines), "", 3600).collectList().block();
+				
+				final List<DNSRecord> imported = dnsService.getDNSRecords(Type.ANY, "").collectList().block();
+				assertEquals(exported.size(), imported.size());
+				for (DNSRecord record : exported)
+				{
+					assertTrue(imported.stream().anyMatch(importedRecord -> importedRecord.getName().equals(record.getName()) && 
+							importedRecord.getType() == record.getType() && importedRecord.getTtl() == record.getTtl() &&
+							Arrays.equals(importedRecord.getData(), record.getData())));
+				}
+			}
+		}.perform();
+	}
+	
+	@Test
+	public void testExportZone_typeFilter_assertOnlyTypeExported() throws Exception
+	{
+		new TestPlan()
+		{
+			@Override
+			protected String getZoneName()
+			{
+				return "TEST.com";
+			}
+			
+			@Override
+			protected int getType()
+			{
+				return Type.A;
+			}
+			
+			@Override
+			protected void doAssertions(List<String> lines) throws Exception
+			{
+				assertEquals(2, lines.size());
+				lines.forEach(line -> assertTrue(line.matches(".*\\sIN\\s+A\\s.*")));
+			}
+		}.perform();
+	}
+}
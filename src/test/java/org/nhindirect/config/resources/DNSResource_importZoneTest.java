@@ -0,0 +1,188 @@
+package org.nhindirect.config.resources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.nhindirect.config.BaseTestPlan;
+import org.nhindirect.config.SpringBaseTest;
+import org.nhindirect.config.TestUtils;
+import org.nhindirect.config.events.ConfigChangeLog;
+import org.nhindirect.config.events.ConfigChanges;
+import org.nhindirect.config.model.DNSRecord;
+import org.nhindirect.config.model.utils.DNSUtils;
+import org.nhindirect.config.resources.util.BulkImportResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.Type;
+
+public class DNSResource_importZoneTest extends SpringBaseTest
+{
+	@Autowired
+	protected DNSResource dnsService;
+	
+	@Autowired
+	protected ConfigChangeLog changeLog;
+	
+	abstract class TestPlan extends BaseTestPlan 
+	{
+		@Override
+		protected void tearDownMocks()
+		{
+			dnsService.setImportChunkSize(DNSResource.DEFAULT_IMPORT_CHUNK_SIZE);
+		}
+		
+		protected Collection<DNSRecord> getExistingRecords() throws Exception
+		{
+			return new ArrayList<>();
+		}
+		
+		protected String getOrigin()
+		{
+			return "test.com";
+		}
+		
+		protected abstract String getZoneFile() throws Exception;
+		
+		@Override
+		protected void performInner() throws Exception
+		{				
+			for (DNSRecord record : getExistingRecords())
+				dnsService.addDNSRecord(record).block();
+			
+			final long since = changeLog.getVersion();
+			
+			final List<BulkImportResult> results = webClient.put()
+				.uri(uriBuilder -> uriBuilder.path("/dns/zone").queryParam("origin", getOrigin()).build())
+				.contentType(MediaType.TEXT_PLAIN)
+				.accept(MediaType.APPLICATION_NDJSON)
+				.bodyValue(getZoneFile())
+				.retrieve()
+				.bodyToFlux(BulkImportResult.class)
+				.collectList()
+				.block();
+			
+			doAssertions(results, changeLog.getChangesSince(since));
+		}
+		
+		protected void doAssertions(List<BulkImportResult> results, ConfigChanges changes) throws Exception
+		{
+			
+		}
+	}
+	
+	@Test
+	public void testImportZone_newRecordsInMultipleChunks_assertRecordsAdded() throws Exception
+	{
+		new TestPlan()
+		{
+			protected DNSRecord certRecord;
+			
+			@Override
+			protected void setupMocks()
+			{
+				dnsService.setImportChunkSize(2);
+			}
+			
+			@Override
+			protected String getZoneFile() throws Exception
+			{
+				certRecord = DNSUtils.createX509CERTRecord("gm2552@securehealthemail.com", 3600, TestUtils.loadCert("gm2552.der"));
+				final Record cert = Record.newRecord(Name.fromString(certRecord.getName()), certRecord.getType(), certRecord.getDclass(), 
+						certRecord.getTtl(), certRecord.getData());
+				
+				return "$TTL 7200\n" +
+					"@ IN SOA ns1 admin ( 1 3600 600 604800 300 )\n" +
+					"@ IN MX 10 mail\n" +
+					"mail IN A 10.0.0.1\n" +
+					"     IN A 10.0.0.2\n" +
+					cert.toString() + "\n";
+			}
+			
+			@Override
+			protected void doAssertions(List<BulkImportResult> results, ConfigChanges changes) throws Exception
+			{
+				assertEquals(Arrays.asList("test.com. SOA", "test.com. MX", "mail.test.com. A", "mail.test.com. A", 
+						certRecord.getName() + " CERT"), results.stream().map(BulkImportResult::getKey).collect(Collectors.toList()));
+				results.forEach(result -> assertEquals(201, result.getStatus()));
+				
+				final List<DNSRecord> addresses = dnsService.getDNSRecords(Type.A, "mail.test.com").collectList().block();
+				assertEquals(2, addresses.size());
+				addresses.forEach(record -> assertEquals(7200, record.getTtl()));
+				
+				final DNSRecord addedCert = dnsService.getDNSRecords(Type.CERT, certRecord.getName()).blockFirst();
+				assertTrue(Arrays.equals(certRecord.getData(), addedCert.getData()));
+				
+				assertEquals(5, changes.getChanges().size());
+			}
+		}.perform();
+	}
+	
+	@Test
+	public void testImportZone_invalidAndDuplicateRecords_assertPerItemStatus() throws Exception
+	{
+		new TestPlan()
+		{
+			@Override
+			protected Collection<DNSRecord> getExistingRecords() throws Exception
+			{
+				return Arrays.asList(DNSUtils.createARecord("mail.test.com", 3600, "10.0.0.1"));
+			}
+			
+			@Override
+			protected String getZoneFile()
+			{
+				return "MAIL IN A 10.0.0.1\n" +
+					"mail IN A 10.0.0.2\n" +
+					"mail 300 IN A 10.0.0.2\n" +
+					"mail IN A bogus\n";
+			}
+			
+			@Override
+			protected void doAssertions(List<BulkImportResult> results, ConfigChanges changes) throws Exception
+			{
+				assertEquals(Arrays.asList(409, 201, 409, 400), 
+						results.stream().map(BulkImportResult::getStatus).collect(Collectors.toList()));
+				assertEquals("mail IN A bogus", results.get(3).getKey());
+				
+				assertEquals(2, dnsService.getDNSRecords(Type.A, "mail.test.com").collectList().block().size());
+				assertEquals(1, changes.getChanges().size());
+			}
+		}.perform();
+	}
+	
+	@Test
+	public void testImportZone_invalidOrigin_assertBadRequest() throws Exception
+	{
+		new TestPlan()
+		{
+			@Override
+			protected String getOrigin()
+			{
+				return "bad..origin";
+			}
+			
+			@Override
+			protected String getZoneFile()
+			{
+				return "mail IN A 10.0.0.1\n";
+			}
+			
+			@Override
+			protected void assertException(Exception exception) throws Exception 
+			{
+				assertTrue(exception instanceof WebClientResponseException);
+				assertEquals(400, ((WebClientResponseException)exception).getRawStatusCode());
+			}
+		}.perform();
+	}
+}
@@ -199,4 +199,32 @@ public class DNSResource_removeDNSRecordsByIdsTest extends SpringBaseTest
 				}
 			}.perform();
 		}			
+	
+		@Test
+		public void testRemoveDNSRecordsByIds_invalidId_assertBadRequest() throws Exception
+		{
+			new TestPlan()
+			{
+				@Override
+				protected Collection<DNSRecord> getRecordsToAdd() throws Exception
+				{
+					return null;
+				}
+				
+				@Override
+				protected void performInner() throws Exception
+				{
+					final ResponseEntity<?> resp = 
+							testRestTemplate.exchange("/dns/{ids}", HttpMethod.DELETE, null, Void.class, "1234,abc");
+					
+					assertEquals(400, resp.getStatusCodeValue());
+				}
+				
+				@Override
+				protected Collection<Long> getIdsToRemove()
+				{	
+					return null;
+				}
+			}.perform();
+		}
 }
@@ -0,0 +1,222 @@
+package org.nhindirect.config.resources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.nhindirect.config.BaseTestPlan;
+import org.nhindirect.config.SpringBaseTest;
+import org.nhindirect.config.events.ConfigChange;
+import org.nhindirect.config.events.ConfigChangeType;
+import org.nhindirect.config.events.ConfigEntityType;
+import org.nhindirect.config.repository.DNSRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.xbill.DNS.Type;
+
+import reactor.core.publisher.Flux;
+
+public class DNSResource_removeDNSRecordsTest extends SpringBaseTest
+{
+	@Autowired
+	protected DNSResource dnsService;
+	
+	abstract class TestPlan extends BaseTestPlan 
+	{
+		@Override
+		protected void tearDownMocks()
+		{
+
+		}
+		
+		protected int getNumRecordsToAdd()
+		{
+			return 0;
+		}
+		
+		protected abstract List<Long> getIdsToRemove();
+		
+		@Override
+		protected void performInner() throws Exception
+		{				
+			final int numRecords = getNumRecordsToAdd();
+			if (numRecords > 0)
+			{
+				dnsRepo.saveAll(Flux.range(0, numRecords).map(i -> 
+				{
+					final org.nhindirect.config.store.DNSRecord record = new org.nhindirect.config.store.DNSRecord();
+					record.setName("host" + i + ".test.com.");
+					record.setType(Type.A);
+					record.setDclass(1);
+					record.setTtl(3600);
+					record.setData(new byte[] {10, 0, (byte)(i >> 8), i.byteValue()});
+					record.setCreateTime(LocalDateTime.now());
+					return record;
+				})).blockLast();
+			}
+			
+			webClient.post()
+				.uri("/dns/remove")
+				.contentType(MediaType.APPLICATION_JSON)
+				.bodyValue(getIdsToRemove())
+				.retrieve()
+				.toBodilessEntity()
+				.block();
+			
+			doAssertions();
+		}
+		
+		protected void doAssertions() throws Exception
+		{
+			
+		}
+	}
+	
+	@Test
+	public void testRemoveDNSRecords_idsInMultipleChunks_assertRecordsRemoved() throws Exception
+	{
+		new TestPlan()
+		{
+			protected List<Long> ids;
+			
+			@Override
+			protected int getNumRecordsToAdd()
+			{
+				return DNSResource.DEFAULT_ID_CHUNK_SIZE + 100;
+			}
+			
+			@Override
+			protected List<Long> getIdsToRemove()
+			{
+				ids = dnsRepo.findAll().map(org.nhindirect.config.store.DNSRecord::getId).collectList().block();
+				
+				// keep one record to make sure only the requested ids are removed
+				return new ArrayList<>(ids.subList(1, ids.size()));
+			}
+			
+			@Override
+			protected void doAssertions() throws Exception
+			{
+				final List<Long> remaining = dnsRepo.findAll().map(org.nhindirect.config.store.DNSRecord::getId).collectList().block();
+				assertEquals(Arrays.asList(ids.get(0)), remaining);
+			}
+		}.perform();
+	}
+	
+	@Test
+	public void testRemoveDNSRecords_removeRecords_assertOneChangePerRecord() throws Exception
+	{
+		new TestPlan()
+		{
+			protected long since;
+			
+			@Override
+			protected int getNumRecordsToAdd()
+			{
+				return 3;
+			}
+			
+			@Override
+			protected List<Long> getIdsToRemove()
+			{
+				since = dnsService.changeLog.getVersion();
+				
+				return dnsRepo.findAll().map(org.nhindirect.config.store.DNSRecord::getId).collectList().block();
+			}
+			
+			@Override
+			protected void doAssertions() throws Exception
+			{
+				final Collection<ConfigChange> changes = dnsService.changeLog.getChangesSince(since).getChanges();
+				assertEquals(3, changes.size());
+				
+				final Set<String> keys = changes.stream().map(ConfigChange::getKey).collect(Collectors.toSet());
+				assertEquals(new HashSet<>(Arrays.asList("host0.test.com.", "host1.test.com.", "host2.test.com.")), keys);
+				
+				for (ConfigChange change : changes)
+				{
+					assertEquals(ConfigEntityType.DNS_RECORD, change.getEntityType());
+					assertEquals(ConfigChangeType.REMOVED, change.getChangeType());
+				}
+			}
+		}.perform();
+	}
+	
+	@Test
+	public void testRemoveDNSRecords_emptyIdList_assertNothingRemoved() throws Exception
+	{
+		new TestPlan()
+		{
+			@Override
+			protected int getNumRecordsToAdd()
+			{
+				return 2;
+			}
+			
+			@Override
+			protected List<Long> getIdsToRemove()
+			{
+				return new ArrayList<>();
+			}
+			
+			@Override
+			protected void doAssertions() throws Exception
+			{
+				assertEquals(2, dnsRepo.findAll().collectList().block().size());
+			}
+		}.perform();
+	}
+	
+	@Test
+	public void testRemoveDNSRecords_errorInDelete_assertServiceError() throws Exception
+	{
+		new TestPlan()
+		{
+			@SuppressWarnings("unchecked")
+			@Override
+			protected void setupMocks()
+			{
+				super.setupMocks();
+				
+				final DNSRepository mockDAO = mock(DNSRepository.class);
+				doThrow(new RuntimeException()).when(mockDAO).deleteByIdIn((List<Long>)any());
+				
+				dnsService.setDNSRepository(mockDAO);
+			}
+			
+			@Override
+			protected void tearDownMocks()
+			{
+				super.tearDownMocks();
+				
+				dnsService.setDNSRepository(dnsRepo);
+			}
+			
+			@Override
+			protected List<Long> getIdsToRemove()
+			{
+				return Arrays.asList(1234L);
+			}
+			
+			@Override
+			protected void assertException(Exception exception) throws Exception 
+			{
+				assertTrue(exception instanceof WebClientResponseException);
+				assertEquals(500, ((WebClientResponseException)exception).getRawStatusCode());
+			}
+		}.perform();
+	}
+}
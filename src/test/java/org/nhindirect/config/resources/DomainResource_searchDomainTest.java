@@ -11,6 +11,7 @@ import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 
 
 import org.nhindirect.config.BaseTestPlan;
@@ -47,6 +48,11 @@ public class DomainResource_searchDomainTest extends SpringBaseTest
 		
 		protected abstract String getEntityStatusToSearch();
 		
+		protected int getPageLimit()
+		{
+			return 0;
+		}
+		
 		@Override
 		protected void performInner() throws Exception
 		{				
@@ -71,6 +77,7 @@ public class DomainResource_searchDomainTest extends SpringBaseTest
 			.uri(uriBuilder ->  uriBuilder.path("/domain")
 					.queryParam("domainName", getDomainNameToSearch())
 					.queryParam("entityStatus", entityStatus)
+					.queryParam("limit", getPageLimit())
 					.build())
 			.retrieve().bodyToMono(new ParameterizedTypeReference<Collection<Domain>>() {}).block();
 			
@@ -465,6 +472,132 @@ public class DomainResource_searchDomainTest extends SpringBaseTest
 		}.perform();
 	}
 	
+	@Test
+	public void testSearchDomains_getExistingDomains_multipleAddressChunks_assertAddressesRetrieved() throws Exception
+	{
+		new TestPlan()
+		{
+			@Override
+			protected void setupMocks()
+			{
+				super.setupMocks();
+				
+				domainService.setDomainChunkSize(2);
+			}
+			
+			@Override
+			protected void tearDownMocks()
+			{
+				super.tearDownMocks();
+				
+				domainService.setDomainChunkSize(DomainResource.DEFAULT_DOMAIN_CHUNK_SIZE);
+			}
+			
+			@Override
+			protected Collection<Domain> getDomainsToAdd()
+			{
+				final Collection<Domain> domains = new ArrayList<Domain>();
+				
+				for (int i = 1; i <= 5; ++i)
+				{
+					final Address postmasterAddress = new Address();
+					postmasterAddress.setEmailAddress("me@test" + i + ".com");
+					
+					final Domain domain = new Domain();
+					domain.setDomainName("test" + i + ".com");
+					domain.setStatus(EntityStatus.ENABLED);
+					domain.setPostmasterAddress(postmasterAddress);	
+					
+					domains.add(domain);
+				}
+				
+				return domains;
+			}
+			
+			@Override
+			protected String getDomainNameToSearch()
+			{
+				return "";
+			}
+			
+			protected String getEntityStatusToSearch()
+			{
+				return null;
+			}
+			
+			@Override
+			protected void doAssertions(Collection<Domain> domains) throws Exception
+			{
+				assertNotNull(domains);
+				assertEquals(5, domains.size());
+				
+				for (Domain domain : domains)
+				{
+					assertEquals(1, domain.getAddresses().size());
+					assertEquals("me@" + domain.getDomainName(), domain.getAddresses().iterator().next().getEmailAddress());
+					assertEquals("me@" + domain.getDomainName(), domain.getPostmasterAddress().getEmailAddress());
+				}
+			}
+		}.perform();
+	}
+	
+	@Test
+	public void testSearchDomains_paged_nameAndStatusFilter_assertFirstPageRetrieved() throws Exception
+	{
+		new TestPlan()
+		{
+			@Override
+			protected int getPageLimit()
+			{
+				return 2;
+			}
+			
+			@Override
+			protected Collection<Domain> getDomainsToAdd()
+			{
+				final Collection<Domain> domains = new ArrayList<Domain>();
+				
+				for (int i = 1; i <= 5; ++i)
+				{
+					final Domain domain = new Domain();
+					domain.setDomainName("test" + i + ".com");
+					domain.setStatus((i == 2) ? EntityStatus.NEW : EntityStatus.ENABLED);
+					
+					domains.add(domain);
+				}
+				
+				final Domain domain = new Domain();
+				domain.setDomainName("other.com");
+				domain.setStatus(EntityStatus.ENABLED);
+				domains.add(domain);
+				
+				return domains;
+			}
+			
+			@Override
+			protected String getDomainNameToSearch()
+			{
+				return "TEST";
+			}
+			
+			protected String getEntityStatusToSearch()
+			{
+				return "ENABLED";
+			}
+			
+			@Override
+			protected void doAssertions(Collection<Domain> domains) throws Exception
+			{
+				assertNotNull(domains);
+				assertEquals(2, domains.size());
+				
+				final Iterator<Domain> domainIter = domains.iterator();
+				assertEquals("test1.com", domainIter.next().getDomainName());
+				assertEquals("test3.com", domainIter.next().getDomainName());
+			}
+		}.perform();
+	}
+	
 	@Test
 	public void testSearchDomains_errorInSearch_assertServerError() throws Exception
 	{
@@ -0,0 +1,181 @@
+package org.nhindirect.config.resources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.nhindirect.config.BaseTestPlan;
+import org.nhindirect.config.SpringBaseTest;
+import org.nhindirect.config.events.ConfigChange;
+import org.nhindirect.config.events.ConfigChangeType;
+import org.nhindirect.config.events.ConfigChangeLog;
+import org.nhindirect.config.events.ConfigEntityType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+public class EventResource_getEventsTest extends SpringBaseTest
+{
+	@Autowired
+	protected ConfigChangeLog changeLog;
+	
+	abstract class TestPlan extends BaseTestPlan 
+	{
+		@Override
+		protected void tearDownMocks()
+		{
+
+		}
+		
+		protected String getTypes()
+		{
+			return "";
+		}
+		
+		protected abstract void makeChanges() throws Exception;
+		
+		protected abstract int getEventCount();
+		
+		@Override
+		protected void performInner() throws Exception
+		{
+			final long since = changeLog.getVersion();
+			
+			makeChanges();
+			
+			final List<ServerSentEvent<ConfigChange>> events = webClient.get()
+				.uri(uriBuilder ->  uriBuilder.path("events").queryParam("since", since).queryParam("types", getTypes()).build())
+				.accept(MediaType.TEXT_EVENT_STREAM)
+				.retrieve().bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<ConfigChange>>() {})
+				.filter(event -> event.data() != null)
+				.take(getEventCount())
+				.collectList()
+				.block(Duration.ofSeconds(10));
+			
+			doAssertions(since, events);
+		}
+		
+		protected void doAssertions(long since, List<ServerSentEvent<ConfigChange>> events) throws Exception
+		{
+			
+		}
+	}
+	
+	@Test
+	public void testGetEvents_settingsChanged_assertEventsStreamed() throws Exception
+	{
+		new TestPlan()
+		{
+			@Override
+			protected void makeChanges() throws Exception
+			{
+				ResponseEntity<Void> resp = testRestTemplate.exchange("/setting/setting1/value1", HttpMethod.PUT, null, Void.class);
+				assertEquals(201, resp.getStatusCodeValue());
+				
+				resp = testRestTemplate.exchange("/setting/setting1/value2", HttpMethod.POST, null, Void.class);
+				assertEquals(204, resp.getStatusCodeValue());
+			}
+			
+			@Override
+			protected int getEventCount()
+			{
+				return 2;
+			}
+			
+			@Override
+			protected void doAssertions(long since, List<ServerSentEvent<ConfigChange>> events) throws Exception
+			{
+				assertEquals(2, events.size());
+				
+				assertEquals(Long.toString(since + 1), events.get(0).id());
+				assertEquals(ConfigEntityType.SETTING.name(), events.get(0).event());
+				assertEquals(ConfigChangeType.ADDED, events.get(0).data().getChangeType());
+				assertEquals("setting1", events.get(0).data().getKey());
+				
+				assertEquals(Long.toString(since + 2), events.get(1).id());
+				assertEquals(ConfigChangeType.UPDATED, events.get(1).data().getChangeType());
+			}
+		}.perform();
+	}
+	
+	@Test
+	public void testGetEvents_filterByType_assertOnlyTypeStreamed() throws Exception
+	{
+		new TestPlan()
+		{
+			@Override
+			protected String getTypes()
+			{
+				return ConfigEntityType.DNS_RECORD.name();
+			}
+			
+			@Override
+			protected void makeChanges() throws Exception
+			{
+				ResponseEntity<Void> resp = testRestTemplate.exchange("/setting/setting1/value1", HttpMethod.PUT, null, Void.class);
+				assertEquals(201, resp.getStatusCodeValue());
+				
+				changeLog.record(ConfigEntityType.DNS_RECORD, ConfigChangeType.REMOVED, "1,2");
+			}
+			
+			@Override
+			protected int getEventCount()
+			{
+				return 1;
+			}
+			
+			@Override
+			protected void doAssertions(long since, List<ServerSentEvent<ConfigChange>> events) throws Exception
+			{
+				assertEquals(1, events.size());
+				assertEquals(ConfigEntityType.DNS_RECORD, events.get(0).data().getEntityType());
+				assertEquals("1,2", events.get(0).data().getKey());
+			}
+		}.perform();
+	}
+	
+	@Test
+	public void testGetEvents_versionNotRetained_assertGone() throws Exception
+	{
+		new TestPlan()
+		{
+			@Override
+			protected void makeChanges() throws Exception
+			{
+
+			}
+			
+			@Override
+			protected int getEventCount()
+			{
+				return 1;
+			}
+			
+			@Override
+			protected void performInner() throws Exception
+			{
+				try
+				{
+					webClient.get()
+						.uri(uriBuilder ->  uriBuilder.path("events").queryParam("since", 1).build())
+						.accept(MediaType.TEXT_EVENT_STREAM)
+						.retrieve().bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<ConfigChange>>() {})
+						.blockFirst(Duration.ofSeconds(10));
+					
+					fail("Expected changes since version 1 to be gone");
+				}
+				catch (WebClientResponseException e)
+				{
+					assertEquals(410, e.getRawStatusCode());
+				}
+			}
+		}.perform();
+	}
+}
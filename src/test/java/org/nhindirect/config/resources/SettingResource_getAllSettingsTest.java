@@ -11,11 +11,13 @@ import org.junit.jupiter.api.Test;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 
 import org.nhindirect.config.BaseTestPlan;
 import org.nhindirect.config.SpringBaseTest;
 import org.nhindirect.config.model.Setting;
 import org.nhindirect.config.repository.SettingRepository;
+import org.nhindirect.config.resources.util.KeysetPaging;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpMethod;
@@ -36,8 +38,15 @@ public class SettingResource_getAllSettingsTest extends SpringBaseTest
 
 			}
 
+			protected int pages;
+			
 			protected abstract Collection<Setting> getSettingsToAdd();
 			
+			protected int getPageLimit()
+			{
+				return 0;
+			}
+			
 			@Override
 			protected void performInner() throws Exception
 			{				
@@ -55,9 +64,30 @@ public class SettingResource_getAllSettingsTest extends SpringBaseTest
 					});
 				}
 
-				final Collection<Setting> getSettings = webClient.get()
+				Collection<Setting> getSettings = null;
+				if (getPageLimit() > 0)
+				{
+					// follow the next page cursor until the last page
+					getSettings = new ArrayList<Setting>();
+					String cursor = "0";
+					while (cursor != null)
+					{
+						final String after = cursor;
+						final ResponseEntity<List<Setting>> page = webClient.get()
+								.uri(uriBuilder -> uriBuilder.path("setting").queryParam("limit", getPageLimit()).queryParam("after", after).build())
+								.retrieve().toEntityList(Setting.class).block();
+						
+						getSettings.addAll(page.getBody());
+						++pages;
+						cursor = page.getHeaders().getFirst(KeysetPaging.NEXT_CURSOR_HEADER);
+					}
+				}
+				else
+				{
+					getSettings = webClient.get()
 						.uri("setting")
 						.retrieve().bodyToMono(new ParameterizedTypeReference<Collection<Setting>>() {}).block();
+				}
 					
 				doAssertions(getSettings);									
 
@@ -118,6 +148,51 @@ public class SettingResource_getAllSettingsTest extends SpringBaseTest
 		}	
 		
 		
+		@Test
+		public void testGetSettings_paged_assertSettingsRetrievedInPages() throws Exception
+		{
+			new TestPlan()
+			{
+				@Override
+				protected int getPageLimit()
+				{
+					return 2;
+				}
+				
+				@Override
+				protected Collection<Setting> getSettingsToAdd()
+				{
+					final Collection<Setting> settings = new ArrayList<Setting>();
+					
+					for (int i = 1; i <= 5; ++i)
+					{
+						final Setting setting = new Setting();					
+						setting.setName("setting" + i);
+						setting.setValue("value" + i);
+						settings.add(setting);
+					}
+					
+					return settings;
+				}
+				
+				@Override
+				protected void doAssertions(Collection<Setting> setting) throws Exception
+				{
+					assertNotNull(setting);
+					assertEquals(5, setting.size());
+					assertEquals(3, pages);
+					
+					int i = 1;
+					for (Setting retrievedSetting : setting)
+					{	
+						assertEquals("setting" + i, retrievedSetting.getName());
+						assertEquals("value" + i, retrievedSetting.getValue());
+						++i;
+					}
+				}
+			}.perform();
+		}	
+		
 		@Test
 		public void testGetSettings_noSettingsInStore_assertNoSettingsRetrieved() throws Exception
 		{
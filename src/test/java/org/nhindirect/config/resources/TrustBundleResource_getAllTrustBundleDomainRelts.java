@@ -12,7 +12,10 @@ import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Set;
 
 import org.nhindirect.config.BaseTestPlan;
 import org.nhindirect.config.SpringBaseTest;
@@ -26,6 +29,7 @@ import org.nhindirect.config.repository.TrustBundleDomainReltnRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.HttpClientErrorException;
@@ -61,6 +65,11 @@ public class TrustBundleResource_getAllTrustBundleDomainRelts extends SpringBase
 				return "true";
 			}
 			
+			protected Collection<String> getAdditionalDomainNamesToAssociate()
+			{
+				return Collections.emptyList();
+			}
+			
 			
 			@Override
 			protected void performInner() throws Exception
@@ -99,6 +108,23 @@ public class TrustBundleResource_getAllTrustBundleDomainRelts extends SpringBase
 					
 					if (resp.getStatusCodeValue() != 204)
 						throw new HttpClientErrorException(resp.getStatusCode());
+					
+					for (String additionalDomainName : getAdditionalDomainNamesToAssociate())
+					{
+						final Domain additionalDomain = new Domain();
+						additionalDomain.setDomainName(additionalDomainName);
+						additionalDomain.setStatus(EntityStatus.ENABLED);
+						
+						ResponseEntity<Void> addResp = testRestTemplate.exchange("/domain", HttpMethod.PUT, new HttpEntity<>(additionalDomain), Void.class);
+						if (addResp.getStatusCodeValue() != 201)
+							throw new HttpClientErrorException(addResp.getStatusCode());
+						
+						addResp = testRestTemplate.exchange("/trustbundle/{bundle}/{domain}", 
+								HttpMethod.POST, null, Void.class, 
+								getBundleNameToAssociate(), additionalDomainName);
+						if (addResp.getStatusCodeValue() != 204)
+							throw new HttpClientErrorException(addResp.getStatusCode());
+					}
 				}
 
 				final Collection<TrustBundleDomainReltn> reltn = webClient.get()
@@ -203,6 +229,82 @@ public class TrustBundleResource_getAllTrustBundleDomainRelts extends SpringBase
 			}.perform();
 		}		
 		
+		@Test
+		public void testGetAllTrustBundleDomainRelts_matchingETagAfterRefresh_assertNotModified()  throws Exception
+		{
+			new TestPlan()
+			{
+				@Override
+				protected Collection<TrustBundleDomainReltn> getBundlesToAdd()
+				{
+					final Collection<TrustBundleDomainReltn> bundles = new ArrayList<TrustBundleDomainReltn>();
+					
+					TrustBundle bundle = new TrustBundle();
+					bundle.setBundleName("testBundle1");
+					String bundleURL = getClass().getClassLoader().getResource("bundles/providerTestBundle.p7b").toString();
+					bundle.setBundleURL(bundleURL);	
+					bundle.setRefreshInterval(24);
+					bundle.setSigningCertificateData(null);		
+					
+					TrustBundleDomainReltn reltn = new TrustBundleDomainReltn();
+					reltn.setDomain(new Domain());
+					reltn.setTrustBundle(bundle);
+					
+					bundles.add(reltn);
+					
+					return bundles;
+				}
+
+				@Override
+				protected Domain getDomainToAdd()
+				{
+					Domain domain = new Domain();
+					
+					domain.setDomainName("test.com");
+					domain.setStatus(EntityStatus.ENABLED);
+					
+					return domain;
+				}
+				
+				@Override
+				protected String getBundleNameToAssociate()
+				{
+					return "testBundle1";
+				}
+				
+				@Override
+				protected String getDomainNameToAssociate()
+				{
+					return "test.com";
+				}
+				
+				protected void doAssertions(Collection<TrustBundleDomainReltn> bundles) throws Exception
+				{
+					final ResponseEntity<String> resp = webClient.get()
+					        .uri("/trustbundle/domains/bundles/reltns")
+					        .retrieve()
+					        .toEntity(String.class).block();
+					
+					final String etag = resp.getHeaders().getETag();
+					assertNotNull(etag);
+					
+					// a refresh that does not change the bundle does not change the tag
+					final ResponseEntity<Void> refreshResp = testRestTemplate.exchange("/trustbundle/{bundle}/refreshBundle", 
+							HttpMethod.POST, null, Void.class, "testBundle1");
+					assertEquals(204, refreshResp.getStatusCodeValue());
+					
+					final ResponseEntity<String> notModifiedResp = webClient.get()
+					        .uri("/trustbundle/domains/bundles/reltns")
+					        .header(HttpHeaders.IF_NONE_MATCH, etag)
+					        .retrieve()
+					        .toEntity(String.class).block();
+					
+					assertEquals(304, notModifiedResp.getStatusCodeValue());
+					assertNull(notModifiedResp.getBody());
+				}
+			}.perform();
+		}
+		
 		@Test
 		public void testGetAllTrustBundleDomainRelts_suppressAnchors_assertBundlesRetrievedWithNoAnchors()  throws Exception
 		{
@@ -293,6 +395,85 @@ public class TrustBundleResource_getAllTrustBundleDomainRelts extends SpringBase
 			}.perform();
 		}	
 		
+		@Test
+		public void testGetAllTrustBundleDomainRelts_bundleInMultipleDomains_assertReltnsRetrieved()  throws Exception
+		{
+			new TestPlan()
+			{
+				@Override
+				protected Collection<TrustBundleDomainReltn> getBundlesToAdd()
+				{
+					final Collection<TrustBundleDomainReltn> bundles = new ArrayList<TrustBundleDomainReltn>();
+					
+					TrustBundle bundle = new TrustBundle();
+					bundle.setBundleName("testBundle1");
+					String bundleURL = getClass().getClassLoader().getResource("bundles/providerTestBundle.p7b").toString();
+					bundle.setBundleURL(bundleURL);	
+					bundle.setRefreshInterval(24);
+					bundle.setSigningCertificateData(null);		
+					
+					TrustBundleDomainReltn reltn = new TrustBundleDomainReltn();
+					reltn.setDomain(new Domain());
+					reltn.setTrustBundle(bundle);
+					
+					bundles.add(reltn);
+					
+					return bundles;
+				}
+
+				@Override
+				protected Domain getDomainToAdd()
+				{
+					final Address postmasterAddress = new Address();
+					postmasterAddress.setEmailAddress("me@test.com");
+					
+					Domain domain = new Domain();
+					
+					domain.setDomainName("test.com");
+					domain.setStatus(EntityStatus.ENABLED);
+					domain.setPostmasterAddress(postmasterAddress);			
+					
+					return domain;
+				}
+				
+				@Override
+				protected String getBundleNameToAssociate()
+				{
+					return "testBundle1";
+				}
+				
+				@Override
+				protected String getDomainNameToAssociate()
+				{
+					return "test.com";
+				}
+				
+				@Override
+				protected Collection<String> getAdditionalDomainNamesToAssociate()
+				{
+					return Collections.singletonList("test2.com");
+				}
+				
+				protected void doAssertions(Collection<TrustBundleDomainReltn> bundles) throws Exception
+				{
+					assertNotNull(bundles);
+					assertEquals(2, bundles.size());
+					
+					final Set<String> domainNames = new HashSet<>();
+					for (TrustBundleDomainReltn retrievedBundle : bundles)
+					{	
+						domainNames.add(retrievedBundle.getDomain().getDomainName());
+						
+						assertEquals("testBundle1", retrievedBundle.getTrustBundle().getBundleName());
+						assertEquals(6, retrievedBundle.getTrustBundle().getTrustBundleAnchors().size());
+					}
+					
+					assertTrue(domainNames.contains("test.com"));
+					assertTrue(domainNames.contains("test2.com"));
+				}
+			}.perform();
+		}	
+		
 		@Test
 		public void testGetAllTrustBundleDomainRelts_noBundlesInDomain_assertNoBundlesRetrieved()  throws Exception
 		{
@@ -16,9 +16,11 @@ import java.util.Collection;
 import org.nhindirect.config.BaseTestPlan;
 import org.nhindirect.config.SpringBaseTest;
 import org.nhindirect.config.model.TrustBundle;
+import org.nhindirect.config.model.TrustBundleAnchor;
 import org.nhindirect.config.repository.TrustBundleRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.HttpClientErrorException;
@@ -43,6 +45,11 @@ public class TrustBundleResource_getTrustBundleByNameTest extends SpringBaseTest
 			
 			protected abstract String getBundleNameToFetch();
 			
+			protected String getViewToFetch()
+			{
+				return "";
+			}
+			
 			@Override
 			protected void performInner() throws Exception
 			{				
@@ -62,6 +69,7 @@ public class TrustBundleResource_getTrustBundleByNameTest extends SpringBaseTest
 
 				final TrustBundle bundle = webClient.get()
 				        .uri(uriBuilder -> uriBuilder.path("trustbundle/{bundleName}")
+				        	 .queryParam("view", getViewToFetch())
 				             .build(getBundleNameToFetch()))
 				        .retrieve()
 				        .bodyToMono(TrustBundle.class).block();	
@@ -131,6 +139,161 @@ public class TrustBundleResource_getTrustBundleByNameTest extends SpringBaseTest
 			}.perform();
 		}	
 		
+		@Test
+		public void testGetBundleByName_thumbprintsView_assertAnchorsRetrievedWithoutData()  throws Exception
+		{
+			new TestPlan()
+			{
+				@Override
+				protected Collection<TrustBundle> getBundlesToAdd()
+				{
+					final Collection<TrustBundle> bundles = new ArrayList<TrustBundle>();
+					
+					TrustBundle bundle = new TrustBundle();
+					bundle.setBundleName("testBundle1");
+					String bundleURL = getClass().getClassLoader().getResource("bundles/providerTestBundle.p7b").toString();
+					bundle.setBundleURL(bundleURL);	
+					bundle.setRefreshInterval(24);
+					bundle.setSigningCertificateData(null);		
+					bundles.add(bundle);
+					
+					return bundles;
+				}
+
+				@Override
+				protected String getBundleNameToFetch()
+				{
+					return "testBundle1";
+				}
+				
+				@Override
+				protected String getViewToFetch()
+				{
+					return "thumbprints";
+				}
+				
+				protected void doAssertions(TrustBundle bundle) throws Exception
+				{
+					assertNotNull(bundle);
+					assertEquals("testBundle1", bundle.getBundleName());
+					assertNotNull(bundle.getCheckSum());
+					assertNotNull(bundle.getLastSuccessfulRefresh());
+					assertTrue(bundle.getTrustBundleAnchors().size() > 0);
+					
+					for (TrustBundleAnchor anchor : bundle.getTrustBundleAnchors())
+					{
+						assertNotNull(anchor.getThumbprint());
+						assertNotNull(anchor.getValidEndDate());
+						assertNull(anchor.getAnchorData());
+					}
+				}
+			}.perform();
+		}	
+		
+		@Test
+		public void testGetBundleByName_metadataView_assertNoAnchorsRetrieved()  throws Exception
+		{
+			new TestPlan()
+			{
+				@Override
+				protected Collection<TrustBundle> getBundlesToAdd()
+				{
+					final Collection<TrustBundle> bundles = new ArrayList<TrustBundle>();
+					
+					TrustBundle bundle = new TrustBundle();
+					bundle.setBundleName("testBundle1");
+					String bundleURL = getClass().getClassLoader().getResource("bundles/providerTestBundle.p7b").toString();
+					bundle.setBundleURL(bundleURL);	
+					bundle.setRefreshInterval(24);
+					bundle.setSigningCertificateData(null);		
+					bundles.add(bundle);
+					
+					return bundles;
+				}
+
+				@Override
+				protected String getBundleNameToFetch()
+				{
+					return "testBundle1";
+				}
+				
+				@Override
+				protected String getViewToFetch()
+				{
+					return "metadata";
+				}
+				
+				protected void doAssertions(TrustBundle bundle) throws Exception
+				{
+					assertNotNull(bundle);
+					assertEquals("testBundle1", bundle.getBundleName());
+					assertNotNull(bundle.getCheckSum());
+					assertNotNull(bundle.getLastSuccessfulRefresh());
+					assertTrue(bundle.getTrustBundleAnchors().isEmpty());
+				}
+			}.perform();
+		}	
+		
+		@Test
+		public void testGetBundleByName_matchingETag_assertNotModified()  throws Exception
+		{
+			new TestPlan()
+			{
+				@Override
+				protected Collection<TrustBundle> getBundlesToAdd()
+				{
+					final Collection<TrustBundle> bundles = new ArrayList<TrustBundle>();
+					
+					TrustBundle bundle = new TrustBundle();
+					bundle.setBundleName("testBundle1");
+					String bundleURL = getClass().getClassLoader().getResource("bundles/providerTestBundle.p7b").toString();
+					bundle.setBundleURL(bundleURL);	
+					bundle.setRefreshInterval(24);
+					bundle.setSigningCertificateData(null);		
+					bundles.add(bundle);
+					
+					return bundles;
+				}
+
+				@Override
+				protected String getBundleNameToFetch()
+				{
+					return "testBundle1";
+				}
+				
+				protected void doAssertions(TrustBundle bundle) throws Exception
+				{
+					final ResponseEntity<TrustBundle> resp = webClient.get()
+					        .uri(uriBuilder -> uriBuilder.path("trustbundle/{bundleName}").build(getBundleNameToFetch()))
+					        .retrieve()
+					        .toEntity(TrustBundle.class).block();
+					
+					final String etag = resp.getHeaders().getETag();
+					assertNotNull(etag);
+					assertTrue(resp.getHeaders().getCacheControl().contains("no-cache"));
+					
+					final ResponseEntity<TrustBundle> notModifiedResp = webClient.get()
+					        .uri(uriBuilder -> uriBuilder.path("trustbundle/{bundleName}").build(getBundleNameToFetch()))
+					        .header(HttpHeaders.IF_NONE_MATCH, etag)
+					        .retrieve()
+					        .toEntity(TrustBundle.class).block();
+					
+					assertEquals(304, notModifiedResp.getStatusCodeValue());
+					assertNull(notModifiedResp.getBody());
+					
+					// a different view is a different representation
+					final ResponseEntity<TrustBundle> viewResp = webClient.get()
+					        .uri(uriBuilder -> uriBuilder.path("trustbundle/{bundleName}").queryParam("view", "metadata").build(getBundleNameToFetch()))
+					        .header(HttpHeaders.IF_NONE_MATCH, etag)
+					        .retrieve()
+					        .toEntity(TrustBundle.class).block();
+					
+					assertEquals(200, viewResp.getStatusCodeValue());
+					assertNotNull(viewResp.getBody());
+				}
+			}.perform();
+		}	
+		
 		@Test
 		public void testGetBundleByName_nameNotFound_assertBundleNotRetrieved()  throws Exception
 		{
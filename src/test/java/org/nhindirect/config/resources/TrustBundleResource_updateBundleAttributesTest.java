@@ -162,6 +162,7 @@ public class TrustBundleResource_updateBundleAttributesTest extends SpringBaseTe
 			new TestPlan()
 			{
 				protected Collection<TrustBundle> bundles;
+				protected long since;
 				
 				@Override
 				protected Collection<TrustBundle> getBundlesToAdd()
@@ -189,6 +190,8 @@ public class TrustBundleResource_updateBundleAttributesTest extends SpringBaseTe
 				@Override
 				protected TrustBundle getBundleDataToUpdate() throws Exception
 				{
+					since = bundleService.changeLog.getVersion();
+					
 					final TrustBundle bundleData = new TrustBundle();
 					bundleData.setBundleName("testBundle1");
 					String bundleURL = getClass().getClassLoader().getResource("bundles/providerTestBundle.p7b").toString();
@@ -220,6 +223,7 @@ public class TrustBundleResource_updateBundleAttributesTest extends SpringBaseTe
 					assertNull(bundle.getSigningCertificateAsX509Certificate());
 					assertEquals(addedBundle.getBundleURL(), bundle.getBundleURL());
 					assertEquals(24, bundle.getRefreshInterval());
+					assertTrue(bundleService.changeLog.getChangesSince(since).getChanges().isEmpty());
 				}
 			}.perform();
 		}	
@@ -0,0 +1,115 @@
+package org.nhindirect.config.resources.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.nhindirect.config.model.CertPolicyGroup;
+import org.nhindirect.config.repository.CertPolicyGroupRepository;
+import org.nhindirect.config.repository.CertPolicyRepository;
+import org.nhindirect.config.store.CertPolicy;
+import org.nhindirect.config.store.CertPolicyGroupReltn;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+
+import reactor.core.publisher.Flux;
+
+public class CertPolicyGroupLoader_loadGroupsByIdTest
+{
+	protected R2dbcEntityTemplate template;
+	
+	protected CertPolicyGroupRepository groupRepo;
+	
+	protected CertPolicyRepository policyRepo;
+	
+	@BeforeEach
+	public void setUp()
+	{
+		template = mock(R2dbcEntityTemplate.class, RETURNS_DEEP_STUBS);
+		groupRepo = mock(CertPolicyGroupRepository.class);
+		policyRepo = mock(CertPolicyRepository.class);
+		
+		final org.nhindirect.config.store.CertPolicyGroup group1 = new org.nhindirect.config.store.CertPolicyGroup();
+		group1.setId(1L);
+		group1.setPolicyGroupName("Group1");
+		
+		final org.nhindirect.config.store.CertPolicyGroup group2 = new org.nhindirect.config.store.CertPolicyGroup();
+		group2.setId(2L);
+		group2.setPolicyGroupName("Group2");
+		
+		final CertPolicy policy = new CertPolicy();
+		policy.setId(10L);
+		policy.setPolicyName("Policy1");
+		policy.setLexicon(0);
+		policy.setPolicyData(new byte[] {1,2,3});
+		
+		final CertPolicyGroupReltn reltn1 = new CertPolicyGroupReltn();
+		reltn1.setId(100L);
+		reltn1.setPolicyGroupId(1L);
+		reltn1.setPolicyId(10L);
+		
+		final CertPolicyGroupReltn reltn2 = new CertPolicyGroupReltn();
+		reltn2.setId(101L);
+		reltn2.setPolicyGroupId(2L);
+		reltn2.setPolicyId(10L);
+		
+		when(groupRepo.findAllById(anyIterable())).thenReturn(Flux.just(group1, group2));
+		when(policyRepo.findAllById(anyIterable())).thenReturn(Flux.just(policy));
+		when(template.select(CertPolicyGroupReltn.class).matching(any()).all()).thenReturn(Flux.just(reltn1, reltn2));
+	}
+	
+	@Test
+	public void testLoadGroupsById_sharedPolicy_assertGroupsLoadedInBatch()
+	{
+		final CertPolicyGroupLoader loader = new CertPolicyGroupLoader(template, groupRepo, policyRepo);
+		
+		final Map<Long, CertPolicyGroup> groups = loader.loadGroupsById(Arrays.asList(1L, 2L, 1L)).block();
+		
+		assertNotNull(groups);
+		assertEquals(2, groups.size());
+		assertEquals("Group1", groups.get(1L).getPolicyGroupName());
+		assertEquals("Group2", groups.get(2L).getPolicyGroupName());
+		assertEquals(1, groups.get(1L).getPolicies().size());
+		assertEquals("Policy1", groups.get(1L).getPolicies().iterator().next().getPolicy().getPolicyName());
+		
+		verify(groupRepo, times(1)).findAllById(anyIterable());
+		verify(policyRepo, times(1)).findAllById(anyIterable());
+	}
+	
+	@Test
+	public void testLoadGroupsById_groupsAlreadyLoaded_assertNotLoadedAgain()
+	{
+		final CertPolicyGroupLoader loader = new CertPolicyGroupLoader(template, groupRepo, policyRepo);
+		
+		final Map<Long, CertPolicyGroup> groups = loader.loadGroupsById(Arrays.asList(1L, 2L)).block();
+		final Map<Long, CertPolicyGroup> reloadedGroups = loader.loadGroupsById(Arrays.asList(2L)).block();
+		
+		assertEquals(1, reloadedGroups.size());
+		assertSame(groups.get(2L), reloadedGroups.get(2L));
+		
+		verify(groupRepo, times(1)).findAllById(anyIterable());
+		verify(policyRepo, times(1)).findAllById(anyIterable());
+	}
+	
+	@Test
+	public void testLoadGroupsById_unknownGroup_assertNotReturned()
+	{
+		when(groupRepo.findAllById(anyIterable())).thenReturn(Flux.empty());
+		
+		final CertPolicyGroupLoader loader = new CertPolicyGroupLoader(template, groupRepo, policyRepo);
+		
+		assertTrue(loader.loadGroupsById(Arrays.asList(3L)).block().isEmpty());
+	}
+}
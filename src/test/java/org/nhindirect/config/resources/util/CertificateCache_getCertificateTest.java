@@ -0,0 +1,67 @@
+package org.nhindirect.config.resources.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.security.cert.X509Certificate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.nhindirect.common.cert.Thumbprint;
+import org.nhindirect.config.TestUtils;
+import org.nhindirect.config.store.CertificateException;
+import org.nhindirect.config.store.TrustBundleAnchor;
+
+public class CertificateCache_getCertificateTest
+{
+	@BeforeEach
+	public void setUp()
+	{
+		CertificateCache.clear();
+	}
+	
+	@Test
+	public void testGetCertificate_sameEncodedCert_assertParsedOnce() throws Exception
+	{
+		final byte[] encoded = TestUtils.loadCert("gm2552.der").getEncoded();
+		
+		final long startHits = CertificateCache.getStats().hitCount();
+		
+		final X509Certificate cert = CertificateCache.getCertificate(encoded);
+		final X509Certificate cachedCert = CertificateCache.getCertificate(encoded.clone());
+		
+		assertSame(cert, cachedCert);
+		assertEquals(startHits + 1, CertificateCache.getStats().hitCount());
+	}
+	
+	@Test
+	public void testGetCertificate_assertThumbprintMatchesEntityThumbprint() throws Exception
+	{
+		final X509Certificate cert = TestUtils.loadCert("umesh.der");
+		
+		assertEquals(Thumbprint.toThumbprint(cert).toString(), CertificateCache.getThumbprint(cert.getEncoded()));
+	}
+	
+	@Test
+	public void testToEntityTrustBundleAnchor_assertAnchorMatchesParsedAnchor() throws Exception
+	{
+		final X509Certificate cert = TestUtils.loadCert("gm2552.der");
+		
+		final TrustBundleAnchor expected = new TrustBundleAnchor();
+		expected.setData(cert.getEncoded());
+		
+		final TrustBundleAnchor anchor = CertificateCache.toEntityTrustBundleAnchor(cert.getEncoded());
+		
+		assertEquals(expected.getThumbprint(), anchor.getThumbprint());
+		assertEquals(expected.getValidStartDate(), anchor.getValidStartDate());
+		assertEquals(expected.getValidEndDate(), anchor.getValidEndDate());
+		assertEquals(cert, anchor.toCertificate());
+	}
+	
+	@Test
+	public void testGetCertificate_invalidData_assertException() throws Exception
+	{
+		assertThrows(CertificateException.class, () -> CertificateCache.getCertificate(new byte[] {1,2,3}));
+	}
+}
@@ -0,0 +1,120 @@
+package org.nhindirect.config.resources.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.nhindirect.config.model.Address;
+
+import reactor.core.publisher.Mono;
+
+public class ResourceLookupCache_getAddressTest
+{
+	protected ResourceLookupCache cache;
+	
+	protected AtomicInteger loads;
+	
+	@BeforeEach
+	public void setUp()
+	{
+		cache = new ResourceLookupCache(100, 60);
+		loads = new AtomicInteger();
+	}
+	
+	protected Mono<Address> load(Address address)
+	{
+		return Mono.fromCallable(() -> 
+		{
+			loads.incrementAndGet();
+			return address;
+		});
+	}
+	
+	@Test
+	public void testGetAddress_sameAddressDifferentCase_assertLoadedOnce()
+	{
+		final Address address = new Address();
+		address.setEmailAddress("me@test.com");
+		
+		final Address found = cache.getAddress("me@test.com", () -> load(address)).block();
+		final Address cached = cache.getAddress("ME@Test.com", () -> load(address)).block();
+		
+		assertSame(found, cached);
+		assertEquals(1, loads.get());
+		assertEquals(1, cache.getAddressStats().hitCount());
+		assertEquals(1, cache.getAddressStats().missCount());
+	}
+	
+	@Test
+	public void testGetAddress_addressNotFound_assertNegativeResultCached()
+	{
+		assertNull(cache.getAddress("me@test.com", () -> load(null)).block());
+		assertNull(cache.getAddress("me@test.com", () -> load(null)).block());
+		
+		assertEquals(1, loads.get());
+		assertEquals(1, cache.getAddressStats().hitCount());
+	}
+	
+	@Test
+	public void testGetAddress_invalidateAddress_assertReloaded()
+	{
+		assertNull(cache.getAddress("me@test.com", () -> load(null)).block());
+		
+		cache.invalidateAddress("Me@Test.com");
+		
+		final Address address = new Address();
+		address.setEmailAddress("me@test.com");
+		
+		assertSame(address, cache.getAddress("me@test.com", () -> load(address)).block());
+		assertEquals(2, loads.get());
+	}
+	
+	@Test
+	public void testGetAddress_errorInLoad_assertErrorNotCached()
+	{
+		final Address address = new Address();
+		address.setEmailAddress("me@test.com");
+		
+		try
+		{
+			cache.getAddress("me@test.com", () -> Mono.error(new IllegalStateException())).block();
+		}
+		catch (IllegalStateException e)
+		{
+			// expected
+		}
+		
+		assertSame(address, cache.getAddress("me@test.com", () -> load(address)).block());
+		assertEquals(1, loads.get());
+	}
+	
+	@Test
+	public void testGetAddress_cachingDisabled_assertLoadedEveryTime()
+	{
+		cache = new ResourceLookupCache(100, 0);
+		
+		cache.getAddress("me@test.com", () -> load(null)).block();
+		cache.getAddress("me@test.com", () -> load(null)).block();
+		
+		assertEquals(2, loads.get());
+	}
+	
+	@Test
+	public void testGetAddress_invalidatedDuringLoad_assertStaleResultNotCached()
+	{
+		final Address stale = new Address();
+		stale.setEmailAddress("me@test.com");
+		
+		final Address address = cache.getAddress("me@test.com", () -> load(stale)
+			.doOnNext(loaded -> cache.invalidateAddress("me@test.com"))).block();
+		
+		// the stale result is returned to the caller that loaded it, but is not cached
+		assertSame(stale, address);
+		assertNull(cache.getAddress("me@test.com", () -> load(null)).block());
+		assertEquals(2, loads.get());
+	}
+}
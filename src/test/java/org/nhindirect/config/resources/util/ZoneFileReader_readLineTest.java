@@ -0,0 +1,95 @@
+package org.nhindirect.config.resources.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.xbill.DNS.MXRecord;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.SOARecord;
+import org.xbill.DNS.Type;
+
+public class ZoneFileReader_readLineTest
+{
+	protected List<ZoneFileReader.Entry> read(ZoneFileReader reader, String... lines)
+	{
+		final List<ZoneFileReader.Entry> entries = new ArrayList<>();
+		for (String line : lines)
+			entries.addAll(reader.readLine(line));
+		entries.addAll(reader.finish());
+		
+		return entries;
+	}
+	
+	@Test
+	public void testReadLine_directivesAndInheritedOwner_assertRecordsRead() throws Exception
+	{
+		final List<ZoneFileReader.Entry> entries = read(new ZoneFileReader(null, 3600),
+				"; test zone",
+				"$ORIGIN test.com.",
+				"$TTL 86400",
+				"@ IN SOA ns1 admin (",
+				"    2021080201 ; serial",
+				"    3600 600 604800 300 )",
+				"",
+				"@ 300 IN MX 10 mail",
+				"  IN MX 20 mail2.other.com.",
+				"mail IN A 10.0.0.1");
+		
+		assertEquals(4, entries.size());
+		entries.forEach(entry -> assertNull(entry.getError()));
+		
+		final SOARecord soa = (SOARecord)entries.get(0).getRecords().get(0);
+		assertEquals(Name.fromString("test.com."), soa.getName());
+		assertEquals(Name.fromString("ns1.test.com."), soa.getHost());
+		assertEquals(2021080201L, soa.getSerial());
+		assertEquals(86400, soa.getTTL());
+		
+		final MXRecord mx = (MXRecord)entries.get(1).getRecords().get(0);
+		assertEquals(300, mx.getTTL());
+		assertEquals(Name.fromString("mail.test.com."), mx.getTarget());
+		
+		final Record inherited = entries.get(2).getRecords().get(0);
+		assertEquals(Name.fromString("test.com."), inherited.getName());
+		assertEquals(Type.MX, inherited.getType());
+		
+		assertEquals(Name.fromString("mail.test.com."), entries.get(3).getRecords().get(0).getName());
+	}
+	
+	@Test
+	public void testReadLine_parenthesesInQuotedString_assertSingleLineEntry() throws Exception
+	{
+		final List<ZoneFileReader.Entry> entries = read(new ZoneFileReader(Name.fromString("test.com."), 3600),
+				"txt IN TXT \"value (with an open parenthesis\"",
+				"mail IN A 10.0.0.1");
+		
+		assertEquals(2, entries.size());
+		assertEquals(Type.TXT, entries.get(0).getRecords().get(0).getType());
+		assertEquals(Type.A, entries.get(1).getRecords().get(0).getType());
+	}
+	
+	@Test
+	public void testReadLine_invalidEntries_assertErrorsAndRemainingEntriesRead() throws Exception
+	{
+		final List<ZoneFileReader.Entry> entries = read(new ZoneFileReader(Name.fromString("test.com."), 3600),
+				"  IN A 10.0.0.2",
+				"mail IN A not.an.address",
+				"$INCLUDE /etc/passwd",
+				"mail IN A 10.0.0.1");
+		
+		assertEquals(4, entries.size());
+		assertNotNull(entries.get(0).getError());
+		assertTrue(entries.get(0).getRecords().isEmpty());
+		assertNotNull(entries.get(1).getError());
+		assertNotNull(entries.get(2).getError());
+		assertEquals("$INCLUDE /etc/passwd", entries.get(2).getText());
+		assertNull(entries.get(3).getError());
+		assertEquals(Type.A, entries.get(3).getRecords().get(0).getType());
+	}
+}
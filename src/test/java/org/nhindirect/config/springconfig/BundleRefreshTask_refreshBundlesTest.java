@@ -0,0 +1,79 @@
+package org.nhindirect.config.springconfig;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+import org.nhindirect.config.processor.BundleCacheUpdateProcessor;
+import org.nhindirect.config.processor.BundleRefreshScheduler;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+public class BundleRefreshTask_refreshBundlesTest
+{
+	@Test
+	public void testRefreshBundles_previousRunInProgress_assertRunSkipped()
+	{
+		final Sinks.Empty<Void> inProgress = Sinks.empty();
+		
+		final BundleCacheUpdateProcessor updateProcessor = mock(BundleCacheUpdateProcessor.class);
+		when(updateProcessor.updateBundleCache()).thenReturn(inProgress.asMono());
+		
+		final BundleRefreshTask task = new BundleRefreshTask();
+		task.updateProcessor = updateProcessor;
+		
+		task.refreshBundles();
+		task.refreshBundles();
+		
+		verify(updateProcessor, times(1)).updateBundleCache();
+		assertTrue(task.running.get());
+		
+		inProgress.tryEmitEmpty();
+		
+		assertFalse(task.running.get());
+		
+		task.refreshBundles();
+		
+		verify(updateProcessor, times(2)).updateBundleCache();
+	}
+	
+	@Test
+	public void testRefreshBundles_shutdown_assertRunCancelled()
+	{
+		final BundleCacheUpdateProcessor updateProcessor = mock(BundleCacheUpdateProcessor.class);
+		when(updateProcessor.updateBundleCache()).thenReturn(Mono.never());
+		
+		final BundleRefreshTask task = new BundleRefreshTask();
+		task.updateProcessor = updateProcessor;
+		
+		task.refreshBundles();
+		task.shutdown();
+		
+		assertTrue(task.currentRun.isDisposed());
+		assertFalse(task.running.get());
+	}
+	
+	@Test
+	public void testRefreshBundles_schedulerConfigured_assertOnlyScheduleReconciled()
+	{
+		final BundleCacheUpdateProcessor updateProcessor = mock(BundleCacheUpdateProcessor.class);
+		final BundleRefreshScheduler refreshScheduler = mock(BundleRefreshScheduler.class);
+		when(refreshScheduler.scheduleAll()).thenReturn(Mono.empty());
+		
+		final BundleRefreshTask task = new BundleRefreshTask();
+		task.updateProcessor = updateProcessor;
+		task.refreshScheduler = refreshScheduler;
+		
+		task.refreshBundles();
+		
+		verify(refreshScheduler, times(1)).scheduleAll();
+		verify(updateProcessor, never()).updateBundleCache();
+		assertFalse(task.running.get());
+	}
+}